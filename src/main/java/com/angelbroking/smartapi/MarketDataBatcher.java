@@ -0,0 +1,247 @@
+package com.angelbroking.smartapi;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+
+/**
+ * Coalesces single symbol LTP and quote lookups into batched market data
+ * calls.
+ *
+ * Lookups of the same mode that arrive within the window are sent as one
+ * {@link SmartConnect#marketData(JSONObject)} call with up to 50 tokens per
+ * exchange, and every lookup's future completes with its own entry of the
+ * {@code fetched} list. A lookup for a token that is already waiting shares the
+ * same call. Tokens the server could not fetch complete exceptionally with a
+ * SmartAPIException, as does every lookup of a failed call.
+ */
+public class MarketDataBatcher implements AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(MarketDataBatcher.class);
+
+	public static final String MODE_LTP = "LTP";
+	public static final String MODE_OHLC = "OHLC";
+	public static final String MODE_FULL = "FULL";
+
+	/** Most tokens of one exchange the market data route accepts in a call. */
+	public static final int MAX_TOKENS_PER_EXCHANGE = 50;
+
+	private static final long DEFAULT_WINDOW_MILLIS = 5;
+
+	private final Function<JSONObject, CompletableFuture<JSONObject>> marketData;
+	private final long windowNanos;
+	private final ScheduledExecutorService scheduler;
+	private final Map<String, Batch> pending = new HashMap<>();
+	private boolean closed;
+
+	/**
+	 * Creates a batcher that waits 5 milliseconds for more lookups.
+	 */
+	public MarketDataBatcher(SmartConnect smartConnect) {
+		this(smartConnect, DEFAULT_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param window is how long the first lookup of a batch waits for more.
+	 */
+	public MarketDataBatcher(SmartConnect smartConnect, long window, TimeUnit unit) {
+		this(new SmartConnectAsync(smartConnect)::marketData, window, unit);
+	}
+
+	MarketDataBatcher(Function<JSONObject, CompletableFuture<JSONObject>> marketData, long window, TimeUnit unit) {
+		if (window < 0) {
+			throw new IllegalArgumentException("window should not be negative");
+		}
+		this.marketData = marketData;
+		this.windowNanos = unit.toNanos(window);
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "smartapi-market-data-batcher");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Looks up the last traded price of one instrument.
+	 *
+	 * @return a future of the fetched entry, with exchange, tradingSymbol,
+	 *         symbolToken and ltp.
+	 */
+	public CompletableFuture<JSONObject> getLTP(String exchange, String symbolToken) {
+		return getQuote(MODE_LTP, exchange, symbolToken);
+	}
+
+	/**
+	 * Looks up the quote of one instrument.
+	 *
+	 * @param mode is LTP, OHLC or FULL.
+	 * @return a future of the fetched entry of the instrument.
+	 */
+	public CompletableFuture<JSONObject> getQuote(String mode, String exchange, String symbolToken) {
+		if (mode == null || exchange == null || symbolToken == null) {
+			throw new IllegalArgumentException("mode, exchange and symbolToken should not be null");
+		}
+		CompletableFuture<JSONObject> future = new CompletableFuture<>();
+		Batch full = null;
+		synchronized (pending) {
+			if (closed) {
+				throw new IllegalStateException("batcher is closed");
+			}
+			Batch batch = pending.get(mode);
+			if (batch == null) {
+				batch = new Batch(mode);
+				pending.put(mode, batch);
+				Batch scheduled = batch;
+				scheduler.schedule(() -> flush(scheduled), windowNanos, TimeUnit.NANOSECONDS);
+			}
+			if (batch.add(exchange, symbolToken, future) >= MAX_TOKENS_PER_EXCHANGE) {
+				pending.remove(mode);
+				full = batch;
+			}
+		}
+		if (full != null) {
+			send(full);
+		}
+		return future;
+	}
+
+	/**
+	 * Sends the waiting lookups at once and stops the batcher, later lookups
+	 * are rejected.
+	 */
+	@Override
+	public void close() {
+		List<Batch> batches;
+		synchronized (pending) {
+			closed = true;
+			batches = new ArrayList<>(pending.values());
+			pending.clear();
+		}
+		scheduler.shutdownNow();
+		for (Batch batch : batches) {
+			send(batch);
+		}
+	}
+
+	private void flush(Batch batch) {
+		synchronized (pending) {
+			// a batch that filled up has already been sent
+			if (pending.get(batch.mode) != batch) {
+				return;
+			}
+			pending.remove(batch.mode);
+		}
+		send(batch);
+	}
+
+	private void send(Batch batch) {
+		JSONObject exchangeTokens = new JSONObject();
+		for (Map.Entry<String, Map<String, List<CompletableFuture<JSONObject>>>> exchange : batch.waiting.entrySet()) {
+			exchangeTokens.put(exchange.getKey(), new JSONArray(exchange.getValue().keySet()));
+		}
+		JSONObject params = new JSONObject();
+		params.put("mode", batch.mode);
+		params.put("exchangeTokens", exchangeTokens);
+
+		CompletableFuture<JSONObject> response;
+		try {
+			response = marketData.apply(params);
+		} catch (RuntimeException e) {
+			response = new CompletableFuture<>();
+			response.completeExceptionally(e);
+		}
+		response.whenComplete((data, error) -> {
+			if (error != null) {
+				Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+						: error;
+				log.error("market data batch of {} tokens failed: {}", batch.size, cause.getMessage());
+				batch.failAll(cause);
+			} else {
+				batch.complete(data);
+			}
+		});
+	}
+
+	/** Lookups of one mode, by exchange and token in arrival order. */
+	private static final class Batch {
+		private final String mode;
+		private final Map<String, Map<String, List<CompletableFuture<JSONObject>>>> waiting = new LinkedHashMap<>();
+		private int size;
+
+		Batch(String mode) {
+			this.mode = mode;
+		}
+
+		/** Returns the number of distinct tokens of the exchange. */
+		int add(String exchange, String symbolToken, CompletableFuture<JSONObject> future) {
+			Map<String, List<CompletableFuture<JSONObject>>> tokens = waiting.computeIfAbsent(exchange,
+					key -> new LinkedHashMap<>());
+			List<CompletableFuture<JSONObject>> futures = tokens.get(symbolToken);
+			if (futures == null) {
+				futures = new ArrayList<>(1);
+				tokens.put(symbolToken, futures);
+				size++;
+			}
+			futures.add(future);
+			return tokens.size();
+		}
+
+		void complete(JSONObject data) {
+			JSONArray fetched = data == null ? null : data.optJSONArray("fetched");
+			if (fetched != null) {
+				for (int i = 0; i < fetched.length(); i++) {
+					JSONObject quote = fetched.getJSONObject(i);
+					List<CompletableFuture<JSONObject>> futures = remove(quote.optString("exchange"),
+							quote.optString("symbolToken"));
+					if (futures != null) {
+						futures.forEach(future -> future.complete(quote));
+					}
+				}
+			}
+			JSONArray unfetched = data == null ? null : data.optJSONArray("unfetched");
+			if (unfetched != null) {
+				for (int i = 0; i < unfetched.length(); i++) {
+					JSONObject entry = unfetched.getJSONObject(i);
+					List<CompletableFuture<JSONObject>> futures = remove(entry.optString("exchange"),
+							entry.optString("symbolToken"));
+					if (futures != null) {
+						SmartAPIException error = new SmartAPIException(entry.optString("message", "not fetched"),
+								entry.optString("errorCode", null));
+						futures.forEach(future -> future.completeExceptionally(error));
+					}
+				}
+			}
+			// tokens missing from both lists
+			failAll(new SmartAPIException("no market data returned"));
+		}
+
+		void failAll(Throwable error) {
+			for (Map<String, List<CompletableFuture<JSONObject>>> tokens : waiting.values()) {
+				for (List<CompletableFuture<JSONObject>> futures : tokens.values()) {
+					futures.forEach(future -> future.completeExceptionally(error));
+				}
+			}
+			waiting.clear();
+		}
+
+		private List<CompletableFuture<JSONObject>> remove(String exchange, String symbolToken) {
+			Map<String, List<CompletableFuture<JSONObject>>> tokens = waiting.get(exchange);
+			return tokens == null ? null : tokens.remove(symbolToken);
+		}
+	}
+}
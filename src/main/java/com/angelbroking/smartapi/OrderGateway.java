@@ -0,0 +1,178 @@
+package com.angelbroking.smartapi;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.angelbroking.smartapi.http.RouteRateLimiter;
+import com.angelbroking.smartapi.http.SmartAPIRequestHandler;
+import com.angelbroking.smartapi.http.StreamingResponseParser;
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+import com.angelbroking.smartapi.models.Order;
+import com.angelbroking.smartapi.models.OrderParams;
+import com.angelbroking.smartapi.utils.LatencyHistogram;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Low latency path for placing orders.
+ *
+ * The request body is written straight from OrderParams into a per thread byte
+ * buffer, the request headers are built once per session, and only orderid and
+ * uniqueorderid are read from the response stream. Requests go through the
+ * connection pool of the SmartConnect session, {@link #warmUp()} opens a
+ * connection ahead of the first order so it does not pay for the TLS handshake.
+ *
+ * Unlike {@link SmartConnect#placeOrder(OrderParams, String)} errors are thrown
+ * rather than logged. The time of every call, including the wait for the rate
+ * limiter and failed calls, is recorded in {@link #getLatencyHistogram()}.
+ */
+public class OrderGateway {
+
+	private static final Logger log = LoggerFactory.getLogger(OrderGateway.class);
+
+	private static final String ROUTE = "api.order.place";
+	private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+	private static final ThreadLocal<OrderJsonWriter> WRITERS = ThreadLocal.withInitial(OrderJsonWriter::new);
+	private static final StreamingResponseParser.DataParser<Order> ORDER_IDS = OrderGateway::parseOrderIds;
+
+	private final SmartConnect smartConnect;
+	private final HttpUrl url = HttpUrl.get(new Routes().get(ROUTE));
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private volatile SessionHeaders sessionHeaders;
+
+	public OrderGateway(SmartConnect smartConnect) {
+		if (smartConnect == null) {
+			throw new IllegalArgumentException("smartConnect should not be null");
+		}
+		this.smartConnect = smartConnect;
+	}
+
+	/**
+	 * Places an order.
+	 *
+	 * @param orderParams is Order params.
+	 * @param variety     variety="regular". Order variety can be bo, co, amo,
+	 *                    regular.
+	 * @return Order object contains only orderId and uniqueOrderId.
+	 * @throws SmartAPIException if the order is rejected, the session is not set or
+	 *                           the route stays over its rate limit.
+	 * @throws IOException       if the request fails or the response can not be
+	 *                           read.
+	 */
+	public Order placeOrder(OrderParams orderParams, String variety) throws SmartAPIException, IOException {
+		if (orderParams == null) {
+			throw new IllegalArgumentException("orderParams should not be null");
+		}
+		long start = System.nanoTime();
+		try {
+			RouteRateLimiter limiter = smartConnect.getRateLimiter();
+			if (limiter != null) {
+				limiter.acquire(ROUTE);
+			}
+			SessionHeaders session = session();
+			OrderJsonWriter writer = WRITERS.get();
+			writer.writePlaceOrder(orderParams, variety);
+			// the body is read from the buffer within execute, before this thread writes to it again
+			Request request = new Request.Builder().url(url).headers(session.headers)
+					.post(RequestBody.create(writer.getBuffer(), JSON, 0, writer.getLength())).build();
+			try (Response response = session.handler.getClient().newCall(request).execute()) {
+				Order order = StreamingResponseParser.parse(response, ORDER_IDS);
+				if (order == null || order.orderId == null) {
+					throw new SmartAPIException("order id not found in response");
+				}
+				return order;
+			}
+		} finally {
+			latency.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Opens a keep-alive connection to Smart API, or refreshes an idle one, so the
+	 * next order does not wait for DNS, TCP and TLS. The response is discarded.
+	 *
+	 * @throws SmartAPIException if the session is not set.
+	 * @throws IOException       if the server can not be reached.
+	 */
+	public void warmUp() throws SmartAPIException, IOException {
+		SessionHeaders session = session();
+		Request request = new Request.Builder().url(url).headers(session.headers).head().build();
+		long start = System.nanoTime();
+		try (Response response = session.handler.getClient().newCall(request).execute()) {
+			log.debug("warm up {} in {} us", response.code(),
+					TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+		}
+	}
+
+	/**
+	 * Returns the latencies of all placeOrder calls, from the call until the order
+	 * id is read or the call fails.
+	 */
+	public LatencyHistogram getLatencyHistogram() {
+		return latency;
+	}
+
+	private SessionHeaders session() throws SmartAPIException {
+		SmartAPIRequestHandler handler = smartConnect.getRequestHandler();
+		String apiKey = smartConnect.apiKeyIfSet();
+		String accessToken = smartConnect.accessTokenIfSet();
+		if (handler == null || apiKey == null || accessToken == null) {
+			throw new SmartAPIException("apiKey and accessToken should be set before making requests");
+		}
+		SessionHeaders session = sessionHeaders;
+		if (session == null || !session.matches(handler, apiKey, accessToken)) {
+			session = new SessionHeaders(handler, apiKey, accessToken);
+			sessionHeaders = session;
+		}
+		return session;
+	}
+
+	private static Order parseOrderIds(JsonParser parser) throws IOException {
+		Order order = new Order();
+		if (parser.currentToken() != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return order;
+		}
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ("orderid".equals(field) && value == JsonToken.VALUE_STRING) {
+				order.orderId = parser.getText();
+			} else if ("uniqueorderid".equals(field) && value == JsonToken.VALUE_STRING) {
+				order.uniqueOrderId = parser.getText();
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return order;
+	}
+
+	/** Headers of one login, rebuilt when the session changes. */
+	private static final class SessionHeaders {
+		private final SmartAPIRequestHandler handler;
+		private final String apiKey;
+		private final String accessToken;
+		private final Headers headers;
+
+		SessionHeaders(SmartAPIRequestHandler handler, String apiKey, String accessToken) {
+			this.handler = handler;
+			this.apiKey = apiKey;
+			this.accessToken = accessToken;
+			this.headers = handler.requestHeaders(apiKey, accessToken);
+		}
+
+		boolean matches(SmartAPIRequestHandler handler, String apiKey, String accessToken) {
+			return this.handler == handler && this.apiKey.equals(apiKey) && this.accessToken.equals(accessToken);
+		}
+	}
+}
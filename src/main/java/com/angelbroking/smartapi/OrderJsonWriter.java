@@ -0,0 +1,191 @@
+package com.angelbroking.smartapi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.angelbroking.smartapi.models.OrderParams;
+
+/**
+ * Writes the place order request body straight into a reusable byte array.
+ *
+ * Field names are encoded once up front and values are appended without an
+ * intermediate JSONObject or String, in the same field order and number format
+ * as SmartConnect.placeOrder. Not thread safe, use one writer per thread.
+ */
+final class OrderJsonWriter {
+
+	private static final byte[] EXCHANGE = name("exchange");
+	private static final byte[] TRADING_SYMBOL = name("tradingsymbol");
+	private static final byte[] TRANSACTION_TYPE = name("transactiontype");
+	private static final byte[] QUANTITY = name("quantity");
+	private static final byte[] PRICE = name("price");
+	private static final byte[] PRODUCT_TYPE = name("producttype");
+	private static final byte[] ORDER_TYPE = name("ordertype");
+	private static final byte[] DURATION = name("duration");
+	private static final byte[] SYMBOL_TOKEN = name("symboltoken");
+	private static final byte[] SQUARE_OFF = name("squareoff");
+	private static final byte[] STOP_LOSS = name("stoploss");
+	private static final byte[] TRIGGER_PRICE = name("triggerprice");
+	private static final byte[] VARIETY = name("variety");
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private byte[] buffer = new byte[512];
+	private int length;
+
+	/**
+	 * Replaces the buffer contents with the body of a place order request.
+	 *
+	 * @throws IllegalArgumentException if the price is not a finite number.
+	 */
+	void writePlaceOrder(OrderParams orderParams, String variety) {
+		length = 0;
+		writeByte('{');
+		writeString(EXCHANGE, orderParams.exchange);
+		writeString(TRADING_SYMBOL, orderParams.tradingsymbol);
+		writeString(TRANSACTION_TYPE, orderParams.transactiontype);
+		if (orderParams.quantity != null) {
+			writeName(QUANTITY);
+			writeLong(orderParams.quantity);
+		}
+		if (orderParams.price != null) {
+			writeName(PRICE);
+			writeDouble(orderParams.price);
+		}
+		writeString(PRODUCT_TYPE, orderParams.producttype);
+		writeString(ORDER_TYPE, orderParams.ordertype);
+		writeString(DURATION, orderParams.duration);
+		writeString(SYMBOL_TOKEN, orderParams.symboltoken);
+		writeString(SQUARE_OFF, orderParams.squareoff);
+		writeString(STOP_LOSS, orderParams.stoploss);
+		writeString(TRIGGER_PRICE, orderParams.triggerprice);
+		writeString(VARIETY, variety);
+		writeByte('}');
+	}
+
+	/** Returns the backing array, valid up to {@link #getLength()} until the next write. */
+	byte[] getBuffer() {
+		return buffer;
+	}
+
+	int getLength() {
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		return new String(buffer, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private static byte[] name(String name) {
+		return ("\"" + name + "\":").getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private void writeName(byte[] name) {
+		if (length > 1) {
+			writeByte(',');
+		}
+		ensureCapacity(name.length);
+		System.arraycopy(name, 0, buffer, length, name.length);
+		length += name.length;
+	}
+
+	private void writeString(byte[] name, String value) {
+		if (value == null) {
+			return;
+		}
+		writeName(name);
+		ensureCapacity(value.length() + 2);
+		buffer[length++] = '"';
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+				ensureCapacity(1);
+				buffer[length++] = (byte) c;
+			} else if (c == '"' || c == '\\') {
+				writeByte('\\');
+				writeByte(c);
+			} else if (c < 0x20) {
+				writeByte('\\');
+				writeByte('u');
+				writeByte('0');
+				writeByte('0');
+				writeByte(HEX[c >> 4]);
+				writeByte(HEX[c & 0xF]);
+			} else {
+				// rare outside ASCII, encode the code point the slow way
+				int codePoint = value.codePointAt(i);
+				byte[] utf8 = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+				ensureCapacity(utf8.length);
+				System.arraycopy(utf8, 0, buffer, length, utf8.length);
+				length += utf8.length;
+				i += Character.charCount(codePoint) - 1;
+			}
+		}
+		writeByte('"');
+	}
+
+	private void writeLong(long value) {
+		if (value == Long.MIN_VALUE) {
+			writeAscii(Long.toString(value));
+			return;
+		}
+		ensureCapacity(20);
+		if (value < 0) {
+			buffer[length++] = '-';
+			value = -value;
+		}
+		int start = length;
+		do {
+			buffer[length++] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value > 0);
+		// digits were written least significant first
+		for (int i = start, j = length - 1; i < j; i++, j--) {
+			byte digit = buffer[i];
+			buffer[i] = buffer[j];
+			buffer[j] = digit;
+		}
+	}
+
+	private void writeDouble(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			throw new IllegalArgumentException("price should be a finite number");
+		}
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			writeLong((long) value);
+			return;
+		}
+		// same text as org.json: shortest round trip digits without trailing zeros
+		String text = Double.toString(value);
+		if (text.indexOf('E') < 0 && text.indexOf('.') > 0) {
+			int end = text.length();
+			while (text.charAt(end - 1) == '0') {
+				end--;
+			}
+			if (text.charAt(end - 1) == '.') {
+				end--;
+			}
+			text = text.substring(0, end);
+		}
+		writeAscii(text);
+	}
+
+	private void writeAscii(String text) {
+		ensureCapacity(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			buffer[length++] = (byte) text.charAt(i);
+		}
+	}
+
+	private void writeByte(int b) {
+		ensureCapacity(1);
+		buffer[length++] = (byte) b;
+	}
+
+	private void ensureCapacity(int extra) {
+		if (length + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+		}
+	}
+}
@@ -79,6 +79,10 @@ public class Routes {
 		return null;
 	}
 
+	public String getRootUrl() {
+		return _rootUrl;
+	}
+
 	public String getLoginUrl() {
 		return _loginUrl;
 	}
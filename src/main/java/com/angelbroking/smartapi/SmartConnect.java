@@ -1,13 +1,24 @@
 package com.angelbroking.smartapi;
 
+import com.angelbroking.smartapi.http.ClientIdentity;
+import com.angelbroking.smartapi.http.ConnectionStats;
+import com.angelbroking.smartapi.http.ConnectionWarmer;
+import com.angelbroking.smartapi.http.HttpClientConfig;
+import com.angelbroking.smartapi.http.ResponseCache;
+import com.angelbroking.smartapi.http.RouteRateLimiter;
 import com.angelbroking.smartapi.http.SessionExpiryHook;
 import com.angelbroking.smartapi.http.SmartAPIRequestHandler;
+import com.angelbroking.smartapi.http.StreamingResponseParser;
+import com.angelbroking.smartapi.http.TokenRefreshInterceptor;
 import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
 import com.angelbroking.smartapi.models.*;
+import com.angelbroking.smartapi.orderupdate.OrderUpdateListner;
+import com.angelbroking.smartapi.smartstream.models.SmartStreamError;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import okhttp3.OkHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,9 +30,13 @@ import java.net.Proxy;
 import java.net.http.HttpClient;
 import java.net.http.WebSocket;
 import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.HttpsURLConnection;
 
 import static com.angelbroking.smartapi.utils.Constants.IO_EXCEPTION_ERROR_MSG;
@@ -39,12 +54,24 @@ public class SmartConnect {
 	public static boolean ENABLE_LOGGING = false;
 	private Proxy proxy = null;
 	private String apiKey;
-	private String accessToken;
-	private String refreshToken;
+	private volatile String accessToken;
+	private volatile String refreshToken;
 	private Routes routes = new Routes();
 	private String feedToken; // Added for WebSocket
 	private String userId;
-	private SmartAPIRequestHandler smartAPIRequestHandler = new SmartAPIRequestHandler(proxy);
+	private ClientIdentity clientIdentity;
+	private RouteRateLimiter rateLimiter = new RouteRateLimiter();
+	// route key of each cached url, its limit is taken on a cache miss only
+	private final Map<String, String> cachedRouteKeys = new ConcurrentHashMap<>();
+	private HttpClientConfig httpClientConfig = new HttpClientConfig();
+	private final ConnectionStats connectionStats = new ConnectionStats();
+	// shared by the handlers of all logins so the pooled connections stay warm
+	private OkHttpClient httpClient;
+	private boolean httpClientLogging;
+	private volatile boolean autoRenewSession = true;
+	private ConnectionWarmer connectionWarmer;
+	private volatile ResponseCache responseCache;
+	private SmartAPIRequestHandler smartAPIRequestHandler = newRequestHandler();
 
 	// WebSocket related fields
 	private HttpClient wsHttpClient;
@@ -77,6 +104,217 @@ public class SmartConnect {
 		this.apiKey = apiKey;
 	}
 
+	/**
+	 * Sets the local IP, public IP and MAC address sent with every request
+	 * instead of the ones detected in the background.
+	 *
+	 * @param clientIdentity is the identity used from now on.
+	 */
+	public void setClientIdentity(ClientIdentity clientIdentity) {
+		this.clientIdentity = clientIdentity;
+		this.smartAPIRequestHandler = newRequestHandler();
+	}
+
+	/**
+	 * Returns the rate limiter applied to every route, or null if requests are
+	 * not throttled.
+	 */
+	public RouteRateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	/**
+	 * Sets the rate limiter applied to every route.
+	 *
+	 * @param rateLimiter is the limiter to use, null sends requests unthrottled.
+	 */
+	public void setRateLimiter(RouteRateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Waits for the rate limit of a route and returns its url. Routes with a
+	 * cached response wait in {@link #acquireOnCacheMiss} instead, so that a cache
+	 * hit is answered at once.
+	 *
+	 * @throws SmartAPIException if the route stays over budget for longer than
+	 *                           the maximum wait of the limiter.
+	 */
+	private String routeUrl(String routeKey) throws SmartAPIException {
+		String url = routes.get(routeKey);
+		ResponseCache cache = responseCache;
+		if (cache != null && cache.isCached(url)) {
+			cachedRouteKeys.putIfAbsent(url, routeKey);
+			return url;
+		}
+		RouteRateLimiter limiter = rateLimiter;
+		if (limiter != null) {
+			limiter.acquire(routeKey);
+		}
+		return url;
+	}
+
+	private void acquireOnCacheMiss(String url) throws SmartAPIException {
+		RouteRateLimiter limiter = rateLimiter;
+		String routeKey = cachedRouteKeys.get(url);
+		if (limiter != null && routeKey != null) {
+			limiter.acquire(routeKey);
+		}
+	}
+
+	private SmartAPIRequestHandler newRequestHandler() {
+		if (httpClient == null || httpClientLogging != ENABLE_LOGGING) {
+			httpClient = httpClientConfig.newClient(proxy, connectionStats).newBuilder()
+					.addInterceptor(new TokenRefreshInterceptor(() -> accessToken, this::renewSession)).build();
+			httpClientLogging = ENABLE_LOGGING;
+		}
+		SmartAPIRequestHandler handler = clientIdentity != null ? new SmartAPIRequestHandler(httpClient, clientIdentity)
+				: new SmartAPIRequestHandler(httpClient);
+		handler.setResponseCache(responseCache);
+		handler.setCacheMissThrottle(this::acquireOnCacheMiss);
+		return handler;
+	}
+
+	/**
+	 * Caches the responses of profile, RMS, holdings, GTT rule list, put call
+	 * ratio and scrip search calls, which change at most every few seconds.
+	 * Profile and scrip search are kept for 5 minutes, the others for 5 seconds.
+	 * Only the blocking calls are cached, SmartConnectAsync always sends them.
+	 *
+	 * @return the cache, its TTLs can be changed by route url.
+	 */
+	public ResponseCache enableResponseCache() {
+		ResponseCache cache = new ResponseCache();
+		cache.setTtl(routes.get("api.user.profile"), 5, TimeUnit.MINUTES);
+		cache.setTtl(routes.get("api.search.script.data"), 5, TimeUnit.MINUTES);
+		cache.setTtl(routes.get("api.order.rms.data"), 5, TimeUnit.SECONDS);
+		cache.setTtl(routes.get("api.order.rms.holding"), 5, TimeUnit.SECONDS);
+		cache.setTtl(routes.get("api.order.rms.AllHolding"), 5, TimeUnit.SECONDS);
+		cache.setTtl(routes.get("api.gtt.list"), 5, TimeUnit.SECONDS);
+		cache.setTtl(routes.get("api.putCallRatio"), 5, TimeUnit.SECONDS);
+		setResponseCache(cache);
+		return cache;
+	}
+
+	/**
+	 * Sets the cache of slow changing responses.
+	 *
+	 * @param responseCache is the cache to use, null turns caching off.
+	 */
+	public void setResponseCache(ResponseCache responseCache) {
+		this.responseCache = responseCache;
+		smartAPIRequestHandler.setResponseCache(responseCache);
+	}
+
+	public ResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	/**
+	 * Wraps an order update listener so that every order update drops the cached
+	 * funds, holdings and GTT rules before the listener is called.
+	 *
+	 * @param listener is passed to OrderUpdateWebsocket instead of the given one.
+	 */
+	public OrderUpdateListner invalidatingResponseCache(OrderUpdateListner listener) {
+		return new OrderUpdateListner() {
+			@Override
+			public void onConnected() {
+				listener.onConnected();
+			}
+
+			@Override
+			public void onDisconnected() {
+				listener.onDisconnected();
+			}
+
+			@Override
+			public void onError(SmartStreamError error) {
+				listener.onError(error);
+			}
+
+			@Override
+			public void onPong() {
+				listener.onPong();
+			}
+
+			@Override
+			public void onOrderUpdate(String data) {
+				ResponseCache cache = responseCache;
+				if (cache != null) {
+					cache.invalidate(routes.get("api.order.rms.data"));
+					cache.invalidate(routes.get("api.order.rms.holding"));
+					cache.invalidate(routes.get("api.order.rms.AllHolding"));
+					cache.invalidate(routes.get("api.gtt.list"));
+				}
+				listener.onOrderUpdate(data);
+			}
+		};
+	}
+
+	/**
+	 * Replaces the HTTP client with one built from the given settings. Idle
+	 * connections of the previous client are closed, requests in flight complete.
+	 *
+	 * @param httpClientConfig is the pool, dispatcher and timeout settings, later
+	 *                         changes to it need another call.
+	 */
+	public void setHttpClientConfig(HttpClientConfig httpClientConfig) {
+		if (httpClientConfig == null) {
+			throw new IllegalArgumentException("httpClientConfig should not be null");
+		}
+		OkHttpClient previous = httpClient;
+		this.httpClientConfig = httpClientConfig;
+		this.httpClient = null;
+		this.smartAPIRequestHandler = newRequestHandler();
+		if (previous != null) {
+			previous.connectionPool().evictAll();
+		}
+	}
+
+	/**
+	 * Sets whether an expired session is renewed with the refresh token and the
+	 * failed request replayed, true by default. When off, or when the renewal
+	 * fails, requests fail with a TokenException and the session expiry hook is
+	 * called.
+	 */
+	public void setAutoRenewSession(boolean autoRenewSession) {
+		this.autoRenewSession = autoRenewSession;
+	}
+
+	/**
+	 * Renews the session for TokenRefreshInterceptor, which makes sure only one
+	 * renewal runs at a time.
+	 */
+	private String renewSession() {
+		String expiredToken = accessToken;
+		String currentRefreshToken = refreshToken;
+		if (!autoRenewSession || expiredToken == null || currentRefreshToken == null) {
+			return null;
+		}
+		log.info("access token expired, renewing the session");
+		TokenSet tokenSet = renewAccessToken(expiredToken, currentRefreshToken);
+		return tokenSet == null ? null : tokenSet.getAccessToken();
+	}
+
+	/**
+	 * Returns the pool hits and misses of all requests made by this SmartConnect.
+	 */
+	public ConnectionStats getConnectionStats() {
+		return connectionStats;
+	}
+
+	/**
+	 * Returns the warmer that keeps connections to Smart API open, it is not
+	 * started until {@link ConnectionWarmer#start()} is called.
+	 */
+	public synchronized ConnectionWarmer getConnectionWarmer() {
+		if (connectionWarmer == null) {
+			connectionWarmer = new ConnectionWarmer(() -> smartAPIRequestHandler.getClient(), routes.getRootUrl());
+		}
+		return connectionWarmer;
+	}
+
 	/**
 	 * Registers callback for session error.
 	 *
@@ -190,7 +428,7 @@ public class SmartConnect {
 	 */
 	public User generateSession(String clientCode, String password, String totp) {
 		try {
-			smartAPIRequestHandler = new SmartAPIRequestHandler(proxy);
+			smartAPIRequestHandler = newRequestHandler();
 
 			// Create JSON params object needed to be sent to api.
 			JSONObject params = new JSONObject();
@@ -209,7 +447,7 @@ public class SmartConnect {
 				String feedToken = dataObject.getString("feedToken");
 				this.feedToken = feedToken; // Store feedToken for WebSocket
 				
-				String url = routes.get("api.user.profile");
+				String url = routeUrl("api.user.profile");
 				User user = new User().parseResponse(smartAPIRequestHandler.getRequest(this.apiKey, url, jwtToken));
 				user.setAccessToken(jwtToken);
 				// Store tokens and user ID in the SmartConnect instance
@@ -247,7 +485,7 @@ public class SmartConnect {
 			JSONObject params = new JSONObject();
 			params.put("refreshToken", refreshToken);
 			params.put("checksum", sha256hex);
-			String url = routes.get("api.refresh");
+			String url = routeUrl("api.refresh");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 
 			String newAccessToken = response.getJSONObject("data").getString("jwtToken");
@@ -291,7 +529,7 @@ public class SmartConnect {
 	 */
 	public User getProfile() {
 		try {
-			String url = routes.get("api.user.profile");
+			String url = routeUrl("api.user.profile");
 			User user = new User().parseResponse(smartAPIRequestHandler.getRequest(this.apiKey, url, accessToken));
 			return user;
 		} catch (Exception | SmartAPIException e) {
@@ -312,38 +550,9 @@ public class SmartConnect {
 	public Order placeOrder(OrderParams orderParams, String variety) {
 
 		try {
-			String url = routes.get("api.order.place");
-
-			JSONObject params = new JSONObject();
+			String url = routeUrl("api.order.place");
 
-			if (orderParams.exchange != null)
-				params.put("exchange", orderParams.exchange);
-			if (orderParams.tradingsymbol != null)
-				params.put("tradingsymbol", orderParams.tradingsymbol);
-			if (orderParams.transactiontype != null)
-				params.put("transactiontype", orderParams.transactiontype);
-			if (orderParams.quantity != null)
-				params.put("quantity", orderParams.quantity);
-			if (orderParams.price != null)
-				params.put("price", orderParams.price);
-			if (orderParams.producttype != null)
-				params.put("producttype", orderParams.producttype);
-			if (orderParams.ordertype != null)
-				params.put("ordertype", orderParams.ordertype);
-			if (orderParams.duration != null)
-				params.put("duration", orderParams.duration);
-			if (orderParams.price != null)
-				params.put("price", orderParams.price);
-			if (orderParams.symboltoken != null)
-				params.put("symboltoken", orderParams.symboltoken);
-			if (orderParams.squareoff != null)
-				params.put("squareoff", orderParams.squareoff);
-			if (orderParams.stoploss != null)
-				params.put("stoploss", orderParams.stoploss);
-			if (orderParams.triggerprice != null)
-				params.put("triggerprice", orderParams.triggerprice);
-
-			params.put("variety", variety);
+			JSONObject params = placeOrderParams(orderParams, variety);
 
 			JSONObject jsonObject = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			Order order = new Order();
@@ -369,29 +578,9 @@ public class SmartConnect {
 	 */
 	public Order modifyOrder(String orderId, OrderParams orderParams, String variety) {
 		try {
-			String url = routes.get("api.order.modify");
+			String url = routeUrl("api.order.modify");
 
-			JSONObject params = new JSONObject();
-
-			if (orderParams.exchange != null)
-				params.put("exchange", orderParams.exchange);
-			if (orderParams.tradingsymbol != null)
-				params.put("tradingsymbol", orderParams.tradingsymbol);
-			if (orderParams.symboltoken != null)
-				params.put("symboltoken", orderParams.symboltoken);
-			if (orderParams.quantity != null)
-				params.put("quantity", orderParams.quantity);
-			if (orderParams.price != null)
-				params.put("price", orderParams.price);
-			if (orderParams.producttype != null)
-				params.put("producttype", orderParams.producttype);
-			if (orderParams.ordertype != null)
-				params.put("ordertype", orderParams.ordertype);
-			if (orderParams.duration != null)
-				params.put("duration", orderParams.duration);
-
-			params.put("variety", variety);
-			params.put("orderid", orderId);
+			JSONObject params = modifyOrderParams(orderId, orderParams, variety);
 
 			JSONObject jsonObject = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			Order order = new Order();
@@ -414,7 +603,7 @@ public class SmartConnect {
 	 */
 	public Order cancelOrder(String orderId, String variety) {
 		try {
-			String url = routes.get("api.order.cancel");
+			String url = routeUrl("api.order.cancel");
 			JSONObject params = new JSONObject();
 			params.put("variety", variety);
 			params.put("orderid", orderId);
@@ -429,6 +618,43 @@ public class SmartConnect {
 		}
 	}
 
+	/**
+	 * Places a batch of orders, each with the variety set in its params.
+	 *
+	 * Legs are sent concurrently within the rate limit, legs on the same
+	 * instrument one after another in list order, so the batch takes about one
+	 * round trip plus throttling instead of one round trip per leg.
+	 *
+	 * @param orderParams is the list of Order params.
+	 * @return one result per leg in list order, with the order or the error of the
+	 *         leg and its latency.
+	 */
+	public List<OrderResult> placeOrders(List<OrderParams> orderParams) {
+		return new SmartConnectAsync(this).placeOrders(orderParams).join();
+	}
+
+	/**
+	 * Modifies a batch of open orders, each identified by the orderid and variety
+	 * set in its params. Legs are sent like {@link #placeOrders(List)}.
+	 *
+	 * @param orderParams is the list of Order params.
+	 * @return one result per leg in list order.
+	 */
+	public List<OrderResult> modifyOrders(List<OrderParams> orderParams) {
+		return new SmartConnectAsync(this).modifyOrders(orderParams).join();
+	}
+
+	/**
+	 * Cancels a batch of orders, each identified by the orderid and variety set in
+	 * its params. Legs are sent like {@link #placeOrders(List)}.
+	 *
+	 * @param orderParams is the list of Order params.
+	 * @return one result per leg in list order.
+	 */
+	public List<OrderResult> cancelOrders(List<OrderParams> orderParams) {
+		return new SmartConnectAsync(this).cancelOrders(orderParams).join();
+	}
+
 	/**
 	 * Returns list of different stages an order has gone through.
 	 *
@@ -440,7 +666,7 @@ public class SmartConnect {
 	@SuppressWarnings({})
 	public JSONObject getOrderHistory(String clientId) {
 		try {
-			String url = routes.get("api.order.book");
+			String url = routeUrl("api.order.book");
 			JSONObject response = smartAPIRequestHandler.getRequest(this.apiKey, url, accessToken);
 			log.info("Order history : {}",response);
 			return response;
@@ -466,7 +692,7 @@ public class SmartConnect {
 			params.put("tradingsymbol", tradingSymbol);
 			params.put("symboltoken", symboltoken);
 
-			String url = routes.get("api.ltp.data");
+			String url = routeUrl("api.ltp.data");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 
 			return response.getJSONObject("data");
@@ -483,7 +709,7 @@ public class SmartConnect {
 	 */
 	public JSONObject getTrades() {
 		try {
-			String url = routes.get("api.order.trade.book");
+			String url = routeUrl("api.order.trade.book");
 			JSONObject response = smartAPIRequestHandler.getRequest(this.apiKey, url, accessToken);
 			return response;
 		} catch (Exception | SmartAPIException e) {
@@ -503,7 +729,7 @@ public class SmartConnect {
 	 */
 	public JSONObject getRMS() {
 		try {
-			String url = routes.get("api.order.rms.data");
+			String url = routeUrl("api.order.rms.data");
 			JSONObject response = smartAPIRequestHandler.getRequest(this.apiKey, url, accessToken);
 			return response.getJSONObject("data");
 		} catch (Exception | SmartAPIException e) {
@@ -520,7 +746,7 @@ public class SmartConnect {
 	 */
 	public JSONObject getHolding() {
 		try {
-			String url = routes.get("api.order.rms.holding");
+			String url = routeUrl("api.order.rms.holding");
 			JSONObject response = smartAPIRequestHandler.getRequest(this.apiKey, url, accessToken);
 			return response;
 		} catch (Exception | SmartAPIException e) {
@@ -538,7 +764,7 @@ public class SmartConnect {
 	 */
 	public JSONObject getAllHolding() throws SmartAPIException, IOException {
 		try {
-			String url = routes.get("api.order.rms.AllHolding");
+			String url = routeUrl("api.order.rms.AllHolding");
 			return smartAPIRequestHandler.getRequest(this.apiKey, url, accessToken);
 		} catch (SmartAPIException ex) {
 			log.error("{} while getting all holdings {}", SMART_API_EXCEPTION_OCCURRED, ex.toString());
@@ -560,7 +786,7 @@ public class SmartConnect {
 	 */
 	public JSONObject getPosition() {
 		try {
-			String url = routes.get("api.order.rms.position");
+			String url = routeUrl("api.order.rms.position");
 			JSONObject response = smartAPIRequestHandler.getRequest(this.apiKey, url, accessToken);
 			return response;
 		} catch (Exception | SmartAPIException e) {
@@ -580,7 +806,7 @@ public class SmartConnect {
 	 */
 	public JSONObject convertPosition(JSONObject params) {
 		try {
-			String url = routes.get("api.order.rms.position.convert");
+			String url = routeUrl("api.order.rms.position.convert");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			return response;
 		} catch (Exception | SmartAPIException e) {
@@ -599,30 +825,9 @@ public class SmartConnect {
 
 	public Gtt gttCreateRule(GttParams gttParams) {
 		try {
-			String url = routes.get("api.gtt.create");
-
-			JSONObject params = new JSONObject();
+			String url = routeUrl("api.gtt.create");
 
-			if (gttParams.tradingsymbol != null)
-				params.put("tradingsymbol", gttParams.tradingsymbol);
-			if (gttParams.symboltoken != null)
-				params.put("symboltoken", gttParams.symboltoken);
-			if (gttParams.exchange != null)
-				params.put("exchange", gttParams.exchange);
-			if (gttParams.transactiontype != null)
-				params.put("transactiontype", gttParams.transactiontype);
-			if (gttParams.producttype != null)
-				params.put("producttype", gttParams.producttype);
-			if (gttParams.price != null)
-				params.put("price", gttParams.price);
-			if (gttParams.qty != null)
-				params.put("qty", gttParams.qty);
-			if (gttParams.triggerprice != null)
-				params.put("triggerprice", gttParams.triggerprice);
-			if (gttParams.disclosedqty != null)
-				params.put("disclosedqty", gttParams.disclosedqty);
-			if (gttParams.timeperiod != null)
-				params.put("timeperiod", gttParams.timeperiod);
+			JSONObject params = gttCreateRuleParams(gttParams);
 
 			JSONObject jsonObject = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			Gtt gtt = new Gtt();
@@ -646,26 +851,9 @@ public class SmartConnect {
 
 	public Gtt gttModifyRule(Integer id, GttParams gttParams) {
 		try {
-			String url = routes.get("api.gtt.modify");
-
-			JSONObject params = new JSONObject();
+			String url = routeUrl("api.gtt.modify");
 
-			if (gttParams.symboltoken != null)
-				params.put("symboltoken", gttParams.symboltoken);
-			if (gttParams.exchange != null)
-				params.put("exchange", gttParams.exchange);
-			if (gttParams.price != null)
-				params.put("price", gttParams.price);
-			if (gttParams.qty != null)
-				params.put("qty", gttParams.qty);
-			if (gttParams.triggerprice != null)
-				params.put("triggerprice", gttParams.triggerprice);
-			if (gttParams.disclosedqty != null)
-				params.put("disclosedqty", gttParams.disclosedqty);
-			if (gttParams.timeperiod != null)
-				params.put("timeperiod", gttParams.timeperiod);
-
-			params.put("id", id);
+			JSONObject params = gttModifyRuleParams(id, gttParams);
 
 			JSONObject jsonObject = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			Gtt gtt = new Gtt();
@@ -693,7 +881,7 @@ public class SmartConnect {
 			params.put("symboltoken", symboltoken);
 			params.put("exchange", exchange);
 
-			String url = routes.get("api.gtt.cancel");
+			String url = routeUrl("api.gtt.cancel");
 			JSONObject jsonObject = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			Gtt gtt = new Gtt();
 			gtt.id = jsonObject.getJSONObject("data").getInt("id");
@@ -718,7 +906,7 @@ public class SmartConnect {
 			JSONObject params = new JSONObject();
 			params.put("id", id);
 
-			String url = routes.get("api.gtt.details");
+			String url = routeUrl("api.gtt.details");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			log.info("response : {}",response);
 
@@ -745,7 +933,7 @@ public class SmartConnect {
 			params.put("page", page);
 			params.put("count", count);
 
-			String url = routes.get("api.gtt.list");
+			String url = routeUrl("api.gtt.list");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			log.info("response : {}",response);
 			return response.getJSONArray("data");
@@ -764,7 +952,7 @@ public class SmartConnect {
 	 */
 	public JSONArray candleData(JSONObject params) throws SmartAPIException, IOException, JSONException {
 		try {
-			String url = routes.get("api.candle.data");
+			String url = routeUrl("api.candle.data");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			//log.info("Candle data API response : {}",response);//
 			if (response != null && response.optBoolean("status", false) && response.has("data") && !response.isNull("data")) {
@@ -784,9 +972,38 @@ public class SmartConnect {
 		}
 	}
 
+	/**
+	 * Get Historic Data as columns, parsed while the response is read.
+	 *
+	 * @param params is historic data params.
+	 * @return returns the candles of the requested range, empty if there are none.
+	 * @throws SmartAPIException for API errors, including a false status.
+	 * @throws IOException       for connection and parsing errors.
+	 */
+	public CandleSeries getCandleSeries(JSONObject params) throws SmartAPIException, IOException {
+		String url = routeUrl("api.candle.data");
+		CandleSeries series = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken,
+				StreamingResponseParser.CANDLES);
+		return series != null ? series : new CandleSeries.Builder(1).build();
+	}
+
+	/**
+	 * Returns the order book of the day as typed orders, parsed while the
+	 * response is read.
+	 *
+	 * @return list of orders, empty if there are none.
+	 * @throws SmartAPIException for API errors, including a false status.
+	 * @throws IOException       for connection and parsing errors.
+	 */
+	public List<Order> getOrderBook() throws SmartAPIException, IOException {
+		String url = routeUrl("api.order.book");
+		List<Order> orders = smartAPIRequestHandler.getRequest(this.apiKey, url, accessToken, StreamingResponseParser.ORDERS);
+		return orders != null ? orders : Collections.emptyList();
+	}
+
 	public JSONArray oiData(JSONObject params) {
 		try {
-			String url = routes.get("api.oi.data");
+			String url = routeUrl("api.oi.data");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			log.info("response : {}",response);
 			return response.getJSONArray("data");
@@ -806,7 +1023,7 @@ public class SmartConnect {
 
 	public String getSearchScrip(JSONObject payload) throws SmartAPIException, IOException {
 		try {
-			String url = routes.get("api.search.script.data");
+			String url = routeUrl("api.search.script.data");
 			return smartAPIRequestHandler.postRequestJSONObject(this.apiKey, url, payload, accessToken);
 		}catch (IOException ex) {
 			log.error("{} while generating session {}", IO_EXCEPTION_OCCURRED, ex.getMessage());
@@ -828,7 +1045,7 @@ public class SmartConnect {
 	 */
 	public JSONObject marketData(JSONObject params) throws SmartAPIException, IOException {
 		try{
-			String url = routes.get("api.market.data");
+			String url = routeUrl("api.market.data");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			return response.getJSONObject("data");
 		}catch (SmartAPIException ex) {
@@ -853,7 +1070,7 @@ public class SmartConnect {
 
 	public JSONObject logout() {
 		try {
-			String url = routes.get("api.user.logout");
+			String url = routeUrl("api.user.logout");
 			JSONObject params = new JSONObject();
 			params.put("clientcode", this.userId);
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
@@ -878,23 +1095,9 @@ public class SmartConnect {
 	 */
 	public JSONObject getMarginDetails(List<MarginParams> marginParams) throws IOException, SmartAPIException {
 		try {
-			JSONArray positionsArray = new JSONArray();
-
-			for (MarginParams params : marginParams) {
-				JSONObject position = new JSONObject();
-				position.put("exchange", params.exchange);
-				position.put("qty", params.quantity);
-				position.put("price", params.price);
-				position.put("productType", params.productType);
-				position.put("token", params.token);
-				position.put("tradeType", params.tradeType);
-				positionsArray.put(position);
-			}
+			JSONObject requestBody = marginDetailsParams(marginParams);
 
-			JSONObject requestBody = new JSONObject();
-			requestBody.put("positions", positionsArray);
-
-			String url = routes.get("api.margin.batch");
+			String url = routeUrl("api.margin.batch");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, requestBody, accessToken);
 			return response;
 		} catch (SmartAPIException ex) {
@@ -917,7 +1120,7 @@ public class SmartConnect {
 	 */
 	public JSONObject getIndividualOrderDetails(String orderId) throws IOException, SmartAPIException {
 		try {
-			String url = routes.get("api.individual.order").concat(orderId);
+			String url = routeUrl("api.individual.order").concat(orderId);
 			return smartAPIRequestHandler.getRequest(this.apiKey, url, accessToken);
 		} catch (SmartAPIException ex) {
 			log.error("{} while getting individual order {}", SMART_API_EXCEPTION_OCCURRED, ex.toString());
@@ -934,24 +1137,9 @@ public class SmartConnect {
 
 	public JSONObject estimateCharges(List<EstimateChargesParams> estimateChargesParams) throws IOException, SmartAPIException {
 		try {
-			JSONArray ordersArray = new JSONArray();
-
-			for (EstimateChargesParams params : estimateChargesParams) {
-				JSONObject order = new JSONObject();
-				order.put("product_type", params.product_type);
-				order.put("transaction_type", params.transaction_type);
-				order.put("quantity", params.quantity);
-				order.put("price", params.price);
-				order.put("exchange", params.exchange);
-				order.put("symbol_name", params.symbol_name);
-				order.put("token", params.token);
-				ordersArray.put(order);
-			}
+			JSONObject requestBody = estimateChargesParams(estimateChargesParams);
 
-			JSONObject requestBody = new JSONObject();
-			requestBody.put("orders", ordersArray);
-
-			String url = routes.get("api.estimateCharges");
+			String url = routeUrl("api.estimateCharges");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, requestBody, accessToken);
 			return response;
 		} catch (SmartAPIException ex) {
@@ -969,7 +1157,7 @@ public class SmartConnect {
 
 	public JSONObject verifyDis(JSONObject params) throws SmartAPIException, IOException {
 		try{
-			String url = routes.get("api.verifyDis");
+			String url = routeUrl("api.verifyDis");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			return response;
 		}catch (SmartAPIException ex) {
@@ -987,7 +1175,7 @@ public class SmartConnect {
 
 	public JSONObject generateTPIN(JSONObject params) throws SmartAPIException, IOException {
 		try{
-			String url = routes.get("api.generateTPIN");
+			String url = routeUrl("api.generateTPIN");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			return response;
 		}catch (SmartAPIException ex) {
@@ -1005,7 +1193,7 @@ public class SmartConnect {
 
 	public JSONObject getTranStatus(JSONObject params) throws SmartAPIException, IOException {
 		try{
-			String url = routes.get("api.getTranStatus");
+			String url = routeUrl("api.getTranStatus");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			return response;
 		}catch (SmartAPIException ex) {
@@ -1023,7 +1211,7 @@ public class SmartConnect {
 
 	public JSONObject optionGreek(JSONObject params) throws SmartAPIException, IOException {
 		try{
-			String url = routes.get("api.optionGreek");
+			String url = routeUrl("api.optionGreek");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			return response;
 		}catch (SmartAPIException ex) {
@@ -1041,7 +1229,7 @@ public class SmartConnect {
 
 	public JSONObject gainersLosers(JSONObject params) throws SmartAPIException, IOException {
 		try{
-			String url = routes.get("api.gainersLosers");
+			String url = routeUrl("api.gainersLosers");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			return response;
 		}catch (SmartAPIException ex) {
@@ -1059,7 +1247,7 @@ public class SmartConnect {
 
 	public JSONObject putCallRatio() throws IOException, SmartAPIException {
 		try {
-			String url = routes.get("api.putCallRatio");
+			String url = routeUrl("api.putCallRatio");
 			JSONObject response = smartAPIRequestHandler.getRequest(this.apiKey, url, accessToken);
 			return response;
 		} catch (SmartAPIException ex) {
@@ -1076,7 +1264,7 @@ public class SmartConnect {
 
 	public JSONObject nseIntraday() throws IOException, SmartAPIException {
 		try {
-			String url = routes.get("api.nseIntraday");
+			String url = routeUrl("api.nseIntraday");
 			JSONObject response = smartAPIRequestHandler.getRequest(this.apiKey, url, accessToken);
 			return response;
 		} catch (SmartAPIException ex) {
@@ -1093,7 +1281,7 @@ public class SmartConnect {
 
 	public JSONObject bseIntraday() throws IOException, SmartAPIException {
 		try {
-			String url = routes.get("api.bseIntraday");
+			String url = routeUrl("api.bseIntraday");
 			JSONObject response = smartAPIRequestHandler.getRequest(this.apiKey, url, accessToken);
 			return response;
 		} catch (SmartAPIException ex) {
@@ -1110,7 +1298,7 @@ public class SmartConnect {
 
 	public JSONObject oIBuildup(JSONObject params) throws SmartAPIException, IOException {
 		try{
-			String url = routes.get("api.oIBuildup");
+			String url = routeUrl("api.oIBuildup");
 			JSONObject response = smartAPIRequestHandler.postRequest(this.apiKey, url, params, accessToken);
 			return response;
 		}catch (SmartAPIException ex) {
@@ -1126,6 +1314,202 @@ public class SmartConnect {
 		}
 	}
 
+	/**
+	 * Returns the handler of the current session, it is replaced on every login.
+	 */
+	SmartAPIRequestHandler getRequestHandler() {
+		return smartAPIRequestHandler;
+	}
+
+	/**
+	 * Returns the apiKey, or null if it is not set instead of throwing like {@link #getApiKey()}.
+	 */
+	String apiKeyIfSet() {
+		return apiKey;
+	}
+
+	/**
+	 * Returns the access token, or null if there is no session yet.
+	 */
+	String accessTokenIfSet() {
+		return accessToken;
+	}
+
+	/**
+	 * Returns the client code of the session, or null if there is none.
+	 */
+	String userIdIfSet() {
+		return userId;
+	}
+
+	/**
+	 * Builds the request body of placeOrder.
+	 */
+	static JSONObject placeOrderParams(OrderParams orderParams, String variety) {
+		JSONObject params = new JSONObject();
+
+		if (orderParams.exchange != null)
+			params.put("exchange", orderParams.exchange);
+		if (orderParams.tradingsymbol != null)
+			params.put("tradingsymbol", orderParams.tradingsymbol);
+		if (orderParams.transactiontype != null)
+			params.put("transactiontype", orderParams.transactiontype);
+		if (orderParams.quantity != null)
+			params.put("quantity", orderParams.quantity);
+		if (orderParams.price != null)
+			params.put("price", orderParams.price);
+		if (orderParams.producttype != null)
+			params.put("producttype", orderParams.producttype);
+		if (orderParams.ordertype != null)
+			params.put("ordertype", orderParams.ordertype);
+		if (orderParams.duration != null)
+			params.put("duration", orderParams.duration);
+		if (orderParams.symboltoken != null)
+			params.put("symboltoken", orderParams.symboltoken);
+		if (orderParams.squareoff != null)
+			params.put("squareoff", orderParams.squareoff);
+		if (orderParams.stoploss != null)
+			params.put("stoploss", orderParams.stoploss);
+		if (orderParams.triggerprice != null)
+			params.put("triggerprice", orderParams.triggerprice);
+
+		params.put("variety", variety);
+
+		return params;
+	}
+
+	/**
+	 * Builds the request body of modifyOrder.
+	 */
+	static JSONObject modifyOrderParams(String orderId, OrderParams orderParams, String variety) {
+		JSONObject params = new JSONObject();
+
+		if (orderParams.exchange != null)
+			params.put("exchange", orderParams.exchange);
+		if (orderParams.tradingsymbol != null)
+			params.put("tradingsymbol", orderParams.tradingsymbol);
+		if (orderParams.symboltoken != null)
+			params.put("symboltoken", orderParams.symboltoken);
+		if (orderParams.quantity != null)
+			params.put("quantity", orderParams.quantity);
+		if (orderParams.price != null)
+			params.put("price", orderParams.price);
+		if (orderParams.producttype != null)
+			params.put("producttype", orderParams.producttype);
+		if (orderParams.ordertype != null)
+			params.put("ordertype", orderParams.ordertype);
+		if (orderParams.duration != null)
+			params.put("duration", orderParams.duration);
+
+		params.put("variety", variety);
+		params.put("orderid", orderId);
+
+		return params;
+	}
+
+	/**
+	 * Builds the request body of gttCreateRule.
+	 */
+	static JSONObject gttCreateRuleParams(GttParams gttParams) {
+		JSONObject params = new JSONObject();
+
+		if (gttParams.tradingsymbol != null)
+			params.put("tradingsymbol", gttParams.tradingsymbol);
+		if (gttParams.symboltoken != null)
+			params.put("symboltoken", gttParams.symboltoken);
+		if (gttParams.exchange != null)
+			params.put("exchange", gttParams.exchange);
+		if (gttParams.transactiontype != null)
+			params.put("transactiontype", gttParams.transactiontype);
+		if (gttParams.producttype != null)
+			params.put("producttype", gttParams.producttype);
+		if (gttParams.price != null)
+			params.put("price", gttParams.price);
+		if (gttParams.qty != null)
+			params.put("qty", gttParams.qty);
+		if (gttParams.triggerprice != null)
+			params.put("triggerprice", gttParams.triggerprice);
+		if (gttParams.disclosedqty != null)
+			params.put("disclosedqty", gttParams.disclosedqty);
+		if (gttParams.timeperiod != null)
+			params.put("timeperiod", gttParams.timeperiod);
+
+		return params;
+	}
+
+	/**
+	 * Builds the request body of gttModifyRule.
+	 */
+	static JSONObject gttModifyRuleParams(Integer id, GttParams gttParams) {
+		JSONObject params = new JSONObject();
+
+		if (gttParams.symboltoken != null)
+			params.put("symboltoken", gttParams.symboltoken);
+		if (gttParams.exchange != null)
+			params.put("exchange", gttParams.exchange);
+		if (gttParams.price != null)
+			params.put("price", gttParams.price);
+		if (gttParams.qty != null)
+			params.put("qty", gttParams.qty);
+		if (gttParams.triggerprice != null)
+			params.put("triggerprice", gttParams.triggerprice);
+		if (gttParams.disclosedqty != null)
+			params.put("disclosedqty", gttParams.disclosedqty);
+		if (gttParams.timeperiod != null)
+			params.put("timeperiod", gttParams.timeperiod);
+
+		params.put("id", id);
+
+		return params;
+	}
+
+	/**
+	 * Builds the request body of getMarginDetails.
+	 */
+	static JSONObject marginDetailsParams(List<MarginParams> marginParams) {
+		JSONArray positionsArray = new JSONArray();
+
+		for (MarginParams params : marginParams) {
+			JSONObject position = new JSONObject();
+			position.put("exchange", params.exchange);
+			position.put("qty", params.quantity);
+			position.put("price", params.price);
+			position.put("productType", params.productType);
+			position.put("token", params.token);
+			position.put("tradeType", params.tradeType);
+			positionsArray.put(position);
+		}
+
+		JSONObject requestBody = new JSONObject();
+		requestBody.put("positions", positionsArray);
+
+		return requestBody;
+	}
+
+	/**
+	 * Builds the request body of estimateCharges.
+	 */
+	static JSONObject estimateChargesParams(List<EstimateChargesParams> estimateChargesParams) {
+		JSONArray ordersArray = new JSONArray();
+
+		for (EstimateChargesParams params : estimateChargesParams) {
+			JSONObject order = new JSONObject();
+			order.put("product_type", params.product_type);
+			order.put("transaction_type", params.transaction_type);
+			order.put("quantity", params.quantity);
+			order.put("price", params.price);
+			order.put("exchange", params.exchange);
+			order.put("symbol_name", params.symbol_name);
+			order.put("token", params.token);
+			ordersArray.put(order);
+		}
+
+		JSONObject requestBody = new JSONObject();
+		requestBody.put("orders", ordersArray);
+
+		return requestBody;
+	}
+
 	/**
 	 * Connects to the WebSocket stream for live market data.
 	 *
@@ -0,0 +1,413 @@
+package com.angelbroking.smartapi;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.angelbroking.smartapi.http.RouteRateLimiter;
+import com.angelbroking.smartapi.http.SmartAPIRequestHandler;
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+import com.angelbroking.smartapi.models.EstimateChargesParams;
+import com.angelbroking.smartapi.models.Gtt;
+import com.angelbroking.smartapi.models.GttParams;
+import com.angelbroking.smartapi.models.MarginParams;
+import com.angelbroking.smartapi.models.Order;
+import com.angelbroking.smartapi.models.OrderParams;
+import com.angelbroking.smartapi.models.OrderResult;
+import com.angelbroking.smartapi.models.User;
+
+/**
+ * Non-blocking variant of the SmartConnect routes.
+ *
+ * Every call is enqueued on the OkHttp dispatcher of the session and returns at
+ * once, so a single thread can keep hundreds of requests in flight over the
+ * same connection pool as the blocking calls. Futures complete with the same
+ * result the blocking method returns, or exceptionally with the IOException or
+ * the SmartAPIException subtype (TokenException, OrderException, ...) that the
+ * blocking method would throw or log.
+ *
+ * Futures are completed on OkHttp dispatcher threads, dependent stages should
+ * not block or should be moved to an executor with the *Async variants.
+ * Cancelling a future cancels its HTTP call. Requests are throttled by the
+ * rate limiter of the SmartConnect without blocking the caller.
+ * Responses are not cached, the ResponseCache of the SmartConnect applies to
+ * its blocking calls only.
+ *
+ * Login and token renewal stay on SmartConnect, the session is read on every
+ * call so a new login is picked up.
+ */
+public class SmartConnectAsync {
+
+	private final SmartConnect smartConnect;
+	private final Routes routes = new Routes();
+
+	public SmartConnectAsync(SmartConnect smartConnect) {
+		if (smartConnect == null) {
+			throw new IllegalArgumentException("smartConnect should not be null");
+		}
+		this.smartConnect = smartConnect;
+	}
+
+	public SmartConnect getSmartConnect() {
+		return smartConnect;
+	}
+
+	/** Async variant of {@link SmartConnect#getProfile()}. */
+	public CompletableFuture<User> getProfile() {
+		return get("api.user.profile", response -> new User().parseResponse(response));
+	}
+
+	/** Async variant of {@link SmartConnect#placeOrder(OrderParams, String)}. */
+	public CompletableFuture<Order> placeOrder(OrderParams orderParams, String variety) {
+		return post("api.order.place", SmartConnect.placeOrderParams(orderParams, variety), response -> {
+			JSONObject data = response.getJSONObject("data");
+			Order order = new Order();
+			order.orderId = data.getString("orderid");
+			order.uniqueOrderId = data.getString("uniqueorderid");
+			return order;
+		});
+	}
+
+	/** Async variant of {@link SmartConnect#modifyOrder(String, OrderParams, String)}. */
+	public CompletableFuture<Order> modifyOrder(String orderId, OrderParams orderParams, String variety) {
+		return post("api.order.modify", SmartConnect.modifyOrderParams(orderId, orderParams, variety),
+				SmartConnectAsync::toOrder);
+	}
+
+	/** Async variant of {@link SmartConnect#cancelOrder(String, String)}. */
+	public CompletableFuture<Order> cancelOrder(String orderId, String variety) {
+		JSONObject params = new JSONObject();
+		params.put("variety", variety);
+		params.put("orderid", orderId);
+		return post("api.order.cancel", params, SmartConnectAsync::toOrder);
+	}
+
+	/**
+	 * Places a batch of orders, each with the variety set in its params.
+	 *
+	 * Legs are sent concurrently as fast as the rate limiter allows, except that
+	 * legs on the same instrument are sent one after another in list order. The
+	 * future completes once every leg has completed, with one result per leg in
+	 * list order. A failed leg does not fail the batch or stop later legs.
+	 */
+	public CompletableFuture<List<OrderResult>> placeOrders(List<OrderParams> orderParams) {
+		return batch(orderParams, params -> placeOrder(params, params.variety));
+	}
+
+	/**
+	 * Modifies a batch of orders, each identified by the orderid and variety set
+	 * in its params. Legs are sent like {@link #placeOrders(List)}.
+	 */
+	public CompletableFuture<List<OrderResult>> modifyOrders(List<OrderParams> orderParams) {
+		return batch(orderParams, params -> modifyOrder(params.orderid, params, params.variety));
+	}
+
+	/**
+	 * Cancels a batch of orders, each identified by the orderid and variety set in
+	 * its params. Legs are sent like {@link #placeOrders(List)}, legs without an
+	 * instrument are ordered by orderid.
+	 */
+	public CompletableFuture<List<OrderResult>> cancelOrders(List<OrderParams> orderParams) {
+		return batch(orderParams, params -> cancelOrder(params.orderid, params.variety));
+	}
+
+	/** Async variant of {@link SmartConnect#getOrderHistory(String)}. */
+	public CompletableFuture<JSONObject> getOrderHistory() {
+		return get("api.order.book", Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#getLTP(String, String, String)}, completes with the data object. */
+	public CompletableFuture<JSONObject> getLTP(String exchange, String tradingSymbol, String symboltoken) {
+		JSONObject params = new JSONObject();
+		params.put("exchange", exchange);
+		params.put("tradingsymbol", tradingSymbol);
+		params.put("symboltoken", symboltoken);
+		return post("api.ltp.data", params, response -> response.getJSONObject("data"));
+	}
+
+	/** Async variant of {@link SmartConnect#getTrades()}. */
+	public CompletableFuture<JSONObject> getTrades() {
+		return get("api.order.trade.book", Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#getRMS()}, completes with the data object. */
+	public CompletableFuture<JSONObject> getRMS() {
+		return get("api.order.rms.data", response -> response.getJSONObject("data"));
+	}
+
+	/** Async variant of {@link SmartConnect#getHolding()}. */
+	public CompletableFuture<JSONObject> getHolding() {
+		return get("api.order.rms.holding", Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#getAllHolding()}. */
+	public CompletableFuture<JSONObject> getAllHolding() {
+		return get("api.order.rms.AllHolding", Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#getPosition()}. */
+	public CompletableFuture<JSONObject> getPosition() {
+		return get("api.order.rms.position", Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#convertPosition(JSONObject)}. */
+	public CompletableFuture<JSONObject> convertPosition(JSONObject params) {
+		return post("api.order.rms.position.convert", params, Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#gttCreateRule(GttParams)}. */
+	public CompletableFuture<Gtt> gttCreateRule(GttParams gttParams) {
+		return post("api.gtt.create", SmartConnect.gttCreateRuleParams(gttParams), SmartConnectAsync::toGtt);
+	}
+
+	/** Async variant of {@link SmartConnect#gttModifyRule(Integer, GttParams)}. */
+	public CompletableFuture<Gtt> gttModifyRule(Integer id, GttParams gttParams) {
+		return post("api.gtt.modify", SmartConnect.gttModifyRuleParams(id, gttParams), SmartConnectAsync::toGtt);
+	}
+
+	/** Async variant of {@link SmartConnect#gttCancelRule(Integer, String, String)}. */
+	public CompletableFuture<Gtt> gttCancelRule(Integer id, String symboltoken, String exchange) {
+		JSONObject params = new JSONObject();
+		params.put("id", id);
+		params.put("symboltoken", symboltoken);
+		params.put("exchange", exchange);
+		return post("api.gtt.cancel", params, SmartConnectAsync::toGtt);
+	}
+
+	/** Async variant of {@link SmartConnect#gttRuleDetails(Integer)}, completes with the data object. */
+	public CompletableFuture<JSONObject> gttRuleDetails(Integer id) {
+		JSONObject params = new JSONObject();
+		params.put("id", id);
+		return post("api.gtt.details", params, response -> response.getJSONObject("data"));
+	}
+
+	/** Async variant of {@link SmartConnect#gttRuleList(List, Integer, Integer)}. */
+	public CompletableFuture<JSONArray> gttRuleList(List<String> status, Integer page, Integer count) {
+		JSONObject params = new JSONObject();
+		params.put("status", status);
+		params.put("page", page);
+		params.put("count", count);
+		return post("api.gtt.list", params, response -> response.getJSONArray("data"));
+	}
+
+	/** Async variant of {@link SmartConnect#candleData(JSONObject)}. */
+	public CompletableFuture<JSONArray> candleData(JSONObject params) {
+		return post("api.candle.data", params, response -> response.getJSONArray("data"));
+	}
+
+	/** Async variant of {@link SmartConnect#oiData(JSONObject)}. */
+	public CompletableFuture<JSONArray> oiData(JSONObject params) {
+		return post("api.oi.data", params, response -> response.getJSONArray("data"));
+	}
+
+	/** Async variant of {@link SmartConnect#getSearchScrip(JSONObject)}, completes with the parsed response. */
+	public CompletableFuture<JSONObject> getSearchScrip(JSONObject payload) {
+		return post("api.search.script.data", payload, Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#marketData(JSONObject)}, completes with the data object. */
+	public CompletableFuture<JSONObject> marketData(JSONObject params) {
+		return post("api.market.data", params, response -> response.getJSONObject("data"));
+	}
+
+	/**
+	 * Async variant of {@link SmartConnect#logout()}. Unlike the blocking call it
+	 * does not clear the tokens of the SmartConnect.
+	 */
+	public CompletableFuture<JSONObject> logout() {
+		JSONObject params = new JSONObject();
+		// without a session it is sent without clientcode, like the blocking call does
+		params.put("clientcode", smartConnect.userIdIfSet());
+		return post("api.user.logout", params, Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#getMarginDetails(List)}. */
+	public CompletableFuture<JSONObject> getMarginDetails(List<MarginParams> marginParams) {
+		return post("api.margin.batch", SmartConnect.marginDetailsParams(marginParams), Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#getIndividualOrderDetails(String)}. */
+	public CompletableFuture<JSONObject> getIndividualOrderDetails(String orderId) {
+		return get("api.individual.order", routes.get("api.individual.order").concat(orderId), Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#estimateCharges(List)}. */
+	public CompletableFuture<JSONObject> estimateCharges(List<EstimateChargesParams> estimateChargesParams) {
+		return post("api.estimateCharges", SmartConnect.estimateChargesParams(estimateChargesParams), Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#verifyDis(JSONObject)}. */
+	public CompletableFuture<JSONObject> verifyDis(JSONObject params) {
+		return post("api.verifyDis", params, Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#generateTPIN(JSONObject)}. */
+	public CompletableFuture<JSONObject> generateTPIN(JSONObject params) {
+		return post("api.generateTPIN", params, Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#getTranStatus(JSONObject)}. */
+	public CompletableFuture<JSONObject> getTranStatus(JSONObject params) {
+		return post("api.getTranStatus", params, Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#optionGreek(JSONObject)}. */
+	public CompletableFuture<JSONObject> optionGreek(JSONObject params) {
+		return post("api.optionGreek", params, Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#gainersLosers(JSONObject)}. */
+	public CompletableFuture<JSONObject> gainersLosers(JSONObject params) {
+		return post("api.gainersLosers", params, Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#putCallRatio()}. */
+	public CompletableFuture<JSONObject> putCallRatio() {
+		return get("api.putCallRatio", Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#nseIntraday()}. */
+	public CompletableFuture<JSONObject> nseIntraday() {
+		return get("api.nseIntraday", Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#bseIntraday()}. */
+	public CompletableFuture<JSONObject> bseIntraday() {
+		return get("api.bseIntraday", Function.identity());
+	}
+
+	/** Async variant of {@link SmartConnect#oIBuildup(JSONObject)}. */
+	public CompletableFuture<JSONObject> oIBuildup(JSONObject params) {
+		return post("api.oIBuildup", params, Function.identity());
+	}
+
+	private <T> CompletableFuture<T> post(String route, JSONObject params, Function<JSONObject, T> mapper) {
+		return send(route, routes.get(route),
+				(handler, url, apiKey, accessToken) -> handler.postRequestAsync(apiKey, url, params, accessToken), mapper);
+	}
+
+	private <T> CompletableFuture<T> get(String route, Function<JSONObject, T> mapper) {
+		return get(route, routes.get(route), mapper);
+	}
+
+	private <T> CompletableFuture<T> get(String route, String url, Function<JSONObject, T> mapper) {
+		return send(route, url,
+				(handler, requestUrl, apiKey, accessToken) -> handler.getRequestAsync(apiKey, requestUrl, accessToken),
+				mapper);
+	}
+
+	/**
+	 * Sends a request once the rate limiter lets it through. A request that has
+	 * to wait is sent from a delayed executor instead of parking the caller.
+	 */
+	private <T> CompletableFuture<T> send(String route, String url, Request request, Function<JSONObject, T> mapper) {
+		RouteRateLimiter limiter = smartConnect.getRateLimiter();
+		long waitNanos = limiter == null ? 0L : limiter.reserve(route);
+		if (waitNanos == RouteRateLimiter.REJECTED) {
+			return failed(new SmartAPIException("rate limit exceeded for " + route));
+		}
+		if (waitNanos == 0L) {
+			return call(url, request, mapper);
+		}
+		return CompletableFuture.runAsync(() -> {
+		}, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS))
+				.thenCompose(ignored -> call(url, request, mapper));
+	}
+
+	private <T> CompletableFuture<T> call(String url, Request request, Function<JSONObject, T> mapper) {
+		// read once, a logout meanwhile must not mix the credentials of two sessions
+		SmartAPIRequestHandler handler = smartConnect.getRequestHandler();
+		String apiKey = smartConnect.apiKeyIfSet();
+		String accessToken = smartConnect.accessTokenIfSet();
+		if (handler == null || apiKey == null || accessToken == null) {
+			return failed(new SmartAPIException("apiKey and accessToken should be set before making requests"));
+		}
+		return request.send(handler, url, apiKey, accessToken).thenApply(mapper);
+	}
+
+	/** One HTTP call with the credentials of the current session. */
+	@FunctionalInterface
+	private interface Request {
+		CompletableFuture<JSONObject> send(SmartAPIRequestHandler handler, String url, String apiKey, String accessToken);
+	}
+
+	/**
+	 * Sends one leg per params, chaining the legs that share an instrument.
+	 */
+	static CompletableFuture<List<OrderResult>> batch(List<OrderParams> orderParams,
+			Function<OrderParams, CompletableFuture<Order>> leg) {
+		if (orderParams == null || orderParams.contains(null)) {
+			throw new IllegalArgumentException("orderParams should not be null or contain null");
+		}
+		Map<String, CompletableFuture<OrderResult>> lastBySymbol = new HashMap<>();
+		List<CompletableFuture<OrderResult>> results = new ArrayList<>(orderParams.size());
+		for (int i = 0; i < orderParams.size(); i++) {
+			int index = i;
+			OrderParams params = orderParams.get(i);
+			String key = orderingKey(params);
+			CompletableFuture<OrderResult> previous = key == null ? null : lastBySymbol.get(key);
+			// results never complete exceptionally, so a failed leg still releases the next one
+			CompletableFuture<OrderResult> result = previous == null ? sendLeg(index, params, leg)
+					: previous.thenCompose(ignored -> sendLeg(index, params, leg));
+			if (key != null) {
+				lastBySymbol.put(key, result);
+			}
+			results.add(result);
+		}
+		return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+			List<OrderResult> completed = new ArrayList<>(results.size());
+			for (CompletableFuture<OrderResult> result : results) {
+				completed.add(result.join());
+			}
+			return completed;
+		});
+	}
+
+	private static CompletableFuture<OrderResult> sendLeg(int index, OrderParams params,
+			Function<OrderParams, CompletableFuture<Order>> leg) {
+		long start = System.nanoTime();
+		CompletableFuture<Order> order;
+		try {
+			order = leg.apply(params);
+		} catch (RuntimeException e) {
+			order = failed(e);
+		}
+		return order.handle((result, error) -> new OrderResult(index, params, error == null ? result : null,
+				error instanceof CompletionException && error.getCause() != null ? error.getCause() : error,
+				System.nanoTime() - start));
+	}
+
+	private static String orderingKey(OrderParams params) {
+		String instrument = params.symboltoken != null ? params.symboltoken : params.tradingsymbol;
+		if (instrument != null) {
+			return params.exchange + ":" + instrument;
+		}
+		return params.orderid;
+	}
+
+	private static <T> CompletableFuture<T> failed(Throwable e) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		future.completeExceptionally(e);
+		return future;
+	}
+
+	private static Order toOrder(JSONObject response) {
+		Order order = new Order();
+		order.orderId = response.getJSONObject("data").getString("orderid");
+		return order;
+	}
+
+	private static Gtt toGtt(JSONObject response) {
+		Gtt gtt = new Gtt();
+		gtt.id = response.getJSONObject("data").getInt("id");
+		return gtt;
+	}
+}
@@ -0,0 +1,213 @@
+package com.angelbroking.smartapi.algos;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.angelbroking.smartapi.models.BacktestReport;
+import com.angelbroking.smartapi.models.Candle;
+import com.angelbroking.smartapi.models.CandleSeries;
+
+/**
+ * Sweeps strategy parameters by running many backtests in parallel.
+ *
+ * Every run gets a fresh strategy from the supplier, since strategies keep
+ * state, while all runs share one immutable CandleSeries. Runs are spread
+ * over a dedicated ForkJoinPool with one worker per core by default; they
+ * share nothing mutable, so throughput scales with the number of cores.
+ *
+ * Results are ranked by net profit. Runs whose drawdown exceeded the limit are
+ * stopped at that candle and ranked after all completed runs. A run that
+ * throws fails the whole search, a ranking that silently misses parameter
+ * sets would look complete.
+ */
+public class BacktestOptimizer {
+    private static final Logger log = LoggerFactory.getLogger(BacktestOptimizer.class);
+
+    private final Supplier<? extends Strategy> strategyFactory;
+    private final CandleSeries historicalData;
+    private final JSONObject backtesterParams;
+    private final Map<String, List<Object>> parameters = new LinkedHashMap<>();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private double maxDrawdownPercent;
+    private int topN = Integer.MAX_VALUE;
+    private Comparator<BacktestReport> ranking = Comparator.comparingDouble(BacktestReport::getNetProfit).reversed();
+
+    /**
+     * @param strategyFactory  - creates a new strategy instance for every run
+     * @param historicalData   - candles to test on, converted once and shared by all runs
+     * @param backtesterParams - Backtester settings such as initialCapital and sharesPerTrade
+     */
+    public BacktestOptimizer(Supplier<? extends Strategy> strategyFactory, List<Candle> historicalData, JSONObject backtesterParams) {
+        this(strategyFactory, historicalData == null ? null : CandleSeries.of(historicalData), backtesterParams);
+    }
+
+    public BacktestOptimizer(Supplier<? extends Strategy> strategyFactory, CandleSeries historicalData, JSONObject backtesterParams) {
+        if (strategyFactory == null || historicalData == null || backtesterParams == null) {
+            throw new IllegalArgumentException("strategyFactory, historicalData and backtesterParams should not be null");
+        }
+        this.strategyFactory = strategyFactory;
+        this.historicalData = historicalData;
+        this.backtesterParams = backtesterParams;
+    }
+
+    /** Adds a parameter that takes each of the given values. */
+    public BacktestOptimizer addParameter(String name, List<?> values) {
+        if (name == null || values == null || values.isEmpty()) {
+            throw new IllegalArgumentException("parameter name and values should not be empty or null");
+        }
+        parameters.put(name, new ArrayList<>(values));
+        return this;
+    }
+
+    /** Adds an integer parameter ranging from {@code from} to {@code to} inclusive. */
+    public BacktestOptimizer addRange(String name, int from, int to, int step) {
+        if (step <= 0 || to < from) {
+            throw new IllegalArgumentException("invalid range for " + name);
+        }
+        List<Object> values = new ArrayList<>();
+        for (int v = from; v <= to; v += step) {
+            values.add(v);
+        }
+        return addParameter(name, values);
+    }
+
+    /** Adds a decimal parameter ranging from {@code from} to {@code to} inclusive. */
+    public BacktestOptimizer addRange(String name, double from, double to, double step) {
+        if (step <= 0 || to < from) {
+            throw new IllegalArgumentException("invalid range for " + name);
+        }
+        List<Object> values = new ArrayList<>();
+        long steps = Math.round(Math.floor((to - from) / step + 1e-9));
+        for (long i = 0; i <= steps; i++) {
+            values.add(from + i * step);
+        }
+        return addParameter(name, values);
+    }
+
+    /** Number of worker threads, defaults to the number of available processors. */
+    public BacktestOptimizer setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism should be greater than zero");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /** Stops a run as soon as its drawdown exceeds this percentage, 0 disables the cutoff. */
+    public BacktestOptimizer setMaxDrawdownPercent(double maxDrawdownPercent) {
+        this.maxDrawdownPercent = maxDrawdownPercent;
+        return this;
+    }
+
+    /** Only keeps the best {@code topN} results. */
+    public BacktestOptimizer setTopN(int topN) {
+        this.topN = topN;
+        return this;
+    }
+
+    /** Replaces the default ranking by descending net profit. */
+    public BacktestOptimizer setRanking(Comparator<BacktestReport> ranking) {
+        this.ranking = Objects.requireNonNull(ranking);
+        return this;
+    }
+
+    /** Number of parameter sets a grid search evaluates. */
+    public long getGridSize() {
+        long size = 1;
+        for (List<Object> values : parameters.values()) {
+            size = Math.multiplyExact(size, values.size());
+        }
+        return size;
+    }
+
+    /**
+     * Evaluates every combination of the parameter values.
+     *
+     * @param baseParams - strategy parameters shared by all runs, e.g. symbolToken and exchange
+     * @throws IllegalStateException if a run failed, the message names its parameters
+     */
+    public List<OptimizationResult> gridSearch(JSONObject baseParams) throws InterruptedException {
+        List<String> names = new ArrayList<>(parameters.keySet());
+        return search(getGridSize(), index -> {
+            JSONObject params = new JSONObject(baseParams.toMap());
+            long remainder = index;
+            for (int i = names.size() - 1; i >= 0; i--) {
+                List<Object> values = parameters.get(names.get(i));
+                params.put(names.get(i), values.get((int) (remainder % values.size())));
+                remainder /= values.size();
+            }
+            return params;
+        });
+    }
+
+    /**
+     * Evaluates {@code samples} parameter sets drawn uniformly from the parameter values.
+     * The same seed draws the same sets.
+     *
+     * @throws IllegalStateException if a run failed, the message names its parameters
+     */
+    public List<OptimizationResult> randomSearch(JSONObject baseParams, int samples, long seed) throws InterruptedException {
+        List<Map.Entry<String, List<Object>>> entries = new ArrayList<>(parameters.entrySet());
+        return search(samples, index -> {
+            // one generator per sample keeps the draws independent of the order runs are scheduled in
+            SplittableRandom random = new SplittableRandom(seed + index * 0x9E3779B97F4A7C15L);
+            JSONObject params = new JSONObject(baseParams.toMap());
+            for (Map.Entry<String, List<Object>> entry : entries) {
+                List<Object> values = entry.getValue();
+                params.put(entry.getKey(), values.get(random.nextInt(values.size())));
+            }
+            return params;
+        });
+    }
+
+    private List<OptimizationResult> search(long runs, ParamsGenerator generator) throws InterruptedException {
+        JSONObject runParams = new JSONObject(backtesterParams.toMap());
+        runParams.put("maxDrawdownPercent", maxDrawdownPercent);
+        runParams.put("includeCandles", false);
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<OptimizationResult> results = pool.submit(() -> LongStream.range(0, runs).parallel()
+                    .mapToObj(index -> run(generator.params(index), runParams))
+                    .collect(Collectors.toList())).get();
+            results.sort(Comparator.comparing((OptimizationResult r) -> r.getReport().isStoppedEarly())
+                    .thenComparing(OptimizationResult::getReport, ranking));
+            log.info("evaluated {} parameter sets on {} threads in {} ms", runs, parallelism,
+                    (System.nanoTime() - start) / 1_000_000);
+            return results.size() > topN ? new ArrayList<>(results.subList(0, topN)) : results;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("optimization failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private OptimizationResult run(JSONObject params, JSONObject runParams) {
+        try {
+            BacktestReport report = new Backtester(strategyFactory.get(), historicalData, runParams).run(params);
+            return new OptimizationResult(params, report);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("backtest failed for params " + params, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ParamsGenerator {
+        JSONObject params(long index);
+    }
+}
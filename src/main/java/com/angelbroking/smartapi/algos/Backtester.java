@@ -3,25 +3,35 @@ package com.angelbroking.smartapi.algos;
 import com.angelbroking.smartapi.models.BacktestReport;
 import com.angelbroking.smartapi.models.TradeLog;
 import com.angelbroking.smartapi.models.Candle;
+import com.angelbroking.smartapi.models.CandleSeries;
 import com.angelbroking.smartapi.algos.AngelOneChargeCalculator; // Added import
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
 public class Backtester {
     private Strategy strategy;
-    private List<Candle> historicalData;
+    private CandleSeries historicalData;
     private double initialCapital;
     private int sharesPerTrade;
+    private double maxDrawdownPercent;
+    private boolean includeCandles;
     private AngelOneChargeCalculator chargeCalculator;
 
     public Backtester(Strategy strategy, List<Candle> historicalData, JSONObject params) {
+        this(strategy, CandleSeries.of(historicalData), params);
+    }
+
+    public Backtester(Strategy strategy, CandleSeries historicalData, JSONObject params) {
         this.strategy = strategy;
         this.historicalData = historicalData;
         this.initialCapital = params.optDouble("initialCapital", 100000.0);
         this.sharesPerTrade = params.optInt("sharesPerTrade", 10);
+        this.maxDrawdownPercent = params.optDouble("maxDrawdownPercent", 0); // 0 disables the early cutoff
+        this.includeCandles = params.optBoolean("includeCandles", true); // Optimizer runs skip the per-report copy
         this.chargeCalculator = new AngelOneChargeCalculator(); // Initialize charge calculator
     }
 
@@ -32,23 +42,39 @@ public class Backtester {
         List<TradeLog> trades = new ArrayList<>();
         double currentCapital = initialCapital;
         int sharesHeld = 0;
-        List<Date> equityTimestamps = new ArrayList<>();
-        List<Double> equityValues = new ArrayList<>();
+        int candleCount = historicalData.size();
+        long[] equityTimestamps = new long[candleCount];
+        double[] equityValues = new double[candleCount];
+        int equityPoints = 0;
         double entryPrice = 0.0;
+        double peakValue = initialCapital;
+        double maxDrawdown = 0.0;
 
-        // Generate all signals from the strategy based on the full historical data
-        // Expecting TradingAction objects from strategies now
-        List<TradingAction> allGeneratedSignals = strategy.generateSignals(historicalData, strategyParams);
+        // Incremental strategies are fed bar by bar, exactly as in live trading.
+        // Other strategies generate all signals from the full historical data up front.
+        IncrementalStrategy incrementalStrategy = strategy instanceof IncrementalStrategy ? (IncrementalStrategy) strategy : null;
+        List<TradingAction> allGeneratedSignals;
+        if (incrementalStrategy != null) {
+            incrementalStrategy.init(null, strategyParams);
+            allGeneratedSignals = new ArrayList<>();
+        } else {
+            allGeneratedSignals = strategy.generateSignals(historicalData, strategyParams);
+        }
         int signalIndex = 0; // To iterate through the allGeneratedSignals list
 
-        for (Candle candle : historicalData) { // Iterate through each candle in the historical data
+        for (int i = 0; i < candleCount; i++) { // Iterate through each candle in the historical data
+            long candleTime = historicalData.getEpochMillis(i);
+            double candleClose = historicalData.getClose(i);
             TradingAction actionForThisCandle = null;
+            if (incrementalStrategy != null) {
+                actionForThisCandle = incrementalStrategy.onBar(historicalData.getCandle(i));
+            }
             // Check if the next signal from the strategy matches the current candle's timestamp
-            if (signalIndex < allGeneratedSignals.size()) {
+            else if (signalIndex < allGeneratedSignals.size()) {
                 TradingAction nextPotentialSignal = allGeneratedSignals.get(signalIndex);
                 // Ensure nextPotentialSignal and its timestamp are not null before comparing
                 if (nextPotentialSignal != null && nextPotentialSignal.getTimestamp() != null &&
-                    nextPotentialSignal.getTimestamp().equals(candle.getTimestamp())) {
+                    nextPotentialSignal.getTimestamp().getTime() == candleTime) {
                     actionForThisCandle = nextPotentialSignal; // Assign the found signal
                     signalIndex++; // Consume this signal
                 }
@@ -68,7 +94,7 @@ public class Backtester {
                     entryPrice = tradePrice; // Use trade price for entry
                     currentCapital -= (sharesHeld * entryPrice);
                     currentCapital -= estimatedCharges;
-                    trades.add(new TradeLog(actionForThisCandle.getActionType().toString(), candle.getTimestamp(), sharesHeld, entryPrice, estimatedCharges));
+                    trades.add(new TradeLog(actionForThisCandle.getActionType().toString(), new Date(candleTime), sharesHeld, entryPrice, estimatedCharges));
                 }
             }
             // Process SELL signal
@@ -79,29 +105,40 @@ public class Backtester {
                 double estimatedCharges = chargeCalculator.calculateTotalCharges(tradePrice, sharesHeld, "SELL", productType, exchange); // Use sharesHeld for sell quantity
                 currentCapital += (sharesHeld * tradePrice); // Use trade price for exit
                 currentCapital -= estimatedCharges;
-                trades.add(new TradeLog(actionForThisCandle.getActionType().toString(), candle.getTimestamp(), sharesHeld, tradePrice, estimatedCharges));
+                trades.add(new TradeLog(actionForThisCandle.getActionType().toString(), new Date(candleTime), sharesHeld, tradePrice, estimatedCharges));
                 sharesHeld = 0;
                 entryPrice = 0.0;
             }
 
             // Record equity at the end of each candle
-            double currentPortfolioValue = currentCapital + (sharesHeld * candle.getClose());
-            equityTimestamps.add(candle.getTimestamp());
-            equityValues.add(currentPortfolioValue);
+            double currentPortfolioValue = currentCapital + (sharesHeld * candleClose);
+            equityTimestamps[equityPoints] = candleTime;
+            equityValues[equityPoints] = currentPortfolioValue;
+            equityPoints++;
+
+            // Track drawdown and stop as soon as it exceeds the configured limit
+            peakValue = Math.max(peakValue, currentPortfolioValue);
+            if (peakValue > 0) {
+                maxDrawdown = Math.max(maxDrawdown, (peakValue - currentPortfolioValue) / peakValue * 100);
+            }
+            if (maxDrawdownPercent > 0 && maxDrawdown > maxDrawdownPercent) {
+                report.setStoppedEarly(true);
+                break;
+            }
         }
 
         // If position is still open at the end, square it off
-        if (sharesHeld > 0 && !historicalData.isEmpty()) {
-            Candle lastCandle = historicalData.get(historicalData.size() - 1);
-            currentCapital += (sharesHeld * lastCandle.getClose());
+        if (sharesHeld > 0 && equityPoints > 0) {
+            // The last processed candle, the run may have stopped early
+            int last = equityPoints - 1;
+            double lastClose = historicalData.getClose(last);
+            currentCapital += (sharesHeld * lastClose);
             // Calculate and subtract square-off charges
-            double squareOffCharges = chargeCalculator.calculateTotalCharges(lastCandle.getClose(), sharesHeld, "SELL", "SQUAREOFF", "UNKNOWN"); // Use a placeholder product/exchange
+            double squareOffCharges = chargeCalculator.calculateTotalCharges(lastClose, sharesHeld, "SELL", "SQUAREOFF", "UNKNOWN"); // Use a placeholder product/exchange
             currentCapital -= squareOffCharges;
-            trades.add(new TradeLog("SQUAREOFF_END", lastCandle.getTimestamp(), sharesHeld, lastCandle.getClose(), squareOffCharges));
+            trades.add(new TradeLog("SQUAREOFF_END", new Date(historicalData.getEpochMillis(last)), sharesHeld, lastClose, squareOffCharges));
             // Update the last equity point to reflect the square-off
-            if (!equityValues.isEmpty()) {
-                equityValues.set(equityValues.size() - 1, currentCapital);
-            }
+            equityValues[last] = currentCapital;
         }
 
         report.setTrades(trades);
@@ -112,9 +149,15 @@ public class Backtester {
         } else {
             report.setProfitPercentage(0);
         }
-        report.setEquityCurveTimestamps(equityTimestamps);
-        report.setEquityCurveValues(equityValues);
-        report.setHistoricalCandles(new ArrayList<>(historicalData)); // Store a copy
+        if (equityPoints < candleCount) {
+            equityTimestamps = Arrays.copyOf(equityTimestamps, equityPoints);
+            equityValues = Arrays.copyOf(equityValues, equityPoints);
+        }
+        report.setEquityCurve(equityTimestamps, equityValues);
+        report.setMaxDrawdownPercent(maxDrawdown);
+        if (includeCandles) {
+            report.setCandleSeries(historicalData); // Immutable, shared without copying
+        }
 
         return report;
     }
@@ -0,0 +1,48 @@
+package com.angelbroking.smartapi.algos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONObject;
+
+import com.angelbroking.smartapi.SmartConnect;
+import com.angelbroking.smartapi.models.Candle;
+
+/**
+ * A strategy that consumes one closed bar at a time and keeps its indicators up
+ * to date incrementally, so every bar costs the same no matter how long the
+ * history is.
+ *
+ * The Backtester calls {@link #init} once and then {@link #onBar} for every
+ * candle in order. Live trading does the same with the candles emitted by a
+ * CandleAggregator, so both run exactly the same code.
+ */
+public interface IncrementalStrategy extends Strategy {
+    /**
+     * Configures the strategy and clears all state from a previous run.
+     *
+     * @param smartConnect - connection used for live trading, null when backtesting
+     * @param params       - strategy parameters
+     */
+    void init(SmartConnect smartConnect, JSONObject params);
+
+    /**
+     * Processes a closed bar.
+     *
+     * @return the action to take on this bar, HOLD if there is nothing to do
+     */
+    TradingAction onBar(Candle candle);
+
+    @Override
+    default List<TradingAction> generateSignals(List<Candle> historicalData, JSONObject params) {
+        init(null, params);
+        List<TradingAction> signals = new ArrayList<>();
+        for (Candle candle : historicalData) {
+            TradingAction action = onBar(candle);
+            if (action != null && action.getActionType() != ActionType.HOLD) {
+                signals.add(action);
+            }
+        }
+        return signals;
+    }
+}
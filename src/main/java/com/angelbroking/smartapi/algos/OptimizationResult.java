@@ -0,0 +1,34 @@
+package com.angelbroking.smartapi.algos;
+
+import org.json.JSONObject;
+
+import com.angelbroking.smartapi.models.BacktestReport;
+
+/**
+ * One evaluated parameter set of a BacktestOptimizer run.
+ */
+public class OptimizationResult {
+    private final JSONObject params;
+    private final BacktestReport report;
+
+    public OptimizationResult(JSONObject params, BacktestReport report) {
+        this.params = params;
+        this.report = report;
+    }
+
+    /** The full strategy parameters of this run, base parameters included. */
+    public JSONObject getParams() {
+        return params;
+    }
+
+    public BacktestReport getReport() {
+        return report;
+    }
+
+    @Override
+    public String toString() {
+        return "OptimizationResult [netProfit=" + report.getNetProfit() + ", maxDrawdownPercent="
+                + report.getMaxDrawdownPercent() + ", trades=" + report.getTotalTrades() + ", stoppedEarly="
+                + report.isStoppedEarly() + ", params=" + params + "]";
+    }
+}
@@ -1,6 +1,7 @@
 package com.angelbroking.smartapi.algos;
 
 import com.angelbroking.smartapi.models.Candle;
+import com.angelbroking.smartapi.models.CandleSeries;
 import org.json.JSONObject;
 
 import com.angelbroking.smartapi.algos.TradingAction;
@@ -15,4 +16,16 @@ public interface Strategy {
      */
     List<TradingAction> generateSignals(List<Candle> historicalData, JSONObject params);
     Map<String, List<Double>> getIndicatorData(List<Candle> historicalData, JSONObject params);
+
+    /**
+     * Columnar variant of {@link #generateSignals(List, JSONObject)}. Strategies that work on
+     * primitive arrays can override it, the default reads the series through a List view.
+     */
+    default List<TradingAction> generateSignals(CandleSeries historicalData, JSONObject params) {
+        return generateSignals(historicalData.asList(), params);
+    }
+
+    default Map<String, List<Double>> getIndicatorData(CandleSeries historicalData, JSONObject params) {
+        return getIndicatorData(historicalData.asList(), params);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.angelbroking.smartapi.algos.indicators;
+
+import com.angelbroking.smartapi.models.Candle;
+
+/**
+ * Average true range with Wilder's smoothing.
+ *
+ * The true range of the first bar is its high-low range since there is no
+ * previous close. The first value is the simple average of the first
+ * {@code period} true ranges.
+ */
+public class AverageTrueRange {
+    private final int period;
+    private int count;
+    private double previousClose = Double.NaN;
+    private double value = Double.NaN;
+    private double seedSum;
+
+    public AverageTrueRange(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("period should be greater than zero");
+        }
+        this.period = period;
+    }
+
+    public double update(Candle candle) {
+        return update(candle.getHigh(), candle.getLow(), candle.getClose());
+    }
+
+    /**
+     * Adds a bar and returns the ATR, or NaN until {@code period} bars were added.
+     */
+    public double update(double high, double low, double close) {
+        double trueRange = high - low;
+        if (!Double.isNaN(previousClose)) {
+            trueRange = Math.max(trueRange, Math.max(Math.abs(high - previousClose), Math.abs(low - previousClose)));
+        }
+        previousClose = close;
+        if (count < period) {
+            seedSum += trueRange;
+            if (++count == period) {
+                value = seedSum / period;
+            }
+            return value;
+        }
+        value = (value * (period - 1) + trueRange) / period;
+        return value;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public boolean isReady() {
+        return count == period;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public void reset() {
+        count = 0;
+        previousClose = Double.NaN;
+        seedSum = 0;
+        value = Double.NaN;
+    }
+}
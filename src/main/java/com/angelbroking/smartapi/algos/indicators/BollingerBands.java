@@ -0,0 +1,96 @@
+package com.angelbroking.smartapi.algos.indicators;
+
+/**
+ * Bollinger bands: a simple moving average and bands {@code multiplier} population
+ * standard deviations above and below it.
+ *
+ * Keeps a running sum and sum of squares over a ring of the last {@code period}
+ * values, both recomputed once per full turn of the ring.
+ */
+public class BollingerBands {
+    private final int period;
+    private final double multiplier;
+    private final double[] window;
+    private int next;
+    private int count;
+    private double sum;
+    private double sumOfSquares;
+    private double middle = Double.NaN;
+    private double deviation = Double.NaN;
+
+    public BollingerBands(int period, double multiplier) {
+        if (period < 1) {
+            throw new IllegalArgumentException("period should be greater than zero");
+        }
+        this.period = period;
+        this.multiplier = multiplier;
+        this.window = new double[period];
+    }
+
+    /**
+     * Adds a value and returns the middle band, or NaN until {@code period} values were added.
+     */
+    public double update(double input) {
+        if (count == period) {
+            double oldest = window[next];
+            sum -= oldest;
+            sumOfSquares -= oldest * oldest;
+        } else {
+            count++;
+        }
+        window[next] = input;
+        sum += input;
+        sumOfSquares += input * input;
+        if (++next == period) {
+            next = 0;
+            if (count == period) {
+                sum = 0;
+                sumOfSquares = 0;
+                for (double v : window) {
+                    sum += v;
+                    sumOfSquares += v * v;
+                }
+            }
+        }
+        if (count < period) {
+            return middle;
+        }
+        middle = sum / period;
+        // clamp, cancellation can push a flat window's variance slightly below zero
+        deviation = Math.sqrt(Math.max(0, sumOfSquares / period - middle * middle));
+        return middle;
+    }
+
+    public double getMiddle() {
+        return middle;
+    }
+
+    public double getUpper() {
+        return middle + multiplier * deviation;
+    }
+
+    public double getLower() {
+        return middle - multiplier * deviation;
+    }
+
+    public double getStandardDeviation() {
+        return deviation;
+    }
+
+    public boolean isReady() {
+        return count == period;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public void reset() {
+        next = 0;
+        count = 0;
+        sum = 0;
+        sumOfSquares = 0;
+        middle = Double.NaN;
+        deviation = Double.NaN;
+    }
+}
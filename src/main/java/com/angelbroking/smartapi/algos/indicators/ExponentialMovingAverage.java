@@ -0,0 +1,55 @@
+package com.angelbroking.smartapi.algos.indicators;
+
+/**
+ * Exponential moving average with smoothing factor {@code 2 / (period + 1)}.
+ *
+ * Seeded with the simple average of the first {@code period} values, as TA-Lib does.
+ */
+public class ExponentialMovingAverage {
+    private final int period;
+    private final double alpha;
+    private int count;
+    private double seedSum;
+    private double value = Double.NaN;
+
+    public ExponentialMovingAverage(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("period should be greater than zero");
+        }
+        this.period = period;
+        this.alpha = 2.0 / (period + 1);
+    }
+
+    /**
+     * Adds a value and returns the average, or NaN until {@code period} values were added.
+     */
+    public double update(double input) {
+        if (count < period) {
+            seedSum += input;
+            if (++count == period) {
+                value = seedSum / period;
+            }
+            return value;
+        }
+        value += alpha * (input - value);
+        return value;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public boolean isReady() {
+        return count == period;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public void reset() {
+        count = 0;
+        seedSum = 0;
+        value = Double.NaN;
+    }
+}
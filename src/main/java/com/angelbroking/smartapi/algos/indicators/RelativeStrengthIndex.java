@@ -0,0 +1,73 @@
+package com.angelbroking.smartapi.algos.indicators;
+
+/**
+ * Relative strength index with Wilder's smoothing.
+ *
+ * The first average gain and loss are the simple averages of the first
+ * {@code period} changes, so the first value is available after
+ * {@code period + 1} prices. Matches TA-Lib's RSI.
+ */
+public class RelativeStrengthIndex {
+    private final int period;
+    private int changes;
+    private double previousClose = Double.NaN;
+    private double averageGain;
+    private double averageLoss;
+    private double value = Double.NaN;
+
+    public RelativeStrengthIndex(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("period should be greater than zero");
+        }
+        this.period = period;
+    }
+
+    /**
+     * Adds a closing price and returns the RSI between 0 and 100, or NaN while warming up.
+     */
+    public double update(double close) {
+        if (Double.isNaN(previousClose)) {
+            previousClose = close;
+            return value;
+        }
+        double change = close - previousClose;
+        previousClose = close;
+        double gain = change > 0 ? change : 0;
+        double loss = change < 0 ? -change : 0;
+        if (changes < period) {
+            averageGain += gain;
+            averageLoss += loss;
+            if (++changes < period) {
+                return value;
+            }
+            averageGain /= period;
+            averageLoss /= period;
+        } else {
+            averageGain = (averageGain * (period - 1) + gain) / period;
+            averageLoss = (averageLoss * (period - 1) + loss) / period;
+        }
+        double total = averageGain + averageLoss;
+        value = total == 0 ? 0 : 100 * averageGain / total;
+        return value;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public boolean isReady() {
+        return changes == period;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public void reset() {
+        changes = 0;
+        previousClose = Double.NaN;
+        averageGain = 0;
+        averageLoss = 0;
+        value = Double.NaN;
+    }
+}
@@ -0,0 +1,67 @@
+package com.angelbroking.smartapi.algos.indicators;
+
+/**
+ * Simple moving average updated in constant time per value.
+ *
+ * Keeps the last {@code period} values in a ring and a running sum. The sum is
+ * recomputed from the ring once per full turn so rounding errors cannot build up.
+ */
+public class SimpleMovingAverage {
+    private final int period;
+    private final double[] window;
+    private int next;
+    private int count;
+    private double sum;
+    private double value = Double.NaN;
+
+    public SimpleMovingAverage(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("period should be greater than zero");
+        }
+        this.period = period;
+        this.window = new double[period];
+    }
+
+    /**
+     * Adds a value and returns the average of the last {@code period} values, or NaN until that many were added.
+     */
+    public double update(double input) {
+        if (count == period) {
+            sum -= window[next];
+        } else {
+            count++;
+        }
+        window[next] = input;
+        sum += input;
+        if (++next == period) {
+            next = 0;
+            if (count == period) {
+                sum = 0;
+                for (double v : window) {
+                    sum += v;
+                }
+            }
+        }
+        value = count == period ? sum / period : Double.NaN;
+        return value;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public boolean isReady() {
+        return count == period;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public void reset() {
+        next = 0;
+        count = 0;
+        sum = 0;
+        value = Double.NaN;
+    }
+}
@@ -4,22 +4,21 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.stream.Collectors;
-import java.util.Arrays;
 
 import org.json.JSONObject;
 
 import com.angelbroking.smartapi.SmartConnect;
 import com.angelbroking.smartapi.algos.ActionType;
-import com.angelbroking.smartapi.algos.Strategy; // For order constants
+import com.angelbroking.smartapi.algos.IncrementalStrategy;
 import com.angelbroking.smartapi.algos.TradingAction;
+import com.angelbroking.smartapi.algos.indicators.SimpleMovingAverage;
 import com.angelbroking.smartapi.models.Candle;
 import com.angelbroking.smartapi.models.Tick;
 import com.angelbroking.smartapi.utils.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class MACrossoverStrategy implements Strategy {
+public class MACrossoverStrategy implements IncrementalStrategy {
     private SmartConnect smartConnect;
     private String symbolToken;
     private String tradingSymbol;
@@ -31,7 +30,10 @@ public class MACrossoverStrategy implements Strategy {
 
     private static final Logger log = LoggerFactory.getLogger(MACrossoverStrategy.class);
 
-    private List<Double> closePrices = new ArrayList<>();
+    private SimpleMovingAverage shortMA;
+    private SimpleMovingAverage longMA;
+    private double prevShortMA = Double.NaN;
+    private double prevLongMA = Double.NaN;
     private boolean positionOpen = false; // True if we have an open long position
 
     public String getName() {
@@ -39,6 +41,7 @@ public class MACrossoverStrategy implements Strategy {
         return "MA Crossover (" + shortPeriod + "/" + longPeriod + ") [" + productType + "]";
     }
 
+    @Override
     public void init(SmartConnect smartConnect, JSONObject params) {
         this.smartConnect = smartConnect; // Store for potential live trading (can be null for backtesting)
         this.symbolToken = params.getString("symbolToken");
@@ -52,23 +55,29 @@ public class MACrossoverStrategy implements Strategy {
 
         // Reset state for new initialization (e.g., during backtesting a new period)
         log.info("[{}] Initializing strategy with params: {}", getName(), params.toString());
-        this.closePrices = new ArrayList<>(); // Re-initialize list
+        this.shortMA = new SimpleMovingAverage(shortPeriod);
+        this.longMA = new SimpleMovingAverage(longPeriod);
+        this.prevShortMA = Double.NaN;
+        this.prevLongMA = Double.NaN;
         this.positionOpen = false;
     }
 
     public void onCandle(Candle candle) {
         if (candle != null) {
-            closePrices.add(candle.getClose());
-            // log.trace("[{}] Added close price: {} from candle: {}", getName(), candle.getClose(), candle.getTimestamp());
-            // Ensure we don't keep an infinitely growing list if not needed for very long MAs
-            // For this strategy, we need at least `longPeriod` prices.
-            // A more robust implementation might use a circular buffer or fixed-size list.
-            if (closePrices.size() > longPeriod + 50) { // Keep some buffer
-                closePrices = closePrices.stream().skip(closePrices.size() - (longPeriod + 50)).collect(Collectors.toList());
-            }
+            // Remember the MAs of the previous candle to detect the crossover, both updates are O(1)
+            prevShortMA = shortMA.getValue();
+            prevLongMA = longMA.getValue();
+            shortMA.update(candle.getClose());
+            longMA.update(candle.getClose());
         }
     }
 
+    @Override
+    public TradingAction onBar(Candle candle) {
+        onCandle(candle);
+        return getActionSignal(candle);
+    }
+
     public void onTick(Tick tick) {
         // This strategy is candle-based, so onTick might not be used directly for signals.
         // However, you could use it to update LTP for trailing stops or real-time P&L.
@@ -78,26 +87,24 @@ public class MACrossoverStrategy implements Strategy {
     public TradingAction getActionSignal(Candle currentCandle) {
         // `currentCandle` is the latest, potentially incomplete candle in live mode,
         // or the current candle being processed in backtesting.
-        // The `onCandle` method should have already added its close price to `closePrices`
-        // if it's a completed candle. For `getActionSignal`, we operate on the historical `closePrices`.
+        // The `onCandle` method should have already fed its close price to the moving averages
+        // if it's a completed candle. For `getActionSignal`, we operate on their current values.
 
-        if (closePrices.size() < longPeriod) {
-            log.debug("[{}] Not enough data for MA calculation. Close prices count: {}, Required: {}", getName(), closePrices.size(), longPeriod);
+        if (!longMA.isReady()) {
+            log.debug("[{}] Not enough data for MA calculation. Required: {}", getName(), longPeriod);
             // Pass currentCandle's timestamp, or null if not strictly needed for HOLD signal processing later
             return new TradingAction(currentCandle != null ? currentCandle.getTimestamp() : null, ActionType.HOLD, symbolToken);
         }
 
-        double shortMA = calculateMA(shortPeriod);
-        double longMA = calculateMA(longPeriod);
+        double shortMA = this.shortMA.getValue();
+        double longMA = this.longMA.getValue();
         log.debug("[{}] Calculated MAs - ShortMA({}): {}, LongMA({}): {}", getName(), shortPeriod, shortMA, longPeriod, longMA);
 
         // Need previous MAs to detect crossover
-        if (closePrices.size() < longPeriod + 1) {
-            log.debug("[{}] Not enough data for previous MA calculation. Close prices count: {}, Required: {}", getName(), closePrices.size(), longPeriod + 1);
+        if (Double.isNaN(prevShortMA) || Double.isNaN(prevLongMA)) {
+            log.debug("[{}] Not enough data for previous MA calculation. Required: {}", getName(), longPeriod + 1);
             return new TradingAction(currentCandle != null ? currentCandle.getTimestamp() : null, ActionType.HOLD, symbolToken); // Not enough data for previous MAs
         }
-        double prevShortMA = calculatePreviousMA(shortPeriod, 1);
-        double prevLongMA = calculatePreviousMA(longPeriod, 1);
         log.debug("[{}] Calculated Previous MAs - PrevShortMA({}): {}, PrevLongMA({}): {}", getName(), shortPeriod, prevShortMA, longPeriod, prevLongMA);
 
         // Buy signal: short MA crosses above long MA
@@ -124,48 +131,12 @@ public class MACrossoverStrategy implements Strategy {
         return new TradingAction(currentCandle != null ? currentCandle.getTimestamp() : null, ActionType.HOLD, symbolToken);
     }
 
-    private double calculateMA(int period) {
-        if (closePrices.size() < period) return 0.0;
-        return closePrices.stream().skip(closePrices.size() - period).mapToDouble(Double::doubleValue).average().orElse(0.0);
-    }
-
-    private double calculatePreviousMA(int period, int lookback) {
-        if (closePrices.size() < period + lookback) return 0.0;
-        return closePrices.stream().skip(closePrices.size() - period - lookback).limit(period).mapToDouble(Double::doubleValue).average().orElse(0.0);
-    }
-
-    @Override
-    public List<TradingAction> generateSignals(List<Candle> historicalData, JSONObject params) {
-        // Initialize the strategy state for this specific run
-        // Assumes this.smartConnect is either already set or can be null if not used by init for backtesting logic
-        this.init(null, params); // Pass null for smartConnect during backtesting
-
-        List<TradingAction> signals = new ArrayList<>(); // Changed from List<Signal> to List<TradingAction>
-        for (Candle candle : historicalData) {
-            onCandle(candle); // Update internal state (closePrices) with the current candle
-            log.trace("[{}] Processing candle for generateSignals: {}", getName(), candle.getTimestamp());
-            TradingAction action = getActionSignal(candle); // Get signal based on the updated state
-            
-            // Add action to signals list if it's not a HOLD
-            // Also, associate the candle's timestamp with the action if needed (not done here)
-            if (action.getActionType() != ActionType.HOLD) {
-                signals.add((TradingAction) action); // Cast to TradingAction
-                log.debug("[{}] Added signal: {} for candle at {}", getName(), action.getActionType(), candle.getTimestamp());
-            }
-        }
-        return signals;
-    }
-
     @Override
     public Map<String, List<Double>> getIndicatorData(List<Candle> historicalData, JSONObject params) {
         // This method calculates indicator values over a given historical dataset.
-        // It should not modify the primary state of the strategy instance (this.closePrices, this.positionOpen).
+        // It should not modify the primary state of the strategy instance (the moving averages, this.positionOpen).
         // It uses parameters passed to it, or falls back to strategy's initialized parameters.
 
-        List<Double> localClosePrices = historicalData.stream()
-                                            .map(Candle::getClose)
-                                            .collect(Collectors.toList());
-
         List<Double> shortMAList = new ArrayList<>();
         List<Double> longMAList = new ArrayList<>();
 
@@ -185,24 +156,12 @@ public class MACrossoverStrategy implements Strategy {
         }
 
 
-        for (int i = 0; i < localClosePrices.size(); i++) {
-            // Calculate Short MA
-            if (i >= currentShortPeriod - 1) {
-                double ma = localClosePrices.subList(i - currentShortPeriod + 1, i + 1)
-                                    .stream().mapToDouble(Double::doubleValue).average().orElse(Double.NaN);
-                shortMAList.add(ma);
-            } else {
-                shortMAList.add(Double.NaN); // Not enough data for MA
-            }
-
-            // Calculate Long MA
-            if (i >= currentLongPeriod - 1) {
-                double ma = localClosePrices.subList(i - currentLongPeriod + 1, i + 1)
-                                    .stream().mapToDouble(Double::doubleValue).average().orElse(Double.NaN);
-                longMAList.add(ma);
-            } else {
-                longMAList.add(Double.NaN); // Not enough data for MA
-            }
+        // Separate MA instances so the strategy's own state is untouched, NaN until enough data
+        SimpleMovingAverage shortSeries = new SimpleMovingAverage(currentShortPeriod);
+        SimpleMovingAverage longSeries = new SimpleMovingAverage(currentLongPeriod);
+        for (Candle candle : historicalData) {
+            shortMAList.add(shortSeries.update(candle.getClose()));
+            longMAList.add(longSeries.update(candle.getClose()));
         }
 
         Map<String, List<Double>> indicators = new HashMap<>();
@@ -5,6 +5,7 @@ import com.angelbroking.smartapi.algos.Signal;
 import com.angelbroking.smartapi.algos.Strategy;
 import com.angelbroking.smartapi.algos.ActionType;
 import com.angelbroking.smartapi.models.Candle;
+import com.angelbroking.smartapi.models.CandleSeries;
 import com.tictactec.ta.lib.Core;
 import com.tictactec.ta.lib.MInteger;
 import com.tictactec.ta.lib.RetCode;
@@ -70,7 +71,9 @@ public class RsiDeviationStrategy implements Strategy {
         log.info("[{}] Backtest Params: Token={}, Exchange={}, Product={}, Interval={}",
                 getName(), symbolToken, exchange, productType, params.optString("interval", "UNKNOWN"));
 
-        double[] closePrices = historicalData.stream().mapToDouble(Candle::getClose).toArray();
+        // One pass into primitive columns, free when the list is a CandleSeries view
+        CandleSeries series = CandleSeries.of(historicalData);
+        double[] closePrices = series.closes();
 
         if (closePrices.length < rsiPeriod + 20) { // Increased minimum data requirement
             log.warn("[{}] Not enough data for RSI calculation. Data points: {}, Need at least: {}",
@@ -104,7 +107,10 @@ public class RsiDeviationStrategy implements Strategy {
         }
 
         // Calculate volume-based filter if available
-        double[] volumes = historicalData.stream().mapToDouble(candle -> candle.getVolume() == 0L ? 1.0 : candle.getVolume()).toArray();
+        double[] volumes = new double[series.size()];
+        for (int v = 0; v < volumes.length; v++) {
+            volumes[v] = series.getVolume(v) == 0L ? 1.0 : series.getVolume(v);
+        }
         double avgVolume = calculateAverageVolume(volumes, Math.min(20, volumes.length));
 
         for (int i = rsiSignalStabilizationCount + 5; i < length.value - 5; i++) { // Avoid last 5 candles too
@@ -347,7 +353,7 @@ public class RsiDeviationStrategy implements Strategy {
     @Override
     public Map<String, List<Double>> getIndicatorData(List<Candle> historicalData, JSONObject params) {
         int rsiPeriod = params.optInt("rsiPeriod", 14);
-        double[] closePrices = historicalData.stream().mapToDouble(Candle::getClose).toArray();
+        double[] closePrices = CandleSeries.of(historicalData).closes();
 
         if (closePrices.length < rsiPeriod) {
             return Map.of();
@@ -4,6 +4,7 @@ import com.angelbroking.smartapi.algos.TradingAction;
 import com.angelbroking.smartapi.algos.Strategy;
 import com.angelbroking.smartapi.algos.ActionType;
 import com.angelbroking.smartapi.models.Candle;
+import com.angelbroking.smartapi.models.CandleSeries;
 import com.tictactec.ta.lib.Core;
 import com.tictactec.ta.lib.MInteger;
 import com.tictactec.ta.lib.RetCode;
@@ -74,7 +75,9 @@ public class Rsipricedeviation implements Strategy {
         log.info("[{}] Parameters - RSI Period: {}, Price Stability: {}%, Min RSI Diff: {}, Gap: {}, Avoid Open/Close: {}",
                 getName(), rsiPeriod, priceStabilityThresholdPercent, minRsiPositiveDifference, minCandlesBetweenTrades, avoidMarketOpenClose);
 
-        double[] closePrices = historicalData.stream().mapToDouble(Candle::getClose).toArray();
+        // One pass into primitive columns, free when the list is a CandleSeries view
+        CandleSeries series = CandleSeries.of(historicalData);
+        double[] closePrices = series.closes();
 
         if (closePrices.length < rsiPeriod + 20) {
             log.warn("[{}] Not enough data for RSI calculation. Data points: {}, Need at least: {}",
@@ -108,8 +111,10 @@ public class Rsipricedeviation implements Strategy {
         }
 
         // Calculate volume-based filter if available
-        double[] volumes = historicalData.stream().mapToDouble(candle -> 
-            candle.getVolume() > 0 ? candle.getVolume() : 1.0).toArray();
+        double[] volumes = new double[series.size()];
+        for (int v = 0; v < volumes.length; v++) {
+            volumes[v] = series.getVolume(v) > 0 ? series.getVolume(v) : 1.0;
+        }
         double avgVolume = calculateAverageVolume(volumes, Math.min(20, volumes.length));
 
         // Main signal generation loop
@@ -352,7 +357,7 @@ public class Rsipricedeviation implements Strategy {
     @Override
     public Map<String, List<Double>> getIndicatorData(List<Candle> historicalData, JSONObject params) {
         int rsiPeriod = params.optInt("rsiPeriod", 14);
-        double[] closePrices = historicalData.stream().mapToDouble(Candle::getClose).toArray();
+        double[] closePrices = CandleSeries.of(historicalData).closes();
 
         if (closePrices.length < rsiPeriod) {
             return new HashMap<>();
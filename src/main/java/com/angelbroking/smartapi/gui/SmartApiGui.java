@@ -27,6 +27,7 @@ import com.angelbroking.smartapi.algos.Backtester;
 import com.angelbroking.smartapi.algos.Strategy;
 import com.angelbroking.smartapi.algos.strategies.MACrossoverStrategy;
 import com.angelbroking.smartapi.algos.strategies.RsiDeviationStrategy;
+import com.angelbroking.smartapi.history.CandleCache;
 import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
 import com.angelbroking.smartapi.models.BacktestReport;
 import com.angelbroking.smartapi.models.Candle;
@@ -83,6 +84,7 @@ import javafx.stage.Stage;
 public class SmartApiGui extends Application {
 
     private SmartConnect smartConnect;
+    private CandleCache candleCache;
     private Stage primaryStage;
 
     private final String lightModeCss = getClass().getResource("/styles/light-mode.css").toExternalForm();
@@ -1473,6 +1475,13 @@ public class SmartApiGui extends Application {
         });
     }
 
+    private synchronized CandleCache getCandleCache() {
+        if (candleCache == null) {
+            candleCache = new CandleCache(smartConnect, CandleCache.defaultDirectory());
+        }
+        return candleCache;
+    }
+
     private WebEngine getActiveHistoricalChartEngine() {
         if (isHistoricalChartDetached && detachedHistoricalStage != null && detachedHistoricalStage.isShowing() && detachedHistoricalWebEngine != null) {
             return detachedHistoricalWebEngine;
@@ -1765,20 +1774,10 @@ public class SmartApiGui extends Application {
             resultsTextArea.setText("Running backtest...\n");
             new Thread(() -> {
                 try {
-                    JSONObject candleParams = new JSONObject();
-                    candleParams.put("exchange", exchangeComboBox.getValue());
-                    candleParams.put("symboltoken", symbolTokenField.getText());
-                    candleParams.put("interval", intervalComboBox.getValue());
-                    candleParams.put("fromdate", fromDatePicker.getValue().toString() + " 00:00");
-                    candleParams.put("todate", toDatePicker.getValue().toString() + " 23:59");
-
-                    JSONArray candleDataArray = smartConnect.candleData(candleParams);
-                    List<Candle> historicalCandles = new ArrayList<>();
-                    if (candleDataArray != null) {
-                        for (int i = 0; i < candleDataArray.length(); i++) {
-                            historicalCandles.add(new Candle(candleDataArray.getJSONArray(i)));
-                        }
-                    }
+                    // Only days not cached on disk yet are downloaded
+                    List<Candle> historicalCandles = getCandleCache().getCandles(exchangeComboBox.getValue(),
+                            symbolTokenField.getText(), intervalComboBox.getValue(),
+                            fromDatePicker.getValue(), toDatePicker.getValue()).asList();
 
                     if (historicalCandles.isEmpty()) {
                         Platform.runLater(() -> resultsTextArea.appendText("No historical data found for the selected parameters.\n"));
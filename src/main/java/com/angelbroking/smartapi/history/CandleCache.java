@@ -0,0 +1,315 @@
+package com.angelbroking.smartapi.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.angelbroking.smartapi.SmartConnect;
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+import com.angelbroking.smartapi.models.CandleSeries;
+
+/**
+ * Disk cache for historical candles, one file per exchange, token, interval and trading day.
+ *
+ * Only the days that are not on disk yet are requested from the historical
+ * API, in date ranges no longer than the API accepts for the interval. Days
+ * before today are written to disk once and never fetched again. A day
+ * without candles in a response that has candles on other days, e.g. a
+ * holiday, is only marked empty and fetched again once the marker is older
+ * than {@link #EMPTY_DAY_TTL}. A response without any candles may be a
+ * throttled or failed request, only its weekend days are marked empty. Today's
+ * candles are still forming and are always fetched and never stored.
+ *
+ * Day files are a 16 byte header followed by fixed 48 byte little-endian
+ * records (epoch millis, open, high, low, close, volume) and are read through
+ * a memory mapping. Days are in IST, the exchange time zone.
+ */
+public class CandleCache {
+	private static final Logger log = LoggerFactory.getLogger(CandleCache.class);
+
+	public static final ZoneId TZ_IST = ZoneId.of("Asia/Kolkata");
+
+	private static final int MAGIC = 0x53414331; // "SAC1"
+	private static final short VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int RECORD_SIZE = 48;
+	private static final Pattern SAFE_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+	/** How long a day without candles is trusted before it is fetched again. */
+	public static final Duration EMPTY_DAY_TTL = Duration.ofDays(30);
+	private static final DateTimeFormatter REQUEST_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+	// Longest date range the historical API serves in one request, per interval
+	private static final Map<String, Integer> MAX_DAYS_PER_REQUEST = new HashMap<>();
+
+	static {
+		MAX_DAYS_PER_REQUEST.put("ONE_MINUTE", 30);
+		MAX_DAYS_PER_REQUEST.put("THREE_MINUTE", 60);
+		MAX_DAYS_PER_REQUEST.put("FIVE_MINUTE", 100);
+		MAX_DAYS_PER_REQUEST.put("TEN_MINUTE", 100);
+		MAX_DAYS_PER_REQUEST.put("FIFTEEN_MINUTE", 200);
+		MAX_DAYS_PER_REQUEST.put("THIRTY_MINUTE", 200);
+		MAX_DAYS_PER_REQUEST.put("ONE_HOUR", 400);
+		MAX_DAYS_PER_REQUEST.put("ONE_DAY", 2000);
+	}
+
+	private final SmartConnect smartConnect;
+	private final Path directory;
+	private final Clock clock;
+	private final Map<String, Object> locks = new ConcurrentHashMap<>();
+	private final AtomicLong fetchedDays = new AtomicLong();
+	private final AtomicLong cachedDays = new AtomicLong();
+
+	/**
+	 * @param smartConnect - logged in connection used to fetch missing days
+	 * @param directory    - root directory of the cache, created if it does not exist
+	 */
+	public CandleCache(SmartConnect smartConnect, Path directory) {
+		this(smartConnect, directory, Clock.system(TZ_IST));
+	}
+
+	CandleCache(SmartConnect smartConnect, Path directory, Clock clock) {
+		if (smartConnect == null || directory == null) {
+			throw new IllegalArgumentException("SmartConnect and directory should not be null");
+		}
+		this.smartConnect = smartConnect;
+		this.directory = directory;
+		this.clock = clock;
+	}
+
+	/** ~/.smartapi/candles */
+	public static Path defaultDirectory() {
+		return Paths.get(System.getProperty("user.home"), ".smartapi", "candles");
+	}
+
+	/**
+	 * Returns the candles of the given days, inclusive, fetching only days missing from disk.
+	 *
+	 * @param exchange    - e.g. NSE
+	 * @param symbolToken - instrument token
+	 * @param interval    - historical API interval such as ONE_MINUTE or ONE_DAY
+	 * @throws SmartAPIException - if the API rejects a request, days fetched before it stay cached
+	 * @throws IOException       - if the API or the cache directory cannot be accessed
+	 */
+	public CandleSeries getCandles(String exchange, String symbolToken, String interval, LocalDate from, LocalDate to)
+			throws SmartAPIException, IOException {
+		Integer maxDays = MAX_DAYS_PER_REQUEST.get(interval);
+		if (maxDays == null) {
+			throw new IllegalArgumentException("unsupported interval " + interval);
+		}
+		if (!SAFE_NAME.matcher(exchange).matches() || !SAFE_NAME.matcher(symbolToken).matches()) {
+			throw new IllegalArgumentException("invalid exchange or symbolToken");
+		}
+		if (from.isAfter(to)) {
+			throw new IllegalArgumentException("from should not be after to");
+		}
+		LocalDate today = LocalDate.now(clock);
+		LocalDate last = to.isAfter(today) ? today : to;
+		Path seriesDirectory = directory.resolve(exchange).resolve(symbolToken).resolve(interval);
+
+		String key = exchange + ':' + symbolToken + ':' + interval;
+		synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+			Map<LocalDate, CandleSeries> fetched = new HashMap<>();
+			List<LocalDate> missing = new ArrayList<>();
+			for (LocalDate day = from; !day.isAfter(last); day = day.plusDays(1)) {
+				if (!day.isBefore(today) || !isCached(seriesDirectory, day)) {
+					missing.add(day);
+				}
+			}
+			fetchMissing(exchange, symbolToken, interval, maxDays, missing, today, seriesDirectory, fetched);
+
+			CandleSeries.Builder builder = new CandleSeries.Builder();
+			for (LocalDate day = from; !day.isAfter(last); day = day.plusDays(1)) {
+				CandleSeries daySeries = fetched.get(day);
+				if (daySeries == null) {
+					Path file = dayFile(seriesDirectory, day);
+					daySeries = Files.exists(file) ? readDay(file) : new CandleSeries.Builder(1).build();
+					cachedDays.incrementAndGet();
+				}
+				for (int i = 0; i < daySeries.size(); i++) {
+					builder.add(daySeries.getEpochMillis(i), daySeries.getOpen(i), daySeries.getHigh(i),
+							daySeries.getLow(i), daySeries.getClose(i), daySeries.getVolume(i));
+				}
+			}
+			return builder.build();
+		}
+	}
+
+	private void fetchMissing(String exchange, String symbolToken, String interval, int maxDays, List<LocalDate> missing,
+			LocalDate today, Path seriesDirectory, Map<LocalDate, CandleSeries> fetched) throws SmartAPIException, IOException {
+		int start = 0;
+		while (start < missing.size()) {
+			// extend the chunk over consecutive missing days up to the API's range limit
+			int end = start + 1;
+			while (end < missing.size() && end - start < maxDays
+					&& missing.get(end).equals(missing.get(end - 1).plusDays(1))) {
+				end++;
+			}
+			LocalDate chunkFrom = missing.get(start);
+			LocalDate chunkTo = missing.get(end - 1);
+
+			JSONObject params = new JSONObject();
+			params.put("exchange", exchange);
+			params.put("symboltoken", symbolToken);
+			params.put("interval", interval);
+			params.put("fromdate", REQUEST_DATE_FORMAT.format(chunkFrom) + " 00:00");
+			params.put("todate", REQUEST_DATE_FORMAT.format(chunkTo) + " 23:59");
+			CandleSeries rows = smartConnect.getCandleSeries(params);
+
+			Map<LocalDate, CandleSeries.Builder> byDay = new HashMap<>();
+			for (int i = 0; i < rows.size(); i++) {
+				long epochMillis = rows.getEpochMillis(i);
+				LocalDate day = Instant.ofEpochMilli(epochMillis).atZone(TZ_IST).toLocalDate();
+				byDay.computeIfAbsent(day, d -> new CandleSeries.Builder(512)).add(epochMillis, rows.getOpen(i),
+						rows.getHigh(i), rows.getLow(i), rows.getClose(i), rows.getVolume(i));
+			}
+			for (LocalDate day = chunkFrom; !day.isAfter(chunkTo); day = day.plusDays(1)) {
+				CandleSeries.Builder dayBuilder = byDay.get(day);
+				CandleSeries daySeries = dayBuilder != null ? dayBuilder.build() : new CandleSeries.Builder(1).build();
+				fetched.put(day, daySeries);
+				// an empty response tells nothing about its trading days, they are fetched again next time
+				if (day.isBefore(today) && (rows.size() > 0 || isWeekend(day))) {
+					if (dayBuilder != null) {
+						writeDay(dayFile(seriesDirectory, day), daySeries);
+						Files.deleteIfExists(emptyDayFile(seriesDirectory, day));
+					} else {
+						writeEmptyDay(emptyDayFile(seriesDirectory, day), clock.millis());
+					}
+				}
+				fetchedDays.incrementAndGet();
+			}
+			log.info("fetched {} candles of {} {} {} from {} to {}", rows.size(), exchange, symbolToken, interval,
+					chunkFrom, chunkTo);
+			start = end;
+		}
+	}
+
+	private static boolean isWeekend(LocalDate day) {
+		DayOfWeek dayOfWeek = day.getDayOfWeek();
+		return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY;
+	}
+
+	private static Path dayFile(Path seriesDirectory, LocalDate day) {
+		return seriesDirectory.resolve(REQUEST_DATE_FORMAT.format(day) + ".bin");
+	}
+
+	private static Path emptyDayFile(Path seriesDirectory, LocalDate day) {
+		return seriesDirectory.resolve(REQUEST_DATE_FORMAT.format(day) + ".empty");
+	}
+
+	private boolean isCached(Path seriesDirectory, LocalDate day) throws IOException {
+		if (Files.exists(dayFile(seriesDirectory, day))) {
+			return true;
+		}
+		Path marker = emptyDayFile(seriesDirectory, day);
+		if (!Files.exists(marker)) {
+			return false;
+		}
+		byte[] bytes = Files.readAllBytes(marker);
+		if (bytes.length != Long.BYTES) {
+			return false;
+		}
+		long markedMillis = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getLong();
+		return clock.millis() - markedMillis < EMPTY_DAY_TTL.toMillis();
+	}
+
+	private static CandleSeries readDay(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+				throw new IOException("not a candle cache file: " + file);
+			}
+			int count = buffer.getInt(8);
+			if (size != HEADER_SIZE + (long) count * RECORD_SIZE) {
+				throw new IOException("truncated candle cache file: " + file);
+			}
+			long[] epochMillis = new long[count];
+			double[] open = new double[count];
+			double[] high = new double[count];
+			double[] low = new double[count];
+			double[] close = new double[count];
+			long[] volume = new long[count];
+			buffer.position(HEADER_SIZE);
+			for (int i = 0; i < count; i++) {
+				epochMillis[i] = buffer.getLong();
+				open[i] = buffer.getDouble();
+				high[i] = buffer.getDouble();
+				low[i] = buffer.getDouble();
+				close[i] = buffer.getDouble();
+				volume[i] = buffer.getLong();
+			}
+			return new CandleSeries(epochMillis, open, high, low, close, volume);
+		}
+	}
+
+	private static void writeDay(Path file, CandleSeries series) throws IOException {
+		Files.createDirectories(file.getParent());
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + series.size() * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(series.size()).putInt(0);
+		for (int i = 0; i < series.size(); i++) {
+			buffer.putLong(series.getEpochMillis(i))
+					.putDouble(series.getOpen(i))
+					.putDouble(series.getHigh(i))
+					.putDouble(series.getLow(i))
+					.putDouble(series.getClose(i))
+					.putLong(series.getVolume(i));
+		}
+		buffer.flip();
+		writeAtomically(file, buffer);
+	}
+
+	// the marker holds when the day was found empty, in epoch millis
+	private static void writeEmptyDay(Path file, long markedMillis) throws IOException {
+		Files.createDirectories(file.getParent());
+		ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putLong(markedMillis).flip();
+		writeAtomically(file, buffer);
+	}
+
+	private static void writeAtomically(Path file, ByteBuffer buffer) throws IOException {
+		// write next to the target and rename, readers never see a partial file
+		Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/** Number of days requested from the API so far. */
+	public long getFetchedDays() {
+		return fetchedDays.get();
+	}
+
+	/** Number of days served from disk so far. */
+	public long getCachedDays() {
+		return cachedDays.get();
+	}
+}
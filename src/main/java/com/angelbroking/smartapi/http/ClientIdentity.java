@@ -0,0 +1,168 @@
+package com.angelbroking.smartapi.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import okhttp3.Headers;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Local IP, public IP and MAC address sent with every Smart API request.
+ *
+ * Detecting them takes a call to checkip.amazonaws.com and a walk over the
+ * network interfaces, so the default identity is detected once per JVM on a
+ * background thread and shared by all request handlers. Applications that
+ * already know these values can pass them with {@link #of} or install them as
+ * the default with {@link #setDefault}.
+ */
+public final class ClientIdentity {
+
+    private static final Logger log = LoggerFactory.getLogger(ClientIdentity.class);
+
+    private static final String PUBLIC_IP_URL = "http://checkip.amazonaws.com";
+    private static final int PUBLIC_IP_TIMEOUT_MILLIS = 5000;
+    private static final String UNKNOWN_IP = "127.0.0.1";
+    private static final String UNKNOWN_MAC = "00-00-00-00-00-00";
+
+    private static CompletableFuture<ClientIdentity> defaultIdentity;
+
+    private final String clientLocalIP;
+    private final String clientPublicIP;
+    private final String macAddress;
+    private final Headers headers;
+
+    private ClientIdentity(String clientLocalIP, String clientPublicIP, String macAddress) {
+        this.clientLocalIP = clientLocalIP;
+        this.clientPublicIP = clientPublicIP;
+        this.macAddress = macAddress;
+        this.headers = new Headers.Builder()
+                .add("Content-Type", "application/json")
+                .add("X-ClientLocalIP", clientLocalIP)
+                .add("X-ClientPublicIP", clientPublicIP)
+                .add("X-MACAddress", macAddress)
+                .add("Accept", "application/json")
+                .add("X-UserType", "USER")
+                .add("X-SourceID", "WEB")
+                .build();
+    }
+
+    /**
+     * Creates an identity from known values.
+     *
+     * @throws IllegalArgumentException if any value is null.
+     */
+    public static ClientIdentity of(String clientLocalIP, String clientPublicIP, String macAddress) {
+        if (clientLocalIP == null || clientPublicIP == null || macAddress == null) {
+            throw new IllegalArgumentException("clientLocalIP, clientPublicIP and macAddress should not be null");
+        }
+        return new ClientIdentity(clientLocalIP, clientPublicIP, macAddress);
+    }
+
+    /**
+     * Detects the identity of this machine, blocking on the public IP lookup.
+     * Values that cannot be detected fall back to loopback and an all zero MAC
+     * instead of failing every request.
+     */
+    public static ClientIdentity detect() {
+        String localIP = UNKNOWN_IP;
+        try {
+            localIP = InetAddress.getLocalHost().getHostAddress();
+        } catch (Exception e) {
+            log.error("could not resolve local IP: {}", e.getMessage());
+        }
+        String publicIP = localIP;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(PUBLIC_IP_URL).openConnection();
+            connection.setConnectTimeout(PUBLIC_IP_TIMEOUT_MILLIS);
+            connection.setReadTimeout(PUBLIC_IP_TIMEOUT_MILLIS);
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                publicIP = reader.readLine().trim();
+            }
+        } catch (Exception e) {
+            log.error("could not resolve public IP: {}", e.getMessage());
+        }
+        String mac = UNKNOWN_MAC;
+        try {
+            Enumeration<NetworkInterface> networkInterfaces = NetworkInterface.getNetworkInterfaces();
+            while (networkInterfaces.hasMoreElements()) {
+                byte[] macAddressBytes = networkInterfaces.nextElement().getHardwareAddress();
+                if (macAddressBytes != null) {
+                    StringBuilder macAddressStr = new StringBuilder();
+                    for (int i = 0; i < macAddressBytes.length; i++) {
+                        macAddressStr.append(String.format("%02X%s", macAddressBytes[i],
+                                (i < macAddressBytes.length - 1) ? "-" : ""));
+                    }
+                    mac = macAddressStr.toString();
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("could not resolve MAC address: {}", e.getMessage());
+        }
+        ClientIdentity identity = new ClientIdentity(localIP, publicIP, mac);
+        log.info("client identity : {}", identity);
+        return identity;
+    }
+
+    /**
+     * Returns the shared default identity, starting its detection on a daemon
+     * thread the first time it is asked for.
+     */
+    public static synchronized CompletableFuture<ClientIdentity> getDefault() {
+        if (defaultIdentity == null) {
+            defaultIdentity = CompletableFuture.supplyAsync(ClientIdentity::detect, runnable -> {
+                Thread thread = new Thread(runnable, "smartapi-client-identity");
+                thread.setDaemon(true);
+                thread.start();
+            });
+        }
+        return defaultIdentity;
+    }
+
+    /**
+     * Replaces the shared default identity, e.g. with values known up front so
+     * that nothing is detected. Only handlers created afterwards use it.
+     */
+    public static synchronized void setDefault(ClientIdentity identity) {
+        if (identity == null) {
+            throw new IllegalArgumentException("identity should not be null");
+        }
+        defaultIdentity = CompletableFuture.completedFuture(identity);
+    }
+
+    public String getClientLocalIP() {
+        return clientLocalIP;
+    }
+
+    public String getClientPublicIP() {
+        return clientPublicIP;
+    }
+
+    public String getMacAddress() {
+        return macAddress;
+    }
+
+    /**
+     * Returns the immutable headers every Smart API request carries apart from
+     * the api key and the access token.
+     */
+    public Headers getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientIdentity [clientLocalIP=" + clientLocalIP + ", clientPublicIP=" + clientPublicIP
+                + ", macAddress=" + macAddress + "]";
+    }
+}
@@ -0,0 +1,99 @@
+package com.angelbroking.smartapi.http;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often requests find a pooled connection and how long opening a
+ * new one takes.
+ *
+ * A request that reuses a connection is a pool hit, a request that had to open
+ * its own connection (TCP and TLS handshake) is a miss. Register it with
+ * {@link HttpClientConfig#newClient}.
+ */
+public class ConnectionStats extends EventListener {
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder connectNanos = new LongAdder();
+    private final Map<Call, Long> connecting = new ConcurrentHashMap<>();
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connecting.put(call, System.nanoTime());
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        opened.increment();
+        addConnectTime(call);
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol,
+            IOException ioe) {
+        failed.increment();
+        addConnectTime(call);
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        acquired.increment();
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        connecting.remove(call);
+    }
+
+    private void addConnectTime(Call call) {
+        Long start = connecting.remove(call);
+        if (start != null) {
+            connectNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /** Returns the number of requests that were sent on a pooled connection. */
+    public long getHits() {
+        return Math.max(0L, acquired.sum() - opened.sum());
+    }
+
+    /** Returns the number of requests that opened a new connection. */
+    public long getMisses() {
+        return opened.sum();
+    }
+
+    /** Returns the number of connection attempts that failed. */
+    public long getFailures() {
+        return failed.sum();
+    }
+
+    /** Returns the share of requests that found a pooled connection, 0 before any request. */
+    public double getHitRate() {
+        long total = acquired.sum();
+        return total == 0 ? 0.0 : (double) getHits() / total;
+    }
+
+    /** Returns the mean time of opening a connection, including the TLS handshake. */
+    public long getMeanConnectTime(TimeUnit unit) {
+        long attempts = opened.sum() + failed.sum();
+        return attempts == 0 ? 0L : unit.convert(connectNanos.sum() / attempts, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionStats [hits=" + getHits() + ", misses=" + getMisses() + ", failures=" + getFailures()
+                + ", meanConnectMillis=" + getMeanConnectTime(TimeUnit.MILLISECONDS) + "]";
+    }
+}
@@ -0,0 +1,171 @@
+package com.angelbroking.smartapi.http;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Keeps connections to Smart API open so that orders do not pay for the TCP
+ * and TLS handshake.
+ *
+ * {@link #warmUp()} sends a few concurrent HEAD requests, which leaves as many
+ * connections in the pool (one with HTTP/2). Once started, the warm up is
+ * repeated at a fixed interval on weekdays during the active hours, 09:00 to
+ * 15:35 IST by default, well within the keep-alive of the pool.
+ *
+ * Warm up requests share the pool but not the event listener of the client, so
+ * they are not counted in its {@link ConnectionStats}.
+ */
+public class ConnectionWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionWarmer.class);
+
+    public static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    private static final long WARM_UP_TIMEOUT_SECONDS = 30;
+
+    private final Supplier<OkHttpClient> client;
+    private final String url;
+    private volatile int connections = 2;
+    private volatile Duration interval = Duration.ofSeconds(30);
+    private volatile LocalTime activeFrom = LocalTime.of(9, 0);
+    private volatile LocalTime activeTo = LocalTime.of(15, 35);
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param client returns the client whose pool is kept warm, read on every warm up.
+     * @param url    is requested with HEAD, any url on the Smart API host.
+     */
+    public ConnectionWarmer(Supplier<OkHttpClient> client, String url) {
+        if (client == null || url == null) {
+            throw new IllegalArgumentException("client and url should not be null");
+        }
+        this.client = client;
+        this.url = url;
+    }
+
+    /** Sets how many connections are opened by a warm up, 2 by default. */
+    public void setConnections(int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("connections should be positive");
+        }
+        this.connections = connections;
+    }
+
+    /** Sets the time between two warm ups, applied on the next {@link #start()}. */
+    public void setInterval(Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval should be positive");
+        }
+        this.interval = interval;
+    }
+
+    /** Sets the time of day in IST between which the scheduled warm ups run. */
+    public void setActiveHours(LocalTime from, LocalTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("from should be before to");
+        }
+        this.activeFrom = from;
+        this.activeTo = to;
+    }
+
+    /**
+     * Opens or refreshes pooled connections now, waiting for all requests.
+     *
+     * @return the number of requests that got a response.
+     */
+    public int warmUp() {
+        OkHttpClient httpClient = client.get().newBuilder().eventListener(EventListener.NONE).build();
+        int count = connections;
+        CountDownLatch done = new CountDownLatch(count);
+        AtomicInteger succeeded = new AtomicInteger();
+        Request request = new Request.Builder().url(url).head().build();
+        for (int i = 0; i < count; i++) {
+            httpClient.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                    succeeded.incrementAndGet();
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    log.warn("connection warm up failed: {}", e.getMessage());
+                    done.countDown();
+                }
+            });
+        }
+        try {
+            done.await(WARM_UP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return succeeded.get();
+    }
+
+    /** Starts the scheduled warm ups, the first one runs at once if within the active hours. */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "smartapi-connection-warmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::scheduledWarmUp, 0, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stops the scheduled warm ups, pooled connections expire with the keep-alive. */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    boolean isActive(ZonedDateTime now) {
+        ZonedDateTime ist = now.withZoneSameInstant(IST);
+        DayOfWeek day = ist.getDayOfWeek();
+        LocalTime time = ist.toLocalTime();
+        return day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY && !time.isBefore(activeFrom)
+                && time.isBefore(activeTo);
+    }
+
+    private void scheduledWarmUp() {
+        if (!isActive(ZonedDateTime.now(IST))) {
+            return;
+        }
+        try {
+            int warmed = warmUp();
+            log.debug("warmed {} connections to {}", warmed, url);
+        } catch (RuntimeException e) {
+            // an exception escaping scheduleWithFixedDelay would suppress every later warm up
+            log.warn("connection warm up failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.angelbroking.smartapi.http;
+
+import com.angelbroking.smartapi.SmartConnect;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.logging.HttpLoggingInterceptor;
+
+import java.net.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of the OkHttp client used for Smart API requests.
+ *
+ * Every route is on the same host, so the per host limits decide how many
+ * requests can be in flight. HTTP/2 is negotiated when the server offers it and
+ * then multiplexes all requests over one connection; with HTTP/1.1 every
+ * concurrent request needs its own pooled connection, which stays open for the
+ * keep-alive duration once idle.
+ */
+public class HttpClientConfig {
+
+    private int maxRequests = 256;
+    private int maxRequestsPerHost = 256;
+    private int maxIdleConnections = 8;
+    private Duration keepAlive = Duration.ofMinutes(5);
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    private Duration readTimeout = Duration.ofSeconds(10);
+    private Duration writeTimeout = Duration.ofSeconds(10);
+    private Duration callTimeout = Duration.ZERO;
+    private Duration pingInterval = Duration.ZERO;
+    private boolean http2Enabled = true;
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    /** Sets the maximum number of async requests in flight, 256 by default. */
+    public HttpClientConfig setMaxRequests(int maxRequests) {
+        this.maxRequests = positive(maxRequests, "maxRequests");
+        return this;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    /** Sets the maximum number of async requests in flight to one host, 256 by default. */
+    public HttpClientConfig setMaxRequestsPerHost(int maxRequestsPerHost) {
+        this.maxRequestsPerHost = positive(maxRequestsPerHost, "maxRequestsPerHost");
+        return this;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    /** Sets how many idle connections the pool keeps open, 8 by default. */
+    public HttpClientConfig setMaxIdleConnections(int maxIdleConnections) {
+        if (maxIdleConnections < 0) {
+            throw new IllegalArgumentException("maxIdleConnections should not be negative");
+        }
+        this.maxIdleConnections = maxIdleConnections;
+        return this;
+    }
+
+    public Duration getKeepAlive() {
+        return keepAlive;
+    }
+
+    /** Sets how long an idle connection stays in the pool, 5 minutes by default. */
+    public HttpClientConfig setKeepAlive(Duration keepAlive) {
+        if (keepAlive == null || keepAlive.isNegative() || keepAlive.isZero()) {
+            throw new IllegalArgumentException("keepAlive should be positive");
+        }
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /** Sets the connect timeout, 10 seconds by default. Zero means no timeout. */
+    public HttpClientConfig setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = timeout(connectTimeout, "connectTimeout");
+        return this;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    /** Sets the read timeout, 10 seconds by default. Zero means no timeout. */
+    public HttpClientConfig setReadTimeout(Duration readTimeout) {
+        this.readTimeout = timeout(readTimeout, "readTimeout");
+        return this;
+    }
+
+    public Duration getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    /** Sets the write timeout, 10 seconds by default. Zero means no timeout. */
+    public HttpClientConfig setWriteTimeout(Duration writeTimeout) {
+        this.writeTimeout = timeout(writeTimeout, "writeTimeout");
+        return this;
+    }
+
+    public Duration getCallTimeout() {
+        return callTimeout;
+    }
+
+    /** Sets the timeout of a whole call including retries, none by default. */
+    public HttpClientConfig setCallTimeout(Duration callTimeout) {
+        this.callTimeout = timeout(callTimeout, "callTimeout");
+        return this;
+    }
+
+    public Duration getPingInterval() {
+        return pingInterval;
+    }
+
+    /**
+     * Sets the interval of HTTP/2 pings that keep an idle connection from being
+     * dropped by NAT and load balancers, off by default.
+     */
+    public HttpClientConfig setPingInterval(Duration pingInterval) {
+        this.pingInterval = timeout(pingInterval, "pingInterval");
+        return this;
+    }
+
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    /** Sets whether HTTP/2 is offered to the server, true by default. */
+    public HttpClientConfig setHttp2Enabled(boolean http2Enabled) {
+        this.http2Enabled = http2Enabled;
+        return this;
+    }
+
+    /**
+     * Builds a client with these settings.
+     *
+     * @param proxy    to be set for making requests, may be null.
+     * @param listener notified of connection events, may be null.
+     */
+    public OkHttpClient newClient(Proxy proxy, EventListener listener) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(),
+                        TimeUnit.MILLISECONDS))
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .writeTimeout(writeTimeout)
+                .callTimeout(callTimeout)
+                .pingInterval(pingInterval.toMillis(), TimeUnit.MILLISECONDS)
+                .protocols(http2Enabled ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                        : Collections.singletonList(Protocol.HTTP_1_1));
+        if (proxy != null) {
+            builder.proxy(proxy);
+        }
+        if (listener != null) {
+            builder.eventListener(listener);
+        }
+        if (SmartConnect.ENABLE_LOGGING) {
+            HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
+            logging.setLevel(HttpLoggingInterceptor.Level.BODY);
+            builder.addInterceptor(logging);
+        }
+        return builder.build();
+    }
+
+    private static int positive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " should be positive");
+        }
+        return value;
+    }
+
+    private static Duration timeout(Duration value, String name) {
+        if (value == null || value.isNegative()) {
+            throw new IllegalArgumentException(name + " should not be negative");
+        }
+        return value;
+    }
+}
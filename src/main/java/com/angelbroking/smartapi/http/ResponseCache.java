@@ -0,0 +1,223 @@
+package com.angelbroking.smartapi.http;
+
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Caches responses of slow changing routes for a per route time to live.
+ *
+ * Only urls with a TTL are cached. Entries are keyed by url, session and
+ * request body and are evicted least recently used first once the cache holds
+ * its maximum number of entries. Concurrent identical requests share one round
+ * trip: the first one loads, the others wait for its result. Failures are not
+ * cached, neither thrown ones nor responses the caller does not accept as
+ * cacheable, e.g. an error envelope with status false.
+ */
+public class ResponseCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    /** Loads a response on a cache miss. */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws IOException, SmartAPIException;
+    }
+
+    private final int maxEntries;
+    private final Map<String, Long> ttlNanos = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ResponseCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public ResponseCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries should be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Sets how long responses of a url are served from the cache.
+     *
+     * @param url is the route url without query.
+     * @param ttl zero stops caching the url.
+     */
+    public void setTtl(String url, long ttl, TimeUnit unit) {
+        if (url == null || ttl < 0) {
+            throw new IllegalArgumentException("url should not be null and ttl should not be negative");
+        }
+        if (ttl == 0) {
+            ttlNanos.remove(url);
+            invalidate(url);
+        } else {
+            ttlNanos.put(url, unit.toNanos(ttl));
+        }
+    }
+
+    /** Returns the time to live of a url, 0 if it is not cached. */
+    public long getTtl(String url, TimeUnit unit) {
+        Long ttl = ttlNanos.get(url);
+        return ttl == null ? 0L : unit.convert(ttl, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isCached(String url) {
+        return ttlNanos.containsKey(url);
+    }
+
+    /**
+     * Returns the cached response of the key, or loads it if there is none or it
+     * has expired. Urls without a TTL are always loaded.
+     *
+     * @param url is the route url the TTL is looked up by.
+     * @param key identifies the request, including url, session and body.
+     */
+    public <T> T get(String url, String key, Loader<T> loader) throws IOException, SmartAPIException {
+        return get(url, key, loader, response -> true);
+    }
+
+    /**
+     * Returns the cached response of the key, or loads it if there is none or it
+     * has expired. A loaded response is only kept if it is cacheable, otherwise
+     * it is handed to the requests waiting for it and loaded again next time.
+     *
+     * @param cacheable tells successful responses from error responses.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String url, String key, Loader<T> loader, Predicate<? super T> cacheable)
+            throws IOException, SmartAPIException {
+        Long ttl = ttlNanos.get(url);
+        if (ttl == null) {
+            return loader.load();
+        }
+        Entry entry;
+        boolean load = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null || entry.isExpired(System.nanoTime())) {
+                entry = new Entry(url);
+                entries.put(key, entry);
+                load = true;
+            }
+        }
+        if (load) {
+            misses.increment();
+            return load(key, entry, ttl, loader, cacheable);
+        }
+        hits.increment();
+        try {
+            return (T) entry.response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for " + url);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SmartAPIException) {
+                throw (SmartAPIException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private <T> T load(String key, Entry entry, long ttl, Loader<T> loader, Predicate<? super T> cacheable)
+            throws IOException, SmartAPIException {
+        try {
+            T response = loader.load();
+            if (!cacheable.test(response)) {
+                synchronized (entries) {
+                    entries.remove(key, entry);
+                }
+                entry.response.complete(response);
+                return response;
+            }
+            entry.expiresAt = System.nanoTime() + ttl;
+            entry.loaded = true;
+            entry.response.complete(response);
+            return response;
+        } catch (IOException | SmartAPIException | RuntimeException | Error e) {
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** Removes the cached responses of a url, requests in flight still complete. */
+    public void invalidate(String url) {
+        synchronized (entries) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().url.equals(url)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /** Returns the number of requests answered from the cache or a shared request. */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCache [size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + "]";
+    }
+
+    private static final class Entry {
+        private final String url;
+        private final CompletableFuture<Object> response = new CompletableFuture<>();
+        private volatile long expiresAt;
+        // an entry does not expire while its response is loading, so requests join it
+        private volatile boolean loaded;
+
+        Entry(String url) {
+            this.url = url;
+        }
+
+        boolean isExpired(long now) {
+            return loaded && now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.angelbroking.smartapi.http;
+
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Client side rate limiter keyed by the {@code Routes} key of a request.
+ *
+ * Every route can have a per second and a per minute budget. Each budget is a
+ * token bucket kept as a single theoretical arrival time (GCRA) that callers
+ * advance with compare-and-set, so there are no locks and callers are served in
+ * the order their reservation succeeded. A full bucket admits a burst of its
+ * whole budget.
+ *
+ * A caller that is over budget waits until its slot comes up, or is rejected
+ * when that would take longer than the maximum wait. Routes without a limit
+ * are not throttled.
+ */
+public class RouteRateLimiter {
+
+    /** Returned by {@link #reserve} when the request is rejected. */
+    public static final long REJECTED = -1L;
+
+    private static final long DEFAULT_MAX_WAIT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Map<String, RouteLimit> limits = new ConcurrentHashMap<>();
+    private volatile long maxWaitNanos = DEFAULT_MAX_WAIT_NANOS;
+
+    /**
+     * Creates a limiter preloaded with the limits Angel One publishes for the
+     * Smart API routes. Use {@link #setLimit} to change them.
+     */
+    public RouteRateLimiter() {
+        setLimit("api.user.profile", 3, 0);
+        setLimit("api.order.place", 20, 500);
+        setLimit("api.order.modify", 20, 500);
+        setLimit("api.order.cancel", 20, 500);
+        setLimit("api.order.book", 1, 0);
+        setLimit("api.order.trade.book", 1, 0);
+        setLimit("api.order.rms.data", 2, 0);
+        setLimit("api.order.rms.holding", 1, 0);
+        setLimit("api.order.rms.AllHolding", 1, 0);
+        setLimit("api.order.rms.position", 1, 0);
+        setLimit("api.order.rms.position.convert", 10, 0);
+        setLimit("api.individual.order", 10, 0);
+        setLimit("api.ltp.data", 10, 500);
+        setLimit("api.market.data", 10, 500);
+        setLimit("api.candle.data", 3, 180);
+        setLimit("api.oi.data", 3, 180);
+        setLimit("api.search.script.data", 1, 0);
+        setLimit("api.margin.batch", 10, 0);
+        setLimit("api.gtt.create", 10, 0);
+        setLimit("api.gtt.modify", 10, 0);
+        setLimit("api.gtt.cancel", 10, 0);
+        setLimit("api.gtt.details", 10, 0);
+        setLimit("api.gtt.list", 10, 0);
+    }
+
+    /**
+     * Sets the budget of a route, replacing its previous limit and counters.
+     *
+     * @param routeKey  the Routes key, e.g. "api.order.place".
+     * @param perSecond requests allowed per second, 0 for no per second limit.
+     * @param perMinute requests allowed per minute, 0 for no per minute limit.
+     * @throws IllegalArgumentException if a budget is negative.
+     */
+    public void setLimit(String routeKey, int perSecond, int perMinute) {
+        if (perSecond < 0 || perMinute < 0) {
+            throw new IllegalArgumentException("perSecond and perMinute should not be negative");
+        }
+        if (perSecond == 0 && perMinute == 0) {
+            limits.remove(routeKey);
+        } else {
+            limits.put(routeKey, new RouteLimit(perSecond, perMinute));
+        }
+    }
+
+    /** Removes the limit of a route, its requests are no longer throttled. */
+    public void removeLimit(String routeKey) {
+        limits.remove(routeKey);
+    }
+
+    /**
+     * Sets how long a request may wait for its slot before it is rejected, 0
+     * rejects every request that is over budget right away.
+     */
+    public void setMaxWait(long maxWait, TimeUnit unit) {
+        if (maxWait < 0) {
+            throw new IllegalArgumentException("maxWait should not be negative");
+        }
+        this.maxWaitNanos = unit.toNanos(maxWait);
+    }
+
+    public long getMaxWait(TimeUnit unit) {
+        return unit.convert(maxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Reserves a slot for one request without blocking.
+     *
+     * @return nanoseconds the caller has to wait before sending, or
+     *         {@link #REJECTED} if that would exceed the maximum wait.
+     */
+    public long reserve(String routeKey) {
+        RouteLimit limit = limits.get(routeKey);
+        return limit == null ? 0L : limit.reserve(System.nanoTime(), maxWaitNanos);
+    }
+
+    /**
+     * Takes a slot if one is free right now.
+     *
+     * @return false if the route is over budget, nothing is reserved then.
+     */
+    public boolean tryAcquire(String routeKey) {
+        RouteLimit limit = limits.get(routeKey);
+        return limit == null || limit.reserve(System.nanoTime(), 0L) == 0L;
+    }
+
+    /**
+     * Blocks until a slot for one request comes up.
+     *
+     * @throws SmartAPIException if the wait would exceed the maximum wait, or the
+     *                           thread is interrupted while waiting.
+     */
+    public void acquire(String routeKey) throws SmartAPIException {
+        long waitNanos = reserve(routeKey);
+        if (waitNanos == REJECTED) {
+            throw new SmartAPIException("rate limit exceeded for " + routeKey);
+        }
+        long deadline = System.nanoTime() + waitNanos;
+        while (waitNanos > 0) {
+            LockSupport.parkNanos(this, waitNanos);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new SmartAPIException("interrupted while waiting for rate limit of " + routeKey);
+            }
+            waitNanos = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Returns the counters of a route, or null if the route has no limit.
+     */
+    public RouteLimit getLimit(String routeKey) {
+        return limits.get(routeKey);
+    }
+
+    /**
+     * Budget and counters of one route.
+     */
+    public static final class RouteLimit {
+        private final int perSecond;
+        private final int perMinute;
+        private final Bucket secondBucket;
+        private final Bucket minuteBucket;
+        private final AtomicLong acquired = new AtomicLong();
+        private final AtomicLong delayed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        RouteLimit(int perSecond, int perMinute) {
+            this.perSecond = perSecond;
+            this.perMinute = perMinute;
+            this.secondBucket = perSecond > 0 ? new Bucket(perSecond, TimeUnit.SECONDS.toNanos(1)) : null;
+            this.minuteBucket = perMinute > 0 ? new Bucket(perMinute, TimeUnit.MINUTES.toNanos(1)) : null;
+        }
+
+        long reserve(long now, long maxWait) {
+            long secondWait = 0L;
+            if (secondBucket != null) {
+                secondWait = secondBucket.reserve(now, maxWait);
+                if (secondWait == REJECTED) {
+                    rejected.incrementAndGet();
+                    return REJECTED;
+                }
+            }
+            long minuteWait = 0L;
+            if (minuteBucket != null) {
+                minuteWait = minuteBucket.reserve(now, maxWait);
+                if (minuteWait == REJECTED) {
+                    if (secondBucket != null) {
+                        secondBucket.release();
+                    }
+                    rejected.incrementAndGet();
+                    return REJECTED;
+                }
+            }
+            long wait = Math.max(secondWait, minuteWait);
+            acquired.incrementAndGet();
+            if (wait > 0) {
+                delayed.incrementAndGet();
+                totalWaitNanos.addAndGet(wait);
+                maxWaitNanos.accumulateAndGet(wait, Math::max);
+            }
+            return wait;
+        }
+
+        public int getPerSecond() {
+            return perSecond;
+        }
+
+        public int getPerMinute() {
+            return perMinute;
+        }
+
+        /** Requests let through, including the ones that had to wait. */
+        public long getAcquired() {
+            return acquired.get();
+        }
+
+        /** Requests that had to wait for their slot. */
+        public long getDelayed() {
+            return delayed.get();
+        }
+
+        /** Requests rejected because their wait would exceed the maximum wait. */
+        public long getRejected() {
+            return rejected.get();
+        }
+
+        public long getTotalWait(TimeUnit unit) {
+            return unit.convert(totalWaitNanos.get(), TimeUnit.NANOSECONDS);
+        }
+
+        public long getMaxWait(TimeUnit unit) {
+            return unit.convert(maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return "RouteLimit [perSecond=" + perSecond + ", perMinute=" + perMinute + ", acquired=" + acquired
+                    + ", delayed=" + delayed + ", rejected=" + rejected + ", maxWaitMillis="
+                    + getMaxWait(TimeUnit.MILLISECONDS) + "]";
+        }
+    }
+
+    /**
+     * Token bucket of one window as a theoretical arrival time: a request may
+     * go out once now is past the arrival time minus the burst tolerance.
+     */
+    private static final class Bucket {
+        private final long emissionInterval;
+        private final long burstTolerance;
+        private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+        Bucket(int permits, long periodNanos) {
+            this.emissionInterval = periodNanos / permits;
+            this.burstTolerance = periodNanos - emissionInterval;
+        }
+
+        long reserve(long now, long maxWait) {
+            while (true) {
+                long tat = theoreticalArrival.get();
+                long start = tat == Long.MIN_VALUE || tat - now < 0 ? now : tat;
+                long wait = Math.max(0L, start - burstTolerance - now);
+                if (wait > maxWait) {
+                    return REJECTED;
+                }
+                if (theoreticalArrival.compareAndSet(tat, start + emissionInterval)) {
+                    return wait;
+                }
+            }
+        }
+
+        void release() {
+            theoreticalArrival.addAndGet(-emissionInterval);
+        }
+    }
+}
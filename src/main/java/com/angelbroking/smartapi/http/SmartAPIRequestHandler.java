@@ -1,33 +1,26 @@
 package com.angelbroking.smartapi.http;
 
-import com.angelbroking.smartapi.SmartConnect;
 import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.FormBody;
+import okhttp3.Headers;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
-import okhttp3.logging.HttpLoggingInterceptor;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.InetAddress;
-import java.net.NetworkInterface;
 import java.net.Proxy;
-import java.net.URL;
-import java.util.Enumeration;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Handles all the request and response formatting and parsing.
@@ -39,84 +32,167 @@ public class SmartAPIRequestHandler {
     private OkHttpClient client;
     private String mAccessToken;
     private String USER_AGENT = "javasmartapiconnect/3.0.0";
-    JSONObject apiheader = apiHeaders();
+    private final CompletableFuture<ClientIdentity> identity;
+    private volatile ResponseCache responseCache;
+    private volatile Throttle cacheMissThrottle;
+
+    /** Waits for the rate limit of a url before a request goes to the network. */
+    @FunctionalInterface
+    public interface Throttle {
+        void acquire(String url) throws SmartAPIException;
+    }
 
     /**
-     * Initialize request handler.
+     * Initialize request handler with the shared default client identity.
      * 
      * @param proxy to be set for making requests.
      */
     public SmartAPIRequestHandler(Proxy proxy) {
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
-        builder.connectTimeout(10000, TimeUnit.MILLISECONDS);
-        if (proxy != null) {
-            builder.proxy(proxy);
+        this(proxy, ClientIdentity.getDefault());
+    }
+
+    /**
+     * Initialize request handler.
+     *
+     * @param proxy    to be set for making requests.
+     * @param identity sent with every request.
+     */
+    public SmartAPIRequestHandler(Proxy proxy, ClientIdentity identity) {
+        this(proxy, completedIdentity(identity));
+    }
+
+    private SmartAPIRequestHandler(Proxy proxy, CompletableFuture<ClientIdentity> identity) {
+        this.identity = identity;
+        this.client = new HttpClientConfig().newClient(proxy, null);
+    }
+
+    /**
+     * Initialize request handler with a preconfigured client, e.g. to share its connection pool.
+     *
+     * @param client used for all requests.
+     */
+    public SmartAPIRequestHandler(OkHttpClient client) {
+        this.client = client;
+        this.identity = ClientIdentity.getDefault();
+    }
+
+    /**
+     * Initialize request handler with a preconfigured client and a known identity.
+     *
+     * @param client   used for all requests.
+     * @param identity sent with every request.
+     */
+    public SmartAPIRequestHandler(OkHttpClient client, ClientIdentity identity) {
+        this.client = client;
+        this.identity = completedIdentity(identity);
+    }
+
+    private static CompletableFuture<ClientIdentity> completedIdentity(ClientIdentity identity) {
+        if (identity == null) {
+            throw new IllegalArgumentException("identity should not be null");
         }
+        return CompletableFuture.completedFuture(identity);
+    }
+
+    /**
+     * Returns the identity headers, waiting for the detection of the default
+     * identity only until it has completed once.
+     */
+    private Headers identityHeaders() {
+        return identity.join().getHeaders();
+    }
+
+    /**
+     * Returns the complete headers of an authorized Smart API request, for callers
+     * that build their own requests and want to reuse them across calls.
+     *
+     * @param apiKey      is the api key of the Smart API Connect app.
+     * @param accessToken is the access token obtained after successful login
+     *                    process.
+     */
+    public Headers requestHeaders(String apiKey, String accessToken) {
+        return identityHeaders().newBuilder().set("Authorization", "Bearer " + accessToken)
+                .set("X-PrivateKey", apiKey).build();
+    }
 
-        HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
-        logging.setLevel(HttpLoggingInterceptor.Level.BODY);
-        if (SmartConnect.ENABLE_LOGGING) {
-            client = builder.addInterceptor(logging).build();
-        } else {
-            client = builder.build();
+    /**
+     * Returns the client all requests are sent with, its connection pool keeps the
+     * connections to Smart API alive.
+     */
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * Returns the cache of slow changing responses, or null if nothing is cached.
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Sets the cache consulted by getRequest, postRequest and
+     * postRequestJSONObject for the urls it has a TTL for.
+     *
+     * @param responseCache is the cache to use, null caches nothing.
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Sets the throttle called before a cached url is loaded, so that cache hits
+     * neither wait for nor use up the rate limit of their route.
+     *
+     * @param cacheMissThrottle is called on cache misses only, null sends them
+     *                          unthrottled.
+     */
+    public void setCacheMissThrottle(Throttle cacheMissThrottle) {
+        this.cacheMissThrottle = cacheMissThrottle;
+    }
+
+    private void acquireOnMiss(String url) throws SmartAPIException {
+        Throttle throttle = cacheMissThrottle;
+        if (throttle != null) {
+            throttle.acquire(url);
         }
     }
 
-    public JSONObject apiHeaders() {
+    private static String cacheKey(String url, String accessToken, JSONObject params) {
+        return url + '\n' + accessToken + '\n' + (params == null ? "" : params.toString());
+    }
+
+    /** Error envelopes come back with status false instead of an exception and are not cached. */
+    private static boolean isSuccess(JSONObject json) {
+        return json != null && json.optBoolean("status");
+    }
+
+    private static boolean isSuccessBody(String body) {
         try {
-            JSONObject headers = new JSONObject();
-
-            // Local IP Address
-            InetAddress localHost = InetAddress.getLocalHost();
-            String clientLocalIP = localHost.getHostAddress();
-            headers.put("clientLocalIP", clientLocalIP);
-
-            // Public IP Address
-            URL urlName = new URL("http://checkip.amazonaws.com");
-            BufferedReader sc = new BufferedReader(new InputStreamReader(urlName.openStream()));
-            String clientPublicIP = sc.readLine().trim();
-            headers.put("clientPublicIP", clientPublicIP);
-            String macAddress = null;
-            // MAC Address
-            // get all network interfaces of the current system
-            Enumeration<NetworkInterface> networkInterface = NetworkInterface.getNetworkInterfaces();
-            // iterate over all interfaces
-            while (networkInterface.hasMoreElements()) {
-                // get an interface
-                NetworkInterface network = networkInterface.nextElement();
-                // get its hardware or mac address
-                byte[] macAddressBytes = network.getHardwareAddress();
-                if (macAddressBytes != null) {
-                    // initialize a string builder to hold mac address
-                    StringBuilder macAddressStr = new StringBuilder();
-                    // iterate over the bytes of mac address
-                    for (int i = 0; i < macAddressBytes.length; i++) {
-                        // convert byte to string in hexadecimal form
-                        macAddressStr.append(String.format("%02X%s", macAddressBytes[i],
-                                (i < macAddressBytes.length - 1) ? "-" : ""));
-                    }
-
-                    macAddress = macAddressStr.toString();
-                    if (macAddress != null) {
-                        break;
-                    }
-                }
-            }
-            headers.put("macAddress", macAddress);
-            String accept = "application/json";
-            headers.put("accept", accept);
-            String userType = "USER";
-            headers.put("userType", userType);
-            String sourceID = "WEB";
-            headers.put("sourceID", sourceID);
-
-            log.info("headers : {}", headers);
-            return headers;
-        } catch (Exception e) {
-            log.error(e.getMessage());
-            return null;
+            return isSuccess(new JSONObject(body));
+        } catch (JSONException e) {
+            return false;
         }
+    }
 
+    /** Cached responses are shared, every caller gets its own copy to modify. */
+    private static JSONObject copyOf(JSONObject json) {
+        return json == null ? null : new JSONObject(json.toString());
+    }
+
+    /**
+     * Returns the client identity as JSON, kept for callers of the earlier API.
+     */
+    public JSONObject apiHeaders() {
+        ClientIdentity clientIdentity = identity.join();
+        JSONObject headers = new JSONObject();
+        headers.put("clientLocalIP", clientIdentity.getClientLocalIP());
+        headers.put("clientPublicIP", clientIdentity.getClientPublicIP());
+        headers.put("macAddress", clientIdentity.getMacAddress());
+        headers.put("accept", "application/json");
+        headers.put("userType", "USER");
+        headers.put("sourceID", "WEB");
+        return headers;
     }
 
     /**
@@ -138,13 +214,12 @@ public class SmartAPIRequestHandler {
         try {
             Response response = client.newCall(request).execute();
             String body = response.body().string();
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode jsonNode = objectMapper.readTree(body);
-            if (jsonNode.get("status") == null) {
+            JSONObject json = new SmartAPIResponseHandler().handle(response, body);
+            if (!json.has("status")) {
                 log.error("Error in POST request. Request URL: {}, Request Headers: {}, Request Body: {},Response : {}",
                         url, request.headers(), params, body);
             }
-            return new SmartAPIResponseHandler().handle(response, body);
+            return json;
         } catch (Exception e) {
             log.error("Error in POST request. Request URL: {}, Request Headers: {}, Request Body: {},Response : {}",
                     url, request.headers(), params, e.getMessage());
@@ -168,17 +243,29 @@ public class SmartAPIRequestHandler {
      */
     public JSONObject postRequest(String apiKey, String url, JSONObject params, String accessToken)
             throws IOException, SmartAPIException, JSONException {
+        ResponseCache cache = responseCache;
+        if (cache != null && cache.isCached(url)) {
+            return copyOf(cache.get(url, cacheKey(url, accessToken, params),
+                    () -> {
+                        acquireOnMiss(url);
+                        return sendPostRequest(apiKey, url, params, accessToken);
+                    }, SmartAPIRequestHandler::isSuccess));
+        }
+        return sendPostRequest(apiKey, url, params, accessToken);
+    }
+
+    private JSONObject sendPostRequest(String apiKey, String url, JSONObject params, String accessToken)
+            throws IOException, SmartAPIException, JSONException {
         Request request = createPostRequest(apiKey, url, params, accessToken);
         try {
             Response response = client.newCall(request).execute();
             String body = response.body().string();
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode jsonNode = objectMapper.readTree(body);
-            if (jsonNode.get("status") == null) {
+            JSONObject json = new SmartAPIResponseHandler().handle(response, body);
+            if (!json.has("status")) {
                 log.error("Error in POST request. Request URL: {}, Request Headers: {}, Request Body: {},Response : {}",
                         url, request.headers(), params, body);
             }
-            return new SmartAPIResponseHandler().handle(response, body);
+            return json;
         } catch (Exception e) {
             log.error("Error in POST request. Request URL: {}, Request Headers: {}, Request Body: {},Response : {}",
                     url, request.headers(), params, e.getMessage());
@@ -268,17 +355,29 @@ public class SmartAPIRequestHandler {
      */
     public JSONObject getRequest(String apiKey, String url, String accessToken)
             throws IOException, SmartAPIException, JSONException {
+        ResponseCache cache = responseCache;
+        if (cache != null && cache.isCached(url)) {
+            return copyOf(cache.get(url, cacheKey(url, accessToken, null),
+                    () -> {
+                        acquireOnMiss(url);
+                        return sendGetRequest(apiKey, url, accessToken);
+                    }, SmartAPIRequestHandler::isSuccess));
+        }
+        return sendGetRequest(apiKey, url, accessToken);
+    }
+
+    private JSONObject sendGetRequest(String apiKey, String url, String accessToken)
+            throws IOException, SmartAPIException, JSONException {
         Request request = createGetRequest(apiKey, url, accessToken);
         try {
             Response response = client.newCall(request).execute();
             String body = response.body().string();
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode jsonNode = objectMapper.readTree(body);
-            if (jsonNode.get("status") == null) {
+            JSONObject json = new SmartAPIResponseHandler().handle(response, body);
+            if (!json.has("status")) {
                 log.error("Error in GET request. Request URL: {}, Request Headers: {},Response : {}",
                         url, request.headers(), body);
             }
-            return new SmartAPIResponseHandler().handle(response, body);
+            return json;
         } catch (Exception e) {
             log.error("Error in POST request. Request URL: {}, Request Headers: {},Response : {}",
                     url, request.headers(), e.getMessage());
@@ -286,6 +385,124 @@ public class SmartAPIRequestHandler {
         }
     }
 
+    /**
+     * Makes a POST request and parses the data of the response while it is
+     * read, without buffering the body as a String.
+     *
+     * @return the parsed data, or null if the response has none.
+     * @param url         is the endpoint to which request has to be sent.
+     * @param apiKey      is the api key of the Smart API Connect app.
+     * @param accessToken is the access token obtained after successful login
+     *                    process.
+     * @param params      is the map of params which has to be sent in the body.
+     * @param dataParser  parses the data value, e.g. StreamingResponseParser.CANDLES.
+     * @throws IOException       is thrown for connection and parsing errors.
+     * @throws SmartAPIException is thrown for all Smart API Trade related errors.
+     */
+    public <T> T postRequest(String apiKey, String url, JSONObject params, String accessToken,
+            StreamingResponseParser.DataParser<T> dataParser) throws IOException, SmartAPIException {
+        return execute(createPostRequest(apiKey, url, params, accessToken), dataParser);
+    }
+
+    /**
+     * Makes a GET request and parses the data of the response while it is read.
+     *
+     * @return the parsed data, or null if the response has none.
+     * @param url         is the endpoint to which request has to be sent.
+     * @param apiKey      is the api key of the Smart API Connect app.
+     * @param accessToken is the access token obtained after successful login
+     *                    process.
+     * @param dataParser  parses the data value, e.g. StreamingResponseParser.ORDERS.
+     * @throws IOException       is thrown for connection and parsing errors.
+     * @throws SmartAPIException is thrown for all Smart API Trade related errors.
+     */
+    public <T> T getRequest(String apiKey, String url, String accessToken,
+            StreamingResponseParser.DataParser<T> dataParser) throws IOException, SmartAPIException {
+        return execute(createGetRequest(apiKey, url, accessToken), dataParser);
+    }
+
+    private <T> T execute(Request request, StreamingResponseParser.DataParser<T> dataParser)
+            throws IOException, SmartAPIException {
+        try (Response response = client.newCall(request).execute()) {
+            return StreamingResponseParser.parse(response, dataParser);
+        } catch (Exception | SmartAPIException e) {
+            log.error("Error in {} request. Request URL: {}, Response : {}", request.method(), request.url(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Makes a POST request without blocking the calling thread.
+     *
+     * @return future completed with the JSONObject received by Smart API, or
+     *         exceptionally with the same IOException or SmartAPIException the
+     *         blocking postRequest throws. Dependent stages run on an OkHttp
+     *         dispatcher thread and should not block.
+     * @param url         is the endpoint to which request has to be sent.
+     * @param apiKey      is the api key of the Smart API Connect app.
+     * @param accessToken is the access token obtained after successful login
+     *                    process.
+     * @param params      is the map of params which has to be sent in the body.
+     */
+    public CompletableFuture<JSONObject> postRequestAsync(String apiKey, String url, JSONObject params, String accessToken) {
+        Request request = createPostRequest(apiKey, url, params, accessToken);
+        if (request == null) {
+            CompletableFuture<JSONObject> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new SmartAPIException("could not create POST request for " + url));
+            return failed;
+        }
+        return enqueue(request);
+    }
+
+    /**
+     * Makes a GET request without blocking the calling thread.
+     *
+     * @return future completed like {@link #postRequestAsync}.
+     * @param url         is the endpoint to which request has to be sent.
+     * @param apiKey      is the api key of the Smart API Connect app.
+     * @param accessToken is the access token obtained after successful login
+     *                    process.
+     */
+    public CompletableFuture<JSONObject> getRequestAsync(String apiKey, String url, String accessToken) {
+        try {
+            return enqueue(createGetRequest(apiKey, url, accessToken));
+        } catch (Exception e) {
+            CompletableFuture<JSONObject> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private CompletableFuture<JSONObject> enqueue(Request request) {
+        CompletableFuture<JSONObject> future = new CompletableFuture<>();
+        Call call = client.newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                log.error("Error in {} request. Request URL: {}, Response : {}", request.method(), request.url(), e.getMessage());
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    String body = response.body().string();
+                    future.complete(new SmartAPIResponseHandler().handle(response, body));
+                } catch (Exception | SmartAPIException e) {
+                    log.error("Error in {} request. Request URL: {}, Response : {}", request.method(), request.url(), e.getMessage());
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        // cancelling the future cancels the HTTP call
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
     /**
      * Creates a GET request.
      * 
@@ -301,14 +518,9 @@ public class SmartAPIRequestHandler {
 
         String privateKey = apiKey;
 
-        return new Request.Builder().url(httpBuilder.build()).header("User-Agent", USER_AGENT)
-                .header("Authorization", "Bearer " + accessToken).header("Content-Type", "application/json")
-                .header("X-ClientLocalIP", apiheader.getString("clientLocalIP"))
-                .header("X-ClientPublicIP", apiheader.getString("clientPublicIP"))
-                .header("X-MACAddress", apiheader.getString("macAddress"))
-                .header("Accept", apiheader.getString("accept")).header("X-PrivateKey", privateKey)
-                .header("X-UserType", apiheader.getString("userType"))
-                .header("X-SourceID", apiheader.getString("sourceID")).build();
+        return new Request.Builder().url(httpBuilder.build()).headers(identityHeaders())
+                .header("User-Agent", USER_AGENT).header("Authorization", "Bearer " + accessToken)
+                .header("X-PrivateKey", privateKey).build();
     }
 
     /**
@@ -349,13 +561,8 @@ public class SmartAPIRequestHandler {
             RequestBody body = RequestBody.create(params.toString(), JSON);
 
             String privateKey = apiKey;
-            Request request = new Request.Builder().url(url).post(body).header("Content-Type", "application/json")
-                    .header("X-ClientLocalIP", apiheader.getString("clientLocalIP"))
-                    .header("X-ClientPublicIP", apiheader.getString("clientPublicIP"))
-                    .header("X-MACAddress", apiheader.getString("macAddress"))
-                    .header("Accept", apiheader.getString("accept")).header("X-PrivateKey", privateKey)
-                    .header("X-UserType", apiheader.getString("userType"))
-                    .header("X-SourceID", apiheader.getString("sourceID")).build();
+            Request request = new Request.Builder().url(url).post(body).headers(identityHeaders())
+                    .header("X-PrivateKey", privateKey).build();
             return request;
         } catch (Exception e) {
             log.error("exception createPostRequest");
@@ -381,14 +588,8 @@ public class SmartAPIRequestHandler {
 
             String privateKey = apiKey;
 
-            Request request = new Request.Builder().url(url).post(body).header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + accessToken)
-                    .header("X-ClientLocalIP", apiheader.getString("clientLocalIP"))
-                    .header("X-ClientPublicIP", apiheader.getString("clientPublicIP"))
-                    .header("X-MACAddress", apiheader.getString("macAddress"))
-                    .header("Accept", apiheader.getString("accept")).header("X-PrivateKey", privateKey)
-                    .header("X-UserType", apiheader.getString("userType"))
-                    .header("X-SourceID", apiheader.getString("sourceID")).build();
+            Request request = new Request.Builder().url(url).post(body).headers(identityHeaders())
+                    .header("Authorization", "Bearer " + accessToken).header("X-PrivateKey", privateKey).build();
             return request;
         } catch (Exception e) {
             log.error(e.getMessage());
@@ -430,17 +631,36 @@ public class SmartAPIRequestHandler {
      */
     public String postRequestJSONObject(String apiKey, String url, JSONObject params, String accessToken)
             throws IOException, SmartAPIException, JSONException {
+        ResponseCache cache = responseCache;
+        if (cache != null && cache.isCached(url)) {
+            return cache.get(url, cacheKey(url, accessToken, params),
+                    () -> {
+                        acquireOnMiss(url);
+                        return sendPostRequestJSONObject(apiKey, url, params, accessToken);
+                    }, text -> text.success).text;
+        }
+        return sendPostRequestJSONObject(apiKey, url, params, accessToken).text;
+    }
+
+    /** Text returned by postRequestJSONObject, success only for a 200 with status true. */
+    private static final class TextResponse {
+        private final String text;
+        private final boolean success;
+
+        TextResponse(String text, boolean success) {
+            this.text = text;
+            this.success = success;
+        }
+    }
+
+    private TextResponse sendPostRequestJSONObject(String apiKey, String url, JSONObject params, String accessToken)
+            throws IOException, SmartAPIException, JSONException {
         Request request = createPostRequest(apiKey, url, params, accessToken);
         try {
             Response response = client.newCall(request).execute();
             String body = response.body().string();
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode jsonNode = objectMapper.readTree(body);
-            if (jsonNode.get("status") == null) {
-                log.error("Error in POST request. Request URL: {}, Request Headers: {}, Request Body: {},Response : {}",
-                        url, request.headers(), params, body);
-            }
-            return new SmartAPIResponseHandler().handler(response, body);
+            String text = new SmartAPIResponseHandler().handler(response, body);
+            return new TextResponse(text, response.code() == 200 && isSuccessBody(body));
         } catch (Exception e) {
             log.error("Error in POST request. Request URL: {}, Request Headers: {}, Request Body: {},Response : {}",
                     url, request.headers(), params, e.getMessage());
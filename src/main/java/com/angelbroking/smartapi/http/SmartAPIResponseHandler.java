@@ -5,8 +5,10 @@ import java.util.List;
 
 import com.angelbroking.smartapi.http.exceptions.ApiKeyException;
 import com.angelbroking.smartapi.models.SearchScripResponseDTO;
+import com.angelbroking.smartapi.utils.JsonUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
 // import lombok.extern.slf4j.Slf4j; // Removed
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,6 +60,21 @@ public class SmartAPIResponseHandler {
 		}
 	}
 
+	/**
+	 * Returns the exception an error code maps to, for callers that did not parse
+	 * the response into a JSONObject. Codes without a mapping give a plain
+	 * SmartAPIException.
+	 */
+	SmartAPIException exceptionFor(String code, String message) {
+		String text = message == null ? code : message;
+		try {
+			return dealWithException(new JSONObject().put("message", text), code);
+		} catch (JSONException e) {
+			// the default branch looks up a key only error envelopes of handle() have
+			return new SmartAPIException(text, code);
+		}
+	}
+
 	private SmartAPIException dealWithException(JSONObject jsonObject, String code) throws JSONException {
 
 		switch (code) {
@@ -123,10 +140,11 @@ public class SmartAPIResponseHandler {
 
     private String handleResponse(Response response, String body) throws SmartAPIException, IOException {
         try {
-            JSONObject responseBodyJson = new JSONObject(body);
-            if(responseBodyJson.getBoolean("status")) {
-                JSONArray dataArray = responseBodyJson.optJSONArray("data");
-                if (dataArray != null && dataArray.length() > 0) {
+            // one tree parse, the data array is bound to DTOs without serializing it again
+            JsonNode responseBody = JsonUtils.OBJECT_MAPPER.readTree(body);
+            if(responseBody.path("status").asBoolean()) {
+                JsonNode dataArray = responseBody.get("data");
+                if (dataArray != null && dataArray.isArray() && dataArray.size() > 0) {
                     List<SearchScripResponseDTO> stockDTOList = parseStockDTOList(dataArray);
 
                     StringBuilder result = new StringBuilder();
@@ -145,18 +163,17 @@ public class SmartAPIResponseHandler {
                 return String.valueOf(handle(response,body));
             }
 
-        } catch (JSONException e) {
-            log.error("Error parsing response body as JSON.", e.getMessage());
+        } catch (JsonProcessingException | JSONException e) {
+            log.error("Error parsing response body as JSON. {}", e.getMessage());
             throw new SmartAPIException("Error parsing response body as JSON.");
         }
     }
 
-    private List<SearchScripResponseDTO> parseStockDTOList(JSONArray dataArray) throws JSONException, SmartAPIException {
-        ObjectMapper objectMapper = new ObjectMapper();
+    private List<SearchScripResponseDTO> parseStockDTOList(JsonNode dataArray) throws SmartAPIException {
         try {
-            return objectMapper.readValue(dataArray.toString(), new TypeReference<List<SearchScripResponseDTO>>() {
+            return JsonUtils.OBJECT_MAPPER.convertValue(dataArray, new TypeReference<List<SearchScripResponseDTO>>() {
             });
-        } catch (IOException e) {
+        } catch (IllegalArgumentException e) {
             log.error("Error parsing JSON data array.", e);
             throw new SmartAPIException("Error parsing JSON data array.");
         }
@@ -0,0 +1,224 @@
+package com.angelbroking.smartapi.http;
+
+import com.angelbroking.smartapi.http.exceptions.DataException;
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+import com.angelbroking.smartapi.models.Candle;
+import com.angelbroking.smartapi.models.CandleSeries;
+import com.angelbroking.smartapi.models.Order;
+import com.angelbroking.smartapi.utils.JsonUtils;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads Smart API responses straight from the response body stream.
+ *
+ * The envelope ({@code status}, {@code message}, {@code errorcode},
+ * {@code data}) is walked token by token and only the {@code data} value is
+ * handed to a {@link DataParser}, so large candle or order book responses are
+ * never held as a String or as a JSONObject tree. Error codes are mapped to the
+ * same exceptions as {@link SmartAPIResponseHandler#handle}.
+ */
+public final class StreamingResponseParser {
+
+    /**
+     * Parses the {@code data} value of a response.
+     *
+     * @param <T> the parsed type.
+     */
+    @FunctionalInterface
+    public interface DataParser<T> {
+        /**
+         * @param parser positioned on the first token of the value, which must be
+         *               fully consumed. It is never JSON null.
+         */
+        T parse(JsonParser parser) throws IOException;
+    }
+
+    /** Candle data rows {@code [timestamp, open, high, low, close, volume]} into a CandleSeries. */
+    public static final DataParser<CandleSeries> CANDLES = StreamingResponseParser::parseCandles;
+
+    /** Order book and trade book rows into Orders. */
+    public static final DataParser<List<Order>> ORDERS = StreamingResponseParser::parseOrders;
+
+    private StreamingResponseParser() {
+
+    }
+
+    /**
+     * Reads the response body once and returns the parsed {@code data} value,
+     * or null if the response has no data. The caller closes the response.
+     *
+     * @throws SmartAPIException for error codes and responses with a false status.
+     * @throws IOException       for connection and parsing errors.
+     */
+    public static <T> T parse(Response response, DataParser<T> dataParser) throws IOException, SmartAPIException {
+        ResponseBody body = response.body();
+        String contentType = response.header("Content-Type");
+        if (body == null || contentType == null || !contentType.contains("json")) {
+            throw new DataException("Unexpected content type received from server: " + contentType
+                    + " " + (body == null ? "" : body.string()), "AG8001");
+        }
+        try (InputStream stream = body.byteStream(); JsonParser parser = JsonUtils.JSON_FACTORY.createParser(stream)) {
+            return parse(parser, dataParser);
+        }
+    }
+
+    static <T> T parse(JsonParser parser, DataParser<T> dataParser) throws IOException, SmartAPIException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "response is not a JSON object");
+        }
+        Boolean status = null;
+        boolean success = false;
+        String message = null;
+        String errorCode = null;
+        T data = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+            case "status":
+                status = value == JsonToken.VALUE_TRUE || (value == JsonToken.VALUE_STRING
+                        && Boolean.parseBoolean(parser.getText()));
+                break;
+            case "success":
+                success = true;
+                parser.skipChildren();
+                break;
+            case "message":
+                message = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                parser.skipChildren();
+                break;
+            case "errorcode":
+            case "errorCode":
+                if (value != JsonToken.VALUE_NULL && !parser.getText().isEmpty()) {
+                    errorCode = parser.getText();
+                }
+                break;
+            case "data":
+                if (value != JsonToken.VALUE_NULL) {
+                    data = dataParser.parse(parser);
+                }
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+        if (errorCode != null && (status == null || success)) {
+            throw new SmartAPIResponseHandler().exceptionFor(errorCode, message);
+        }
+        if (status != null && !status) {
+            throw new SmartAPIException(message != null ? message : "request failed", errorCode);
+        }
+        return data;
+    }
+
+    private static CandleSeries parseCandles(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_ARRAY);
+        CandleSeries.Builder builder = new CandleSeries.Builder(1024);
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            parser.nextToken();
+            long epochMillis;
+            try {
+                epochMillis = Candle.parseEpochMillis(parser.getText());
+            } catch (ParseException e) {
+                throw new JsonParseException(parser, "invalid candle timestamp " + parser.getText(), e);
+            }
+            parser.nextToken();
+            double open = parser.getValueAsDouble();
+            parser.nextToken();
+            double high = parser.getValueAsDouble();
+            parser.nextToken();
+            double low = parser.getValueAsDouble();
+            parser.nextToken();
+            double close = parser.getValueAsDouble();
+            parser.nextToken();
+            long volume = parser.getValueAsLong();
+            // tolerate trailing columns
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                parser.skipChildren();
+            }
+            builder.add(epochMillis, open, high, low, close, volume);
+        }
+        return builder.build();
+    }
+
+    private static List<Order> parseOrders(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            // the order book sends "" when there are no orders
+            return Collections.emptyList();
+        }
+        expect(parser, JsonToken.START_ARRAY);
+        List<Order> orders = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Order order = new Order();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                setOrderField(order, field, value == JsonToken.VALUE_NULL ? null : parser.getText());
+            }
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    private static void setOrderField(Order order, String field, String value) {
+        switch (field) {
+        case "disclosedquantity": order.disclosedQuantity = value; break;
+        case "duration": order.duration = value; break;
+        case "tradingsymbol": order.tradingSymbol = value; break;
+        case "variety": order.variety = value; break;
+        case "ordertype": order.orderType = value; break;
+        case "triggerprice": order.triggerPrice = value; break;
+        case "text": order.text = value; break;
+        case "price": order.price = value; break;
+        case "status": order.status = value; break;
+        case "producttype": order.productType = value; break;
+        case "exchange": order.exchange = value; break;
+        case "orderid": order.orderId = value; break;
+        case "symbol": order.symbol = value; break;
+        case "updatetime": order.updateTime = value; break;
+        case "exchtime": order.exchangeTimestamp = value; break;
+        case "exchorderupdatetime": order.exchangeUpdateTimestamp = value; break;
+        case "averageprice": order.averagePrice = value; break;
+        case "transactiontype": order.transactionType = value; break;
+        case "quantity": order.quantity = value; break;
+        case "squareoff": order.squareOff = value; break;
+        case "stoploss": order.stopLoss = value; break;
+        case "trailingstoploss": order.trailingStopLoss = value; break;
+        case "symboltoken": order.symbolToken = value; break;
+        case "instrumenttype": order.instrumentType = value; break;
+        case "strikeprice": order.strikePrice = value; break;
+        case "optiontype": order.optionType = value; break;
+        case "expirydate": order.expiryDate = value; break;
+        case "lotsize": order.lotSize = value; break;
+        case "cancelsize": order.cancelSize = value; break;
+        case "filledshares": order.filledShares = value; break;
+        case "orderstatus": order.orderStatus = value; break;
+        case "unfilledshares": order.unfilledShares = value; break;
+        case "fillid": order.fillId = value; break;
+        case "filltime": order.fillTime = value; break;
+        case "uniqueorderid": order.uniqueOrderId = value; break;
+        default:
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken token) throws IOException {
+        if (parser.currentToken() != token) {
+            throw new JsonParseException(parser, "expected " + token + " but was " + parser.currentToken());
+        }
+    }
+}
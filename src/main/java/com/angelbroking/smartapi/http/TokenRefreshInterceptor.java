@@ -0,0 +1,118 @@
+package com.angelbroking.smartapi.http;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Renews an expired session and replays the request with the new token.
+ *
+ * A request whose response reports an invalid or expired access token waits
+ * for a single renewal shared by all requests that failed with the same token,
+ * then is sent once more with the renewed token. Requests that were sent with
+ * an outdated token after another request already renewed the session are
+ * replayed without renewing again. If the renewal fails the original response
+ * is returned, so callers see the TokenException as before. Replaying orders
+ * is safe because a request rejected for its token was not processed.
+ */
+public class TokenRefreshInterceptor implements Interceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRefreshInterceptor.class);
+
+    /** Login and token routes are never renewed, the renewal itself goes through them. */
+    private static final String AUTH_PATH = "/rest/auth/";
+    private static final String BEARER = "Bearer ";
+    private static final long PEEK_BYTES = 512;
+    // error codes of SmartAPIResponseHandler that mean the access token is no longer valid
+    private static final Pattern TOKEN_ERROR = Pattern
+            .compile("\"error[cC]ode\"\\s*:\\s*\"(AG8001|AG8003|AB1010)\"");
+
+    /** Renews the session. */
+    @FunctionalInterface
+    public interface TokenRenewer {
+        /**
+         * @return the new access token, or null if the session could not be renewed.
+         */
+        String renew();
+    }
+
+    private final Supplier<String> accessToken;
+    private final TokenRenewer renewer;
+    private final Object renewLock = new Object();
+    // guarded by renewLock, keeps a burst of requests from retrying a renewal that failed
+    private String unrenewableToken;
+
+    /**
+     * @param accessToken returns the access token of the current session.
+     * @param renewer     renews the session, called by one request at a time.
+     */
+    public TokenRefreshInterceptor(Supplier<String> accessToken, TokenRenewer renewer) {
+        if (accessToken == null || renewer == null) {
+            throw new IllegalArgumentException("accessToken and renewer should not be null");
+        }
+        this.accessToken = accessToken;
+        this.renewer = renewer;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+        String authorization = request.header("Authorization");
+        if (authorization == null || !authorization.startsWith(BEARER)
+                || request.url().encodedPath().startsWith(AUTH_PATH) || !isTokenExpired(response)) {
+            return response;
+        }
+        String renewedToken = renew(authorization.substring(BEARER.length()));
+        if (renewedToken == null) {
+            return response;
+        }
+        response.close();
+        log.info("replaying {} with the renewed session", request.url().encodedPath());
+        return chain.proceed(request.newBuilder().header("Authorization", BEARER + renewedToken).build());
+    }
+
+    /**
+     * Returns the token to replay with: the current token if the session was
+     * already renewed since the request was sent, otherwise a renewed one.
+     */
+    private String renew(String expiredToken) {
+        synchronized (renewLock) {
+            String current = accessToken.get();
+            if (current != null && !current.equals(expiredToken)) {
+                return current;
+            }
+            if (expiredToken.equals(unrenewableToken)) {
+                return null;
+            }
+            String renewed;
+            try {
+                renewed = renewer.renew();
+            } catch (RuntimeException e) {
+                log.error("session renewal failed: {}", e.getMessage());
+                renewed = null;
+            }
+            if (renewed == null || renewed.equals(expiredToken)) {
+                log.warn("session could not be renewed");
+                unrenewableToken = expiredToken;
+                return null;
+            }
+            return renewed;
+        }
+    }
+
+    static boolean isTokenExpired(Response response) throws IOException {
+        String contentType = response.header("Content-Type");
+        if (contentType == null || !contentType.contains("json")) {
+            return response.code() == 401;
+        }
+        // error envelopes are short, the code is within the first bytes
+        return TOKEN_ERROR.matcher(response.peekBody(PEEK_BYTES).string()).find();
+    }
+}
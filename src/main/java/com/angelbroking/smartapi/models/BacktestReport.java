@@ -1,5 +1,6 @@
 package com.angelbroking.smartapi.models;
 
+import java.util.AbstractList;
 import java.util.Date;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,7 +15,12 @@ public class BacktestReport {
     private List<Date> equityCurveTimestamps;
     private List<Double> equityCurveValues;
     private List<Candle> historicalCandles;
-    // Add more metrics later: winRate, maxDrawdown, sharpeRatio, etc.
+    private CandleSeries candleSeries;
+    private long[] equityCurveEpochMillis;
+    private double[] equityCurve;
+    private double maxDrawdownPercent;
+    private boolean stoppedEarly;
+    // Add more metrics later: winRate, sharpeRatio, etc.
 
     public BacktestReport() {
         this.trades = new ArrayList<>();
@@ -77,6 +83,7 @@ public class BacktestReport {
 
     public void setEquityCurveTimestamps(List<Date> equityCurveTimestamps) {
         this.equityCurveTimestamps = equityCurveTimestamps;
+        this.equityCurveEpochMillis = null;
     }
 
     public List<Double> getEquityCurveValues() {
@@ -85,6 +92,56 @@ public class BacktestReport {
 
     public void setEquityCurveValues(List<Double> equityCurveValues) {
         this.equityCurveValues = equityCurveValues;
+        this.equityCurve = null;
+    }
+
+    /**
+     * Sets the equity curve from primitive columns, the list getters become read-only views over them.
+     */
+    public void setEquityCurve(long[] epochMillis, double[] values) {
+        if (epochMillis.length != values.length) {
+            throw new IllegalArgumentException("equity curve timestamps and values should have the same length");
+        }
+        this.equityCurveEpochMillis = epochMillis;
+        this.equityCurve = values;
+        this.equityCurveTimestamps = new AbstractList<Date>() {
+            @Override
+            public Date get(int index) {
+                return new Date(epochMillis[index]);
+            }
+
+            @Override
+            public int size() {
+                return epochMillis.length;
+            }
+        };
+        this.equityCurveValues = new AbstractList<Double>() {
+            @Override
+            public Double get(int index) {
+                return values[index];
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+
+    /** Equity curve timestamps as epoch milliseconds. */
+    public long[] getEquityCurveEpochMillis() {
+        if (equityCurveEpochMillis == null && equityCurveTimestamps != null) {
+            equityCurveEpochMillis = equityCurveTimestamps.stream().mapToLong(Date::getTime).toArray();
+        }
+        return equityCurveEpochMillis;
+    }
+
+    /** Equity curve values, one per entry of {@link #getEquityCurveEpochMillis()}. */
+    public double[] getEquityCurve() {
+        if (equityCurve == null && equityCurveValues != null) {
+            equityCurve = equityCurveValues.stream().mapToDouble(Double::doubleValue).toArray();
+        }
+        return equityCurve;
     }
 
     public List<Candle> getHistoricalCandles() {
@@ -93,5 +150,37 @@ public class BacktestReport {
 
     public void setHistoricalCandles(List<Candle> historicalCandles) {
         this.historicalCandles = historicalCandles;
+        this.candleSeries = null;
     }
-}
\ No newline at end of file
+
+    public CandleSeries getCandleSeries() {
+        if (candleSeries == null && historicalCandles != null) {
+            candleSeries = CandleSeries.of(historicalCandles);
+        }
+        return candleSeries;
+    }
+
+    /** Sets the candles of the run without copying them, getHistoricalCandles() becomes a view. */
+    public void setCandleSeries(CandleSeries candleSeries) {
+        this.candleSeries = candleSeries;
+        this.historicalCandles = candleSeries != null ? candleSeries.asList() : null;
+    }
+
+    /** Largest fall of the equity curve from its running peak, in percent of the peak. */
+    public double getMaxDrawdownPercent() {
+        return maxDrawdownPercent;
+    }
+
+    public void setMaxDrawdownPercent(double maxDrawdownPercent) {
+        this.maxDrawdownPercent = maxDrawdownPercent;
+    }
+
+    /** True if the run was cut off because the drawdown exceeded the configured limit. */
+    public boolean isStoppedEarly() {
+        return stoppedEarly;
+    }
+
+    public void setStoppedEarly(boolean stoppedEarly) {
+        this.stoppedEarly = stoppedEarly;
+    }
+}
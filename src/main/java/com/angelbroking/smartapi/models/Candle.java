@@ -1,7 +1,10 @@
 package com.angelbroking.smartapi.models;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
 
 import org.json.JSONArray;
@@ -15,8 +18,9 @@ public class Candle {
     private double close;
     private long volume;
 
-    // Angel One API timestamp format: "yyyy-MM-dd'T'HH:mm:ss+05:30" or similar with timezone
-    private static final SimpleDateFormat API_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX");
+    // Angel One API timestamp format: "yyyy-MM-dd'T'HH:mm:ss+05:30" or similar with timezone.
+    // DateTimeFormatter is immutable, so unlike SimpleDateFormat it can be shared across threads.
+    private static final DateTimeFormatter API_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX");
 
     public Candle(Date timestamp, double open, double high, double low, double close, long volume) {
         this.timestamp = timestamp;
@@ -32,7 +36,7 @@ public class Candle {
         if (candleArray == null || candleArray.length() < 6) {
             throw new IllegalArgumentException("Candle data array must have at least 6 elements.");
         }
-        this.timestamp = API_DATE_FORMAT.parse(candleArray.getString(0));
+        this.timestamp = new Date(parseEpochMillis(candleArray.getString(0)));
         this.open = candleArray.getDouble(1);
         this.high = candleArray.getDouble(2);
         this.low = candleArray.getDouble(3);
@@ -40,6 +44,17 @@ public class Candle {
         this.volume = candleArray.getLong(5);
     }
 
+    /**
+     * Parses an API timestamp such as "2021-03-08T09:15:00+05:30" into epoch milliseconds.
+     */
+    public static long parseEpochMillis(String timestamp) throws ParseException {
+        try {
+            return OffsetDateTime.parse(timestamp, API_DATE_FORMAT).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new ParseException(e.getMessage(), e.getErrorIndex());
+        }
+    }
+
     public Date getTimestamp() {
         return timestamp;
     }
@@ -67,7 +82,7 @@ public class Candle {
     @Override
     public String toString() {
         return "Candle{" +
-                "timestamp=" + (timestamp != null ? API_DATE_FORMAT.format(timestamp) : "null") +
+                "timestamp=" + (timestamp != null ? API_DATE_FORMAT.format(timestamp.toInstant().atZone(ZoneId.systemDefault())) : "null") +
                 ", open=" + open +
                 ", high=" + high +
                 ", low=" + low +
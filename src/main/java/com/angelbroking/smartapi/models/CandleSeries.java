@@ -0,0 +1,278 @@
+package com.angelbroking.smartapi.models;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable column store of candles: one primitive array per field instead of
+ * one Candle and Date object per bar.
+ *
+ * A series is a window over its columns, so {@link #slice} shares the arrays
+ * instead of copying them. Timestamps are epoch milliseconds; the time based
+ * lookups expect them in ascending order, as the historical API returns them.
+ * The raw column getters return the shared backing arrays for use with array
+ * based libraries such as TA-Lib; index them from {@link #getOffset()} and never
+ * modify them.
+ */
+public class CandleSeries {
+    private final long[] epochMillis;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final long[] volume;
+    private final int offset;
+    private final int length;
+
+    /**
+     * Wraps the given columns without copying them. All columns must have the same length.
+     */
+    public CandleSeries(long[] epochMillis, double[] open, double[] high, double[] low, double[] close, long[] volume) {
+        this(epochMillis, open, high, low, close, volume, 0, epochMillis.length);
+        int n = epochMillis.length;
+        if (open.length != n || high.length != n || low.length != n || close.length != n || volume.length != n) {
+            throw new IllegalArgumentException("all candle columns should have the same length");
+        }
+    }
+
+    private CandleSeries(long[] epochMillis, double[] open, double[] high, double[] low, double[] close, long[] volume,
+                         int offset, int length) {
+        this.epochMillis = epochMillis;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Converts a list of candles. Lists returned by {@link #asList()} are unwrapped without copying.
+     */
+    public static CandleSeries of(List<Candle> candles) {
+        if (candles instanceof CandleList) {
+            return ((CandleList) candles).series;
+        }
+        Builder builder = new Builder(candles.size());
+        for (Candle candle : candles) {
+            builder.add(candle);
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public long getEpochMillis(int index) {
+        return epochMillis[offset + checkIndex(index)];
+    }
+
+    public double getOpen(int index) {
+        return open[offset + checkIndex(index)];
+    }
+
+    public double getHigh(int index) {
+        return high[offset + checkIndex(index)];
+    }
+
+    public double getLow(int index) {
+        return low[offset + checkIndex(index)];
+    }
+
+    public double getClose(int index) {
+        return close[offset + checkIndex(index)];
+    }
+
+    public long getVolume(int index) {
+        return volume[offset + checkIndex(index)];
+    }
+
+    /** Materializes one bar as a Candle. */
+    public Candle getCandle(int index) {
+        int i = offset + checkIndex(index);
+        return new Candle(new Date(epochMillis[i]), open[i], high[i], low[i], close[i], volume[i]);
+    }
+
+    /**
+     * Returns the bars from {@code fromIndex} inclusive to {@code toIndex} exclusive, sharing this series' arrays.
+     */
+    public CandleSeries slice(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > length || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("slice [" + fromIndex + ", " + toIndex + ") of " + length + " candles");
+        }
+        return new CandleSeries(epochMillis, open, high, low, close, volume, offset + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * Returns the bars with {@code fromMillis <= timestamp < toMillis}, sharing this series' arrays.
+     */
+    public CandleSeries sliceByTime(long fromMillis, long toMillis) {
+        return slice(indexOf(fromMillis), indexOf(toMillis));
+    }
+
+    /** Index of the first bar at or after the given time, {@code size()} if there is none. */
+    public int indexOf(long epochMillis) {
+        int index = Arrays.binarySearch(this.epochMillis, offset, offset + length, epochMillis);
+        if (index < 0) {
+            return -index - 1 - offset;
+        }
+        // step back over bars sharing the timestamp
+        while (index > offset && this.epochMillis[index - 1] == epochMillis) {
+            index--;
+        }
+        return index - offset;
+    }
+
+    /** Copy of the close prices of this series. */
+    public double[] closes() {
+        return Arrays.copyOfRange(close, offset, offset + length);
+    }
+
+    /** Position of the first bar of this series in the backing arrays. */
+    public int getOffset() {
+        return offset;
+    }
+
+    public long[] getEpochMillisArray() {
+        return epochMillis;
+    }
+
+    public double[] getOpenArray() {
+        return open;
+    }
+
+    public double[] getHighArray() {
+        return high;
+    }
+
+    public double[] getLowArray() {
+        return low;
+    }
+
+    public double[] getCloseArray() {
+        return close;
+    }
+
+    public long[] getVolumeArray() {
+        return volume;
+    }
+
+    /**
+     * Read-only List view for code written against {@code List<Candle>}. Candles are created on access.
+     */
+    public List<Candle> asList() {
+        return new CandleList(this);
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " of " + length + " candles");
+        }
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "CandleSeries{size=" + length
+                + (length > 0 ? ", from=" + epochMillis[offset] + ", to=" + epochMillis[offset + length - 1] : "") + '}';
+    }
+
+    private static final class CandleList extends AbstractList<Candle> implements RandomAccess {
+        private final CandleSeries series;
+
+        private CandleList(CandleSeries series) {
+            this.series = series;
+        }
+
+        @Override
+        public Candle get(int index) {
+            return series.getCandle(index);
+        }
+
+        @Override
+        public int size() {
+            return series.size();
+        }
+
+        @Override
+        public List<Candle> subList(int fromIndex, int toIndex) {
+            return new CandleList(series.slice(fromIndex, toIndex));
+        }
+    }
+
+    /**
+     * Appends bars into growing columns. Not thread safe.
+     */
+    public static class Builder {
+        private long[] epochMillis;
+        private double[] open;
+        private double[] high;
+        private double[] low;
+        private double[] close;
+        private long[] volume;
+        private int size;
+
+        public Builder() {
+            this(256);
+        }
+
+        public Builder(int initialCapacity) {
+            int capacity = Math.max(initialCapacity, 1);
+            this.epochMillis = new long[capacity];
+            this.open = new double[capacity];
+            this.high = new double[capacity];
+            this.low = new double[capacity];
+            this.close = new double[capacity];
+            this.volume = new long[capacity];
+        }
+
+        public Builder add(Candle candle) {
+            return add(candle.getTimestamp().getTime(), candle.getOpen(), candle.getHigh(), candle.getLow(),
+                    candle.getClose(), candle.getVolume());
+        }
+
+        /** Appends a bar, bars are expected in ascending time order. */
+        public Builder add(long epochMillis, double open, double high, double low, double close, long volume) {
+            if (size == this.epochMillis.length) {
+                int capacity = size + (size >> 1) + 1;
+                this.epochMillis = Arrays.copyOf(this.epochMillis, capacity);
+                this.open = Arrays.copyOf(this.open, capacity);
+                this.high = Arrays.copyOf(this.high, capacity);
+                this.low = Arrays.copyOf(this.low, capacity);
+                this.close = Arrays.copyOf(this.close, capacity);
+                this.volume = Arrays.copyOf(this.volume, capacity);
+            }
+            this.epochMillis[size] = epochMillis;
+            this.open[size] = open;
+            this.high[size] = high;
+            this.low[size] = low;
+            this.close[size] = close;
+            this.volume[size] = volume;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns a series over the bars added so far. The builder must not be used afterwards,
+         * the series shares its arrays.
+         */
+        public CandleSeries build() {
+            CandleSeries series = new CandleSeries(epochMillis, open, high, low, close, volume, 0, size);
+            epochMillis = null;
+            return series;
+        }
+    }
+}
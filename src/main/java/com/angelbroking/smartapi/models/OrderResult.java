@@ -0,0 +1,63 @@
+package com.angelbroking.smartapi.models;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of one leg of a batch order call: the order returned by Smart API or
+ * the error of the leg, and how long the leg took.
+ */
+public class OrderResult {
+    private final int index;
+    private final OrderParams orderParams;
+    private final Order order;
+    private final Throwable error;
+    private final long latencyNanos;
+
+    public OrderResult(int index, OrderParams orderParams, Order order, Throwable error, long latencyNanos) {
+        this.index = index;
+        this.orderParams = orderParams;
+        this.order = order;
+        this.error = error;
+        this.latencyNanos = latencyNanos;
+    }
+
+    /** Returns the position of the leg in the batch. */
+    public int getIndex() {
+        return index;
+    }
+
+    public OrderParams getOrderParams() {
+        return orderParams;
+    }
+
+    /** Returns the order, or null if the leg failed. */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Returns the SmartAPIException or IOException of a failed leg, or null if it
+     * succeeded.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Returns the time from sending the leg, including its wait for the rate
+     * limiter, until its response was read.
+     */
+    public long getLatency(TimeUnit unit) {
+        return unit.convert(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderResult [index=" + index + ", order=" + order + ", error=" + error + ", latencyMicros="
+                + getLatency(TimeUnit.MICROSECONDS) + "]";
+    }
+}
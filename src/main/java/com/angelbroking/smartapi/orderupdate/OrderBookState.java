@@ -0,0 +1,528 @@
+package com.angelbroking.smartapi.orderupdate;
+
+import com.angelbroking.smartapi.SmartConnect;
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Live orders, net positions and realized P&amp;L, kept up to date from the
+ * order update stream instead of polling.
+ *
+ * {@link #seed()} loads the order book and positions once, then every order
+ * update is applied incrementally: the fill since the previous update of the
+ * order is derived from its cumulative filled shares and average price and
+ * booked on the position at average cost. Updates received before the seed
+ * are replayed on top of it. Positions are taken from the position book as
+ * loaded, so updates received until then only update their orders, the
+ * position book already has their fills.
+ *
+ * Positions are keyed by exchange, symbol token and product type. Each one is
+ * updated under its own lock and published as an immutable {@link Position}, so
+ * reads never block. Seeding again loads new orders and positions and swaps
+ * them in at once, updates received meanwhile are replayed on top. A periodic
+ * reconciliation against the position book corrects positions that drifted,
+ * e.g. because updates were missed during a reconnect.
+ */
+public class OrderBookState implements OrderUpdateDispatcher.OrderUpdateSubscriber {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderBookState.class);
+
+    private static final String BUY = "BUY";
+    // positions that changed this recently may not be in the position book yet
+    private static final long DEFAULT_SETTLE_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final Supplier<JSONObject> orderBook;
+    private final Supplier<JSONObject> positionBook;
+    // replaced as a whole by seed()
+    private volatile State state = new State();
+    private final Object seedLock = new Object();
+    // guarded by seedLock, updates received before the seed or while seeding again
+    private final List<OrderUpdateEvent> early = new ArrayList<>();
+    private volatile boolean seeded;
+    private volatile long settleNanos = DEFAULT_SETTLE_NANOS;
+    private ScheduledExecutorService scheduler;
+
+    public OrderBookState(SmartConnect smartConnect) {
+        this(() -> smartConnect.getOrderHistory(null), smartConnect::getPosition);
+    }
+
+    /**
+     * @param orderBook    returns the order book response, null on failure.
+     * @param positionBook returns the position book response, null on failure.
+     */
+    OrderBookState(Supplier<JSONObject> orderBook, Supplier<JSONObject> positionBook) {
+        this.orderBook = orderBook;
+        this.positionBook = positionBook;
+    }
+
+    /**
+     * Loads orders and positions and applies the updates received so far.
+     * Calling it again loads the state anew, if that fails the previous state
+     * is kept.
+     *
+     * @throws SmartAPIException if the order book or positions could not be loaded.
+     */
+    public void seed() throws SmartAPIException {
+        boolean wasSeeded;
+        synchronized (seedLock) {
+            // updates from here on wait in early, applying them to the state being replaced would lose them
+            wasSeeded = seeded;
+            seeded = false;
+        }
+        State loaded = null;
+        int inPositions = 0;
+        try {
+            JSONObject orderResponse = orderBook.get();
+            JSONObject positionResponse = positionBook.get();
+            synchronized (seedLock) {
+                inPositions = early.size();
+            }
+            if (orderResponse != null && positionResponse != null) {
+                loaded = load(orderResponse, positionResponse);
+            }
+        } finally {
+            synchronized (seedLock) {
+                // a failed seed keeps the previous state, if there was one
+                if (loaded != null || wasSeeded) {
+                    if (loaded != null) {
+                        state = loaded;
+                    }
+                    seeded = true;
+                    for (int i = 0; i < early.size(); i++) {
+                        // a kept state has none of the fills, a loaded one those received before its positions
+                        apply(early.get(i), loaded == null || i >= inPositions);
+                    }
+                    log.info("seeded {} orders and {} positions, replayed {} updates", state.orders.size(),
+                            state.positions.size(), early.size());
+                    early.clear();
+                }
+            }
+        }
+        if (loaded == null) {
+            throw new SmartAPIException("could not load order book and positions");
+        }
+    }
+
+    private static State load(JSONObject orderResponse, JSONObject positionResponse) {
+        State loaded = new State();
+        JSONArray data = orderResponse.optJSONArray("data");
+        for (int i = 0; data != null && i < data.length(); i++) {
+            try {
+                OrderUpdateEvent order = OrderUpdateEvent.parseOrder(data.getJSONObject(i).toString());
+                if (order.hasOrder()) {
+                    loaded.orders.put(order.getOrderId(), order);
+                }
+            } catch (IOException e) {
+                log.warn("skipping order book entry: {}", e.getMessage());
+            }
+        }
+        data = positionResponse.optJSONArray("data");
+        for (int i = 0; data != null && i < data.length(); i++) {
+            Position position = toPosition(data.getJSONObject(i));
+            Book book = new Book();
+            book.set(position);
+            loaded.positions.put(key(position.exchange, position.symbolToken, position.productType), book);
+        }
+        return loaded;
+    }
+
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    @Override
+    public void onOrderUpdate(OrderUpdateEvent event) {
+        if (!event.hasOrder()) {
+            return;
+        }
+        if (!seeded) {
+            synchronized (seedLock) {
+                if (!seeded) {
+                    early.add(event);
+                    return;
+                }
+            }
+        }
+        apply(event, true);
+    }
+
+    private void apply(OrderUpdateEvent event, boolean bookFill) {
+        // orders and positions of the same seed, even if seed() swaps the state meanwhile
+        State current = state;
+        Map<String, OrderUpdateEvent> orders = current.orders;
+        Book book = current.positions.computeIfAbsent(
+                key(event.getExchange(), event.getSymbolToken(), event.getProductType()), key -> new Book());
+        synchronized (book) {
+            // all updates of an order share the position lock, so they apply one at a time
+            OrderUpdateEvent previous = orders.get(event.getOrderId());
+            int filled = 0;
+            double filledValue = 0;
+            if (previous != null) {
+                if (event.getFilledShares() < previous.getFilledShares()
+                        || (isTerminal(previous.getStatus()) && !isTerminal(event.getStatus()))) {
+                    // an update that arrived out of order
+                    return;
+                }
+                filled = previous.getFilledShares();
+                filledValue = filled * previous.getAveragePrice();
+            }
+            orders.put(event.getOrderId(), event);
+            int quantity = event.getFilledShares() - filled;
+            if (quantity > 0 && bookFill) {
+                double price = (event.getFilledShares() * event.getAveragePrice() - filledValue) / quantity;
+                book.fill(event, BUY.equalsIgnoreCase(event.getTransactionType()), quantity, price);
+            }
+        }
+    }
+
+    /** Returns the latest state of an order, or null if it is unknown. */
+    public OrderUpdateEvent getOrder(String orderId) {
+        return state.orders.get(orderId);
+    }
+
+    public Collection<OrderUpdateEvent> getOrders() {
+        return Collections.unmodifiableCollection(state.orders.values());
+    }
+
+    /** Returns the orders that are neither complete, rejected nor cancelled. */
+    public List<OrderUpdateEvent> getOpenOrders() {
+        List<OrderUpdateEvent> open = new ArrayList<>();
+        for (OrderUpdateEvent order : state.orders.values()) {
+            if (!isTerminal(order.getStatus())) {
+                open.add(order);
+            }
+        }
+        return open;
+    }
+
+    /** Returns the position of an instrument and product type, or null if there is none. */
+    public Position getPosition(String exchange, String symbolToken, String productType) {
+        Book book = state.positions.get(key(exchange, symbolToken, productType));
+        return book == null ? null : book.position;
+    }
+
+    public List<Position> getPositions() {
+        Map<String, Book> positions = state.positions;
+        List<Position> snapshot = new ArrayList<>(positions.size());
+        for (Book book : positions.values()) {
+            if (book.position != null) {
+                snapshot.add(book.position);
+            }
+        }
+        return snapshot;
+    }
+
+    /** Returns the net quantity of an instrument over all product types. */
+    public int getNetQuantity(String exchange, String symbolToken) {
+        int net = 0;
+        for (Book book : state.positions.values()) {
+            Position position = book.position;
+            if (position != null && symbolToken.equals(position.symbolToken) && exchange.equals(position.exchange)) {
+                net += position.netQuantity;
+            }
+        }
+        return net;
+    }
+
+    public double getRealizedPnl() {
+        double realized = 0;
+        for (Book book : state.positions.values()) {
+            Position position = book.position;
+            if (position != null) {
+                realized += position.realizedPnl;
+            }
+        }
+        return realized;
+    }
+
+    /**
+     * Sets how long after its last fill a position is left out of
+     * reconciliation, 2 seconds by default.
+     */
+    public void setSettleTime(long settleTime, TimeUnit unit) {
+        if (settleTime < 0) {
+            throw new IllegalArgumentException("settleTime should not be negative");
+        }
+        this.settleNanos = unit.toNanos(settleTime);
+    }
+
+    /**
+     * Compares the net quantities with the position book and replaces positions
+     * that differ, except those filled within the settle time.
+     *
+     * @return the positions as they were before they were corrected.
+     * @throws SmartAPIException if the positions could not be loaded.
+     */
+    public List<Position> reconcile() throws SmartAPIException {
+        JSONObject response = positionBook.get();
+        if (response == null) {
+            throw new SmartAPIException("could not load positions");
+        }
+        Map<String, Book> positions = state.positions;
+        Map<String, Position> remote = new HashMap<>();
+        JSONArray data = response.optJSONArray("data");
+        for (int i = 0; data != null && i < data.length(); i++) {
+            Position position = toPosition(data.getJSONObject(i));
+            remote.put(key(position.exchange, position.symbolToken, position.productType), position);
+        }
+        List<Position> drifted = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Map.Entry<String, Position> entry : remote.entrySet()) {
+            Book book = positions.computeIfAbsent(entry.getKey(), key -> new Book());
+            synchronized (book) {
+                Position local = book.position;
+                int localNet = local == null ? 0 : local.netQuantity;
+                if (localNet != entry.getValue().netQuantity && now - book.updatedAt >= settleNanos) {
+                    drifted.add(local != null ? local : entry.getValue().withNetQuantity(0));
+                    book.set(entry.getValue());
+                }
+            }
+        }
+        for (Map.Entry<String, Book> entry : positions.entrySet()) {
+            Book book = entry.getValue();
+            if (remote.containsKey(entry.getKey())) {
+                continue;
+            }
+            synchronized (book) {
+                Position local = book.position;
+                if (local != null && local.netQuantity != 0 && now - book.updatedAt >= settleNanos) {
+                    drifted.add(local);
+                    book.set(local.withNetQuantity(0));
+                }
+            }
+        }
+        for (Position position : drifted) {
+            log.warn("position drifted from the position book: {}", position);
+        }
+        return drifted;
+    }
+
+    /** Reconciles the positions at a fixed interval until {@link #stop()}. */
+    public synchronized void startReconciliation(long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period should be positive");
+        }
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "smartapi-order-book-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scheduledReconcile, period, period, unit);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void scheduledReconcile() {
+        if (!seeded) {
+            return;
+        }
+        try {
+            reconcile();
+        } catch (SmartAPIException | RuntimeException e) {
+            // an unavailable position book is usually back by the next period, keep reconciling
+            log.warn("position reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    static boolean isTerminal(String status) {
+        return "complete".equalsIgnoreCase(status) || "rejected".equalsIgnoreCase(status)
+                || "cancelled".equalsIgnoreCase(status);
+    }
+
+    private static String key(String exchange, String symbolToken, String productType) {
+        return exchange + ':' + symbolToken + ':' + productType;
+    }
+
+    private static Position toPosition(JSONObject row) {
+        int buyQuantity = (int) number(row, "buyqty");
+        int sellQuantity = (int) number(row, "sellqty");
+        double buyValue = number(row, "buyamount");
+        double sellValue = number(row, "sellamount");
+        double realized = 0;
+        int closed = Math.min(buyQuantity, sellQuantity);
+        if (closed > 0) {
+            realized = closed * (sellValue / sellQuantity - buyValue / buyQuantity);
+        }
+        int net = (int) number(row, "netqty");
+        double average = number(row, "avgnetprice");
+        if (average == 0 && net > 0 && buyQuantity > 0) {
+            average = buyValue / buyQuantity;
+        } else if (average == 0 && net < 0 && sellQuantity > 0) {
+            average = sellValue / sellQuantity;
+        }
+        return new Position(row.optString("exchange"), row.optString("symboltoken"), row.optString("tradingsymbol"),
+                row.optString("producttype"), net, buyQuantity, sellQuantity, buyValue, sellValue, Math.abs(average),
+                realized);
+    }
+
+    private static double number(JSONObject row, String field) {
+        // the position book sends numbers as strings, some with a space after the sign
+        String value = row.optString(field, "").replace(" ", "");
+        if (value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** Orders by id and positions by key, as seeded and updated since. */
+    private static final class State {
+        private final Map<String, OrderUpdateEvent> orders = new ConcurrentHashMap<>();
+        private final Map<String, Book> positions = new ConcurrentHashMap<>();
+    }
+
+    /** The position of one instrument and product type, guarded by itself. */
+    private static final class Book {
+        private volatile Position position;
+        private long updatedAt = System.nanoTime() - DEFAULT_SETTLE_NANOS;
+
+        void set(Position position) {
+            this.position = position;
+        }
+
+        void fill(OrderUpdateEvent event, boolean buy, int quantity, double price) {
+            Position current = position;
+            int net = current == null ? 0 : current.netQuantity;
+            double average = current == null ? 0 : current.averagePrice;
+            double realized = current == null ? 0 : current.realizedPnl;
+            int signed = buy ? quantity : -quantity;
+            if (net == 0 || (net > 0) == buy) {
+                average = (average * Math.abs(net) + price * quantity) / (Math.abs(net) + quantity);
+            } else {
+                int closed = Math.min(quantity, Math.abs(net));
+                realized += closed * (price - average) * Integer.signum(net);
+                if (quantity > closed) {
+                    // the fill reversed the position
+                    average = price;
+                }
+            }
+            net += signed;
+            if (net == 0) {
+                average = 0;
+            }
+            position = new Position(event.getExchange(), event.getSymbolToken(), event.getTradingSymbol(),
+                    event.getProductType(), net,
+                    (current == null ? 0 : current.buyQuantity) + (buy ? quantity : 0),
+                    (current == null ? 0 : current.sellQuantity) + (buy ? 0 : quantity),
+                    (current == null ? 0 : current.buyValue) + (buy ? quantity * price : 0),
+                    (current == null ? 0 : current.sellValue) + (buy ? 0 : quantity * price), average, realized);
+            updatedAt = System.nanoTime();
+        }
+    }
+
+    /** An immutable snapshot of a net position. */
+    public static final class Position {
+        private final String exchange;
+        private final String symbolToken;
+        private final String tradingSymbol;
+        private final String productType;
+        private final int netQuantity;
+        private final int buyQuantity;
+        private final int sellQuantity;
+        private final double buyValue;
+        private final double sellValue;
+        private final double averagePrice;
+        private final double realizedPnl;
+
+        Position(String exchange, String symbolToken, String tradingSymbol, String productType, int netQuantity,
+                int buyQuantity, int sellQuantity, double buyValue, double sellValue, double averagePrice,
+                double realizedPnl) {
+            this.exchange = exchange;
+            this.symbolToken = symbolToken;
+            this.tradingSymbol = tradingSymbol;
+            this.productType = productType;
+            this.netQuantity = netQuantity;
+            this.buyQuantity = buyQuantity;
+            this.sellQuantity = sellQuantity;
+            this.buyValue = buyValue;
+            this.sellValue = sellValue;
+            this.averagePrice = averagePrice;
+            this.realizedPnl = realizedPnl;
+        }
+
+        Position withNetQuantity(int netQuantity) {
+            return new Position(exchange, symbolToken, tradingSymbol, productType, netQuantity, buyQuantity,
+                    sellQuantity, buyValue, sellValue, netQuantity == 0 ? 0 : averagePrice, realizedPnl);
+        }
+
+        public String getExchange() {
+            return exchange;
+        }
+
+        public String getSymbolToken() {
+            return symbolToken;
+        }
+
+        public String getTradingSymbol() {
+            return tradingSymbol;
+        }
+
+        public String getProductType() {
+            return productType;
+        }
+
+        /** Returns the bought minus the sold quantity, negative for short positions. */
+        public int getNetQuantity() {
+            return netQuantity;
+        }
+
+        public int getBuyQuantity() {
+            return buyQuantity;
+        }
+
+        public int getSellQuantity() {
+            return sellQuantity;
+        }
+
+        public double getBuyValue() {
+            return buyValue;
+        }
+
+        public double getSellValue() {
+            return sellValue;
+        }
+
+        /** Returns the average cost of the open quantity, 0 when flat. */
+        public double getAveragePrice() {
+            return averagePrice;
+        }
+
+        public double getRealizedPnl() {
+            return realizedPnl;
+        }
+
+        @Override
+        public String toString() {
+            return "Position [exchange=" + exchange + ", tradingSymbol=" + tradingSymbol + ", productType="
+                    + productType + ", netQuantity=" + netQuantity + ", averagePrice=" + averagePrice
+                    + ", realizedPnl=" + realizedPnl + "]";
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.angelbroking.smartapi.orderupdate;
+
+import com.angelbroking.smartapi.smartstream.models.SmartStreamError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Decodes each order update once and fans the typed event out to any number
+ * of subscribers.
+ *
+ * Pass the dispatcher to OrderUpdateWebsocket as its listener. Subscribers are
+ * kept in an array that is replaced on subscribe and cancel, so delivering an
+ * update takes no lock and subscribers may come and go from any thread,
+ * including from within a callback. Each subscriber can narrow its updates
+ * with a filter, e.g. to one order id or one symbol. Acknowledgements without
+ * order data are not delivered. A subscriber that throws is logged and does
+ * not keep the update from the others.
+ */
+public class OrderUpdateDispatcher implements OrderUpdateListner {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderUpdateDispatcher.class);
+    private static final Subscription[] NONE = new Subscription[0];
+
+    /** Receives typed order updates. */
+    @FunctionalInterface
+    public interface OrderUpdateSubscriber {
+        void onOrderUpdate(OrderUpdateEvent event);
+    }
+
+    private final OrderUpdateListner connectionListener;
+    private final AtomicReference<Subscription[]> subscriptions = new AtomicReference<>(NONE);
+
+    public OrderUpdateDispatcher() {
+        this(null);
+    }
+
+    /**
+     * @param connectionListener receives connection callbacks and raw updates,
+     *                           may be null.
+     */
+    public OrderUpdateDispatcher(OrderUpdateListner connectionListener) {
+        this.connectionListener = connectionListener;
+    }
+
+    /** Delivers every order update to the subscriber. */
+    public Subscription subscribe(OrderUpdateSubscriber subscriber) {
+        return subscribe(subscriber, event -> true);
+    }
+
+    /** Delivers the order updates the filter accepts to the subscriber. */
+    public Subscription subscribe(OrderUpdateSubscriber subscriber, Predicate<OrderUpdateEvent> filter) {
+        if (subscriber == null || filter == null) {
+            throw new IllegalArgumentException("subscriber and filter should not be null");
+        }
+        Subscription subscription = new Subscription(subscriber, filter);
+        Subscription[] current;
+        Subscription[] updated;
+        do {
+            current = subscriptions.get();
+            updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = subscription;
+        } while (!subscriptions.compareAndSet(current, updated));
+        return subscription;
+    }
+
+    /** Delivers the updates of one order to the subscriber. */
+    public Subscription subscribeOrder(String orderId, OrderUpdateSubscriber subscriber) {
+        return subscribe(subscriber, forOrderId(orderId));
+    }
+
+    /** Delivers the updates of orders in one symbol to the subscriber. */
+    public Subscription subscribeSymbol(String exchange, String tradingSymbol, OrderUpdateSubscriber subscriber) {
+        return subscribe(subscriber, forSymbol(exchange, tradingSymbol));
+    }
+
+    public static Predicate<OrderUpdateEvent> forOrderId(String orderId) {
+        if (orderId == null) {
+            throw new IllegalArgumentException("orderId should not be null");
+        }
+        return event -> orderId.equals(event.getOrderId());
+    }
+
+    /**
+     * @param exchange may be null to match the symbol on any exchange.
+     */
+    public static Predicate<OrderUpdateEvent> forSymbol(String exchange, String tradingSymbol) {
+        if (tradingSymbol == null) {
+            throw new IllegalArgumentException("tradingSymbol should not be null");
+        }
+        return event -> tradingSymbol.equals(event.getTradingSymbol())
+                && (exchange == null || exchange.equals(event.getExchange()));
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.get().length;
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        Subscription[] current;
+        Subscription[] updated;
+        do {
+            current = subscriptions.get();
+            int index = -1;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == subscription) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return;
+            }
+            updated = new Subscription[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, updated.length - index);
+        } while (!subscriptions.compareAndSet(current, updated));
+    }
+
+    @Override
+    public void onOrderUpdate(String data) {
+        if (connectionListener != null) {
+            connectionListener.onOrderUpdate(data);
+        }
+        OrderUpdateEvent event;
+        try {
+            event = OrderUpdateEvent.parse(data);
+        } catch (IOException e) {
+            log.error("could not decode order update: {}", e.getMessage());
+            return;
+        }
+        if (event.hasOrder()) {
+            dispatch(event);
+        }
+    }
+
+    /** Delivers a decoded update to the matching subscribers on the calling thread. */
+    public void dispatch(OrderUpdateEvent event) {
+        for (Subscription subscription : subscriptions.get()) {
+            try {
+                if (subscription.filter.test(event)) {
+                    subscription.subscriber.onOrderUpdate(event);
+                }
+            } catch (RuntimeException e) {
+                log.error("order update subscriber failed for order {}", event.getOrderId(), e);
+            }
+        }
+    }
+
+    @Override
+    public void onConnected() {
+        if (connectionListener != null) {
+            connectionListener.onConnected();
+        }
+    }
+
+    @Override
+    public void onDisconnected() {
+        if (connectionListener != null) {
+            connectionListener.onDisconnected();
+        }
+    }
+
+    @Override
+    public void onError(SmartStreamError error) {
+        if (connectionListener != null) {
+            connectionListener.onError(error);
+        }
+    }
+
+    @Override
+    public void onPong() {
+        if (connectionListener != null) {
+            connectionListener.onPong();
+        }
+    }
+
+    /** A registered subscriber, cancel it to stop its updates. */
+    public final class Subscription implements AutoCloseable {
+        private final OrderUpdateSubscriber subscriber;
+        private final Predicate<OrderUpdateEvent> filter;
+
+        private Subscription(OrderUpdateSubscriber subscriber, Predicate<OrderUpdateEvent> filter) {
+            this.subscriber = subscriber;
+            this.filter = filter;
+        }
+
+        public void cancel() {
+            unsubscribe(this);
+        }
+
+        @Override
+        public void close() {
+            cancel();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.angelbroking.smartapi.orderupdate;
+
+import com.angelbroking.smartapi.utils.JsonUtils;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * One order update pushed by OrderUpdateWebsocket, decoded once from the text
+ * frame.
+ *
+ * Quantities and prices arrive as strings or numbers and are exposed as
+ * numbers, 0 when absent. The connection acknowledgement sent right after
+ * connecting has no order data, see {@link #hasOrder()}.
+ */
+public class OrderUpdateEvent {
+
+    private String userId;
+    private String statusCode;
+    private String orderStatusCode;
+    private String errorMessage;
+
+    private String orderId;
+    private String uniqueOrderId;
+    private String parentOrderId;
+    private String orderTag;
+    private String exchange;
+    private String tradingSymbol;
+    private String symbolToken;
+    private String transactionType;
+    private String orderType;
+    private String productType;
+    private String variety;
+    private String duration;
+    private String status;
+    private String text;
+    private int quantity;
+    private int filledShares;
+    private int unfilledShares;
+    private int cancelSize;
+    private double price;
+    private double triggerPrice;
+    private double averagePrice;
+    private String updateTime;
+    private String exchangeTime;
+    private String exchangeUpdateTime;
+    private String fillTime;
+
+    private OrderUpdateEvent() {
+
+    }
+
+    /**
+     * Decodes a text frame of the order update websocket.
+     *
+     * @throws IOException if the frame is not a JSON object.
+     */
+    public static OrderUpdateEvent parse(String frame) throws IOException {
+        try (JsonParser parser = JsonUtils.JSON_FACTORY.createParser(frame)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "order update is not a JSON object");
+            }
+            OrderUpdateEvent event = new OrderUpdateEvent();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                case "user-id": event.userId = text(parser, value); break;
+                case "status-code": event.statusCode = text(parser, value); break;
+                case "order-status": event.orderStatusCode = text(parser, value); break;
+                case "error-message": event.errorMessage = text(parser, value); break;
+                case "orderData":
+                    if (value == JsonToken.START_OBJECT) {
+                        event.parseOrderData(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                }
+            }
+            return event;
+        }
+    }
+
+    /** Decodes one order object, e.g. an entry of the order book. */
+    static OrderUpdateEvent parseOrder(String order) throws IOException {
+        try (JsonParser parser = JsonUtils.JSON_FACTORY.createParser(order)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "order is not a JSON object");
+            }
+            OrderUpdateEvent event = new OrderUpdateEvent();
+            event.parseOrderData(parser);
+            return event;
+        }
+    }
+
+    private void parseOrderData(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+            case "orderid": orderId = text(parser, value); break;
+            case "uniqueorderid": uniqueOrderId = text(parser, value); break;
+            case "parentorderid": parentOrderId = text(parser, value); break;
+            case "ordertag": orderTag = text(parser, value); break;
+            case "exchange": exchange = text(parser, value); break;
+            case "tradingsymbol": tradingSymbol = text(parser, value); break;
+            case "symboltoken": symbolToken = text(parser, value); break;
+            case "transactiontype": transactionType = text(parser, value); break;
+            case "ordertype": orderType = text(parser, value); break;
+            case "producttype": productType = text(parser, value); break;
+            case "variety": variety = text(parser, value); break;
+            case "duration": duration = text(parser, value); break;
+            case "orderstatus": status = text(parser, value); break;
+            case "text": text = text(parser, value); break;
+            case "quantity": quantity = parser.getValueAsInt(); break;
+            case "filledshares": filledShares = parser.getValueAsInt(); break;
+            case "unfilledshares": unfilledShares = parser.getValueAsInt(); break;
+            case "cancelsize": cancelSize = parser.getValueAsInt(); break;
+            case "price": price = parser.getValueAsDouble(); break;
+            case "triggerprice": triggerPrice = parser.getValueAsDouble(); break;
+            case "averageprice": averagePrice = parser.getValueAsDouble(); break;
+            case "updatetime": updateTime = text(parser, value); break;
+            case "exchtime": exchangeTime = text(parser, value); break;
+            case "exchorderupdatetime": exchangeUpdateTime = text(parser, value); break;
+            case "filltime": fillTime = text(parser, value); break;
+            default:
+            }
+        }
+    }
+
+    private static String text(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return value == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    /** Returns true if the frame carried order data, false for acknowledgements. */
+    public boolean hasOrder() {
+        return orderId != null && !orderId.isEmpty();
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getStatusCode() {
+        return statusCode;
+    }
+
+    /** Returns the update code, e.g. AB00 for the connection acknowledgement. */
+    public String getOrderStatusCode() {
+        return orderStatusCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getUniqueOrderId() {
+        return uniqueOrderId;
+    }
+
+    public String getParentOrderId() {
+        return parentOrderId;
+    }
+
+    public String getOrderTag() {
+        return orderTag;
+    }
+
+    public String getExchange() {
+        return exchange;
+    }
+
+    public String getTradingSymbol() {
+        return tradingSymbol;
+    }
+
+    public String getSymbolToken() {
+        return symbolToken;
+    }
+
+    public String getTransactionType() {
+        return transactionType;
+    }
+
+    public String getOrderType() {
+        return orderType;
+    }
+
+    public String getProductType() {
+        return productType;
+    }
+
+    public String getVariety() {
+        return variety;
+    }
+
+    public String getDuration() {
+        return duration;
+    }
+
+    /** Returns the order status, e.g. open, complete, rejected or cancelled. */
+    public String getStatus() {
+        return status;
+    }
+
+    /** Returns the rejection reason or other message of the exchange. */
+    public String getText() {
+        return text;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public int getFilledShares() {
+        return filledShares;
+    }
+
+    public int getUnfilledShares() {
+        return unfilledShares;
+    }
+
+    public int getCancelSize() {
+        return cancelSize;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public double getTriggerPrice() {
+        return triggerPrice;
+    }
+
+    public double getAveragePrice() {
+        return averagePrice;
+    }
+
+    public String getUpdateTime() {
+        return updateTime;
+    }
+
+    public String getExchangeTime() {
+        return exchangeTime;
+    }
+
+    public String getExchangeUpdateTime() {
+        return exchangeUpdateTime;
+    }
+
+    public String getFillTime() {
+        return fillTime;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderUpdateEvent [orderId=" + orderId + ", status=" + status + ", exchange=" + exchange
+                + ", tradingSymbol=" + tradingSymbol + ", transactionType=" + transactionType + ", quantity="
+                + quantity + ", filledShares=" + filledShares + ", averagePrice=" + averagePrice
+                + ", exchangeUpdateTime=" + exchangeUpdateTime + ", text=" + text + "]";
+    }
+}
@@ -2,6 +2,8 @@ package com.angelbroking.smartapi.orderupdate;
 
 import com.angelbroking.smartapi.Routes;
 import com.angelbroking.smartapi.smartstream.models.SmartStreamError;
+import com.angelbroking.smartapi.utils.HeartbeatScheduler;
+import com.angelbroking.smartapi.utils.ReconnectSupervisor;
 import com.angelbroking.smartapi.utils.Utils;
 import com.neovisionaries.ws.client.*;
 import org.apache.commons.lang.StringUtils;
@@ -9,11 +11,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
 public class OrderUpdateWebsocket {
     private static final Logger log = LoggerFactory.getLogger(OrderUpdateWebsocket.class);
@@ -21,14 +21,18 @@ public class OrderUpdateWebsocket {
     private static final String headerAuthorization = "Authorization";
     private static final Integer delayInMilliSeconds = 5000;
     private static final Integer periodInMilliSeconds = 5000;
+    private static final long pongTimeoutInMilliSeconds = 20000;
     private final Routes routes = new Routes();
     private final String wsuri = routes.getOrderUpdateUri();
     private WebSocket ws;
     private String accessToken;
     private final OrderUpdateListner orderUpdateListner;
 
-    private Timer pingTimer;
-    private LocalDateTime lastPongReceivedTime = LocalDateTime.now();
+    // registered by connect(), closed by disconnect()
+    private volatile HeartbeatScheduler.Connection liveness;
+    private final ReconnectSupervisor reconnectSupervisor = new ReconnectSupervisor("order updates", this::reconnect);
+    // set by disconnect(), any other disconnect is reconnected
+    private volatile boolean closing;
 
     /**
      * Initializes the OrderUpdateWebsocket.
@@ -96,11 +100,11 @@ public class OrderUpdateWebsocket {
             public void onDisconnected(WebSocket websocket, WebSocketFrame serverCloseFrame,
                                        WebSocketFrame clientCloseFrame, boolean closedByServer) {
                 try {
-                    if (closedByServer) {
-                        reconnect();
-                    } else {
-                        stopPingTimer();
-                        orderUpdateListner.onDisconnected();
+                    stopPingTimer();
+                    orderUpdateListner.onDisconnected();
+                    if (!closing) {
+                        // closed by the server, the network or a missing pong
+                        reconnectSupervisor.scheduleReconnect();
                     }
                 } catch (Exception e) {
                     SmartStreamError error = new SmartStreamError();
@@ -117,7 +121,7 @@ public class OrderUpdateWebsocket {
             @Override
             public void onPongFrame(WebSocket websocket, WebSocketFrame frame) throws Exception {
                 try {
-                    lastPongReceivedTime = LocalDateTime.now();
+                    liveness.onPong();
                     orderUpdateListner.onPong();
                 } catch (Exception e) {
                     SmartStreamError error = new SmartStreamError();
@@ -129,38 +133,55 @@ public class OrderUpdateWebsocket {
     }
 
     private void startPingTimer(final WebSocket websocket) {
-
-        pingTimer = new Timer();
-        pingTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    LocalDateTime currentTime = LocalDateTime.now();
-                    if (lastPongReceivedTime.isBefore(currentTime.minusSeconds(20))) {
-                        websocket.disconnect();
-                        reconnect();
-                    }
-                } catch (Exception e) {
-                    orderUpdateListner.onError(getErrorHolder(e));
-                }
-            }
-        }, delayInMilliSeconds, periodInMilliSeconds); // run at every 5 second
+        liveness.stop();
+        // onDisconnected schedules the reconnect
+        liveness.watchPongs(delayInMilliSeconds, periodInMilliSeconds, pongTimeoutInMilliSeconds,
+                TimeUnit.MILLISECONDS, websocket::disconnect);
     }
 
     private void stopPingTimer() {
-        if (Utils.validateInputNotNullCheck(pingTimer)) {
-            pingTimer.cancel();
-            pingTimer = null;
-        }
+        liveness.stop();
     }
 
     private void reconnect() throws WebSocketException {
+        if (closing) {
+            return;
+        }
         log.info("reconnect - started");
         init();
-        connect();
+        ws.connect();
         log.info("reconnect - done");
     }
 
+    /**
+     * Returns the supervisor that reconnects the websocket, e.g. to change its backoff.
+     * Updates sent while disconnected are not replayed, reconcile the order book
+     * on {@link OrderUpdateListner#onConnected()}.
+     */
+    public ReconnectSupervisor getReconnectSupervisor() {
+        return reconnectSupervisor;
+    }
+
+    /**
+     * Returns the heartbeat counters of the websocket, e.g. the time since the last pong,
+     * null before it first connects.
+     */
+    public HeartbeatScheduler.Connection getLiveness() {
+        return liveness;
+    }
+
+    /** Disconnects the websocket without reconnecting. */
+    public void disconnect() {
+        closing = true;
+        reconnectSupervisor.cancel();
+        if (liveness != null) {
+            liveness.close();
+        }
+        if (ws != null) {
+            ws.disconnect();
+        }
+    }
+
     private SmartStreamError getErrorHolder(Exception e) {
         SmartStreamError error = new SmartStreamError();
         error.setException(e);
@@ -168,6 +189,10 @@ public class OrderUpdateWebsocket {
     }
 
     public void connect() throws WebSocketException {
+        closing = false;
+        if (liveness == null || liveness.isClosed()) {
+            liveness = HeartbeatScheduler.getDefault().register("order updates");
+        }
         ws.connect();
         log.info("connected to uri: {}", wsuri);
     }
@@ -8,8 +8,6 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.DataFormatException;
 import java.util.zip.InflaterOutputStream;
@@ -21,6 +19,7 @@ import org.json.JSONObject;
 
 import com.angelbroking.smartapi.Routes;
 import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+import com.angelbroking.smartapi.utils.HeartbeatScheduler;
 import com.angelbroking.smartapi.utils.NaiveSSLContext;
 import com.neovisionaries.ws.client.WebSocket;
 import com.neovisionaries.ws.client.WebSocketAdapter;
@@ -42,6 +41,8 @@ public class SmartWebsocket {
 	private String apiKey;
 	private String actionType;
 	private String feedType;
+	// registered by connect(), closed by disconnect()
+	private volatile HeartbeatScheduler.Connection heartbeat;
 
 	/**
 	 * Initialize SmartAPITicker.
@@ -129,8 +130,9 @@ public class SmartWebsocket {
 					}
 				};
 
-				ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor();
-				service.scheduleAtFixedRate(runnable, 0, 1, TimeUnit.MINUTES);
+				// a reconnect replaces the heartbeat of the previous socket
+				heartbeat.stop();
+				heartbeat.scheduleHeartbeat(runnable, 0, 1, TimeUnit.MINUTES);
 
 			}
 
@@ -171,6 +173,7 @@ public class SmartWebsocket {
 			@Override
 			public void onDisconnected(WebSocket websocket, WebSocketFrame serverCloseFrame,
 					WebSocketFrame clientCloseFrame, boolean closedByServer) {
+				heartbeat.stop();
 				if (onDisconnectedListener != null) {
 					onDisconnectedListener.onDisconnected();
 				}
@@ -194,12 +197,21 @@ public class SmartWebsocket {
 
 	/** Disconnects websocket connection. */
 	public void disconnect() {
-
+		if (heartbeat != null) {
+			heartbeat.close();
+		}
 		if (ws != null && ws.isOpen()) {
 			ws.disconnect();
 		}
 	}
 
+	/**
+	 * Returns the heartbeat counters of the websocket, null before it first connects.
+	 */
+	public HeartbeatScheduler.Connection getLiveness() {
+		return heartbeat;
+	}
+
 	/**
 	 * Returns true if websocket connection is open.
 	 * 
@@ -253,6 +265,9 @@ public class SmartWebsocket {
 	}
 
 	public void connect() {
+		if (heartbeat == null || heartbeat.isClosed()) {
+			heartbeat = HeartbeatScheduler.getDefault().register("smart websocket");
+		}
 		try {
 			ws.connect();
 		} catch (WebSocketException e) {
@@ -0,0 +1,379 @@
+package com.angelbroking.smartapi.smartstream.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.angelbroking.smartapi.SmartConnect;
+import com.angelbroking.smartapi.smartstream.models.*;
+import com.angelbroking.smartapi.smartstream.ticker.SmartStreamListener;
+import com.angelbroking.smartapi.smartstream.ticker.SmartStreamTicker;
+import com.angelbroking.smartapi.smartstream.ticker.SmartStreamViewListener;
+import com.angelbroking.smartapi.utils.Utils;
+import com.neovisionaries.ws.client.WebSocketException;
+
+/**
+ * Keeps the latest LTP, quote and top of book of every token streamed by a SmartStreamTicker.
+ *
+ * Every token owns a seqlock slot in a page of primitive longs. The feed thread
+ * writes a slot without locking and readers on any thread copy it into a
+ * {@link MarketDataSnapshot}, retrying only if they raced with a write, so
+ * neither side ever blocks. {@link #getLTP(String, String, String)} mirrors
+ * {@link SmartConnect#getLTP(String, String, String)} and only goes over REST
+ * when the streamed price is missing or older than the configured max age.
+ */
+public class MarketDataCache implements SmartStreamViewListener {
+	private static final Logger log = LoggerFactory.getLogger(MarketDataCache.class);
+
+	private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+
+	// slot layout, one long per field
+	static final int SEQUENCE = 0;
+	static final int FLAGS = 1;
+	static final int EXCHANGE_FEED_TIME = 2;
+	static final int LAST_TRADED_PRICE = 3;
+	static final int LAST_TRADED_QTY = 4;
+	static final int AVG_TRADED_PRICE = 5;
+	static final int VOLUME_TRADED_TODAY = 6;
+	static final int TOTAL_BUY_QTY = 7;
+	static final int TOTAL_SELL_QTY = 8;
+	static final int OPEN_PRICE = 9;
+	static final int HIGH_PRICE = 10;
+	static final int LOW_PRICE = 11;
+	static final int CLOSE_PRICE = 12;
+	static final int BEST_BID_PRICE = 13;
+	static final int BEST_BID_QTY = 14;
+	static final int BEST_ASK_PRICE = 15;
+	static final int BEST_ASK_QTY = 16;
+	static final int RECEIVED_AT = 17;
+	static final int TOP_OF_BOOK_RECEIVED_AT = 18;
+	private static final int SLOT_SIZE = 19;
+
+	static final long FLAG_LTP = 1;
+	static final long FLAG_QUOTE = 2;
+	static final long FLAG_TOP_OF_BOOK = 4;
+
+	private static final int PAGE_SHIFT = 8;
+	private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+	private static final int MAX_PAGES = 1 << 14;
+
+	private static final Map<String, ExchangeType> EXCHANGES = new HashMap<>();
+
+	static {
+		for (ExchangeType exchangeType : ExchangeType.values()) {
+			EXCHANGES.put(exchangeType.getExchange(), exchangeType);
+		}
+	}
+
+	private final SmartConnect smartConnect;
+	private final long maxAgeMillis;
+	private final SmartStreamListener delegate;
+	private final SmartStreamTicker ticker;
+	private final TokenRegistry tokenRegistry = TokenRegistry.getDefault();
+	private final AtomicReferenceArray<long[]> pages = new AtomicReferenceArray<>(MAX_PAGES);
+	private final AtomicLong cacheHits = new AtomicLong();
+	private final AtomicLong restFallbacks = new AtomicLong();
+
+	/**
+	 * Creates a cache that is fed by a ticker of the caller. Pass the cache as the
+	 * listener of a SmartStreamTicker or ShardedSmartStreamClient.
+	 *
+	 * @param smartConnect - used when a price is missing or stale
+	 * @param maxAgeMillis - age after which a streamed price is considered stale
+	 * @param delegate     - optional listener that receives the connection callbacks, and the
+	 *                       packet views if it is a SmartStreamViewListener
+	 */
+	public MarketDataCache(SmartConnect smartConnect, long maxAgeMillis, SmartStreamListener delegate) {
+		if (Utils.validateInputNullCheck(smartConnect) || maxAgeMillis <= 0) {
+			throw new IllegalArgumentException("smartConnect should not be null and maxAgeMillis should be greater than zero");
+		}
+		this.smartConnect = smartConnect;
+		this.maxAgeMillis = maxAgeMillis;
+		this.delegate = delegate;
+		this.ticker = null;
+	}
+
+	/**
+	 * Creates a cache with its own SmartStreamTicker, subscribe through {@link #subscribe(SmartStreamSubsMode, Set)}.
+	 *
+	 * @param clientId     - the client ID used for authentication
+	 * @param feedToken    - the feed token used for authentication
+	 * @param smartConnect - used when a price is missing or stale
+	 * @param maxAgeMillis - age after which a streamed price is considered stale
+	 */
+	public MarketDataCache(String clientId, String feedToken, SmartConnect smartConnect, long maxAgeMillis) {
+		if (Utils.validateInputNullCheck(smartConnect) || maxAgeMillis <= 0) {
+			throw new IllegalArgumentException("smartConnect should not be null and maxAgeMillis should be greater than zero");
+		}
+		this.smartConnect = smartConnect;
+		this.maxAgeMillis = maxAgeMillis;
+		this.delegate = null;
+		this.ticker = new SmartStreamTicker(clientId, feedToken, this);
+	}
+
+	/** Connects the ticker owned by this cache. */
+	public void connect() throws WebSocketException {
+		requireTicker().connect();
+	}
+
+	/** Disconnects the ticker owned by this cache. */
+	public void disconnect() {
+		requireTicker().disconnect();
+	}
+
+	public void subscribe(SmartStreamSubsMode mode, Set<TokenID> tokens) {
+		requireTicker().subscribe(mode, tokens);
+	}
+
+	public void unsubscribe(SmartStreamSubsMode mode, Set<TokenID> tokens) {
+		requireTicker().unsubscribe(mode, tokens);
+	}
+
+	private SmartStreamTicker requireTicker() {
+		if (ticker == null) {
+			throw new IllegalStateException("this cache is fed by an external ticker");
+		}
+		return ticker;
+	}
+
+	/**
+	 * Copies the latest data of a token into the given snapshot.
+	 *
+	 * @return false if nothing has been streamed for the token yet
+	 */
+	public boolean read(TokenID token, MarketDataSnapshot snapshot) {
+		int id = tokenRegistry.lookup(token);
+		if (id < 0) {
+			return false;
+		}
+		long[] page = pages.get(id >>> PAGE_SHIFT);
+		if (page == null) {
+			return false;
+		}
+		int base = (id & PAGE_MASK) * SLOT_SIZE;
+		while (true) {
+			long sequence = (long) SLOT.getAcquire(page, base + SEQUENCE);
+			if (sequence == 0) {
+				return false;
+			}
+			if ((sequence & 1) == 0) {
+				snapshot.set(tokenRegistry.get(id), page, base);
+				VarHandle.loadLoadFence();
+				if ((long) SLOT.getOpaque(page, base + SEQUENCE) == sequence) {
+					return true;
+				}
+			}
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the latest data of a token, or null if nothing has been streamed for it yet.
+	 */
+	public MarketDataSnapshot getSnapshot(TokenID token) {
+		MarketDataSnapshot snapshot = new MarketDataSnapshot();
+		return read(token, snapshot) ? snapshot : null;
+	}
+
+	/**
+	 * Returns true if the last traded price of the snapshot is older than the max age of this cache.
+	 */
+	public boolean isStale(MarketDataSnapshot snapshot) {
+		return System.currentTimeMillis() - snapshot.getReceivedAtEpochMillis() > maxAgeMillis;
+	}
+
+	/**
+	 * Drop-in replacement for {@link SmartConnect#getLTP(String, String, String)}.
+	 *
+	 * Answers from the stream when a fresh price is cached and falls back to REST
+	 * otherwise. Streamed answers carry open, high, low and close only if the
+	 * token is subscribed in QUOTE mode or above.
+	 *
+	 * @return JSONObject in the format of the REST response data, or null on error.
+	 */
+	public JSONObject getLTP(String exchange, String tradingSymbol, String symboltoken) {
+		ExchangeType exchangeType = EXCHANGES.get(exchange);
+		if (exchangeType != null) {
+			MarketDataSnapshot snapshot = new MarketDataSnapshot();
+			if (read(new TokenID(exchangeType, symboltoken), snapshot) && !isStale(snapshot)) {
+				cacheHits.incrementAndGet();
+				double divisor = exchangeType == ExchangeType.CDE_FO ? 10000000.0 : 100.0;
+				JSONObject data = new JSONObject();
+				data.put("exchange", exchange);
+				data.put("tradingsymbol", tradingSymbol);
+				data.put("symboltoken", symboltoken);
+				if (snapshot.hasQuote()) {
+					data.put("open", snapshot.getOpenPrice() / divisor);
+					data.put("high", snapshot.getHighPrice() / divisor);
+					data.put("low", snapshot.getLowPrice() / divisor);
+					data.put("close", snapshot.getClosePrice() / divisor);
+				}
+				data.put("ltp", snapshot.getLastTradedPrice() / divisor);
+				return data;
+			}
+		}
+		restFallbacks.incrementAndGet();
+		log.debug("no fresh streamed price for {} {}, falling back to REST", exchange, symboltoken);
+		return smartConnect.getLTP(exchange, tradingSymbol, symboltoken);
+	}
+
+	/** Number of getLTP calls answered from the stream. */
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	/** Number of getLTP calls that went over REST. */
+	public long getRestFallbacks() {
+		return restFallbacks.get();
+	}
+
+	@Override
+	public void onLTPViewArrival(LTPView ltp) {
+		long[] page = page(ltp.getTokenIndex());
+		int base = (ltp.getTokenIndex() & PAGE_MASK) * SLOT_SIZE;
+		long sequence = beginWrite(page, base);
+		page[base + FLAGS] |= FLAG_LTP;
+		writeLtp(page, base, ltp);
+		endWrite(page, base, sequence);
+		if (delegate instanceof SmartStreamViewListener) {
+			((SmartStreamViewListener) delegate).onLTPViewArrival(ltp);
+		}
+	}
+
+	@Override
+	public void onQuoteViewArrival(QuoteView quote) {
+		long[] page = page(quote.getTokenIndex());
+		int base = (quote.getTokenIndex() & PAGE_MASK) * SLOT_SIZE;
+		long sequence = beginWrite(page, base);
+		page[base + FLAGS] |= FLAG_LTP | FLAG_QUOTE;
+		writeLtp(page, base, quote);
+		writeQuote(page, base, quote);
+		endWrite(page, base, sequence);
+		if (delegate instanceof SmartStreamViewListener) {
+			((SmartStreamViewListener) delegate).onQuoteViewArrival(quote);
+		}
+	}
+
+	@Override
+	public void onSnapQuoteViewArrival(SnapQuoteView snapQuote) {
+		long[] page = page(snapQuote.getTokenIndex());
+		int base = (snapQuote.getTokenIndex() & PAGE_MASK) * SLOT_SIZE;
+		long sequence = beginWrite(page, base);
+		page[base + FLAGS] |= FLAG_LTP | FLAG_QUOTE | FLAG_TOP_OF_BOOK;
+		writeLtp(page, base, snapQuote);
+		writeQuote(page, base, snapQuote);
+		page[base + BEST_BID_PRICE] = snapQuote.getBestFiveBuyPrice(0);
+		page[base + BEST_BID_QTY] = snapQuote.getBestFiveBuyQuantity(0);
+		page[base + BEST_ASK_PRICE] = snapQuote.getBestFiveSellPrice(0);
+		page[base + BEST_ASK_QTY] = snapQuote.getBestFiveSellQuantity(0);
+		page[base + TOP_OF_BOOK_RECEIVED_AT] = page[base + RECEIVED_AT];
+		endWrite(page, base, sequence);
+		if (delegate instanceof SmartStreamViewListener) {
+			((SmartStreamViewListener) delegate).onSnapQuoteViewArrival(snapQuote);
+		}
+	}
+
+	@Override
+	public void onDepthViewArrival(DepthView depth) {
+		long[] page = page(depth.getTokenIndex());
+		int base = (depth.getTokenIndex() & PAGE_MASK) * SLOT_SIZE;
+		long sequence = beginWrite(page, base);
+		page[base + FLAGS] |= FLAG_TOP_OF_BOOK;
+		page[base + BEST_BID_PRICE] = depth.getBestTwentyBuyPrice(0);
+		page[base + BEST_BID_QTY] = depth.getBestTwentyBuyQuantity(0);
+		page[base + BEST_ASK_PRICE] = depth.getBestTwentySellPrice(0);
+		page[base + BEST_ASK_QTY] = depth.getBestTwentySellQuantity(0);
+		page[base + TOP_OF_BOOK_RECEIVED_AT] = System.currentTimeMillis();
+		endWrite(page, base, sequence);
+		if (delegate instanceof SmartStreamViewListener) {
+			((SmartStreamViewListener) delegate).onDepthViewArrival(depth);
+		}
+	}
+
+	private static void writeLtp(long[] page, int base, LTPView ltp) {
+		page[base + EXCHANGE_FEED_TIME] = ltp.getExchangeFeedTimeEpochMillis();
+		page[base + LAST_TRADED_PRICE] = ltp.getLastTradedPrice();
+		page[base + RECEIVED_AT] = System.currentTimeMillis();
+	}
+
+	private static void writeQuote(long[] page, int base, QuoteView quote) {
+		page[base + LAST_TRADED_QTY] = quote.getLastTradedQty();
+		page[base + AVG_TRADED_PRICE] = quote.getAvgTradedPrice();
+		page[base + VOLUME_TRADED_TODAY] = quote.getVolumeTradedToday();
+		page[base + TOTAL_BUY_QTY] = Double.doubleToRawLongBits(quote.getTotalBuyQty());
+		page[base + TOTAL_SELL_QTY] = Double.doubleToRawLongBits(quote.getTotalSellQty());
+		page[base + OPEN_PRICE] = quote.getOpenPrice();
+		page[base + HIGH_PRICE] = quote.getHighPrice();
+		page[base + LOW_PRICE] = quote.getLowPrice();
+		page[base + CLOSE_PRICE] = quote.getClosePrice();
+	}
+
+	private long[] page(int id) {
+		int index = id >>> PAGE_SHIFT;
+		long[] page = pages.get(index);
+		if (page == null) {
+			pages.compareAndSet(index, null, new long[(PAGE_MASK + 1) * SLOT_SIZE]);
+			page = pages.get(index);
+		}
+		return page;
+	}
+
+	private static long beginWrite(long[] page, int base) {
+		// a token is normally written by a single thread, the CAS only guards against overlapping feeds
+		while (true) {
+			long sequence = (long) SLOT.getVolatile(page, base + SEQUENCE);
+			if ((sequence & 1) == 0 && SLOT.compareAndSet(page, base + SEQUENCE, sequence, sequence + 1)) {
+				VarHandle.storeStoreFence();
+				return sequence + 1;
+			}
+			Thread.onSpinWait();
+		}
+	}
+
+	private static void endWrite(long[] page, int base, long sequence) {
+		SLOT.setRelease(page, base + SEQUENCE, sequence + 1);
+	}
+
+	@Override
+	public void onConnected() {
+		if (delegate != null) {
+			delegate.onConnected();
+		}
+	}
+
+	@Override
+	public void onDisconnected() {
+		if (delegate != null) {
+			delegate.onDisconnected();
+		}
+	}
+
+	@Override
+	public void onError(SmartStreamError error) {
+		if (delegate != null) {
+			delegate.onError(error);
+		} else {
+			log.error("smartstream error", error.getException());
+		}
+	}
+
+	@Override
+	public void onPong() {
+		if (delegate != null) {
+			delegate.onPong();
+		}
+	}
+
+	@Override
+	public SmartStreamError onErrorCustom() {
+		return delegate != null ? delegate.onErrorCustom() : null;
+	}
+}
@@ -0,0 +1,140 @@
+package com.angelbroking.smartapi.smartstream.cache;
+
+import com.angelbroking.smartapi.smartstream.models.TokenID;
+
+/**
+ * Consistent copy of the latest market data of a token, filled by {@link MarketDataCache}.
+ *
+ * Prices are in the units of the SmartStream feed (paise for most segments).
+ * A snapshot can be reused across reads to avoid allocating.
+ */
+public class MarketDataSnapshot {
+	private TokenID token;
+	private boolean hasQuote;
+	private boolean hasTopOfBook;
+	private long exchangeFeedTimeEpochMillis;
+	private long lastTradedPrice;
+	private long lastTradedQty;
+	private long avgTradedPrice;
+	private long volumeTradedToday;
+	private double totalBuyQty;
+	private double totalSellQty;
+	private long openPrice;
+	private long highPrice;
+	private long lowPrice;
+	private long closePrice;
+	private long bestBidPrice;
+	private long bestBidQty;
+	private long bestAskPrice;
+	private long bestAskQty;
+	private long receivedAtEpochMillis;
+	private long topOfBookReceivedAtEpochMillis;
+
+	public TokenID getToken() {
+		return token;
+	}
+
+	/** True once a QUOTE or SNAP_QUOTE packet has been received, i.e. the quote fields are set. */
+	public boolean hasQuote() {
+		return hasQuote;
+	}
+
+	/** True once a SNAP_QUOTE or DEPTH_20 packet has been received, i.e. the best bid and ask are set. */
+	public boolean hasTopOfBook() {
+		return hasTopOfBook;
+	}
+
+	public long getExchangeFeedTimeEpochMillis() {
+		return exchangeFeedTimeEpochMillis;
+	}
+
+	public long getLastTradedPrice() {
+		return lastTradedPrice;
+	}
+
+	public long getLastTradedQty() {
+		return lastTradedQty;
+	}
+
+	public long getAvgTradedPrice() {
+		return avgTradedPrice;
+	}
+
+	public long getVolumeTradedToday() {
+		return volumeTradedToday;
+	}
+
+	public double getTotalBuyQty() {
+		return totalBuyQty;
+	}
+
+	public double getTotalSellQty() {
+		return totalSellQty;
+	}
+
+	public long getOpenPrice() {
+		return openPrice;
+	}
+
+	public long getHighPrice() {
+		return highPrice;
+	}
+
+	public long getLowPrice() {
+		return lowPrice;
+	}
+
+	public long getClosePrice() {
+		return closePrice;
+	}
+
+	public long getBestBidPrice() {
+		return bestBidPrice;
+	}
+
+	public long getBestBidQty() {
+		return bestBidQty;
+	}
+
+	public long getBestAskPrice() {
+		return bestAskPrice;
+	}
+
+	public long getBestAskQty() {
+		return bestAskQty;
+	}
+
+	/** Local time at which the last traded price was last updated. */
+	public long getReceivedAtEpochMillis() {
+		return receivedAtEpochMillis;
+	}
+
+	/** Local time at which the best bid and ask were last updated. */
+	public long getTopOfBookReceivedAtEpochMillis() {
+		return topOfBookReceivedAtEpochMillis;
+	}
+
+	void set(TokenID token, long[] slot, int base) {
+		this.token = token;
+		long flags = slot[base + MarketDataCache.FLAGS];
+		this.hasQuote = (flags & MarketDataCache.FLAG_QUOTE) != 0;
+		this.hasTopOfBook = (flags & MarketDataCache.FLAG_TOP_OF_BOOK) != 0;
+		this.exchangeFeedTimeEpochMillis = slot[base + MarketDataCache.EXCHANGE_FEED_TIME];
+		this.lastTradedPrice = slot[base + MarketDataCache.LAST_TRADED_PRICE];
+		this.lastTradedQty = slot[base + MarketDataCache.LAST_TRADED_QTY];
+		this.avgTradedPrice = slot[base + MarketDataCache.AVG_TRADED_PRICE];
+		this.volumeTradedToday = slot[base + MarketDataCache.VOLUME_TRADED_TODAY];
+		this.totalBuyQty = Double.longBitsToDouble(slot[base + MarketDataCache.TOTAL_BUY_QTY]);
+		this.totalSellQty = Double.longBitsToDouble(slot[base + MarketDataCache.TOTAL_SELL_QTY]);
+		this.openPrice = slot[base + MarketDataCache.OPEN_PRICE];
+		this.highPrice = slot[base + MarketDataCache.HIGH_PRICE];
+		this.lowPrice = slot[base + MarketDataCache.LOW_PRICE];
+		this.closePrice = slot[base + MarketDataCache.CLOSE_PRICE];
+		this.bestBidPrice = slot[base + MarketDataCache.BEST_BID_PRICE];
+		this.bestBidQty = slot[base + MarketDataCache.BEST_BID_QTY];
+		this.bestAskPrice = slot[base + MarketDataCache.BEST_ASK_PRICE];
+		this.bestAskQty = slot[base + MarketDataCache.BEST_ASK_QTY];
+		this.receivedAtEpochMillis = slot[base + MarketDataCache.RECEIVED_AT];
+		this.topOfBookReceivedAtEpochMillis = slot[base + MarketDataCache.TOP_OF_BOOK_RECEIVED_AT];
+	}
+}
@@ -0,0 +1,376 @@
+package com.angelbroking.smartapi.smartstream.candle;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.angelbroking.smartapi.models.Candle;
+import com.angelbroking.smartapi.smartstream.models.*;
+import com.angelbroking.smartapi.utils.Utils;
+
+/**
+ * Builds OHLCV candles of several intervals at once from SmartStream ticks.
+ *
+ * Ticks are bucketed by exchange feed time, aligned to the session open like
+ * the historical candle API (09:15, 10:15, ... for hourly NSE candles), and
+ * ticks outside the session are ignored. A candle is emitted once a tick of a
+ * later bucket arrives, or from {@link #advanceTo(long)} and {@link #flush()}.
+ * With an allowed lateness, a completed candle is held back for that long so
+ * that out of order packets still land in it; packets later than that are
+ * dropped and counted, and the volume they carry is added to the open candle.
+ *
+ * Each token keeps two candles per interval, so memory per token is bounded.
+ * Volume is derived from the cumulative day volume of QUOTE and SNAP_QUOTE
+ * packets; candles built from LTP packets only have zero volume.
+ */
+public class CandleAggregator {
+	private static final Logger log = LoggerFactory.getLogger(CandleAggregator.class);
+
+	public static final ZoneId TZ_IST = ZoneId.of("Asia/Kolkata");
+	public static final Set<CandleInterval> DEFAULT_INTERVALS = EnumSet.of(CandleInterval.ONE_MINUTE,
+			CandleInterval.THREE_MINUTE, CandleInterval.FIVE_MINUTE, CandleInterval.FIFTEEN_MINUTE, CandleInterval.ONE_HOUR);
+
+	private final CandleListener candleListener;
+	private final CandleInterval[] intervals;
+	private final LocalTime sessionOpen;
+	private final LocalTime sessionClose;
+	private final ZoneId zone;
+	private final long allowedLatenessMillis;
+	private final ConcurrentHashMap<TokenID, TokenState> states = new ConcurrentHashMap<>();
+	private final AtomicLong lateTicks = new AtomicLong();
+	private final AtomicLong outOfSessionTicks = new AtomicLong();
+	private volatile Session session;
+
+	/**
+	 * Creates an aggregator for 1m, 3m, 5m, 15m and 1h candles of the NSE session (09:15 to 15:30 IST).
+	 */
+	public CandleAggregator(CandleListener candleListener) {
+		this(candleListener, DEFAULT_INTERVALS, LocalTime.of(9, 15), LocalTime.of(15, 30), TZ_IST, 0);
+	}
+
+	/**
+	 * @param candleListener        - receives the completed candles
+	 * @param intervals             - intervals to build
+	 * @param sessionOpen           - session open, candles are aligned to it
+	 * @param sessionClose          - session close, ticks at or after it are ignored
+	 * @param zone                  - time zone of the session times
+	 * @param allowedLatenessMillis - how long a completed candle waits for out of order packets,
+	 *                                must be shorter than the smallest interval
+	 */
+	public CandleAggregator(CandleListener candleListener, Set<CandleInterval> intervals, LocalTime sessionOpen,
+			LocalTime sessionClose, ZoneId zone, long allowedLatenessMillis) {
+		if (Utils.validateInputNullCheck(candleListener) || intervals == null || intervals.isEmpty()
+				|| Utils.validateInputNullCheck(sessionOpen) || Utils.validateInputNullCheck(sessionClose)
+				|| Utils.validateInputNullCheck(zone)) {
+			throw new IllegalArgumentException("candleListener, intervals, session times and zone should not be empty or null");
+		}
+		if (!sessionOpen.isBefore(sessionClose)) {
+			throw new IllegalArgumentException("sessionOpen should be before sessionClose");
+		}
+		this.candleListener = candleListener;
+		this.intervals = EnumSet.copyOf(intervals).toArray(new CandleInterval[0]);
+		if (allowedLatenessMillis < 0 || allowedLatenessMillis >= this.intervals[0].getMillis()) {
+			throw new IllegalArgumentException("allowedLatenessMillis should be between zero and the smallest interval");
+		}
+		this.sessionOpen = sessionOpen;
+		this.sessionClose = sessionClose;
+		this.zone = zone;
+		this.allowedLatenessMillis = allowedLatenessMillis;
+	}
+
+	public void onLTP(LTP ltp) {
+		onTick(ltp.getToken(), ltp.getExchangeFeedTimeEpochMillis(), ltp.getLastTradedPrice(), -1);
+	}
+
+	public void onQuote(Quote quote) {
+		onTick(quote.getToken(), quote.getExchangeFeedTimeEpochMillis(), quote.getLastTradedPrice(), quote.getVolumeTradedToday());
+	}
+
+	public void onSnapQuote(SnapQuote snapQuote) {
+		onTick(snapQuote.getToken(), snapQuote.getExchangeFeedTimeEpochMillis(), snapQuote.getLastTradedPrice(),
+				snapQuote.getVolumeTradedToday());
+	}
+
+	public void onLTPView(LTPView ltp) {
+		onTick(ltp.getTokenID(), ltp.getExchangeFeedTimeEpochMillis(), ltp.getLastTradedPrice(), -1);
+	}
+
+	/** Also accepts SnapQuoteViews. */
+	public void onQuoteView(QuoteView quote) {
+		onTick(quote.getTokenID(), quote.getExchangeFeedTimeEpochMillis(), quote.getLastTradedPrice(), quote.getVolumeTradedToday());
+	}
+
+	/**
+	 * Adds a tick to the candles of a token.
+	 *
+	 * @param token                       - the token the tick belongs to
+	 * @param exchangeFeedTimeEpochMillis - exchange time of the tick
+	 * @param lastTradedPrice             - price in feed units (paise for most segments)
+	 * @param volumeTradedToday           - cumulative day volume, or -1 if unknown
+	 */
+	public void onTick(TokenID token, long exchangeFeedTimeEpochMillis, long lastTradedPrice, long volumeTradedToday) {
+		Session s = session(exchangeFeedTimeEpochMillis);
+		if (exchangeFeedTimeEpochMillis < s.open || exchangeFeedTimeEpochMillis >= s.close) {
+			outOfSessionTicks.incrementAndGet();
+			return;
+		}
+		TokenState state = states.get(token);
+		if (state == null) {
+			state = states.computeIfAbsent(token, t -> new TokenState(intervals.length));
+		}
+		synchronized (state) {
+			long volume = state.volumeDelta(s.open, volumeTradedToday);
+			boolean dropped = false;
+			for (int k = 0; k < intervals.length; k++) {
+				dropped |= !update(token, state, k, s, exchangeFeedTimeEpochMillis, lastTradedPrice, volume);
+			}
+			if (dropped) {
+				lateTicks.incrementAndGet();
+			}
+		}
+	}
+
+	private boolean update(TokenID token, TokenState state, int k, Session s, long time, long price, long volume) {
+		CandleInterval interval = intervals[k];
+		long start = s.open + ((time - s.open) / interval.getMillis()) * interval.getMillis();
+		Bar current = state.current[k];
+		Bar pending = state.pending[k];
+		if (pending.active && time >= pending.end + allowedLatenessMillis) {
+			emit(token, state, k, pending);
+		}
+		if (start < state.emittedUntil[k]) {
+			// the candle of this tick has already been emitted
+			addLateVolume(state, k, volume);
+			return false;
+		}
+		if (!current.active) {
+			current.reset(start, Math.min(start + interval.getMillis(), s.close), time, price,
+					volume + state.takeLateVolume(k));
+			return true;
+		}
+		if (start == current.start) {
+			current.add(time, price, volume);
+			return true;
+		}
+		if (start > current.start) {
+			if (pending.active) {
+				emit(token, state, k, pending);
+			}
+			if (time >= current.end + allowedLatenessMillis) {
+				emit(token, state, k, current);
+			} else {
+				// hold the completed candle back for late packets, the idle pending bar is reused as current
+				state.pending[k] = current;
+				state.current[k] = pending;
+				current = pending;
+			}
+			current.reset(start, Math.min(start + interval.getMillis(), s.close), time, price,
+					volume + state.takeLateVolume(k));
+			return true;
+		}
+		if (pending.active && start == pending.start) {
+			pending.add(time, price, volume);
+			return true;
+		}
+		addLateVolume(state, k, volume);
+		return false;
+	}
+
+	// the cumulative volume baseline has already moved past a dropped tick, so its volume is kept
+	private static void addLateVolume(TokenState state, int k, long volume) {
+		if (state.current[k].active) {
+			state.current[k].volume += volume;
+		} else {
+			state.lateVolume[k] += volume;
+		}
+	}
+
+	/**
+	 * Emits every candle that ended at least the allowed lateness before the given exchange time.
+	 * Call it periodically to close the candles of tokens that stopped ticking.
+	 */
+	public void advanceTo(long exchangeTimeEpochMillis) {
+		states.forEach((token, state) -> {
+			synchronized (state) {
+				for (int k = 0; k < intervals.length; k++) {
+					if (state.pending[k].active && exchangeTimeEpochMillis >= state.pending[k].end + allowedLatenessMillis) {
+						emit(token, state, k, state.pending[k]);
+					}
+					if (state.current[k].active && exchangeTimeEpochMillis >= state.current[k].end + allowedLatenessMillis) {
+						emit(token, state, k, state.current[k]);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Emits all open candles, e.g. at the end of the session.
+	 */
+	public void flush() {
+		states.forEach((token, state) -> {
+			synchronized (state) {
+				for (int k = 0; k < intervals.length; k++) {
+					if (state.pending[k].active) {
+						emit(token, state, k, state.pending[k]);
+					}
+					if (state.current[k].active) {
+						emit(token, state, k, state.current[k]);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Drops the state of a token without emitting its open candles.
+	 */
+	public void remove(TokenID token) {
+		states.remove(token);
+	}
+
+	/** Number of ticks that were too late for the candle they belong to. */
+	public long getLateTicks() {
+		return lateTicks.get();
+	}
+
+	/** Number of ticks outside the session that were ignored. */
+	public long getOutOfSessionTicks() {
+		return outOfSessionTicks.get();
+	}
+
+	private void emit(TokenID token, TokenState state, int k, Bar bar) {
+		CandleInterval interval = intervals[k];
+		bar.active = false;
+		state.emittedUntil[k] = Math.max(state.emittedUntil[k], bar.end);
+		double divisor = token.getExchangeType() == ExchangeType.CDE_FO ? 10000000.0 : 100.0;
+		Candle candle = new Candle(new Date(bar.start), bar.open / divisor, bar.high / divisor, bar.low / divisor,
+				bar.close / divisor, bar.volume);
+		try {
+			candleListener.onCandle(token, interval, candle);
+		} catch (Exception e) {
+			log.error("candle listener failed for {} {}", token, interval, e);
+		}
+	}
+
+	private Session session(long time) {
+		Session s = session;
+		if (s != null && time >= s.dayStart && time < s.dayEnd) {
+			return s;
+		}
+		LocalDate date = Instant.ofEpochMilli(time).atZone(zone).toLocalDate();
+		s = new Session(date.atStartOfDay(zone).toInstant().toEpochMilli(),
+				date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli(),
+				date.atTime(sessionOpen).atZone(zone).toInstant().toEpochMilli(),
+				date.atTime(sessionClose).atZone(zone).toInstant().toEpochMilli());
+		session = s;
+		return s;
+	}
+
+	private static final class Session {
+		private final long dayStart;
+		private final long dayEnd;
+		private final long open;
+		private final long close;
+
+		private Session(long dayStart, long dayEnd, long open, long close) {
+			this.dayStart = dayStart;
+			this.dayEnd = dayEnd;
+			this.open = open;
+			this.close = close;
+		}
+	}
+
+	private static final class TokenState {
+		private final Bar[] current;
+		private final Bar[] pending;
+		private final long[] emittedUntil;
+		// volume of dropped ticks waiting for the next candle, per interval
+		private final long[] lateVolume;
+		private long volumeSessionOpen;
+		private long lastVolumeTradedToday;
+
+		private TokenState(int intervals) {
+			this.current = new Bar[intervals];
+			this.pending = new Bar[intervals];
+			this.emittedUntil = new long[intervals];
+			this.lateVolume = new long[intervals];
+			for (int k = 0; k < intervals; k++) {
+				current[k] = new Bar();
+				pending[k] = new Bar();
+			}
+		}
+
+		private long takeLateVolume(int k) {
+			long volume = lateVolume[k];
+			lateVolume[k] = 0;
+			return volume;
+		}
+
+		private long volumeDelta(long sessionOpen, long volumeTradedToday) {
+			if (volumeTradedToday < 0) {
+				return 0;
+			}
+			if (volumeSessionOpen != sessionOpen) {
+				// the first tick only sets a baseline, the first tick of a later session carries the day volume so far
+				long delta = volumeSessionOpen == 0 ? 0 : volumeTradedToday;
+				volumeSessionOpen = sessionOpen;
+				lastVolumeTradedToday = volumeTradedToday;
+				return delta;
+			}
+			long delta = Math.max(0, volumeTradedToday - lastVolumeTradedToday);
+			lastVolumeTradedToday = Math.max(lastVolumeTradedToday, volumeTradedToday);
+			return delta;
+		}
+	}
+
+	private static final class Bar {
+		private boolean active;
+		private long start;
+		private long end;
+		private long firstTime;
+		private long lastTime;
+		private long open;
+		private long high;
+		private long low;
+		private long close;
+		private long volume;
+
+		private void reset(long start, long end, long time, long price, long volume) {
+			this.active = true;
+			this.start = start;
+			this.end = end;
+			this.firstTime = time;
+			this.lastTime = time;
+			this.open = price;
+			this.high = price;
+			this.low = price;
+			this.close = price;
+			this.volume = volume;
+		}
+
+		private void add(long time, long price, long volume) {
+			// out of order ticks must not move the open or close of the candle
+			if (time < firstTime) {
+				firstTime = time;
+				open = price;
+			}
+			if (time >= lastTime) {
+				lastTime = time;
+				close = price;
+			}
+			high = Math.max(high, price);
+			low = Math.min(low, price);
+			this.volume += volume;
+		}
+	}
+}
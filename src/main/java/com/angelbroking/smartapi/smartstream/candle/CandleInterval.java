@@ -0,0 +1,24 @@
+package com.angelbroking.smartapi.smartstream.candle;
+
+/**
+ * Intraday candle intervals, named as in the interval parameter of the historical candle API.
+ */
+public enum CandleInterval {
+	ONE_MINUTE(60_000L),
+	THREE_MINUTE(3 * 60_000L),
+	FIVE_MINUTE(5 * 60_000L),
+	TEN_MINUTE(10 * 60_000L),
+	FIFTEEN_MINUTE(15 * 60_000L),
+	THIRTY_MINUTE(30 * 60_000L),
+	ONE_HOUR(60 * 60_000L);
+
+	private final long millis;
+
+	private CandleInterval(long millis) {
+		this.millis = millis;
+	}
+
+	public long getMillis() {
+		return millis;
+	}
+}
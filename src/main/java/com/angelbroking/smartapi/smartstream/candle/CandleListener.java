@@ -0,0 +1,11 @@
+package com.angelbroking.smartapi.smartstream.candle;
+
+import com.angelbroking.smartapi.models.Candle;
+import com.angelbroking.smartapi.smartstream.models.TokenID;
+
+/**
+ * Receives the candles completed by a {@link CandleAggregator}.
+ */
+public interface CandleListener {
+	void onCandle(TokenID token, CandleInterval interval, Candle candle);
+}
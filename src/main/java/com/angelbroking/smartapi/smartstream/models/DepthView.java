@@ -0,0 +1,72 @@
+package com.angelbroking.smartapi.smartstream.models;
+
+import static com.angelbroking.smartapi.utils.Constants.BEST_TWENTY_BUY_DATA_POSITION;
+import static com.angelbroking.smartapi.utils.Constants.BEST_TWENTY_SELL_DATA_POSITION;
+import static com.angelbroking.smartapi.utils.Constants.EXCHANGE_TIMESTAMP_FOR_DEPTH20;
+import static com.angelbroking.smartapi.utils.Constants.NUMBER_OF_ORDERS_OFFSET_FOR_DEPTH20;
+import static com.angelbroking.smartapi.utils.Constants.NUM_PACKETS_FOR_DEPTH;
+import static com.angelbroking.smartapi.utils.Constants.PACKET_RECEIVED_TIME_FOR_DEPTH20;
+import static com.angelbroking.smartapi.utils.Constants.PACKET_SIZE_FOR_DEPTH20;
+import static com.angelbroking.smartapi.utils.Constants.PRICE_OFFSET_FOR_DEPTH20;
+import static com.angelbroking.smartapi.utils.Constants.QUANTITY_OFFSET_FOR_DEPTH20;
+
+import com.angelbroking.smartapi.utils.ByteUtils;
+
+/**
+ * Allocation free view over a DEPTH_20 packet, see {@link Depth} for the decoded object.
+ *
+ * The twenty buy and sell levels are read on demand by level index (0 to 19)
+ * instead of being materialised as BestTwentyData arrays.
+ */
+public class DepthView extends SmartStreamPacketView {
+
+	@Override
+	public DepthView wrap(byte[] packet) {
+		this.packet = packet;
+		return this;
+	}
+
+	public long getExchangeTimeStamp() {
+		return ByteUtils.getLong(packet, EXCHANGE_TIMESTAMP_FOR_DEPTH20);
+	}
+
+	public long getPacketReceivedTime() {
+		return ByteUtils.getLong(packet, PACKET_RECEIVED_TIME_FOR_DEPTH20);
+	}
+
+	public int getDepthLevels() {
+		return NUM_PACKETS_FOR_DEPTH;
+	}
+
+	public long getBestTwentyBuyQuantity(int level) {
+		return ByteUtils.getInt(packet, buyOffset(level) + QUANTITY_OFFSET_FOR_DEPTH20);
+	}
+
+	public long getBestTwentyBuyPrice(int level) {
+		return ByteUtils.getInt(packet, buyOffset(level) + PRICE_OFFSET_FOR_DEPTH20);
+	}
+
+	public short getBestTwentyBuyNumberOfOrders(int level) {
+		return ByteUtils.getShort(packet, buyOffset(level) + NUMBER_OF_ORDERS_OFFSET_FOR_DEPTH20);
+	}
+
+	public long getBestTwentySellQuantity(int level) {
+		return ByteUtils.getInt(packet, sellOffset(level) + QUANTITY_OFFSET_FOR_DEPTH20);
+	}
+
+	public long getBestTwentySellPrice(int level) {
+		return ByteUtils.getInt(packet, sellOffset(level) + PRICE_OFFSET_FOR_DEPTH20);
+	}
+
+	public short getBestTwentySellNumberOfOrders(int level) {
+		return ByteUtils.getShort(packet, sellOffset(level) + NUMBER_OF_ORDERS_OFFSET_FOR_DEPTH20);
+	}
+
+	private static int buyOffset(int level) {
+		return BEST_TWENTY_BUY_DATA_POSITION + (level * PACKET_SIZE_FOR_DEPTH20);
+	}
+
+	private static int sellOffset(int level) {
+		return BEST_TWENTY_SELL_DATA_POSITION + (level * PACKET_SIZE_FOR_DEPTH20);
+	}
+}
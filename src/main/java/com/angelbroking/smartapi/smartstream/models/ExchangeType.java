@@ -5,13 +5,16 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 
 public enum ExchangeType {
-	NSE_CM(1), NSE_FO(2), BSE_CM(3), BSE_FO(4), MCX_FO(5), NCX_FO(7), CDE_FO(13);
+	NSE_CM(1, "NSE"), NSE_FO(2, "NFO"), BSE_CM(3, "BSE"), BSE_FO(4, "BFO"), MCX_FO(5, "MCX"), NCX_FO(7, "NCDEX"),
+	CDE_FO(13, "CDS");
 
 	private int val;
+	private final String exchange;
 	private static final Map<Integer, ExchangeType> valToExchangeTypeMap = new HashMap<>();
 
-	private ExchangeType(int val) {
+	private ExchangeType(int val, String exchange) {
 		this.val = val;
+		this.exchange = exchange;
 	}
 	
 	static {
@@ -27,6 +30,13 @@ public enum ExchangeType {
 	public int getVal() {
 		return this.val;
 	}
+
+	/**
+	 * Returns the exchange as the REST routes name it, e.g. NFO for NSE_FO.
+	 */
+	public String getExchange() {
+		return this.exchange;
+	}
 	
 	public static ExchangeType findByValue(int val) {
 		ExchangeType exchange = valToExchangeTypeMap.get(val);
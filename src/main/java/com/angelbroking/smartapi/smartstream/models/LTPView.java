@@ -0,0 +1,31 @@
+package com.angelbroking.smartapi.smartstream.models;
+
+import static com.angelbroking.smartapi.utils.Constants.EXCHANGE_FEED_TIME_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.LAST_TRADED_PRICE_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.SEQUENCE_NUMBER_OFFSET;
+
+import com.angelbroking.smartapi.utils.ByteUtils;
+
+/**
+ * Allocation free view over an LTP packet, see {@link LTP} for the decoded object.
+ */
+public class LTPView extends SmartStreamPacketView {
+
+	@Override
+	public LTPView wrap(byte[] packet) {
+		this.packet = packet;
+		return this;
+	}
+
+	public long getSequenceNumber() {
+		return ByteUtils.getLong(packet, SEQUENCE_NUMBER_OFFSET);
+	}
+
+	public long getExchangeFeedTimeEpochMillis() {
+		return ByteUtils.getLong(packet, EXCHANGE_FEED_TIME_OFFSET);
+	}
+
+	public long getLastTradedPrice() {
+		return ByteUtils.getLong(packet, LAST_TRADED_PRICE_OFFSET);
+	}
+}
@@ -0,0 +1,61 @@
+package com.angelbroking.smartapi.smartstream.models;
+
+import static com.angelbroking.smartapi.utils.Constants.AVG_TRADED_PRICE_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.CLOSE_PRICE_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.HIGH_PRICE_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.LAST_TRADED_QTY_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.LOW_PRICE_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.OPEN_PRICE_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.TOTAL_BUY_QTY_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.TOTAL_SELL_QTY_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.VOLUME_TRADED_TODAY_OFFSET;
+
+import com.angelbroking.smartapi.utils.ByteUtils;
+
+/**
+ * Allocation free view over a QUOTE packet, see {@link Quote} for the decoded object.
+ */
+public class QuoteView extends LTPView {
+
+	@Override
+	public QuoteView wrap(byte[] packet) {
+		this.packet = packet;
+		return this;
+	}
+
+	public long getLastTradedQty() {
+		return ByteUtils.getLong(packet, LAST_TRADED_QTY_OFFSET);
+	}
+
+	public long getAvgTradedPrice() {
+		return ByteUtils.getLong(packet, AVG_TRADED_PRICE_OFFSET);
+	}
+
+	public long getVolumeTradedToday() {
+		return ByteUtils.getLong(packet, VOLUME_TRADED_TODAY_OFFSET);
+	}
+
+	public double getTotalBuyQty() {
+		return ByteUtils.getLong(packet, TOTAL_BUY_QTY_OFFSET);
+	}
+
+	public double getTotalSellQty() {
+		return ByteUtils.getLong(packet, TOTAL_SELL_QTY_OFFSET);
+	}
+
+	public long getOpenPrice() {
+		return ByteUtils.getLong(packet, OPEN_PRICE_OFFSET);
+	}
+
+	public long getHighPrice() {
+		return ByteUtils.getLong(packet, HIGH_PRICE_OFFSET);
+	}
+
+	public long getLowPrice() {
+		return ByteUtils.getLong(packet, LOW_PRICE_OFFSET);
+	}
+
+	public long getClosePrice() {
+		return ByteUtils.getLong(packet, CLOSE_PRICE_OFFSET);
+	}
+}
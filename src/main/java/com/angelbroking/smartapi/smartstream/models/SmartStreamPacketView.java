@@ -0,0 +1,82 @@
+package com.angelbroking.smartapi.smartstream.models;
+
+import static com.angelbroking.smartapi.utils.Constants.EXCHANGE_TYPE;
+import static com.angelbroking.smartapi.utils.Constants.SUBSCRIPTION_MODE;
+import static com.angelbroking.smartapi.utils.Constants.TOKEN_OFFSET;
+
+import java.nio.charset.StandardCharsets;
+
+import com.angelbroking.smartapi.utils.ByteUtils;
+
+/**
+ * Flyweight view over a raw SmartStream binary packet.
+ *
+ * A view does not copy the packet, it reads every field straight from the
+ * underlying byte array at the offsets defined in Constants. Views are meant to
+ * be reused: call {@link #wrap(byte[])} for every new frame. The data is only
+ * valid until the next frame is wrapped, so listeners must copy whatever they
+ * need to keep.
+ */
+public abstract class SmartStreamPacketView {
+	protected byte[] packet;
+
+	public SmartStreamPacketView wrap(byte[] packet) {
+		this.packet = packet;
+		return this;
+	}
+
+	public byte[] getPacket() {
+		return packet;
+	}
+
+	public byte getSubscriptionMode() {
+		return packet[SUBSCRIPTION_MODE];
+	}
+
+	public byte getExchangeTypeVal() {
+		return packet[EXCHANGE_TYPE];
+	}
+
+	public ExchangeType getExchangeType() {
+		return ExchangeType.findByValue(packet[EXCHANGE_TYPE]);
+	}
+
+	/**
+	 * Returns the length of the token without its NUL padding.
+	 */
+	public int getTokenLength() {
+		return ByteUtils.getTokenLength(packet);
+	}
+
+	/**
+	 * Copies the token bytes into the given array and returns the number of bytes copied.
+	 */
+	public int copyToken(byte[] dst) {
+		int length = Math.min(getTokenLength(), dst.length);
+		System.arraycopy(packet, TOKEN_OFFSET, dst, 0, length);
+		return length;
+	}
+
+	/**
+	 * Returns the token as a String. Allocates, use {@link #copyToken(byte[])} on hot paths.
+	 */
+	public String getToken() {
+		return new String(packet, TOKEN_OFFSET, getTokenLength(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the canonical TokenID for this packet from the default TokenRegistry.
+	 * Only the first packet of a token allocates.
+	 */
+	public TokenID getTokenID() {
+		return TokenRegistry.getDefault().intern(packet);
+	}
+
+	/**
+	 * Returns the dense id of this packet's token in the default TokenRegistry,
+	 * suitable for indexing per-instrument arrays.
+	 */
+	public int getTokenIndex() {
+		return TokenRegistry.getDefault().idOf(packet);
+	}
+}
@@ -0,0 +1,118 @@
+package com.angelbroking.smartapi.smartstream.models;
+
+import static com.angelbroking.smartapi.utils.Constants.BUY_START_POSITION;
+import static com.angelbroking.smartapi.utils.Constants.BUY_SELL_FLAG_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.LAST_TRADED_TIMESTAMP_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.LOWER_CIRCUIT_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.NUMBER_OF_ORDERS_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.NUM_PACKETS;
+import static com.angelbroking.smartapi.utils.Constants.OPEN_INTEREST_CHANGE_PERC_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.OPEN_INTEREST_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.PACKET_SIZE;
+import static com.angelbroking.smartapi.utils.Constants.PRICE_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.QUANTITY_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.SELL_START_POSITION;
+import static com.angelbroking.smartapi.utils.Constants.TOTAL_BUY_QTY_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.TOTAL_SELL_QTY_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.UPPER_CIRCUIT_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.YEARLY_HIGH_PRICE_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.YEARLY_LOW_PRICE_OFFSET;
+
+import com.angelbroking.smartapi.utils.ByteUtils;
+
+/**
+ * Allocation free view over a SNAP_QUOTE packet, see {@link SnapQuote} for the decoded object.
+ *
+ * The best five buy and sell levels are read on demand by level index (0 to 4)
+ * instead of being materialised as SmartApiBBSInfo arrays.
+ */
+public class SnapQuoteView extends QuoteView {
+
+	@Override
+	public SnapQuoteView wrap(byte[] packet) {
+		this.packet = packet;
+		return this;
+	}
+
+	@Override
+	public double getTotalBuyQty() {
+		return ByteUtils.getDouble(packet, TOTAL_BUY_QTY_OFFSET);
+	}
+
+	@Override
+	public double getTotalSellQty() {
+		return ByteUtils.getDouble(packet, TOTAL_SELL_QTY_OFFSET);
+	}
+
+	public long getLastTradedTimestamp() {
+		return ByteUtils.getLong(packet, LAST_TRADED_TIMESTAMP_OFFSET);
+	}
+
+	public long getOpenInterest() {
+		return ByteUtils.getLong(packet, OPEN_INTEREST_OFFSET);
+	}
+
+	public double getOpenInterestChangePerc() {
+		return ByteUtils.getDouble(packet, OPEN_INTEREST_CHANGE_PERC_OFFSET);
+	}
+
+	public long getUpperCircuit() {
+		return ByteUtils.getLong(packet, UPPER_CIRCUIT_OFFSET);
+	}
+
+	public long getLowerCircuit() {
+		return ByteUtils.getLong(packet, LOWER_CIRCUIT_OFFSET);
+	}
+
+	public long getYearlyHighPrice() {
+		return ByteUtils.getLong(packet, YEARLY_HIGH_PRICE_OFFSET);
+	}
+
+	public long getYearlyLowPrice() {
+		return ByteUtils.getLong(packet, YEARLY_LOW_PRICE_OFFSET);
+	}
+
+	public int getBestFiveLevels() {
+		return NUM_PACKETS;
+	}
+
+	public short getBestFiveBuyFlag(int level) {
+		return ByteUtils.getShort(packet, buyOffset(level) + BUY_SELL_FLAG_OFFSET);
+	}
+
+	public long getBestFiveBuyQuantity(int level) {
+		return ByteUtils.getLong(packet, buyOffset(level) + QUANTITY_OFFSET);
+	}
+
+	public long getBestFiveBuyPrice(int level) {
+		return ByteUtils.getLong(packet, buyOffset(level) + PRICE_OFFSET);
+	}
+
+	public short getBestFiveBuyNumberOfOrders(int level) {
+		return ByteUtils.getShort(packet, buyOffset(level) + NUMBER_OF_ORDERS_OFFSET);
+	}
+
+	public short getBestFiveSellFlag(int level) {
+		return ByteUtils.getShort(packet, sellOffset(level) + BUY_SELL_FLAG_OFFSET);
+	}
+
+	public long getBestFiveSellQuantity(int level) {
+		return ByteUtils.getLong(packet, sellOffset(level) + QUANTITY_OFFSET);
+	}
+
+	public long getBestFiveSellPrice(int level) {
+		return ByteUtils.getLong(packet, sellOffset(level) + PRICE_OFFSET);
+	}
+
+	public short getBestFiveSellNumberOfOrders(int level) {
+		return ByteUtils.getShort(packet, sellOffset(level) + NUMBER_OF_ORDERS_OFFSET);
+	}
+
+	private static int buyOffset(int level) {
+		return BUY_START_POSITION + (level * PACKET_SIZE);
+	}
+
+	private static int sellOffset(int level) {
+		return SELL_START_POSITION + (level * PACKET_SIZE);
+	}
+}
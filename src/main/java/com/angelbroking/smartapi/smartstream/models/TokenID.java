@@ -23,6 +23,9 @@ public class TokenID {
 
 	@Override
 	public boolean equals(Object obj) {
+		if(this == obj) {
+			return true;
+		}
 		if(!(obj instanceof TokenID)) {
 			return false;
 		}
@@ -33,7 +36,8 @@ public class TokenID {
 	
 	@Override
 	public int hashCode() {
-		return toString().hashCode();
+		// String caches its own hash, so this does not allocate unlike hashing toString()
+		return 31 * exchangeType.getVal() + token.hashCode();
 	}
 	
 	@Override
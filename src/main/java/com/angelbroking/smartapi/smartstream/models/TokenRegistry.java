@@ -0,0 +1,292 @@
+package com.angelbroking.smartapi.smartstream.models;
+
+import static com.angelbroking.smartapi.utils.Constants.EXCHANGE_TYPE;
+import static com.angelbroking.smartapi.utils.Constants.TOKEN_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.TOKEN_SIZE;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.angelbroking.smartapi.utils.ByteUtils;
+
+/**
+ * Interns TokenIDs and assigns every (exchange, token) pair a dense int id.
+ *
+ * Lookups go through a primitive open-addressing table keyed on the raw packet
+ * bytes, so resolving the token of an already seen packet allocates nothing.
+ * Ids start at 0 and grow by one for every new token, which lets callers keep
+ * per-instrument state in plain arrays indexed by id.
+ *
+ * Lookups are lock free and safe from any thread, registration is synchronized.
+ */
+public class TokenRegistry {
+
+	private static final TokenRegistry DEFAULT = new TokenRegistry();
+
+	private static final int DEFAULT_CAPACITY = 1024;
+	private static final int NOT_FOUND = -1;
+
+	private volatile Table table;
+
+	public TokenRegistry() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public TokenRegistry(int expectedTokens) {
+		this.table = new Table(tableSizeFor(expectedTokens), Math.max(expectedTokens, 16));
+	}
+
+	/**
+	 * Returns the registry shared by the SmartStream decoders.
+	 */
+	public static TokenRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Returns the number of tokens registered so far, ids are in [0, size).
+	 */
+	public int size() {
+		return table.size;
+	}
+
+	/**
+	 * Returns the canonical TokenID for the given id.
+	 */
+	public TokenID get(int id) {
+		Table t = table;
+		if (id < 0 || id >= t.size) {
+			throw new IndexOutOfBoundsException("No token registered with id " + id);
+		}
+		return t.tokens[id];
+	}
+
+	/**
+	 * Returns the id of the token in the given packet, or -1 if it has not been registered.
+	 */
+	public int lookup(byte[] packet) {
+		int length = ByteUtils.getTokenLength(packet);
+		byte exchange = packet[EXCHANGE_TYPE];
+		return find(table, exchange, packet, TOKEN_OFFSET, length, hash(exchange, packet, TOKEN_OFFSET, length));
+	}
+
+	/**
+	 * Returns the id of the given token, or -1 if it has not been registered.
+	 */
+	public int lookup(TokenID tokenID) {
+		String token = tokenID.getToken();
+		byte exchange = (byte) tokenID.getExchangeType().getVal();
+		if (!isAscii(token)) {
+			byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+			return find(table, exchange, bytes, 0, bytes.length, hash(exchange, bytes, 0, bytes.length));
+		}
+		// ASCII tokens hash and compare char by char, so the common case does not allocate
+		Table t = table;
+		int hash = hash(exchange, token);
+		int mask = t.slots.length() - 1;
+		int slot = hash & mask;
+		while (true) {
+			int entry = t.slots.get(slot);
+			if (entry == 0) {
+				return NOT_FOUND;
+			}
+			int id = entry - 1;
+			if (t.hashes[id] == hash && t.exchanges[id] == exchange && keyEquals(t, id, token)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * Returns the id of the token in the given packet, registering it on first sight.
+	 */
+	public int idOf(byte[] packet) {
+		int id = lookup(packet);
+		if (id != NOT_FOUND) {
+			return id;
+		}
+		int length = ByteUtils.getTokenLength(packet);
+		byte[] token = new byte[length];
+		System.arraycopy(packet, TOKEN_OFFSET, token, 0, length);
+		return register(packet[EXCHANGE_TYPE], token);
+	}
+
+	/**
+	 * Returns the id of the given token, registering it on first sight.
+	 */
+	public int idOf(TokenID tokenID) {
+		int id = lookup(tokenID);
+		if (id != NOT_FOUND) {
+			return id;
+		}
+		byte[] token = tokenID.getToken().getBytes(StandardCharsets.UTF_8);
+		if (token.length > TOKEN_SIZE) {
+			throw new IllegalArgumentException("Token should not be longer than " + TOKEN_SIZE + " bytes: " + tokenID);
+		}
+		return register((byte) tokenID.getExchangeType().getVal(), token);
+	}
+
+	/**
+	 * Returns the canonical TokenID of the token in the given packet, registering it on first sight.
+	 */
+	public TokenID intern(byte[] packet) {
+		return get(idOf(packet));
+	}
+
+	/**
+	 * Returns the canonical instance equal to the given TokenID.
+	 */
+	public TokenID intern(TokenID tokenID) {
+		return get(idOf(tokenID));
+	}
+
+	private synchronized int register(byte exchange, byte[] token) {
+		Table t = table;
+		int hash = hash(exchange, token, 0, token.length);
+		int id = find(t, exchange, token, 0, token.length, hash);
+		if (id != NOT_FOUND) {
+			return id;
+		}
+		if (t.size == t.tokens.length || (t.size + 1) * 2 > t.slots.length()) {
+			t = t.resize();
+		}
+		id = t.size;
+		System.arraycopy(token, 0, t.keys, id * TOKEN_SIZE, token.length);
+		t.keyLengths[id] = (byte) token.length;
+		t.exchanges[id] = exchange;
+		t.hashes[id] = hash;
+		t.tokens[id] = new TokenID(ExchangeType.findByValue(exchange), new String(token, StandardCharsets.UTF_8));
+		t.size = id + 1;
+		insert(t, id, hash);
+		table = t;
+		return id;
+	}
+
+	private static int find(Table t, byte exchange, byte[] src, int offset, int length, int hash) {
+		int mask = t.slots.length() - 1;
+		int slot = hash & mask;
+		while (true) {
+			int entry = t.slots.get(slot);
+			if (entry == 0) {
+				return NOT_FOUND;
+			}
+			int id = entry - 1;
+			if (t.hashes[id] == hash && t.exchanges[id] == exchange && keyEquals(t, id, src, offset, length)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private static boolean keyEquals(Table t, int id, byte[] src, int offset, int length) {
+		if (t.keyLengths[id] != length) {
+			return false;
+		}
+		int base = id * TOKEN_SIZE;
+		for (int i = 0; i < length; i++) {
+			if (t.keys[base + i] != src[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean keyEquals(Table t, int id, String token) {
+		int length = token.length();
+		if (t.keyLengths[id] != length) {
+			return false;
+		}
+		int base = id * TOKEN_SIZE;
+		for (int i = 0; i < length; i++) {
+			if (t.keys[base + i] != (byte) token.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isAscii(String token) {
+		for (int i = 0; i < token.length(); i++) {
+			if (token.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void insert(Table t, int id, int hash) {
+		int mask = t.slots.length() - 1;
+		int slot = hash & mask;
+		while (t.slots.get(slot) != 0) {
+			slot = (slot + 1) & mask;
+		}
+		// volatile write publishes the entry arrays written before it to lock free readers
+		t.slots.set(slot, id + 1);
+	}
+
+	private static int hash(byte exchange, byte[] src, int offset, int length) {
+		// FNV-1a followed by a murmur finalizer so that linear probing sees well spread bits
+		int h = 0x811c9dc5 ^ exchange;
+		h *= 0x01000193;
+		for (int i = 0; i < length; i++) {
+			h ^= src[offset + i];
+			h *= 0x01000193;
+		}
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+
+	private static int hash(byte exchange, String asciiToken) {
+		int h = 0x811c9dc5 ^ exchange;
+		h *= 0x01000193;
+		for (int i = 0; i < asciiToken.length(); i++) {
+			h ^= (byte) asciiToken.charAt(i);
+			h *= 0x01000193;
+		}
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+
+	private static int tableSizeFor(int expectedTokens) {
+		int n = Integer.highestOneBit(Math.max(expectedTokens, 8) * 2 - 1) << 1;
+		return Math.max(n, 16);
+	}
+
+	private static final class Table {
+		private final AtomicIntegerArray slots;
+		private final byte[] keys;
+		private final byte[] keyLengths;
+		private final byte[] exchanges;
+		private final int[] hashes;
+		private final TokenID[] tokens;
+		private volatile int size;
+
+		private Table(int slotCount, int entryCapacity) {
+			this.slots = new AtomicIntegerArray(slotCount);
+			this.keys = new byte[entryCapacity * TOKEN_SIZE];
+			this.keyLengths = new byte[entryCapacity];
+			this.exchanges = new byte[entryCapacity];
+			this.hashes = new int[entryCapacity];
+			this.tokens = new TokenID[entryCapacity];
+		}
+
+		private Table resize() {
+			Table t = new Table(slots.length() * 2, tokens.length * 2);
+			System.arraycopy(keys, 0, t.keys, 0, keys.length);
+			System.arraycopy(keyLengths, 0, t.keyLengths, 0, size);
+			System.arraycopy(exchanges, 0, t.exchanges, 0, size);
+			System.arraycopy(hashes, 0, t.hashes, 0, size);
+			System.arraycopy(tokens, 0, t.tokens, 0, size);
+			t.size = size;
+			for (int id = 0; id < size; id++) {
+				insert(t, id, hashes[id]);
+			}
+			return t;
+		}
+	}
+}
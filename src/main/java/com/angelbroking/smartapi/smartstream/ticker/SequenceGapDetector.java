@@ -0,0 +1,119 @@
+package com.angelbroking.smartapi.smartstream.ticker;
+
+import static com.angelbroking.smartapi.utils.Constants.SEQUENCE_NUMBER_OFFSET;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.angelbroking.smartapi.MarketDataBatcher;
+import com.angelbroking.smartapi.smartstream.models.SmartStreamSubsMode;
+import com.angelbroking.smartapi.smartstream.models.TokenID;
+import com.angelbroking.smartapi.smartstream.models.TokenRegistry;
+import com.angelbroking.smartapi.utils.ByteUtils;
+
+/**
+ * Tracks the last sequence number of every token and reports the ticks a
+ * reconnect made it miss.
+ *
+ * Sequence numbers count the packets of the exchange feed, so consecutive
+ * packets of one token are not numbered consecutively and a jump within a
+ * connection is not a gap. What is lost are the packets sent while the
+ * connection was down: the first packet of a token after a reconnect whose
+ * sequence number is more than one past the last one before it is reported to
+ * the GapListener. Depth packets carry no sequence number and are not tracked.
+ *
+ * Packets are recorded on the websocket reading thread before they are
+ * dispatched, a ticker has one reading thread at a time.
+ */
+public class SequenceGapDetector {
+	private static final Logger log = LoggerFactory.getLogger(SequenceGapDetector.class);
+
+	private static final int PACKET_MIN_LENGTH = SEQUENCE_NUMBER_OFFSET + Long.BYTES;
+
+	/** Receives the tokens that missed packets. */
+	@FunctionalInterface
+	public interface GapListener {
+		/**
+		 * @param lastSequence is the sequence number of the last packet before the reconnect.
+		 * @param sequence     is the sequence number of the first packet after it.
+		 */
+		void onGap(TokenID token, long lastSequence, long sequence);
+	}
+
+	private final GapListener gapListener;
+	private final TokenRegistry registry = TokenRegistry.getDefault();
+	private volatile int connection;
+	private volatile long gapCount;
+	// indexed by registry id, only touched by the reading thread
+	private long[] lastSequences = new long[256];
+	private int[] connections = new int[256];
+
+	public SequenceGapDetector(GapListener gapListener) {
+		if (gapListener == null) {
+			throw new IllegalArgumentException("gapListener should not be null");
+		}
+		this.gapListener = gapListener;
+	}
+
+	/**
+	 * Returns a GapListener that fetches a snapshot of every token with a gap,
+	 * coalescing the lookups of a reconnect into batched market data calls.
+	 *
+	 * @param mode       is LTP, OHLC or FULL.
+	 * @param onSnapshot receives the fetched entry of the token.
+	 */
+	public static GapListener snapshotOnGap(MarketDataBatcher batcher, String mode,
+			BiConsumer<TokenID, JSONObject> onSnapshot) {
+		if (batcher == null || mode == null || onSnapshot == null) {
+			throw new IllegalArgumentException("batcher, mode and onSnapshot should not be null");
+		}
+		return (token, lastSequence, sequence) -> batcher
+				.getQuote(mode, token.getExchangeType().getExchange(), token.getToken())
+				.whenComplete((snapshot, error) -> {
+					if (error != null) {
+						log.warn("snapshot of {} after a gap failed: {}", token, error.getMessage());
+					} else {
+						onSnapshot.accept(token, snapshot);
+					}
+				});
+	}
+
+	/** Marks the start of a new connection, called before it is opened. */
+	void onReconnect() {
+		connection++;
+	}
+
+	void onPacket(byte[] packet) {
+		if (packet.length < PACKET_MIN_LENGTH || packet[0] == SmartStreamSubsMode.DEPTH_20.getVal()) {
+			return;
+		}
+		int id = registry.idOf(packet);
+		long sequence = ByteUtils.getLong(packet, SEQUENCE_NUMBER_OFFSET);
+		if (id >= lastSequences.length) {
+			int length = Math.max(id + 1, lastSequences.length * 2);
+			lastSequences = Arrays.copyOf(lastSequences, length);
+			connections = Arrays.copyOf(connections, length);
+		}
+		long lastSequence = lastSequences[id];
+		int current = connection;
+		if (lastSequence != 0 && connections[id] != current && sequence > lastSequence + 1) {
+			gapCount++;
+			try {
+				gapListener.onGap(registry.get(id), lastSequence, sequence);
+			} catch (RuntimeException e) {
+				log.error("gap listener failed for {}", registry.get(id), e);
+			}
+		}
+		lastSequences[id] = sequence;
+		connections[id] = current;
+	}
+
+	/** Returns the number of gaps reported so far. */
+	public long getGapCount() {
+		return gapCount;
+	}
+}
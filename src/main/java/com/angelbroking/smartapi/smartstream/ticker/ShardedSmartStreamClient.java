@@ -0,0 +1,202 @@
+package com.angelbroking.smartapi.smartstream.ticker;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.angelbroking.smartapi.smartstream.models.SmartStreamSubsMode;
+import com.angelbroking.smartapi.smartstream.models.TokenID;
+import com.angelbroking.smartapi.utils.Utils;
+import com.neovisionaries.ws.client.WebSocketException;
+
+/**
+ * Spreads a large SmartStream subscription set over several websocket connections.
+ *
+ * Tokens are assigned to shards by consistent hashing, so changing the number
+ * of shards moves as few tokens as possible. Every shard is a SmartStreamTicker
+ * in ring buffer mode with its own decode thread, and it reconnects and
+ * resubscribes its own tokens independently of the others.
+ *
+ * All shards report to the same listener. A token always lives on one shard
+ * and is decoded on one thread, so its callbacks stay in order, but callbacks
+ * of different tokens arrive concurrently and the listener must be thread safe.
+ * onConnected, onDisconnected and onPong are called once per shard.
+ */
+public class ShardedSmartStreamClient {
+	private static final Logger log = LoggerFactory.getLogger(ShardedSmartStreamClient.class);
+
+	private static final int VIRTUAL_NODES_PER_SHARD = 128;
+
+	private final SmartStreamTicker[] shards;
+	private final int[] ringHashes;
+	private final int[] ringShards;
+
+	/**
+	 * Initializes the client with one decode thread per shard.
+	 *
+	 * @param clientId            - the client ID used for authentication
+	 * @param feedToken           - the feed token used for authentication
+	 * @param smartStreamListener - the listener all shards report to
+	 * @param shardCount          - number of websocket connections
+	 * @throws IllegalArgumentException - if any argument is null or empty, or shardCount is not positive
+	 */
+	public ShardedSmartStreamClient(String clientId, String feedToken, SmartStreamListener smartStreamListener, int shardCount) {
+		this(clientId, feedToken, smartStreamListener, shardCount, new SmartStreamRingBufferConfig());
+	}
+
+	/**
+	 * Initializes the client.
+	 *
+	 * @param clientId            - the client ID used for authentication
+	 * @param feedToken           - the feed token used for authentication
+	 * @param smartStreamListener - the listener all shards report to
+	 * @param shardCount          - number of websocket connections
+	 * @param ringBufferConfig    - ring buffer settings applied to every shard
+	 * @throws IllegalArgumentException - if any argument is null or empty, or shardCount is not positive
+	 */
+	public ShardedSmartStreamClient(String clientId, String feedToken, SmartStreamListener smartStreamListener, int shardCount,
+			SmartStreamRingBufferConfig ringBufferConfig) {
+		if (StringUtils.isEmpty(clientId) || StringUtils.isEmpty(feedToken) || Utils.validateInputNullCheck(smartStreamListener)) {
+			throw new IllegalArgumentException(
+					"clientId, feedToken and SmartStreamListener should not be empty or null");
+		}
+		if (shardCount < 1) {
+			throw new IllegalArgumentException("shardCount should be greater than zero");
+		}
+		this.shards = new SmartStreamTicker[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new SmartStreamTicker(clientId, feedToken, smartStreamListener, ringBufferConfig);
+		}
+
+		// sorted ring of virtual nodes, a token belongs to the first node at or after its hash
+		long[] nodes = new long[shardCount * VIRTUAL_NODES_PER_SHARD];
+		for (int shard = 0; shard < shardCount; shard++) {
+			for (int replica = 0; replica < VIRTUAL_NODES_PER_SHARD; replica++) {
+				int hash = mix(shard * 0x9E3779B9 + replica);
+				nodes[shard * VIRTUAL_NODES_PER_SHARD + replica] = ((long) hash << 32) | shard;
+			}
+		}
+		Arrays.sort(nodes);
+		this.ringHashes = new int[nodes.length];
+		this.ringShards = new int[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			ringHashes[i] = (int) (nodes[i] >> 32);
+			ringShards[i] = (int) nodes[i];
+		}
+	}
+
+	/**
+	 * Returns the index of the shard the given token is subscribed on.
+	 */
+	public int shardOf(TokenID tokenID) {
+		int hash = mix(31 * tokenID.getExchangeType().getVal() + tokenID.getToken().hashCode());
+		int index = Arrays.binarySearch(ringHashes, hash);
+		if (index < 0) {
+			index = -index - 1;
+		}
+		return ringShards[index == ringHashes.length ? 0 : index];
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	/**
+	 * Returns the ticker of a shard, e.g. to read its ring buffer counters.
+	 */
+	public SmartStreamTicker getShard(int shard) {
+		return shards[shard];
+	}
+
+	/**
+	 * Reports the tokens that missed packets while their shard was reconnecting,
+	 * the listener is called from the reading thread of each shard.
+	 */
+	public void setGapListener(SequenceGapDetector.GapListener gapListener) {
+		for (SmartStreamTicker shard : shards) {
+			shard.setGapListener(gapListener);
+		}
+	}
+
+	/**
+	 * Connects all shards.
+	 *
+	 * @throws WebSocketException - if a shard fails to connect, shards connected before it stay connected
+	 */
+	public void connect() throws WebSocketException {
+		for (int i = 0; i < shards.length; i++) {
+			shards[i].connect();
+			log.info("shard {} of {} connected", i + 1, shards.length);
+		}
+	}
+
+	/** Disconnects all shards. */
+	public void disconnect() {
+		for (SmartStreamTicker shard : shards) {
+			shard.disconnect();
+		}
+	}
+
+	/**
+	 * Returns true if every shard is connected.
+	 */
+	public boolean isConnectionOpen() {
+		for (SmartStreamTicker shard : shards) {
+			if (!shard.isConnectionOpen()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Subscribes tokens, each on the shard it hashes to. Each shard keeps its
+	 * own subscriptions, a shard that rejects its tokens reports the error and
+	 * does not record them.
+	 */
+	public void subscribe(SmartStreamSubsMode mode, Set<TokenID> tokens) {
+		byShard(tokens).forEach((shard, shardTokens) -> shards[shard].subscribe(mode, shardTokens));
+	}
+
+	/**
+	 * Unsubscribes tokens from the shards they were subscribed on.
+	 */
+	public void unsubscribe(SmartStreamSubsMode mode, Set<TokenID> tokens) {
+		byShard(tokens).forEach((shard, shardTokens) -> shards[shard].unsubscribe(mode, shardTokens));
+	}
+
+	/**
+	 * Returns the number of tokens subscribed on a shard across all modes.
+	 */
+	public int getTokenCount(int shard) {
+		int count = 0;
+		for (SmartStreamSubsMode mode : SmartStreamSubsMode.values()) {
+			count += shards[shard].getSubscribedTokens(mode).size();
+		}
+		return count;
+	}
+
+	private Map<Integer, Set<TokenID>> byShard(Set<TokenID> tokens) {
+		Map<Integer, Set<TokenID>> tokensByShard = new HashMap<>();
+		for (TokenID token : tokens) {
+			tokensByShard.computeIfAbsent(shardOf(token), s -> new HashSet<>()).add(token);
+		}
+		return tokensByShard;
+	}
+
+	private static int mix(int h) {
+		// murmur3 finalizer, spreads short numeric tokens over the whole ring
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
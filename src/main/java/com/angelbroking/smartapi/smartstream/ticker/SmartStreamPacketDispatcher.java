@@ -0,0 +1,115 @@
+package com.angelbroking.smartapi.smartstream.ticker;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+import com.angelbroking.smartapi.smartstream.models.*;
+import com.angelbroking.smartapi.utils.ByteUtils;
+import com.angelbroking.smartapi.utils.Utils;
+
+/**
+ * Decodes SmartStream binary packets and dispatches them to a SmartStreamListener.
+ *
+ * If the listener is a {@link SmartStreamViewListener} the packet is exposed
+ * through reusable views and nothing is allocated per packet. Each dispatcher
+ * owns its own views, so a dispatcher must only be used by one thread at a time.
+ */
+class SmartStreamPacketDispatcher {
+
+	private final SmartStreamListener smartStreamListener;
+	private final SmartStreamViewListener viewListener;
+	private final LTPView ltpView = new LTPView();
+	private final QuoteView quoteView = new QuoteView();
+	private final SnapQuoteView snapQuoteView = new SnapQuoteView();
+	private final DepthView depthView = new DepthView();
+
+	SmartStreamPacketDispatcher(SmartStreamListener smartStreamListener) {
+		this.smartStreamListener = smartStreamListener;
+		this.viewListener = smartStreamListener instanceof SmartStreamViewListener
+				? (SmartStreamViewListener) smartStreamListener
+				: null;
+	}
+
+	void dispatch(byte[] binary) {
+		SmartStreamSubsMode mode = SmartStreamSubsMode.findByVal(binary[0]);
+		if (Utils.validateInputNullCheck(mode)) {
+			StringBuilder sb = new StringBuilder();
+			sb.append("Invalid SubsMode=");
+			sb.append(binary[0]);
+			sb.append(" in the response binary packet");
+			smartStreamListener.onError(getErrorHolder(new SmartAPIException(sb.toString())));
+			return;
+		}
+		try {
+			if (viewListener != null) {
+				dispatchView(mode, binary);
+			} else {
+				dispatchDecoded(mode, binary);
+			}
+		} catch (Exception e) {
+			smartStreamListener.onError(getErrorHolder(e));
+		}
+	}
+
+	private void dispatchView(SmartStreamSubsMode mode, byte[] binary) {
+		switch (mode) {
+			case LTP:
+				viewListener.onLTPViewArrival(ltpView.wrap(binary));
+				break;
+			case QUOTE:
+				viewListener.onQuoteViewArrival(quoteView.wrap(binary));
+				break;
+			case SNAP_QUOTE:
+				viewListener.onSnapQuoteViewArrival(snapQuoteView.wrap(binary));
+				break;
+			case DEPTH_20:
+				viewListener.onDepthViewArrival(depthView.wrap(binary));
+				break;
+			default:
+				smartStreamListener.onError(getErrorHolder(
+						new SmartAPIException("SubsMode=" + mode + " in the response is not handled.")));
+				break;
+		}
+	}
+
+	private void dispatchDecoded(SmartStreamSubsMode mode, byte[] binary) {
+		switch (mode) {
+			case LTP: {
+				ByteBuffer packet = ByteBuffer.wrap(binary).order(ByteOrder.LITTLE_ENDIAN);
+				LTP ltp = ByteUtils.mapToLTP(packet);
+				smartStreamListener.onLTPArrival(ltp);
+				break;
+			}
+			case QUOTE: {
+				ByteBuffer packet = ByteBuffer.wrap(binary).order(ByteOrder.LITTLE_ENDIAN);
+				Quote quote = ByteUtils.mapToQuote(packet);
+				smartStreamListener.onQuoteArrival(quote);
+				break;
+			}
+			case SNAP_QUOTE: {
+				ByteBuffer packet = ByteBuffer.wrap(binary).order(ByteOrder.LITTLE_ENDIAN);
+				SnapQuote snapQuote = ByteUtils.mapToSnapQuote(packet);
+				smartStreamListener.onSnapQuoteArrival(snapQuote);
+				break;
+			}
+			case DEPTH_20: {
+				ByteBuffer packet = ByteBuffer.wrap(binary).order(ByteOrder.LITTLE_ENDIAN);
+				Depth depth = ByteUtils.mapToDepth20(packet);
+				smartStreamListener.onDepthArrival(depth);
+				break;
+			}
+			default: {
+				smartStreamListener.onError(getErrorHolder(
+						new SmartAPIException("SubsMode=" + mode + " in the response is not handled.")));
+				break;
+			}
+		}
+	}
+
+	private SmartStreamError getErrorHolder(Throwable e) {
+		SmartStreamError error = new SmartStreamError();
+		error.setException(e);
+		return error;
+	}
+}
@@ -0,0 +1,232 @@
+package com.angelbroking.smartapi.smartstream.ticker;
+
+import static com.angelbroking.smartapi.utils.Constants.TOKEN_OFFSET;
+import static com.angelbroking.smartapi.utils.Constants.TOKEN_SIZE;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.angelbroking.smartapi.smartstream.models.TokenRegistry;
+import com.angelbroking.smartapi.utils.Utils;
+
+/**
+ * Hands SmartStream frames from the websocket reading thread over to consumer
+ * threads that decode and dispatch them to a SmartStreamListener.
+ *
+ * Every consumer owns a preallocated single-producer single-consumer ring.
+ * Frames are routed by token, so the callbacks of a token always arrive in
+ * order on the same thread. Publishing never blocks: when a consumer falls a
+ * full ring behind, the frame is dropped and counted so that a slow listener
+ * cannot stall the socket.
+ */
+public class SmartStreamRingBuffer {
+	private static final Logger log = LoggerFactory.getLogger(SmartStreamRingBuffer.class);
+
+	private final SmartStreamListener smartStreamListener;
+	private final WaitStrategy waitStrategy;
+	private final Partition[] partitions;
+	private final TokenRegistry tokenRegistry = TokenRegistry.getDefault();
+	private final AtomicLong droppedFrames = new AtomicLong();
+	private volatile long maxLag;
+	private volatile boolean running;
+	private volatile boolean shutdown;
+
+	public SmartStreamRingBuffer(SmartStreamListener smartStreamListener, SmartStreamRingBufferConfig config) {
+		if (Utils.validateInputNullCheck(smartStreamListener) || Utils.validateInputNullCheck(config)
+				|| Utils.validateInputNullCheck(config.getWaitStrategy())) {
+			throw new IllegalArgumentException("SmartStreamListener, config and wait strategy should not be null");
+		}
+		if (config.getCapacity() < 1 || config.getConsumers() < 1) {
+			throw new IllegalArgumentException("capacity and consumers should be greater than zero");
+		}
+		this.smartStreamListener = smartStreamListener;
+		this.waitStrategy = config.getWaitStrategy();
+		int capacity = config.getCapacity() == 1 ? 1 : Integer.highestOneBit(config.getCapacity() - 1) << 1;
+		this.partitions = new Partition[config.getConsumers()];
+		for (int i = 0; i < partitions.length; i++) {
+			partitions[i] = new Partition(capacity);
+		}
+	}
+
+	/**
+	 * Starts the consumer threads, does nothing if they are already running.
+	 *
+	 * @throws IllegalStateException if the ring buffer has been shut down
+	 */
+	public synchronized void start() {
+		if (shutdown) {
+			throw new IllegalStateException("ring buffer has been shut down");
+		}
+		if (running) {
+			return;
+		}
+		running = true;
+		for (int i = 0; i < partitions.length; i++) {
+			Partition partition = partitions[i];
+			Thread consumer = new Thread(() -> consume(partition), "smartstream-consumer-" + i);
+			consumer.setDaemon(true);
+			partition.consumer = consumer;
+			consumer.start();
+		}
+		log.info("started {} smartstream consumers with {} wait strategy", partitions.length, waitStrategy);
+	}
+
+	/**
+	 * Stops accepting frames. Consumers dispatch the frames already published and then exit.
+	 */
+	public synchronized void shutdown() {
+		shutdown = true;
+		running = false;
+		for (Partition partition : partitions) {
+			if (partition.consumer != null) {
+				LockSupport.unpark(partition.consumer);
+			}
+		}
+	}
+
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	/**
+	 * Publishes a frame for dispatch. Must only be called from a single thread at a time.
+	 *
+	 * @return false if the frame was dropped because its consumer is a full ring behind
+	 */
+	public boolean publish(byte[] frame) {
+		Partition partition = partitions[partitionOf(frame)];
+		long sequence = partition.published.get();
+		long lag = sequence - partition.consumed.get();
+		if (!running || lag >= partition.frames.length) {
+			long dropped = droppedFrames.incrementAndGet();
+			if ((dropped & 1023) == 1) {
+				log.warn("dropped {} smartstream frames so far, consumers are not keeping up", dropped);
+			}
+			return false;
+		}
+		partition.frames[(int) sequence & partition.mask] = frame;
+		if (lag + 1 > maxLag) {
+			maxLag = lag + 1;
+		}
+		if (waitStrategy == WaitStrategy.PARK) {
+			// full fence so that a consumer which just announced it is parking either sees this frame or gets unparked
+			partition.published.set(sequence + 1);
+			if (partition.parked) {
+				LockSupport.unpark(partition.consumer);
+			}
+		} else {
+			partition.published.lazySet(sequence + 1);
+		}
+		return true;
+	}
+
+	private int partitionOf(byte[] frame) {
+		if (partitions.length == 1 || frame.length < TOKEN_OFFSET + TOKEN_SIZE) {
+			return 0;
+		}
+		return Math.floorMod(tokenRegistry.idOf(frame), partitions.length);
+	}
+
+	private void consume(Partition partition) {
+		SmartStreamPacketDispatcher dispatcher = new SmartStreamPacketDispatcher(smartStreamListener);
+		long next = partition.consumed.get();
+		while (true) {
+			long available = partition.published.get();
+			if (next < available) {
+				do {
+					int index = (int) next & partition.mask;
+					byte[] frame = partition.frames[index];
+					partition.frames[index] = null;
+					dispatch(dispatcher, frame);
+					partition.consumed.lazySet(++next);
+				} while (next < available);
+			} else if (!running) {
+				return;
+			} else {
+				idle(partition, next);
+			}
+		}
+	}
+
+	private void dispatch(SmartStreamPacketDispatcher dispatcher, byte[] frame) {
+		try {
+			dispatcher.dispatch(frame);
+		} catch (Exception e) {
+			// a failing onError callback must not kill the consumer
+			log.error("smartstream listener failed", e);
+		}
+	}
+
+	private void idle(Partition partition, long next) {
+		switch (waitStrategy) {
+			case BUSY_SPIN:
+				Thread.onSpinWait();
+				break;
+			case YIELD:
+				Thread.yield();
+				break;
+			default:
+				partition.parked = true;
+				if (running && partition.published.get() == next) {
+					LockSupport.park(this);
+				}
+				partition.parked = false;
+				break;
+		}
+	}
+
+	/** Number of consumer threads. */
+	public int getConsumers() {
+		return partitions.length;
+	}
+
+	/** Capacity of each consumer's ring. */
+	public int getCapacity() {
+		return partitions[0].frames.length;
+	}
+
+	/** Total number of frames accepted for dispatch. */
+	public long getPublishedFrames() {
+		long published = 0;
+		for (Partition partition : partitions) {
+			published += partition.published.get();
+		}
+		return published;
+	}
+
+	/** Total number of frames dropped because a consumer was a full ring behind. */
+	public long getDroppedFrames() {
+		return droppedFrames.get();
+	}
+
+	/** Number of frames published but not yet dispatched, across all consumers. */
+	public long getLag() {
+		long lag = 0;
+		for (Partition partition : partitions) {
+			lag += partition.published.get() - partition.consumed.get();
+		}
+		return lag;
+	}
+
+	/** Highest number of pending frames seen by a single consumer. */
+	public long getMaxLag() {
+		return maxLag;
+	}
+
+	private static final class Partition {
+		private final byte[][] frames;
+		private final int mask;
+		private final AtomicLong published = new AtomicLong();
+		private final AtomicLong consumed = new AtomicLong();
+		private volatile Thread consumer;
+		private volatile boolean parked;
+
+		private Partition(int capacity) {
+			this.frames = new byte[capacity][];
+			this.mask = capacity - 1;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.angelbroking.smartapi.smartstream.ticker;
+
+/**
+ * Settings for the ring buffer mode of SmartStreamTicker.
+ */
+public class SmartStreamRingBufferConfig {
+	private int capacity = 4096;
+	private int consumers = 1;
+	private WaitStrategy waitStrategy = WaitStrategy.PARK;
+
+	public SmartStreamRingBufferConfig() {
+	}
+
+	public SmartStreamRingBufferConfig(int capacity, int consumers, WaitStrategy waitStrategy) {
+		this.capacity = capacity;
+		this.consumers = consumers;
+		this.waitStrategy = waitStrategy;
+	}
+
+	/** Number of frames each consumer can have pending, rounded up to a power of two. */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/** Number of consumer threads. Frames of the same token always go to the same consumer. */
+	public int getConsumers() {
+		return consumers;
+	}
+
+	public void setConsumers(int consumers) {
+		this.consumers = consumers;
+	}
+
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		this.waitStrategy = waitStrategy;
+	}
+}
@@ -1,15 +1,12 @@
 package com.angelbroking.smartapi.smartstream.ticker;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.time.LocalDateTime;
 import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
 import com.angelbroking.smartapi.smartstream.models.*;
 import com.neovisionaries.ws.client.*;
@@ -19,7 +16,8 @@ import org.json.JSONObject;
 
 import com.angelbroking.smartapi.Routes;
 import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
-import com.angelbroking.smartapi.utils.ByteUtils;
+import com.angelbroking.smartapi.utils.HeartbeatScheduler;
+import com.angelbroking.smartapi.utils.ReconnectSupervisor;
 import com.angelbroking.smartapi.utils.Utils;
 
 // import lombok.extern.slf4j.Slf4j; // Removed Lombok import
@@ -38,23 +36,38 @@ public class SmartStreamTicker {
 	private static final String feedTokenHeader = "x-feed-token";
 	private static final String clientLibHeader = "x-client-lib";
 
+	/** Most tokens sent in one subscribe or unsubscribe request. */
+	public static final int MAX_TOKENS_PER_REQUEST = 1000;
+	private static final int MAX_DEPTH_20_TOKENS = 50;
+	private static final long PONG_TIMEOUT_MILLIS = 20000;
+
 	private final Routes routes = new Routes();
 	private final String wsuri = routes.getSmartStreamWSURI();
 
 	private final SmartStreamListener smartStreamListener;
-	private WebSocket ws;
+	private final SmartStreamPacketDispatcher packetDispatcher;
+	private SmartStreamRingBufferConfig ringBufferConfig;
+	private volatile SmartStreamRingBuffer ringBuffer;
+	private volatile WebSocket ws;
 	private final String clientId;
 	private final String feedToken;
-	private EnumMap<SmartStreamSubsMode, Set<TokenID>> tokensByModeMap = new EnumMap<>(SmartStreamSubsMode.class);
-	private Timer pingTimer;
-	private LocalDateTime lastPongReceivedTime = LocalDateTime.now();
+	// desired subscriptions by mode, also guards sending subscription requests
+	private final EnumMap<SmartStreamSubsMode, Set<TokenID>> tokensByModeMap = new EnumMap<>(SmartStreamSubsMode.class);
+	// registered by connect(), closed by disconnect(), kept while reconnecting
+	private volatile HeartbeatScheduler.Connection liveness;
+	private final ReconnectSupervisor reconnectSupervisor = new ReconnectSupervisor("smartstream",
+			this::reconnectAndResubscribe);
+	// set by disconnect(), any other disconnect is reconnected
+	private volatile boolean closing;
+	private volatile SequenceGapDetector gapDetector;
 
 	/**
      * Initializes the SmartStreamTicker.
      *
      * @param clientId            - the client ID used for authentication
      * @param feedToken           - the feed token used for authentication
-     * @param smartStreamListener - the SmartStreamListener for receiving callbacks
+     * @param smartStreamListener - the SmartStreamListener for receiving callbacks, a SmartStreamViewListener
+     *                              receives allocation free packet views instead of decoded objects
      * @throws IllegalArgumentException - if the clientId, feedToken, or SmartStreamListener is null or empty
      */
     public SmartStreamTicker(String clientId, String feedToken, SmartStreamListener smartStreamListener) {
@@ -66,6 +79,7 @@ public class SmartStreamTicker {
         this.clientId = clientId;
         this.feedToken = feedToken;
         this.smartStreamListener = smartStreamListener;
+        this.packetDispatcher = new SmartStreamPacketDispatcher(smartStreamListener);
         init();
     }
 
@@ -76,7 +90,8 @@ public class SmartStreamTicker {
 	 * @param feedToken           - the feed token used for authentication
 	 * @param delay               - delay in milliseconds
 	 * @param period              - period in milliseconds
-	 * @param smartStreamListener - the SmartStreamListener for receiving callbacks
+	 * @param smartStreamListener - the SmartStreamListener for receiving callbacks, a SmartStreamViewListener
+	 *                              receives allocation free packet views instead of decoded objects
 	 * @throws IllegalArgumentException - if the clientId, feedToken, or SmartStreamListener is null or empty
 	 */
 	public SmartStreamTicker(String clientId, String feedToken, SmartStreamListener smartStreamListener, Integer delay, Integer period ) {
@@ -89,9 +104,27 @@ public class SmartStreamTicker {
 		this.clientId = clientId;
 		this.feedToken = feedToken;
 		this.smartStreamListener = smartStreamListener;
+		this.packetDispatcher = new SmartStreamPacketDispatcher(smartStreamListener);
 		init();
 	}
 
+	/**
+	 * Initializes the SmartStreamTicker in ring buffer mode. Binary frames are handed from the
+	 * websocket reading thread to consumer threads, which decode them and invoke the listener,
+	 * so a slow listener no longer stalls the socket.
+	 *
+	 * @param clientId            - the client ID used for authentication
+	 * @param feedToken           - the feed token used for authentication
+	 * @param smartStreamListener - the SmartStreamListener for receiving callbacks
+	 * @param ringBufferConfig    - capacity, number of consumers and wait strategy of the ring buffer
+	 * @throws IllegalArgumentException - if any argument is null or empty, or the config is invalid
+	 */
+	public SmartStreamTicker(String clientId, String feedToken, SmartStreamListener smartStreamListener, SmartStreamRingBufferConfig ringBufferConfig) {
+		this(clientId, feedToken, smartStreamListener);
+		this.ringBufferConfig = ringBufferConfig;
+		this.ringBuffer = new SmartStreamRingBuffer(smartStreamListener, ringBufferConfig);
+	}
+
 
 	private void init() {
 		try {
@@ -133,55 +166,22 @@ public class SmartStreamTicker {
 
 			@Override
 			public void onBinaryMessage(WebSocket websocket, byte[] binary) {
-				SmartStreamSubsMode mode = SmartStreamSubsMode.findByVal(binary[0]);
-				if (Utils.validateInputNullCheck(mode)) {
-					StringBuilder sb = new StringBuilder();
-					sb.append("Invalid SubsMode=");
-					sb.append(binary[0]);
-					sb.append(" in the response binary packet");
-					smartStreamListener.onError(getErrorHolder(new SmartAPIException(sb.toString())));
+				SequenceGapDetector detector = gapDetector;
+				if (detector != null) {
+					detector.onPacket(binary);
 				}
-				try {
-					switch (mode) {
-						case LTP: {
-							ByteBuffer packet = ByteBuffer.wrap(binary).order(ByteOrder.LITTLE_ENDIAN);
-							LTP ltp = ByteUtils.mapToLTP(packet);
-							smartStreamListener.onLTPArrival(ltp);
-							break;
-						}
-						case QUOTE: {
-							ByteBuffer packet = ByteBuffer.wrap(binary).order(ByteOrder.LITTLE_ENDIAN);
-							Quote quote = ByteUtils.mapToQuote(packet);
-							smartStreamListener.onQuoteArrival(quote);
-							break;
-						}
-						case SNAP_QUOTE: {
-							ByteBuffer packet = ByteBuffer.wrap(binary).order(ByteOrder.LITTLE_ENDIAN);
-							SnapQuote snapQuote = ByteUtils.mapToSnapQuote(packet);
-							smartStreamListener.onSnapQuoteArrival(snapQuote);
-							break;
-						}
-						case DEPTH_20: {
-							ByteBuffer packet = ByteBuffer.wrap(binary).order(ByteOrder.LITTLE_ENDIAN);
-							Depth depth = ByteUtils.mapToDepth20(packet);
-							smartStreamListener.onDepthArrival(depth);
-							break;
-						}
-						default: {
-							smartStreamListener.onError(getErrorHolder(
-									new SmartAPIException("SubsMode=" + mode + " in the response is not handled.")));
-							break;
-						}
-					}
-				} catch (Exception e) {
-					smartStreamListener.onError(getErrorHolder(e));
+				SmartStreamRingBuffer buffer = ringBuffer;
+				if (buffer != null) {
+					buffer.publish(binary);
+				} else {
+					packetDispatcher.dispatch(binary);
 				}
 			}
 
 			@Override
 			public void onPongFrame(WebSocket websocket, WebSocketFrame frame) throws Exception {
 				try {
-                    lastPongReceivedTime = LocalDateTime.now();
+                    liveness.onPong();
                     smartStreamListener.onPong();
                 } catch (Exception e) {
                     SmartStreamError error = new SmartStreamError();
@@ -203,11 +203,11 @@ public class SmartStreamTicker {
 			public void onDisconnected(WebSocket websocket, WebSocketFrame serverCloseFrame,
 					WebSocketFrame clientCloseFrame, boolean closedByServer) {
 				try {
-                    if (closedByServer) {
-                        reconnectAndResubscribe();
-                    } else {
-                        stopPingTimer();
-                        smartStreamListener.onDisconnected();
+                    stopPingTimer();
+                    smartStreamListener.onDisconnected();
+                    if (!closing) {
+                        // closed by the server, the network or a missing pong
+                        reconnectSupervisor.scheduleReconnect();
                     }
                 } catch (Exception e) {
                 	SmartStreamError error = new SmartStreamError();
@@ -229,49 +229,91 @@ public class SmartStreamTicker {
 	}
 
 	private void startPingTimer(final WebSocket websocket) {
+		liveness.stop();
+		// onDisconnected schedules the reconnect
+		liveness.watchPongs(delayInMilliSeconds, periodInMilliSeconds, PONG_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS,
+				websocket::disconnect);
+	}
 
-        pingTimer = new Timer();
-        pingTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    LocalDateTime currentTime = LocalDateTime.now();
-                    if (lastPongReceivedTime.isBefore(currentTime.minusSeconds(20))) {
-                        websocket.disconnect();
-                        reconnectAndResubscribe();
-                    }
-                } catch (Exception e) {
-                    smartStreamListener.onError(getErrorHolder(e));
-                }
-            }
-        }, delayInMilliSeconds, periodInMilliSeconds); // run at every 5 second
-    }
-
-    private void stopPingTimer() {
-        if (Utils.validateInputNotNullCheck(pingTimer)) {
-            pingTimer.cancel();
-            pingTimer = null;
-        }
-    }
+	private void stopPingTimer() {
+		liveness.stop();
+	}
 
 	private void reconnectAndResubscribe() throws WebSocketException {
+		if (closing) {
+			return;
+		}
 		log.info("reconnectAndResubscribe - started");
+		SequenceGapDetector detector = gapDetector;
+		if (detector != null) {
+			detector.onReconnect();
+		}
 		init();
-		connect();
-		// resubscribing the existing tokens as per the mode
-		tokensByModeMap.forEach((mode,tokens) -> {
-			subscribe(mode, tokens);
-		});
-		log.info("reconnectAndResubscribe - done");
+		open();
+		// resubscribing every token still subscribed, as few requests per mode as possible
+		int resubscribed = 0;
+		synchronized (tokensByModeMap) {
+			for (Map.Entry<SmartStreamSubsMode, Set<TokenID>> entry : tokensByModeMap.entrySet()) {
+				if (!entry.getValue().isEmpty()) {
+					sendInBatches(SmartStreamAction.SUBS, entry.getKey(), entry.getValue());
+					resubscribed += entry.getValue().size();
+				}
+			}
+		}
+		log.info("reconnectAndResubscribe - done, resubscribed {} tokens", resubscribed);
+	}
+
+	/**
+	 * Returns the heartbeat counters of the ticker, e.g. the time since the last pong,
+	 * null before it first connects.
+	 */
+	public HeartbeatScheduler.Connection getLiveness() {
+		return liveness;
+	}
+
+	/**
+	 * Returns the supervisor that reconnects the ticker, e.g. to change its backoff.
+	 */
+	public ReconnectSupervisor getReconnectSupervisor() {
+		return reconnectSupervisor;
+	}
+
+	/**
+	 * Reports the tokens that missed packets while the ticker was reconnecting,
+	 * see {@link SequenceGapDetector}. Null stops tracking sequence numbers.
+	 */
+	public void setGapListener(SequenceGapDetector.GapListener gapListener) {
+		this.gapDetector = gapListener == null ? null : new SequenceGapDetector(gapListener);
+	}
+
+	/**
+	 * Returns the gap detector, or null if no gap listener is set.
+	 */
+	public SequenceGapDetector getSequenceGapDetector() {
+		return gapDetector;
 	}
 
 	/** Disconnects websocket connection. */
 	public void disconnect() {
-
+		closing = true;
+		reconnectSupervisor.cancel();
+		if (liveness != null) {
+			liveness.close();
+		}
 		if (ws != null) {
-			stopPingTimer();
 			ws.disconnect();
 		}
+		if (ringBuffer != null) {
+			ringBuffer.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the ring buffer with its lag and dropped frame counters, or null when
+	 * the ticker dispatches on the websocket reading thread.
+	 */
+	public SmartStreamRingBuffer getRingBuffer() {
+		return ringBuffer;
 	}
 
 	/**
@@ -293,55 +335,100 @@ public class SmartStreamTicker {
 	}
 
 	/**
-	 * Subscribes tokens.
+	 * Subscribes tokens in addition to the ones already subscribed in the mode.
+	 * Only tokens not yet subscribed are sent, in as few requests as the per
+	 * request token limit allows. While the ticker is reconnecting the tokens
+	 * are only recorded and subscribed once it is connected again.
 	 */
 	public void subscribe(SmartStreamSubsMode mode, Set<TokenID> tokens) {
-		if (ws != null) {
-			if (ws.isOpen()) {
-				for (TokenID token : tokens) {
-					if (ExchangeType.NSE_CM.equals(token.getExchangeType()) && SmartStreamSubsMode.DEPTH_20.equals(mode)) {
-						if (tokens.size() < 50) {
-							JSONObject wsMWJSONRequest = getApiRequest(SmartStreamAction.SUBS, mode, tokens);
-							ws.sendText(wsMWJSONRequest.toString());
-							tokensByModeMap.put(mode, tokens);
-						} else {
-							smartStreamListener.onError(getErrorHolder(new SmartAPIException("Token size should be less than 50", "504")));
-						}
-					} else {
-						if (!ExchangeType.NSE_CM.equals(token.getExchangeType()) && SmartStreamSubsMode.DEPTH_20.equals(mode)) {
-							smartStreamListener.onError(getErrorHolder(new SmartAPIException("Invalid Exchange Type: Please check the exchange type and try again", "504")));
-						} else {
-							JSONObject wsMWJSONRequest = getApiRequest(SmartStreamAction.SUBS, mode, tokens);
-							ws.sendText(wsMWJSONRequest.toString());
-							tokensByModeMap.put(mode, tokens);
-						}
-					}
+		if (SmartStreamSubsMode.DEPTH_20.equals(mode)) {
+			for (TokenID token : tokens) {
+				if (!ExchangeType.NSE_CM.equals(token.getExchangeType())) {
+					smartStreamListener.onError(getErrorHolder(new SmartAPIException("Invalid Exchange Type: Please check the exchange type and try again", "504")));
+					return;
 				}
-			} else {
-				smartStreamListener.onError(getErrorHolder(new SmartAPIException("ticker is not connected", "504")));
 			}
-		} else {
-			smartStreamListener.onError(getErrorHolder(new SmartAPIException("ticker is null not connected", "504")));
+		}
+		synchronized (tokensByModeMap) {
+			if (!isSubscribable()) {
+				return;
+			}
+			Set<TokenID> subscribed = tokensByModeMap.computeIfAbsent(mode, m -> new HashSet<>());
+			Set<TokenID> added = new HashSet<>(tokens);
+			added.removeAll(subscribed);
+			if (added.isEmpty()) {
+				return;
+			}
+			if (SmartStreamSubsMode.DEPTH_20.equals(mode) && subscribed.size() + added.size() >= MAX_DEPTH_20_TOKENS) {
+				smartStreamListener.onError(getErrorHolder(new SmartAPIException("Token size should be less than 50", "504")));
+				return;
+			}
+			subscribed.addAll(added);
+			if (isConnectionOpen()) {
+				sendInBatches(SmartStreamAction.SUBS, mode, added);
+			}
 		}
 	}
 
 	/**
-	 * Unsubscribes tokens.
+	 * Unsubscribes tokens, only the ones subscribed in the mode are sent.
 	 */
 	public void unsubscribe(SmartStreamSubsMode mode, Set<TokenID> tokens) {
-		if (ws != null) {
-			if (ws.isOpen()) {
-				JSONObject wsMWJSONRequest = getApiRequest(SmartStreamAction.UNSUBS, mode, tokens);
-				ws.sendText(wsMWJSONRequest.toString());
-				Set<TokenID> currentlySubscribedTokens = tokensByModeMap.get(mode);
-				if(currentlySubscribedTokens != null) {
-					currentlySubscribedTokens.removeAll(tokens);
-				}
-			} else {
-				smartStreamListener.onError(getErrorHolder(new SmartAPIException("ticker is not connected", "504")));
+		synchronized (tokensByModeMap) {
+			if (!isSubscribable()) {
+				return;
+			}
+			Set<TokenID> subscribed = tokensByModeMap.get(mode);
+			if (subscribed == null) {
+				return;
+			}
+			Set<TokenID> removed = new HashSet<>(tokens);
+			removed.retainAll(subscribed);
+			if (removed.isEmpty()) {
+				return;
 			}
-		} else {
+			subscribed.removeAll(removed);
+			if (isConnectionOpen()) {
+				sendInBatches(SmartStreamAction.UNSUBS, mode, removed);
+			}
+		}
+	}
+
+	/**
+	 * Returns a copy of the tokens subscribed in a mode, they are resubscribed on reconnect.
+	 */
+	public Set<TokenID> getSubscribedTokens(SmartStreamSubsMode mode) {
+		synchronized (tokensByModeMap) {
+			Set<TokenID> subscribed = tokensByModeMap.get(mode);
+			return subscribed == null ? new HashSet<>() : new HashSet<>(subscribed);
+		}
+	}
+
+	// guarded by tokensByModeMap, reports why subscriptions cannot change
+	private boolean isSubscribable() {
+		if (ws == null) {
 			smartStreamListener.onError(getErrorHolder(new SmartAPIException("ticker is null not connected", "504")));
+			return false;
+		}
+		if (!isConnectionOpen() && !reconnectSupervisor.isReconnecting()) {
+			smartStreamListener.onError(getErrorHolder(new SmartAPIException("ticker is not connected", "504")));
+			return false;
+		}
+		return true;
+	}
+
+	// guarded by tokensByModeMap
+	private void sendInBatches(SmartStreamAction action, SmartStreamSubsMode mode, Set<TokenID> tokens) {
+		Set<TokenID> batch = new HashSet<>();
+		for (TokenID token : tokens) {
+			batch.add(token);
+			if (batch.size() == MAX_TOKENS_PER_REQUEST) {
+				send(getApiRequest(action, mode, batch).toString());
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			send(getApiRequest(action, mode, batch).toString());
 		}
 	}
 
@@ -382,8 +469,31 @@ public class SmartStreamTicker {
 	}
 
 	public void connect() throws WebSocketException {
-		ws.connect();
+		closing = false;
+		if (liveness == null || liveness.isClosed()) {
+			liveness = HeartbeatScheduler.getDefault().register("smartstream");
+		}
+		open();
+	}
+
+	private void open() throws WebSocketException {
+		if (ringBufferConfig != null) {
+			if (ringBuffer.isShutdown()) {
+				ringBuffer = new SmartStreamRingBuffer(smartStreamListener, ringBufferConfig);
+			}
+			ringBuffer.start();
+		}
+		openSocket();
 		log.info("connected to uri: {}", wsuri);
 	}
 
+	// the only calls that reach the network, tests replace them with a fake socket
+	void openSocket() throws WebSocketException {
+		ws.connect();
+	}
+
+	void send(String request) {
+		ws.sendText(request);
+	}
+
 }
@@ -0,0 +1,35 @@
+package com.angelbroking.smartapi.smartstream.ticker;
+
+import com.angelbroking.smartapi.smartstream.models.*;
+
+/**
+ * SmartStreamListener variant that receives reusable flyweight views instead of
+ * freshly decoded packet objects.
+ *
+ * When a SmartStreamTicker is created with a SmartStreamViewListener, binary
+ * packets are not decoded into LTP/Quote/SnapQuote/Depth objects at all. The
+ * same view instance is handed out for every packet of a given mode and is only
+ * valid for the duration of the callback.
+ */
+public interface SmartStreamViewListener extends SmartStreamListener {
+	void onLTPViewArrival(LTPView ltp);
+	void onQuoteViewArrival(QuoteView quote);
+	void onSnapQuoteViewArrival(SnapQuoteView snapQuote);
+	void onDepthViewArrival(DepthView depth);
+
+	@Override
+	default void onLTPArrival(LTP ltp) {
+	}
+
+	@Override
+	default void onQuoteArrival(Quote quote) {
+	}
+
+	@Override
+	default void onSnapQuoteArrival(SnapQuote snapQuote) {
+	}
+
+	@Override
+	default void onDepthArrival(Depth depth) {
+	}
+}
@@ -0,0 +1,13 @@
+package com.angelbroking.smartapi.smartstream.ticker;
+
+/**
+ * How a ring buffer consumer waits when there are no frames to dispatch.
+ */
+public enum WaitStrategy {
+	/** Spins on the CPU, lowest latency at the cost of a fully busy core per consumer. */
+	BUSY_SPIN,
+	/** Spins but yields the CPU to other runnable threads between checks. */
+	YIELD,
+	/** Parks the consumer until the reader thread publishes a frame. */
+	PARK
+}
@@ -8,8 +8,6 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.DataFormatException;
 import java.util.zip.InflaterOutputStream;
@@ -21,6 +19,7 @@ import org.json.JSONObject;
 
 import com.angelbroking.smartapi.Routes;
 import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+import com.angelbroking.smartapi.utils.HeartbeatScheduler;
 import com.angelbroking.smartapi.utils.NaiveSSLContext;
 import com.neovisionaries.ws.client.WebSocket;
 import com.neovisionaries.ws.client.WebSocketAdapter;
@@ -41,6 +40,8 @@ public class SmartAPITicker {
 	private String script;
 	private String task;
 	private SSLContext context;
+	// registered by connect(), closed by disconnect()
+	private volatile HeartbeatScheduler.Connection heartbeat;
 
 	/**
 	 * Initialize SmartAPITicker.
@@ -135,11 +136,9 @@ public class SmartAPITicker {
 					}
 				};
 
-				ScheduledExecutorService service = Executors
-
-						.newSingleThreadScheduledExecutor();
-
-				service.scheduleAtFixedRate(runnable, 0, 1, TimeUnit.MINUTES);
+				// a reconnect replaces the heartbeat of the previous socket
+				heartbeat.stop();
+				heartbeat.scheduleHeartbeat(runnable, 0, 1, TimeUnit.MINUTES);
 
 			}
 
@@ -180,7 +179,7 @@ public class SmartAPITicker {
 			@Override
 			public void onDisconnected(WebSocket websocket, WebSocketFrame serverCloseFrame,
 					WebSocketFrame clientCloseFrame, boolean closedByServer) {
-
+				heartbeat.stop();
 				try {
 					context = NaiveSSLContext.getInstance("TLS");
 					ws = new WebSocketFactory().setSSLContext(context).setVerifyHostname(false).createSocket(wsuri);
@@ -196,12 +195,21 @@ public class SmartAPITicker {
 
 	/** Disconnects websocket connection. */
 	public void disconnect() {
-
+		if (heartbeat != null) {
+			heartbeat.close();
+		}
 		if (ws != null && ws.isOpen()) {
 			ws.disconnect();
 		}
 	}
 
+	/**
+	 * Returns the heartbeat counters of the ticker, null before it first connects.
+	 */
+	public HeartbeatScheduler.Connection getLiveness() {
+		return heartbeat;
+	}
+
 	/**
 	 * Returns true if websocket connection is open.
 	 * 
@@ -284,6 +292,9 @@ public class SmartAPITicker {
 	}
 
 	public void connect() {
+		if (heartbeat == null || heartbeat.isClosed()) {
+			heartbeat = HeartbeatScheduler.getDefault().register("ticker");
+		}
 		try {
 			ws.connect();
 		} catch (WebSocketException e) {
@@ -1,6 +1,9 @@
 package com.angelbroking.smartapi.utils;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -10,9 +13,44 @@ import com.angelbroking.smartapi.smartstream.models.*;
 import static com.angelbroking.smartapi.utils.Constants.*;
 
 public class ByteUtils {
-    
+
     private static final int CHAR_ARRAY_SIZE = 25;
 
+    // Little-endian views over raw packet bytes, used by the flyweight decoders so that
+    // reading a field does not require wrapping the frame in a ByteBuffer.
+    private static final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle DOUBLE_LE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Utility methods for reading from a raw little-endian packet
+    public static short getShort(byte[] packet, int offset) {
+        return (short) SHORT_LE.get(packet, offset);
+    }
+
+    public static int getInt(byte[] packet, int offset) {
+        return (int) INT_LE.get(packet, offset);
+    }
+
+    public static long getLong(byte[] packet, int offset) {
+        return (long) LONG_LE.get(packet, offset);
+    }
+
+    public static double getDouble(byte[] packet, int offset) {
+        return (double) DOUBLE_LE.get(packet, offset);
+    }
+
+    /**
+     * Returns the number of significant bytes in the NUL padded token field of a packet.
+     */
+    public static int getTokenLength(byte[] packet) {
+        int length = 0;
+        while (length < TOKEN_SIZE && packet[TOKEN_OFFSET + length] != 0) {
+            length++;
+        }
+        return length;
+    }
+
     // Utility methods for reading from ByteBuffer
     public static int readInt(ByteBuffer buffer) {
         return buffer.getInt();
@@ -48,11 +86,18 @@ public class ByteUtils {
         return new Depth(packet);
     }
 	public static TokenID getTokenID(ByteBuffer byteBuffer) {
+		if (byteBuffer.hasArray() && byteBuffer.arrayOffset() == 0) {
+			// resolve through the registry so that decoding a known token allocates nothing
+			return TokenRegistry.getDefault().intern(byteBuffer.array());
+		}
 		byte[] token = new byte[CHAR_ARRAY_SIZE];
-		for (int i = 0; i < CHAR_ARRAY_SIZE; i++) {
-			token[i] = byteBuffer.get(2 + i);
+		int length = 0;
+		while (length < CHAR_ARRAY_SIZE && byteBuffer.get(TOKEN_OFFSET + length) != 0) {
+			token[length] = byteBuffer.get(TOKEN_OFFSET + length);
+			length++;
 		}
-		return new TokenID(ExchangeType.findByValue(byteBuffer.get(1)), new String(token, StandardCharsets.UTF_8));
+		return TokenRegistry.getDefault().intern(new TokenID(ExchangeType.findByValue(byteBuffer.get(EXCHANGE_TYPE)),
+				new String(token, 0, length, StandardCharsets.UTF_8)));
 	}
 	
 	public static SmartApiBBSInfo[] getBestFiveBuyData(ByteBuffer buffer) {
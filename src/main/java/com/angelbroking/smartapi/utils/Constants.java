@@ -50,6 +50,8 @@ public class Constants {
     public static final int LAST_TRADED_PRICE_OFFSET = 43;
     public static final int SUBSCRIPTION_MODE = 0;
     public static final int EXCHANGE_TYPE = 1;
+    public static final int TOKEN_OFFSET = 2;
+    public static final int TOKEN_SIZE = 25;
     public static final int LAST_TRADED_QTY_OFFSET = 51;
     public static final int AVG_TRADED_PRICE_OFFSET = 59;
     public static final int VOLUME_TRADED_TODAY_OFFSET = 67;
@@ -0,0 +1,235 @@
+package com.angelbroking.smartapi.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the heartbeats and stale pong checks of all websocket connections.
+ *
+ * One daemon timer thread keeps time for every connection and each task runs
+ * on a virtual thread, so a send that blocks on a dead socket delays neither
+ * the timer nor the other connections. A run is skipped while the previous run
+ * of the same task is still going. Tasks belong to a {@link Connection}: they
+ * are scheduled when it connects and cancelled together by
+ * {@link Connection#stop()} when it disconnects, so no task outlives its
+ * socket. Connections also count heartbeats, pongs and stale checks, see
+ * {@link #getConnections()}.
+ */
+public class HeartbeatScheduler {
+
+	private static final Logger log = LoggerFactory.getLogger(HeartbeatScheduler.class);
+
+	private static final HeartbeatScheduler DEFAULT = new HeartbeatScheduler();
+
+	private final ScheduledThreadPoolExecutor timer;
+	private final ExecutorService runner;
+	private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+	public HeartbeatScheduler() {
+		this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "smartapi-heartbeat-timer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// cancelled tasks of closed connections must not pile up in the queue
+		this.timer.setRemoveOnCancelPolicy(true);
+		this.runner = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("smartapi-heartbeat-", 0).factory());
+	}
+
+	/**
+	 * Returns the scheduler shared by the SmartAPI websocket clients.
+	 */
+	public static HeartbeatScheduler getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Registers a connection, its tasks run once scheduled. Register when the
+	 * client connects and close the connection when it disconnects, closed
+	 * connections are no longer listed.
+	 *
+	 * @param name identifies the connection in the log and the metrics.
+	 */
+	public Connection register(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("name should not be null");
+		}
+		Connection connection = new Connection(name);
+		connections.add(connection);
+		return connection;
+	}
+
+	/**
+	 * Returns the registered connections with their liveness counters.
+	 */
+	public List<Connection> getConnections() {
+		return new ArrayList<>(connections);
+	}
+
+	/** The periodic tasks and liveness counters of one websocket connection. */
+	public final class Connection implements AutoCloseable {
+		private final String name;
+		// guarded by this
+		private final List<ScheduledFuture<?>> tasks = new ArrayList<>();
+		// guarded by this
+		private boolean closed;
+		private final AtomicLong heartbeats = new AtomicLong();
+		private final AtomicLong heartbeatFailures = new AtomicLong();
+		private final AtomicLong pongs = new AtomicLong();
+		private final AtomicLong stalePongs = new AtomicLong();
+		private volatile long lastPongNanos = System.nanoTime();
+		// pongs are overdue after the timeout from the later of this and the last pong
+		private volatile long watchedSinceNanos = lastPongNanos;
+
+		private Connection(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Runs a task at a fixed rate until {@link #stop()}. Does nothing once
+		 * the connection is closed.
+		 */
+		public synchronized void schedule(Runnable task, long initialDelay, long period, TimeUnit unit) {
+			if (task == null || period <= 0) {
+				throw new IllegalArgumentException("task should not be null and period should be positive");
+			}
+			if (closed) {
+				// e.g. a socket that connected after its client was disconnected
+				return;
+			}
+			AtomicBoolean running = new AtomicBoolean();
+			Runnable run = () -> {
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					// nothing else observes the virtual thread, so the failure is only logged
+					log.warn("{} heartbeat task failed: {}", name, e.getMessage());
+				} finally {
+					running.set(false);
+				}
+			};
+			tasks.add(timer.scheduleAtFixedRate(() -> {
+				if (!running.compareAndSet(false, true)) {
+					return;
+				}
+				try {
+					runner.execute(run);
+				} catch (RejectedExecutionException e) {
+					running.set(false);
+				}
+			}, initialDelay, period, unit));
+		}
+
+		/**
+		 * Sends a heartbeat at a fixed rate until {@link #stop()}, failed sends are counted.
+		 */
+		public void scheduleHeartbeat(Runnable send, long initialDelay, long period, TimeUnit unit) {
+			schedule(() -> {
+				try {
+					send.run();
+					heartbeats.incrementAndGet();
+				} catch (RuntimeException e) {
+					heartbeatFailures.incrementAndGet();
+					throw e;
+				}
+			}, initialDelay, period, unit);
+		}
+
+		/**
+		 * Checks at a fixed rate that a pong arrived within the timeout and runs
+		 * onStale if none did, e.g. to close the socket. The timeout starts now.
+		 */
+		public void watchPongs(long initialDelay, long period, long timeout, TimeUnit unit, Runnable onStale) {
+			long timeoutNanos = unit.toNanos(timeout);
+			watchedSinceNanos = System.nanoTime();
+			schedule(() -> {
+				long now = System.nanoTime();
+				long lastPong = lastPongNanos;
+				long since = lastPong - watchedSinceNanos > 0 ? lastPong : watchedSinceNanos;
+				if (now - since > timeoutNanos) {
+					stalePongs.incrementAndGet();
+					log.warn("{} received no pong for {} ms", name, getMillisSinceLastPong());
+					// one stale check per timeout, not one per period
+					watchedSinceNanos = now;
+					onStale.run();
+				}
+			}, initialDelay, period, unit);
+		}
+
+		/** Records a pong, called by the websocket listener. */
+		public void onPong() {
+			lastPongNanos = System.nanoTime();
+			pongs.incrementAndGet();
+		}
+
+		/** Cancels the tasks of the connection, e.g. once its socket is disconnected. */
+		public synchronized void stop() {
+			for (ScheduledFuture<?> task : tasks) {
+				task.cancel(false);
+			}
+			tasks.clear();
+		}
+
+		/** Stops the tasks and removes the connection from the metrics. */
+		@Override
+		public synchronized void close() {
+			closed = true;
+			stop();
+			connections.remove(this);
+		}
+
+		public synchronized boolean isClosed() {
+			return closed;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/** Returns true while tasks are scheduled. */
+		public synchronized boolean isActive() {
+			return !tasks.isEmpty();
+		}
+
+		public long getHeartbeats() {
+			return heartbeats.get();
+		}
+
+		public long getHeartbeatFailures() {
+			return heartbeatFailures.get();
+		}
+
+		public long getPongs() {
+			return pongs.get();
+		}
+
+		/** Returns how many times a pong was overdue. */
+		public long getStalePongs() {
+			return stalePongs.get();
+		}
+
+		public long getMillisSinceLastPong() {
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastPongNanos);
+		}
+
+		@Override
+		public String toString() {
+			return "Connection [name=" + name + ", active=" + isActive() + ", heartbeats=" + getHeartbeats()
+					+ ", heartbeatFailures=" + getHeartbeatFailures() + ", pongs=" + getPongs() + ", stalePongs="
+					+ getStalePongs() + ", millisSinceLastPong=" + getMillisSinceLastPong() + "]";
+		}
+	}
+}
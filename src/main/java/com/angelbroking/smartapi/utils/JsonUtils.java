@@ -0,0 +1,23 @@
+package com.angelbroking.smartapi.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Shared Jackson instances. Both are thread safe once configured, and creating
+ * them is expensive, so they should not be instantiated per request.
+ */
+public final class JsonUtils {
+
+	/** Mapper for typed reads, ignores fields the models do not declare. */
+	public static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	/** Factory for streaming parsers, shares the symbol tables of the mapper. */
+	public static final JsonFactory JSON_FACTORY = OBJECT_MAPPER.getFactory();
+
+	private JsonUtils() {
+
+	}
+}
@@ -0,0 +1,206 @@
+package com.angelbroking.smartapi.utils;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reconnects a websocket with jittered exponential backoff.
+ *
+ * {@link #scheduleReconnect()} runs the connector after a delay that doubles
+ * with every failed attempt, from 500 milliseconds up to 30 seconds by default.
+ * Each delay is drawn between half and all of the backoff, so clients dropped
+ * together do not reconnect together. A failed attempt schedules the next one
+ * until the connector succeeds, the supervisor is cancelled or the maximum
+ * number of attempts is reached. A disconnect reported while an attempt is
+ * connecting is not lost, another attempt follows the current one. Attempts
+ * of all supervisors run on a small shared pool of daemon threads, never on
+ * the websocket or timer thread that noticed the disconnect.
+ */
+public class ReconnectSupervisor {
+
+	private static final Logger log = LoggerFactory.getLogger(ReconnectSupervisor.class);
+
+	private static final int SCHEDULER_THREADS = 2;
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+	private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(SCHEDULER_THREADS,
+			runnable -> {
+				Thread thread = new Thread(runnable, "smartapi-reconnect-" + THREAD_COUNT.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	/** Opens the connection again. */
+	@FunctionalInterface
+	public interface Connector {
+		void connect() throws Exception;
+	}
+
+	private final String name;
+	private final Connector connector;
+	private volatile long initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(500);
+	private volatile long maxBackoffNanos = TimeUnit.SECONDS.toNanos(30);
+	private volatile int maxAttempts;
+	private volatile Consumer<Exception> giveUpListener;
+	// guarded by this
+	private ScheduledFuture<?> pending;
+	private int attempts;
+	private long generation;
+	private boolean connecting;
+	// the connection dropped again while an attempt was connecting
+	private boolean droppedWhileConnecting;
+
+	/**
+	 * @param name      identifies the connection in the log.
+	 * @param connector opens the connection, throws if it could not.
+	 */
+	public ReconnectSupervisor(String name, Connector connector) {
+		if (name == null || connector == null) {
+			throw new IllegalArgumentException("name and connector should not be null");
+		}
+		this.name = name;
+		this.connector = connector;
+	}
+
+	/** Sets the backoff of the first attempt and the most it grows to. */
+	public void setBackoff(long initial, long max, TimeUnit unit) {
+		if (initial <= 0 || max < initial) {
+			throw new IllegalArgumentException("initial should be positive and not above max");
+		}
+		this.initialBackoffNanos = unit.toNanos(initial);
+		this.maxBackoffNanos = unit.toNanos(max);
+	}
+
+	/** Sets after how many failed attempts in a row to give up, 0 never gives up. */
+	public void setMaxAttempts(int maxAttempts) {
+		if (maxAttempts < 0) {
+			throw new IllegalArgumentException("maxAttempts should not be negative");
+		}
+		this.maxAttempts = maxAttempts;
+	}
+
+	/** Sets what to call with the last error once the supervisor gives up. */
+	public void setGiveUpListener(Consumer<Exception> giveUpListener) {
+		this.giveUpListener = giveUpListener;
+	}
+
+	/**
+	 * Schedules a reconnect unless one is already pending. Called while an
+	 * attempt is connecting, another attempt follows it.
+	 *
+	 * @return false if a reconnect was already pending or connecting.
+	 */
+	public synchronized boolean scheduleReconnect() {
+		if (connecting) {
+			droppedWhileConnecting = true;
+			return false;
+		}
+		if (pending != null) {
+			return false;
+		}
+		schedule();
+		return true;
+	}
+
+	/** Cancels the pending reconnect, e.g. when the connection is closed on purpose. */
+	public synchronized void cancel() {
+		generation++;
+		attempts = 0;
+		connecting = false;
+		droppedWhileConnecting = false;
+		if (pending != null) {
+			pending.cancel(false);
+			pending = null;
+		}
+	}
+
+	/** Returns true while a reconnect is scheduled or running. */
+	public synchronized boolean isReconnecting() {
+		return pending != null;
+	}
+
+	/** Returns the number of failed attempts since the last successful one. */
+	public synchronized int getAttempts() {
+		return attempts;
+	}
+
+	// guarded by this
+	private void schedule() {
+		long run = generation;
+		long delay = backoffNanos(attempts, ThreadLocalRandom.current().nextDouble());
+		log.info("{} reconnecting in {} ms, attempt {}", name, TimeUnit.NANOSECONDS.toMillis(delay), attempts + 1);
+		pending = SCHEDULER.schedule(() -> attempt(run), delay, TimeUnit.NANOSECONDS);
+	}
+
+	private void attempt(long run) {
+		synchronized (this) {
+			if (run != generation) {
+				return;
+			}
+			connecting = true;
+		}
+		Exception error = null;
+		try {
+			connector.connect();
+		} catch (Exception e) {
+			error = e;
+		}
+		Consumer<Exception> giveUp = null;
+		synchronized (this) {
+			if (run != generation) {
+				// cancelled while connecting
+				return;
+			}
+			connecting = false;
+			boolean dropped = droppedWhileConnecting;
+			droppedWhileConnecting = false;
+			if (error == null && dropped) {
+				log.info("{} dropped while reconnecting, reconnecting again", name);
+				attempts = 0;
+				schedule();
+				return;
+			}
+			if (error == null) {
+				log.info("{} reconnected after {} failed attempts", name, attempts);
+				attempts = 0;
+				pending = null;
+				return;
+			}
+			attempts++;
+			log.warn("{} reconnect attempt {} failed: {}", name, attempts, error.getMessage());
+			if (maxAttempts > 0 && attempts >= maxAttempts) {
+				log.error("{} giving up after {} attempts", name, attempts);
+				attempts = 0;
+				pending = null;
+				giveUp = giveUpListener;
+			} else {
+				schedule();
+			}
+		}
+		if (giveUp != null) {
+			giveUp.accept(error);
+		}
+	}
+
+	/**
+	 * Returns the delay before an attempt.
+	 *
+	 * @param failed is the number of failed attempts before it.
+	 * @param random is in [0, 1), picks the delay between half and all of the backoff.
+	 */
+	long backoffNanos(int failed, double random) {
+		long backoff = initialBackoffNanos;
+		for (int i = 0; i < failed && backoff < maxBackoffNanos; i++) {
+			backoff *= 2;
+		}
+		backoff = Math.min(backoff, maxBackoffNanos);
+		return backoff / 2 + (long) (random * (backoff / 2));
+	}
+}
@@ -0,0 +1,87 @@
+package com.angelbroking.smartapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+
+public class MarketDataBatcherTest {
+
+	/** Answers every request with an LTP of the token number, except token 0. */
+	private static CompletableFuture<JSONObject> answer(JSONObject params) {
+		JSONArray fetched = new JSONArray();
+		JSONArray unfetched = new JSONArray();
+		JSONObject exchangeTokens = params.getJSONObject("exchangeTokens");
+		for (String exchange : exchangeTokens.keySet()) {
+			for (Object token : exchangeTokens.getJSONArray(exchange)) {
+				JSONObject entry = new JSONObject().put("exchange", exchange).put("symbolToken", token);
+				if ("0".equals(token)) {
+					unfetched.put(entry.put("message", "Invalid token").put("errorCode", "AB4006"));
+				} else {
+					fetched.put(entry.put("ltp", Double.parseDouble((String) token)));
+				}
+			}
+		}
+		return CompletableFuture.completedFuture(new JSONObject().put("fetched", fetched).put("unfetched", unfetched));
+	}
+
+	@Test
+	void testLookupsWithinWindowShareOneCall() throws Exception {
+		List<JSONObject> calls = new ArrayList<>();
+		try (MarketDataBatcher batcher = new MarketDataBatcher(params -> {
+			synchronized (calls) {
+				calls.add(params);
+			}
+			return answer(params);
+		}, 50, TimeUnit.MILLISECONDS)) {
+			CompletableFuture<JSONObject> sbin = batcher.getLTP("NSE", "3045");
+			CompletableFuture<JSONObject> sbinAgain = batcher.getLTP("NSE", "3045");
+			CompletableFuture<JSONObject> sensex = batcher.getLTP("BSE", "99919000");
+			CompletableFuture<JSONObject> invalid = batcher.getLTP("NSE", "0");
+
+			assertEquals(3045.0, sbin.get(5, TimeUnit.SECONDS).getDouble("ltp"), 0);
+			assertSame(sbin.get(), sbinAgain.get());
+			assertEquals(99919000.0, sensex.get(5, TimeUnit.SECONDS).getDouble("ltp"), 0);
+			ExecutionException e = assertThrows(ExecutionException.class, () -> invalid.get(5, TimeUnit.SECONDS));
+			assertInstanceOf(SmartAPIException.class, e.getCause());
+		}
+		assertEquals(1, calls.size());
+		assertEquals("LTP", calls.get(0).getString("mode"));
+		assertEquals(2, calls.get(0).getJSONObject("exchangeTokens").getJSONArray("NSE").length());
+	}
+
+	@Test
+	void testFullExchangeIsSentWithoutWaiting() throws Exception {
+		List<JSONObject> calls = new ArrayList<>();
+		try (MarketDataBatcher batcher = new MarketDataBatcher(params -> {
+			synchronized (calls) {
+				calls.add(params);
+			}
+			return answer(params);
+		}, 1, TimeUnit.HOURS)) {
+			List<CompletableFuture<JSONObject>> futures = new ArrayList<>();
+			for (int token = 1; token <= 120; token++) {
+				futures.add(batcher.getQuote(MarketDataBatcher.MODE_FULL, "NSE", String.valueOf(token)));
+			}
+			for (int i = 0; i < 100; i++) {
+				assertEquals(i + 1.0, futures.get(i).get(5, TimeUnit.SECONDS).getDouble("ltp"), 0);
+			}
+			assertEquals(2, calls.size());
+		}
+		// closing sends the remaining 20
+		assertEquals(3, calls.size());
+		assertEquals(20, calls.get(2).getJSONObject("exchangeTokens").getJSONArray("NSE").length());
+	}
+}
@@ -0,0 +1,59 @@
+package com.angelbroking.smartapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.models.OrderParams;
+
+public class OrderJsonWriterTest {
+
+	private static OrderParams orderParams() {
+		OrderParams orderParams = new OrderParams();
+		orderParams.exchange = "NSE";
+		orderParams.tradingsymbol = "SBIN-EQ";
+		orderParams.transactiontype = "BUY";
+		orderParams.quantity = 10;
+		orderParams.price = 194.5;
+		orderParams.producttype = "INTRADAY";
+		orderParams.ordertype = "LIMIT";
+		orderParams.duration = "DAY";
+		orderParams.symboltoken = "3045";
+		return orderParams;
+	}
+
+	@Test
+	void testBodyMatchesPlaceOrderParams() {
+		OrderJsonWriter writer = new OrderJsonWriter();
+		writer.writePlaceOrder(orderParams(), "NORMAL");
+
+		String body = writer.toString();
+		assertEquals("{\"exchange\":\"NSE\",\"tradingsymbol\":\"SBIN-EQ\",\"transactiontype\":\"BUY\",\"quantity\":10,"
+				+ "\"price\":194.5,\"producttype\":\"INTRADAY\",\"ordertype\":\"LIMIT\",\"duration\":\"DAY\","
+				+ "\"symboltoken\":\"3045\",\"variety\":\"NORMAL\"}", body);
+		assertEquals(body.indexOf("\"price\""), body.lastIndexOf("\"price\""));
+		assertTrue(SmartConnect.placeOrderParams(orderParams(), "NORMAL").similar(new JSONObject(body)));
+	}
+
+	@Test
+	void testBufferIsReusedAndValuesAreEscaped() {
+		OrderJsonWriter writer = new OrderJsonWriter();
+		writer.writePlaceOrder(orderParams(), "NORMAL");
+
+		OrderParams orderParams = new OrderParams();
+		orderParams.tradingsymbol = "A\"B\\C€";
+		orderParams.price = 100.0;
+		writer.writePlaceOrder(orderParams, null);
+
+		assertEquals("{\"tradingsymbol\":\"A\\\"B\\\\C€\",\"price\":100}", writer.toString());
+		assertEquals("A\"B\\C€", new JSONObject(writer.toString()).getString("tradingsymbol"));
+		assertFalse(writer.toString().contains("variety"));
+
+		orderParams.price = Double.NaN;
+		assertThrows(IllegalArgumentException.class, () -> writer.writePlaceOrder(orderParams, "NORMAL"));
+	}
+}
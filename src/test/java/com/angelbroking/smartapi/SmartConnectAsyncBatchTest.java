@@ -0,0 +1,83 @@
+package com.angelbroking.smartapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.http.exceptions.OrderException;
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+import com.angelbroking.smartapi.models.Order;
+import com.angelbroking.smartapi.models.OrderParams;
+import com.angelbroking.smartapi.models.OrderResult;
+
+public class SmartConnectAsyncBatchTest {
+
+	private static OrderParams leg(String symbol, String orderId) {
+		OrderParams orderParams = new OrderParams();
+		orderParams.exchange = "NSE";
+		orderParams.tradingsymbol = symbol;
+		orderParams.orderid = orderId;
+		return orderParams;
+	}
+
+	@Test
+	void testLegsRunConcurrentlyButInOrderPerSymbol() throws Exception {
+		List<OrderParams> legs = Arrays.asList(leg("SBIN-EQ", "1"), leg("INFY-EQ", "2"), leg("SBIN-EQ", "3"),
+				leg("TCS-EQ", "4"));
+		Map<String, CompletableFuture<Order>> pending = new ConcurrentHashMap<>();
+		List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+		CompletableFuture<List<OrderResult>> batch = SmartConnectAsync.batch(legs, params -> {
+			sent.add(params.orderid);
+			CompletableFuture<Order> future = new CompletableFuture<>();
+			pending.put(params.orderid, future);
+			return future;
+		});
+
+		// the second SBIN leg waits for the first, the other symbols are in flight at once
+		assertEquals(Arrays.asList("1", "2", "4"), sent);
+		pending.get("1").completeExceptionally(new OrderException("rejected", "AB1008"));
+		assertEquals(Arrays.asList("1", "2", "4", "3"), sent);
+		assertFalse(batch.isDone());
+		for (String orderId : new String[] { "2", "3", "4" }) {
+			Order order = new Order();
+			order.orderId = orderId;
+			pending.get(orderId).complete(order);
+		}
+
+		List<OrderResult> results = batch.get(5, TimeUnit.SECONDS);
+		assertEquals(4, results.size());
+		assertFalse(results.get(0).isSuccess());
+		assertInstanceOf(OrderException.class, results.get(0).getError());
+		assertNull(results.get(0).getOrder());
+		for (int i = 1; i < 4; i++) {
+			assertTrue(results.get(i).isSuccess());
+			assertEquals(i, results.get(i).getIndex());
+			assertEquals(legs.get(i).orderid, results.get(i).getOrder().orderId);
+		}
+	}
+
+	@Test
+	void testRequestsWithoutSessionFailWithSmartAPIException() {
+		CompletableFuture<?> future = new SmartConnectAsync(new SmartConnect("key")).putCallRatio();
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+		assertInstanceOf(SmartAPIException.class, e.getCause());
+		assertEquals("apiKey and accessToken should be set before making requests", ((SmartAPIException) e.getCause()).message);
+	}
+}
@@ -0,0 +1,112 @@
+package com.angelbroking.smartapi.algos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.algos.strategies.MACrossoverStrategy;
+import com.angelbroking.smartapi.models.Candle;
+
+public class BacktestOptimizerTest {
+
+    private static List<Candle> candles() {
+        Random random = new Random(7);
+        List<Candle> candles = new ArrayList<>();
+        double price = 1000;
+        for (int i = 0; i < 2000; i++) {
+            price = Math.max(1, price + random.nextGaussian() * 5);
+            candles.add(new Candle(new Date(60_000L * i), price, price, price, price, 100));
+        }
+        return candles;
+    }
+
+    private static JSONObject baseParams() {
+        JSONObject params = new JSONObject();
+        params.put("symbolToken", "2885");
+        params.put("exchange", "NSE");
+        return params;
+    }
+
+    private static BacktestOptimizer optimizer(List<Candle> candles) {
+        return new BacktestOptimizer(MACrossoverStrategy::new, candles, new JSONObject())
+                .addRange("shortPeriod", 3, 9, 2)
+                .addRange("longPeriod", 20, 60, 20);
+    }
+
+    @Test
+    void testGridSearchRanksEveryCombination() throws InterruptedException {
+        List<Candle> candles = candles();
+        BacktestOptimizer optimizer = optimizer(candles);
+        assertEquals(12L, optimizer.getGridSize());
+
+        List<OptimizationResult> results = optimizer.setParallelism(4).gridSearch(baseParams());
+        assertEquals(12, results.size());
+        for (int i = 1; i < results.size(); i++) {
+            assertTrue(results.get(i - 1).getReport().getNetProfit() >= results.get(i).getReport().getNetProfit());
+        }
+        assertNull(results.get(0).getReport().getHistoricalCandles());
+
+        // parallel runs must not influence each other
+        List<OptimizationResult> sequential = optimizer(candles).setParallelism(1).gridSearch(baseParams());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(sequential.get(i).getReport().getNetProfit(), results.get(i).getReport().getNetProfit(), 1e-9);
+        }
+    }
+
+    @Test
+    void testDrawdownCutoffStopsRunsEarly() throws InterruptedException {
+        List<OptimizationResult> results = optimizer(candles()).setMaxDrawdownPercent(0.01).gridSearch(baseParams());
+        OptimizationResult last = results.get(results.size() - 1);
+        assertTrue(last.getReport().isStoppedEarly());
+        assertTrue(last.getReport().getEquityCurveValues().size() < 2000);
+        for (int i = 1; i < results.size(); i++) {
+            // completed runs are ranked before the ones that were cut off
+            assertFalse(results.get(i - 1).getReport().isStoppedEarly() && !results.get(i).getReport().isStoppedEarly());
+        }
+    }
+
+    @Test
+    void testRandomSearchIsReproducible() throws InterruptedException {
+        List<Candle> candles = candles();
+        List<OptimizationResult> first = optimizer(candles).setTopN(3).randomSearch(baseParams(), 8, 11L);
+        List<OptimizationResult> second = optimizer(candles).setTopN(3).randomSearch(baseParams(), 8, 11L);
+        assertEquals(3, first.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getParams().getInt("shortPeriod"), second.get(i).getParams().getInt("shortPeriod"));
+            assertEquals(first.get(i).getParams().getInt("longPeriod"), second.get(i).getParams().getInt("longPeriod"));
+        }
+    }
+
+    @Test
+    void testFailedRunFailsTheSearch() {
+        AtomicInteger strategies = new AtomicInteger();
+        BacktestOptimizer optimizer = new BacktestOptimizer(() -> {
+            if (strategies.incrementAndGet() == 3) {
+                throw new IllegalArgumentException("bad strategy");
+            }
+            return new MACrossoverStrategy();
+        }, candles(), new JSONObject()).addRange("shortPeriod", 3, 9, 2).addRange("longPeriod", 20, 20, 1);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> optimizer.setParallelism(1).gridSearch(baseParams()));
+        boolean namesParams = false;
+        Throwable cause = e;
+        while (cause.getCause() != null && !(cause instanceof IllegalArgumentException)) {
+            namesParams |= String.valueOf(cause.getMessage()).contains("backtest failed for params");
+            cause = cause.getCause();
+        }
+        assertTrue(namesParams);
+        assertEquals("bad strategy", cause.getMessage());
+    }
+}
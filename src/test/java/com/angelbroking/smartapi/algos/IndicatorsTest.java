@@ -0,0 +1,135 @@
+package com.angelbroking.smartapi.algos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.algos.indicators.AverageTrueRange;
+import com.angelbroking.smartapi.algos.indicators.BollingerBands;
+import com.angelbroking.smartapi.algos.indicators.ExponentialMovingAverage;
+import com.angelbroking.smartapi.algos.indicators.RelativeStrengthIndex;
+import com.angelbroking.smartapi.algos.indicators.SimpleMovingAverage;
+import com.angelbroking.smartapi.algos.strategies.MACrossoverStrategy;
+import com.angelbroking.smartapi.models.BacktestReport;
+import com.angelbroking.smartapi.models.Candle;
+
+public class IndicatorsTest {
+
+    private static double[] prices(int n) {
+        Random random = new Random(42);
+        double[] prices = new double[n];
+        double price = 1000;
+        for (int i = 0; i < n; i++) {
+            price += random.nextGaussian() * 5;
+            prices[i] = price;
+        }
+        return prices;
+    }
+
+    @Test
+    void testSimpleMovingAverageMatchesWindowAverage() {
+        double[] prices = prices(500);
+        SimpleMovingAverage sma = new SimpleMovingAverage(20);
+        for (int i = 0; i < prices.length; i++) {
+            double value = sma.update(prices[i]);
+            if (i < 19) {
+                assertTrue(Double.isNaN(value));
+                continue;
+            }
+            double sum = 0;
+            for (int j = i - 19; j <= i; j++) {
+                sum += prices[j];
+            }
+            assertEquals(sum / 20, value, 1e-9);
+        }
+    }
+
+    @Test
+    void testExponentialMovingAverageIsSeededWithSimpleAverage() {
+        ExponentialMovingAverage ema = new ExponentialMovingAverage(3);
+        assertTrue(Double.isNaN(ema.update(1)));
+        assertTrue(Double.isNaN(ema.update(2)));
+        assertEquals(2.0, ema.update(3), 1e-12);
+        assertEquals(3.0, ema.update(4), 1e-12);
+        assertEquals(4.0, ema.update(5), 1e-12);
+    }
+
+    @Test
+    void testRelativeStrengthIndexUsesWilderSmoothing() {
+        RelativeStrengthIndex rsi = new RelativeStrengthIndex(2);
+        rsi.update(10);
+        rsi.update(11);
+        assertFalse(rsi.isReady());
+        // gains 1, losses 0.5 -> 1 / 1.5
+        assertEquals(100.0 / 1.5, rsi.update(10.5), 1e-9);
+        // avg gain (0.5 + 1.5) / 2 = 1, avg loss (0.25 + 0) / 2 = 0.125
+        assertEquals(100.0 / 1.125, rsi.update(12), 1e-9);
+    }
+
+    @Test
+    void testAverageTrueRangeUsesPreviousClose() {
+        AverageTrueRange atr = new AverageTrueRange(2);
+        assertTrue(Double.isNaN(atr.update(11, 9, 10)));
+        // gap up: true range is high - previous close = 5
+        assertEquals(3.5, atr.update(15, 13, 14), 1e-12);
+        // true range 1, (3.5 + 1) / 2
+        assertEquals(2.25, atr.update(14.5, 13.5, 14), 1e-12);
+    }
+
+    @Test
+    void testBollingerBandsUsePopulationDeviation() {
+        BollingerBands bands = new BollingerBands(4, 2);
+        for (double v : new double[] {2, 4, 4, 4}) {
+            bands.update(v);
+        }
+        bands.update(5); // window 4, 4, 4, 5
+        assertEquals(4.25, bands.getMiddle(), 1e-12);
+        double deviation = Math.sqrt(0.1875);
+        assertEquals(deviation, bands.getStandardDeviation(), 1e-9);
+        assertEquals(4.25 + 2 * deviation, bands.getUpper(), 1e-9);
+        assertEquals(4.25 - 2 * deviation, bands.getLower(), 1e-9);
+    }
+
+    @Test
+    void testGenerateSignalsAndOnBarAgree() {
+        double[] prices = prices(400);
+        List<Candle> candles = new ArrayList<>();
+        for (int i = 0; i < prices.length; i++) {
+            candles.add(new Candle(new Date(60_000L * i), prices[i], prices[i], prices[i], prices[i], 100));
+        }
+        JSONObject params = new JSONObject();
+        params.put("symbolToken", "2885");
+        params.put("exchange", "NSE");
+        params.put("shortPeriod", 5);
+        params.put("longPeriod", 20);
+
+        MACrossoverStrategy strategy = new MACrossoverStrategy();
+        List<TradingAction> signals = strategy.generateSignals(candles, params);
+        assertFalse(signals.isEmpty());
+
+        strategy.init(null, params);
+        List<TradingAction> live = new ArrayList<>();
+        for (Candle candle : candles) {
+            TradingAction action = strategy.onBar(candle);
+            if (action.getActionType() != ActionType.HOLD) {
+                live.add(action);
+            }
+        }
+        assertEquals(signals.size(), live.size());
+        for (int i = 0; i < signals.size(); i++) {
+            assertEquals(signals.get(i).getTimestamp(), live.get(i).getTimestamp());
+            assertEquals(signals.get(i).getActionType(), live.get(i).getActionType());
+        }
+
+        BacktestReport report = new Backtester(strategy, candles, new JSONObject()).run(params);
+        assertEquals(signals.get(0).getTimestamp(), report.getTrades().get(0).getTimestamp());
+    }
+}
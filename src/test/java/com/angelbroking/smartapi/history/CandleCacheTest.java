@@ -0,0 +1,145 @@
+package com.angelbroking.smartapi.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.SmartConnect;
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+import com.angelbroking.smartapi.models.CandleSeries;
+
+public class CandleCacheTest {
+
+	private final List<JSONObject> requests = new ArrayList<>();
+	private SmartConnect smartConnect;
+	private CandleCache cache;
+	private Path directory;
+	// answer every request without candles, like a throttled or failed request
+	private boolean noCandles;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		smartConnect = new SmartConnect() {
+			@Override
+			public CandleSeries getCandleSeries(JSONObject params) {
+				requests.add(params);
+				// two candles per weekday, none on weekends
+				CandleSeries.Builder rows = new CandleSeries.Builder();
+				if (noCandles) {
+					return rows.build();
+				}
+				LocalDate from = LocalDate.parse(params.getString("fromdate").substring(0, 10));
+				LocalDate to = LocalDate.parse(params.getString("todate").substring(0, 10));
+				for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+					if (day.getDayOfWeek().getValue() >= 6) {
+						continue;
+					}
+					for (LocalTime time : new LocalTime[] {LocalTime.of(9, 15), LocalTime.of(9, 16)}) {
+						rows.add(day.atTime(time).atZone(CandleCache.TZ_IST).toInstant().toEpochMilli(), 100.0, 101.0,
+								99.0, 100.5, 1000L);
+					}
+				}
+				return rows.build();
+			}
+		};
+		directory = Files.createTempDirectory("candle-cache");
+		Clock clock = Clock.fixed(LocalDateTime.of(2024, 3, 20, 12, 0).atZone(CandleCache.TZ_IST).toInstant(),
+				CandleCache.TZ_IST);
+		cache = new CandleCache(smartConnect, directory, clock);
+	}
+
+	private CandleCache cacheAt(LocalDateTime now) {
+		return new CandleCache(smartConnect, directory, Clock.fixed(now.atZone(CandleCache.TZ_IST).toInstant(),
+				CandleCache.TZ_IST));
+	}
+
+	@Test
+	void testOnlyMissingDaysAreFetched() throws SmartAPIException, IOException {
+		CandleSeries first = cache.getCandles("NSE", "3045", "ONE_MINUTE", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+		assertEquals(23 * 2, first.size());
+		// 31 days need two requests of at most 30 days
+		assertEquals(2, requests.size());
+		assertEquals("2024-01-30 23:59", requests.get(0).getString("todate"));
+
+		requests.clear();
+		CandleSeries second = cache.getCandles("NSE", "3045", "ONE_MINUTE", LocalDate.of(2024, 1, 15), LocalDate.of(2024, 2, 2));
+		assertEquals(1, requests.size());
+		assertEquals("2024-02-01 00:00", requests.get(0).getString("fromdate"));
+		assertEquals(15 * 2, second.size());
+		assertEquals(LocalDateTime.of(2024, 1, 15, 9, 15).atZone(ZoneId.of("Asia/Kolkata")).toInstant().toEpochMilli(),
+				second.getEpochMillis(0));
+		assertEquals(100.5, second.getClose(29), 0);
+		assertTrue(Files.exists(directory.resolve("NSE/3045/ONE_MINUTE/2024-01-05.bin")));
+		// weekends are only marked empty
+		assertFalse(Files.exists(directory.resolve("NSE/3045/ONE_MINUTE/2024-01-06.bin")));
+		assertTrue(Files.exists(directory.resolve("NSE/3045/ONE_MINUTE/2024-01-06.empty")));
+	}
+
+	@Test
+	void testResponseWithoutCandlesIsNotCached() throws SmartAPIException, IOException {
+		noCandles = true;
+		assertEquals(0, cache.getCandles("NSE", "3045", "ONE_DAY", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 5)).size());
+		assertFalse(Files.exists(directory.resolve("NSE/3045/ONE_DAY/2024-01-02.bin")));
+		assertFalse(Files.exists(directory.resolve("NSE/3045/ONE_DAY/2024-01-02.empty")));
+
+		noCandles = false;
+		requests.clear();
+		assertEquals(5 * 2, cache.getCandles("NSE", "3045", "ONE_DAY", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 5)).size());
+		assertEquals(1, requests.size());
+	}
+
+	@Test
+	void testWeekendWithoutCandlesIsMarkedEmpty() throws SmartAPIException, IOException {
+		cache.getCandles("NSE", "3045", "ONE_DAY", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 5));
+		requests.clear();
+		// only the weekend is missing, its response has no candles at all
+		assertEquals(5 * 2, cache.getCandles("NSE", "3045", "ONE_DAY", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 7)).size());
+		assertEquals(1, requests.size());
+		assertTrue(Files.exists(directory.resolve("NSE/3045/ONE_DAY/2024-01-07.empty")));
+
+		requests.clear();
+		cache.getCandles("NSE", "3045", "ONE_DAY", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 7));
+		assertTrue(requests.isEmpty());
+	}
+
+	@Test
+	void testEmptyDaysAreFetchedAgainOnceExpired() throws SmartAPIException, IOException {
+		cache.getCandles("NSE", "3045", "ONE_DAY", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 7));
+		requests.clear();
+		cacheAt(LocalDateTime.of(2024, 5, 1, 12, 0)).getCandles("NSE", "3045", "ONE_DAY", LocalDate.of(2024, 1, 1),
+				LocalDate.of(2024, 1, 7));
+		assertEquals(1, requests.size());
+		assertEquals("2024-01-06 00:00", requests.get(0).getString("fromdate"));
+		assertEquals("2024-01-07 23:59", requests.get(0).getString("todate"));
+
+		requests.clear();
+		cache.getCandles("NSE", "3045", "ONE_DAY", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 7));
+		assertTrue(requests.isEmpty());
+	}
+
+	@Test
+	void testTodayIsNeverCached() throws SmartAPIException, IOException {
+		cache.getCandles("NSE", "3045", "FIVE_MINUTE", LocalDate.of(2024, 3, 19), LocalDate.of(2024, 3, 25));
+		requests.clear();
+		CandleSeries series = cache.getCandles("NSE", "3045", "FIVE_MINUTE", LocalDate.of(2024, 3, 19), LocalDate.of(2024, 3, 20));
+		assertEquals(1, requests.size());
+		assertEquals("2024-03-20 00:00", requests.get(0).getString("fromdate"));
+		assertEquals(4, series.size());
+		assertFalse(Files.exists(directory.resolve("NSE/3045/FIVE_MINUTE/2024-03-20.bin")));
+	}
+}
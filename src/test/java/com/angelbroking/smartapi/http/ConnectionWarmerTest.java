@@ -0,0 +1,83 @@
+package com.angelbroking.smartapi.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class ConnectionWarmerTest {
+
+	@Test
+	void testActiveOnlyOnWeekdaysDuringMarketHours() {
+		ConnectionWarmer warmer = new ConnectionWarmer(OkHttpClient::new, "https://apiconnect.angelone.in");
+
+		// Monday 2023-09-04
+		assertTrue(warmer.isActive(ZonedDateTime.of(2023, 9, 4, 9, 0, 0, 0, ConnectionWarmer.IST)));
+		assertTrue(warmer.isActive(ZonedDateTime.of(2023, 9, 4, 15, 34, 0, 0, ConnectionWarmer.IST)));
+		assertFalse(warmer.isActive(ZonedDateTime.of(2023, 9, 4, 8, 59, 0, 0, ConnectionWarmer.IST)));
+		assertFalse(warmer.isActive(ZonedDateTime.of(2023, 9, 4, 15, 35, 0, 0, ConnectionWarmer.IST)));
+		// 04:00 UTC is 09:30 IST
+		assertTrue(warmer.isActive(ZonedDateTime.of(2023, 9, 4, 4, 0, 0, 0, ZoneOffset.UTC)));
+		// Saturday
+		assertFalse(warmer.isActive(ZonedDateTime.of(2023, 9, 9, 10, 0, 0, 0, ConnectionWarmer.IST)));
+
+		warmer.setActiveHours(LocalTime.of(9, 15), LocalTime.of(9, 20));
+		assertFalse(warmer.isActive(ZonedDateTime.of(2023, 9, 4, 9, 0, 0, 0, ConnectionWarmer.IST)));
+		assertThrows(IllegalArgumentException.class, () -> warmer.setActiveHours(LocalTime.NOON, LocalTime.MIDNIGHT));
+	}
+
+	@Test
+	void testStartAndStop() {
+		ConnectionWarmer warmer = new ConnectionWarmer(OkHttpClient::new, "https://apiconnect.angelone.in");
+		warmer.setActiveHours(LocalTime.of(0, 0), LocalTime.of(0, 1));
+
+		warmer.start();
+		assertTrue(warmer.isRunning());
+		warmer.stop();
+		assertFalse(warmer.isRunning());
+	}
+
+	@Test
+	void testWarmUpSharesThePoolButIsNotCounted() throws Exception {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			// the server keeps the connection open only once the request is drained
+			exchange.getRequestBody().readAllBytes();
+			exchange.sendResponseHeaders(200, -1);
+			exchange.close();
+		});
+		server.start();
+		try {
+			String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+			ConnectionStats stats = new ConnectionStats();
+			OkHttpClient client = new OkHttpClient.Builder().eventListener(stats).build();
+			ConnectionWarmer warmer = new ConnectionWarmer(() -> client, url);
+			warmer.setConnections(1);
+
+			assertEquals(1, warmer.warmUp());
+			assertEquals(0L, stats.getHits());
+			assertEquals(0L, stats.getMisses());
+
+			try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+				assertEquals(200, response.code());
+			}
+			assertEquals(1L, stats.getHits());
+			assertEquals(0L, stats.getMisses());
+		} finally {
+			server.stop(0);
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.angelbroking.smartapi.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+public class ResponseCacheTest {
+
+	private static final String RMS = "https://apiconnect.angelone.in/rest/secure/angelbroking/user/v1/getRMS";
+	private static final String ORDERS = "https://apiconnect.angelone.in/rest/secure/angelbroking/order/v1/getOrderBook";
+	private static final String SEARCH = "https://apiconnect.angelone.in/rest/secure/angelbroking/order/v1/searchScrip";
+	private static final String SUCCESS = "{\"status\":true,\"data\":{}}";
+
+	/** Answers the n-th request with the n-th code and body, the last ones repeat. */
+	private static SmartAPIRequestHandler handler(AtomicInteger sent, int[] codes, String... bodies) {
+		OkHttpClient client = new OkHttpClient.Builder().addInterceptor(chain -> {
+			int n = Math.min(sent.getAndIncrement(), bodies.length - 1);
+			return new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1).code(codes[n])
+					.message("OK").header("Content-Type", "application/json")
+					.body(ResponseBody.create(bodies[n], MediaType.get("application/json"))).build();
+		}).build();
+		return new SmartAPIRequestHandler(client, ClientIdentity.of("127.0.0.1", "127.0.0.1", "00:00:00:00:00:00"));
+	}
+
+	@Test
+	void testOnlyUrlsWithTtlAreCachedUntilExpiryOrInvalidation() throws Exception, SmartAPIException {
+		ResponseCache cache = new ResponseCache();
+		cache.setTtl(RMS, 50, TimeUnit.MILLISECONDS);
+		AtomicInteger loads = new AtomicInteger();
+
+		assertEquals(1, (int) cache.get(RMS, "rms", loads::incrementAndGet));
+		assertEquals(1, (int) cache.get(RMS, "rms", loads::incrementAndGet));
+		assertEquals(2, (int) cache.get(ORDERS, "orders", loads::incrementAndGet));
+		assertEquals(3, (int) cache.get(ORDERS, "orders", loads::incrementAndGet));
+
+		Thread.sleep(60);
+		assertEquals(4, (int) cache.get(RMS, "rms", loads::incrementAndGet));
+		cache.invalidate(RMS);
+		assertEquals(5, (int) cache.get(RMS, "rms", loads::incrementAndGet));
+		assertEquals(1L, cache.getHits());
+	}
+
+	@Test
+	void testConcurrentRequestsShareOneLoad() throws Exception, SmartAPIException {
+		ResponseCache cache = new ResponseCache();
+		cache.setTtl(RMS, 1, TimeUnit.MINUTES);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<?>[] results = new Future<?>[4];
+			for (int i = 0; i < results.length; i++) {
+				results[i] = executor.submit(() -> {
+					try {
+						return cache.get(RMS, "rms", () -> {
+							loads.incrementAndGet();
+							try {
+								release.await();
+							} catch (InterruptedException e) {
+								throw new InterruptedIOException();
+							}
+							return "funds";
+						});
+					} catch (SmartAPIException e) {
+						throw new IllegalStateException(e.message);
+					}
+				});
+			}
+			Thread.sleep(50);
+			release.countDown();
+			for (Future<?> result : results) {
+				assertEquals("funds", result.get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void testFailuresAreNotCachedAndEldestIsEvicted() throws Exception, SmartAPIException {
+		ResponseCache cache = new ResponseCache(2);
+		cache.setTtl(RMS, 1, TimeUnit.MINUTES);
+
+		assertThrows(SmartAPIException.class, () -> cache.get(RMS, "a", () -> {
+			throw new SmartAPIException("Invalid Token", "AG8001");
+		}));
+		assertEquals("a", cache.get(RMS, "a", () -> "a"));
+		cache.get(RMS, "b", () -> "b");
+		cache.get(RMS, "a", () -> "reloaded");
+		cache.get(RMS, "c", () -> "c");
+
+		assertEquals(2, cache.size());
+		assertEquals("a", cache.get(RMS, "a", () -> "reloaded"));
+		assertEquals("reloaded", cache.get(RMS, "b", () -> "reloaded"));
+	}
+
+	@Test
+	void testHandlerThrottlesCacheMissesOnly() throws Exception, SmartAPIException {
+		AtomicInteger sent = new AtomicInteger();
+		SmartAPIRequestHandler handler = handler(sent, new int[] {200}, SUCCESS);
+		ResponseCache cache = new ResponseCache();
+		cache.setTtl(RMS, 1, TimeUnit.MINUTES);
+		handler.setResponseCache(cache);
+		AtomicInteger throttled = new AtomicInteger();
+		handler.setCacheMissThrottle(url -> throttled.incrementAndGet());
+
+		for (int i = 0; i < 3; i++) {
+			handler.getRequest("key", RMS, "token");
+		}
+		handler.getRequest("key", ORDERS, "token");
+
+		assertEquals(2, sent.get());
+		assertEquals(1, throttled.get());
+	}
+
+	@Test
+	void testErrorResponsesAreFetchedAgain() throws Exception, SmartAPIException {
+		AtomicInteger sent = new AtomicInteger();
+		SmartAPIRequestHandler handler = handler(sent, new int[] {200, 200},
+				"{\"status\":false,\"message\":\"Something Went Wrong\",\"errorcode\":\"AB1004\",\"data\":null}", SUCCESS);
+		ResponseCache cache = new ResponseCache();
+		cache.setTtl(RMS, 1, TimeUnit.MINUTES);
+		handler.setResponseCache(cache);
+
+		assertFalse(handler.getRequest("key", RMS, "token").getBoolean("status"));
+		assertTrue(handler.getRequest("key", RMS, "token").getBoolean("status"));
+		assertTrue(handler.getRequest("key", RMS, "token").getBoolean("status"));
+
+		assertEquals(2, sent.get());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	void testBadRequestSearchIsFetchedAgain() throws Exception, SmartAPIException {
+		AtomicInteger sent = new AtomicInteger();
+		SmartAPIRequestHandler handler = handler(sent, new int[] {400, 200}, "{}", "{\"status\":true,\"data\":[]}");
+		ResponseCache cache = new ResponseCache();
+		cache.setTtl(SEARCH, 1, TimeUnit.MINUTES);
+		handler.setResponseCache(cache);
+		JSONObject params = new JSONObject().put("searchscrip", "SBIN");
+
+		assertEquals("Bad request. Please provide valid input", handler.postRequestJSONObject("key", SEARCH, params, "token"));
+		String found = handler.postRequestJSONObject("key", SEARCH, params, "token");
+		assertEquals(found, handler.postRequestJSONObject("key", SEARCH, params, "token"));
+
+		assertEquals(2, sent.get());
+	}
+}
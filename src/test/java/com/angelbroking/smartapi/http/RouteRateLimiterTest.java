@@ -0,0 +1,87 @@
+package com.angelbroking.smartapi.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+
+public class RouteRateLimiterTest {
+
+	@Test
+	void testBurstUpToBudgetThenReject() {
+		RouteRateLimiter limiter = new RouteRateLimiter();
+		limiter.setLimit("api.order.place", 5, 0);
+
+		for (int i = 0; i < 5; i++) {
+			assertTrue(limiter.tryAcquire("api.order.place"));
+		}
+		assertFalse(limiter.tryAcquire("api.order.place"));
+		assertTrue(limiter.tryAcquire("api.unlimited"));
+		assertEquals(5L, limiter.getLimit("api.order.place").getAcquired());
+		assertEquals(1L, limiter.getLimit("api.order.place").getRejected());
+	}
+
+	@Test
+	void testAcquireWaitsForItsSlot() throws SmartAPIException {
+		RouteRateLimiter limiter = new RouteRateLimiter();
+		limiter.setLimit("api.ltp.data", 50, 0);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < 60; i++) {
+			limiter.acquire("api.ltp.data");
+		}
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// 50 go out as a burst, the other 10 are spaced 20ms apart
+		assertTrue(elapsedMillis >= 150, "elapsed " + elapsedMillis);
+		assertTrue(limiter.getLimit("api.ltp.data").getDelayed() >= 9);
+		assertEquals(0L, limiter.getLimit("api.ltp.data").getRejected());
+	}
+
+	@Test
+	void testMinuteBudgetRejectsBeyondMaxWait() throws SmartAPIException {
+		RouteRateLimiter limiter = new RouteRateLimiter();
+		limiter.setLimit("api.candle.data", 0, 3);
+		limiter.setMaxWait(1, TimeUnit.SECONDS);
+
+		for (int i = 0; i < 3; i++) {
+			limiter.acquire("api.candle.data");
+		}
+		assertEquals(RouteRateLimiter.REJECTED, limiter.reserve("api.candle.data"));
+		assertThrows(SmartAPIException.class, () -> limiter.acquire("api.candle.data"));
+		assertEquals(2L, limiter.getLimit("api.candle.data").getRejected());
+	}
+
+	@Test
+	void testConcurrentCallersNeverExceedBudget() throws InterruptedException {
+		RouteRateLimiter limiter = new RouteRateLimiter();
+		limiter.setLimit("api.market.data", 0, 1000);
+		AtomicInteger admitted = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(8);
+
+		long start = System.nanoTime();
+		for (int t = 0; t < 8; t++) {
+			new Thread(() -> {
+				for (int i = 0; i < 500; i++) {
+					if (limiter.tryAcquire("api.market.data")) {
+						admitted.incrementAndGet();
+					}
+				}
+				done.countDown();
+			}).start();
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		long refills = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) / 60;
+
+		assertTrue(admitted.get() >= 1000);
+		assertTrue(admitted.get() <= 1000 + refills + 1, "admitted " + admitted.get());
+	}
+}
@@ -0,0 +1,174 @@
+package com.angelbroking.smartapi.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.http.exceptions.OrderException;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Timeout;
+
+public class SmartAPIRequestHandlerAsyncTest {
+
+	private static final String URL = "https://apiconnect.angelone.in/rest/secure/angelbroking/order/v1/placeOrder";
+	private static final ClientIdentity IDENTITY = ClientIdentity.of("10.0.0.2", "203.0.113.7", "0A-1B-2C-3D-4E-5F");
+
+	private static SmartAPIRequestHandler handler(String responseBody) {
+		return handler(responseBody, new CountDownLatch(0));
+	}
+
+	/** Enqueued calls are answered once release is counted down. */
+	private static SmartAPIRequestHandler handler(String responseBody, CountDownLatch release) {
+		return new SmartAPIRequestHandler(new OkHttpClient() {
+			@Override
+			public Call newCall(Request request) {
+				return new FakeCall(request, responseBody, release);
+			}
+		}, IDENTITY);
+	}
+
+	@Test
+	void testRequestsCarryIdentityHeaders() throws Exception {
+		SmartAPIRequestHandler handler = handler("{}");
+		Request post = handler.createPostRequest("apiKey", URL, new JSONObject(), "accessToken");
+		Request get = handler.createGetRequest("apiKey", URL, "accessToken");
+
+		for (Request request : new Request[] {post, get}) {
+			assertEquals("10.0.0.2", request.header("X-ClientLocalIP"));
+			assertEquals("203.0.113.7", request.header("X-ClientPublicIP"));
+			assertEquals("0A-1B-2C-3D-4E-5F", request.header("X-MACAddress"));
+			assertEquals("Bearer accessToken", request.header("Authorization"));
+			assertEquals("apiKey", request.header("X-PrivateKey"));
+			assertEquals("application/json", request.header("Accept"));
+		}
+		assertEquals("javasmartapiconnect/3.0.0", get.header("User-Agent"));
+	}
+
+	@Test
+	void testFutureCompletesWithResponseOnDispatcherThread() throws Exception {
+		Thread caller = Thread.currentThread();
+		CompletableFuture<Thread> completedOn = new CompletableFuture<>();
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<JSONObject> future = handler(
+				"{\"status\":true,\"message\":\"SUCCESS\",\"data\":{\"orderid\":\"201020000000080\"}}", release)
+				.postRequestAsync("apiKey", URL, new JSONObject(), "accessToken");
+		// attached before the response arrives, so it runs on the completing thread
+		future.thenRun(() -> completedOn.complete(Thread.currentThread()));
+		release.countDown();
+
+		// waiting in future.get() could run the stage on the caller, wait for it first
+		assertNotEquals(caller, completedOn.get(5, TimeUnit.SECONDS));
+		JSONObject response = future.get(5, TimeUnit.SECONDS);
+		assertEquals("201020000000080", response.getJSONObject("data").getString("orderid"));
+	}
+
+	@Test
+	void testErrorCodeCompletesExceptionallyWithMappedException() {
+		CompletableFuture<JSONObject> future = handler("{\"errorcode\":\"AB1008\",\"message\":\"Invalid order variety\"}")
+				.getRequestAsync("apiKey", URL, "accessToken");
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+		assertInstanceOf(OrderException.class, e.getCause());
+	}
+
+	@Test
+	void testManyRequestsInFlightFromOneThread() throws Exception {
+		SmartAPIRequestHandler handler = handler("{\"status\":true,\"message\":\"SUCCESS\",\"data\":{}}");
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[500];
+		for (int i = 0; i < futures.length; i++) {
+			futures[i] = handler.postRequestAsync("apiKey", URL, new JSONObject().put("i", i), "accessToken");
+		}
+		CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+		for (CompletableFuture<?> future : futures) {
+			assertTrue(((JSONObject) future.get()).getBoolean("status"));
+		}
+	}
+
+	/** Answers every enqueued call on a new thread, like the OkHttp dispatcher does. */
+	private static class FakeCall implements Call {
+		private final Request request;
+		private final String responseBody;
+		private final CountDownLatch release;
+		private volatile boolean canceled;
+
+		FakeCall(Request request, String responseBody, CountDownLatch release) {
+			this.request = request;
+			this.responseBody = responseBody;
+			this.release = release;
+		}
+
+		@Override
+		public Request request() {
+			return request;
+		}
+
+		@Override
+		public Response execute() throws IOException {
+			return response();
+		}
+
+		@Override
+		public void enqueue(Callback callback) {
+			new Thread(() -> {
+				try {
+					release.await();
+					callback.onResponse(this, response());
+				} catch (InterruptedException e) {
+					callback.onFailure(this, new IOException(e));
+				} catch (IOException e) {
+					callback.onFailure(this, e);
+				}
+			}).start();
+		}
+
+		private Response response() {
+			return new Response.Builder().request(request).protocol(Protocol.HTTP_1_1).code(200).message("OK")
+					.header("Content-Type", "application/json")
+					.body(ResponseBody.create(responseBody, MediaType.parse("application/json"))).build();
+		}
+
+		@Override
+		public void cancel() {
+			canceled = true;
+		}
+
+		@Override
+		public boolean isExecuted() {
+			return false;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return canceled;
+		}
+
+		@Override
+		public Timeout timeout() {
+			return Timeout.NONE;
+		}
+
+		@Override
+		public Call clone() {
+			return new FakeCall(request, responseBody, release);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.angelbroking.smartapi.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.http.exceptions.OrderException;
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+import com.angelbroking.smartapi.models.CandleSeries;
+import com.angelbroking.smartapi.models.Order;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+public class StreamingResponseParserTest {
+
+	private static Response response(String body) {
+		return new Response.Builder().request(new Request.Builder().url("https://apiconnect.angelone.in").build())
+				.protocol(Protocol.HTTP_1_1).code(200).message("OK").header("Content-Type", "application/json")
+				.body(ResponseBody.create(body, MediaType.parse("application/json"))).build();
+	}
+
+	@Test
+	void testCandlesAreParsedIntoColumns() throws IOException, SmartAPIException {
+		String body = "{\"status\":true,\"message\":\"SUCCESS\",\"errorcode\":\"\",\"data\":["
+				+ "[\"2023-09-06T09:15:00+05:30\",19571.2,19580.5,19560.1,19575.35,120500],"
+				+ "[\"2023-09-06T09:16:00+05:30\",19575.35,19590,19570,19588.0,98000]]}";
+
+		CandleSeries series = StreamingResponseParser.parse(response(body), StreamingResponseParser.CANDLES);
+
+		assertEquals(2, series.size());
+		assertEquals(OffsetDateTime.parse("2023-09-06T09:16:00+05:30").toInstant().toEpochMilli(), series.getEpochMillis(1));
+		assertEquals(19580.5, series.getHigh(0), 0);
+		assertEquals(19588.0, series.getClose(1), 0);
+		assertEquals(98000L, series.getVolume(1));
+	}
+
+	@Test
+	void testOrdersAreParsedAndEmptyBookIsEmpty() throws IOException, SmartAPIException {
+		String body = "{\"status\":true,\"message\":\"SUCCESS\",\"errorcode\":\"\",\"data\":[{\"variety\":\"NORMAL\","
+				+ "\"ordertype\":\"LIMIT\",\"price\":194.5,\"orderid\":\"201020000000080\",\"exchtime\":\"25-Feb-2023 13:27:59\","
+				+ "\"tradingsymbol\":\"SBIN-EQ\",\"quantity\":\"1\",\"orderstatus\":\"open\",\"unknown\":{\"x\":[1,2]},"
+				+ "\"uniqueorderid\":\"34reqfachdfih\"}]}";
+
+		List<Order> orders = StreamingResponseParser.parse(response(body), StreamingResponseParser.ORDERS);
+
+		assertEquals(1, orders.size());
+		Order order = orders.get(0);
+		assertEquals("201020000000080", order.orderId);
+		assertEquals("194.5", order.price);
+		assertEquals("25-Feb-2023 13:27:59", order.exchangeTimestamp);
+		assertEquals("open", order.orderStatus);
+		assertEquals("34reqfachdfih", order.uniqueOrderId);
+
+		assertNull(StreamingResponseParser.parse(response("{\"status\":true,\"message\":\"SUCCESS\",\"data\":null}"),
+				StreamingResponseParser.ORDERS));
+		assertTrue(StreamingResponseParser.parse(response("{\"status\":true,\"data\":\"\"}"),
+				StreamingResponseParser.ORDERS).isEmpty());
+	}
+
+	@Test
+	void testErrorsAreMappedLikeTheResponseHandler() {
+		SmartAPIException mapped = assertThrows(SmartAPIException.class, () -> StreamingResponseParser.parse(
+				response("{\"message\":\"Invalid order\",\"errorcode\":\"AB1008\",\"data\":null}"),
+				StreamingResponseParser.ORDERS));
+		assertInstanceOf(OrderException.class, mapped);
+
+		SmartAPIException failed = assertThrows(SmartAPIException.class, () -> StreamingResponseParser.parse(
+				response("{\"status\":false,\"message\":\"Invalid date\",\"errorcode\":\"AB13000\",\"data\":null}"),
+				StreamingResponseParser.CANDLES));
+		assertEquals("Invalid date", failed.message);
+	}
+
+	@Test
+	void testUnknownErrorCodeIsASmartApiException() {
+		SmartAPIException unknown = assertThrows(SmartAPIException.class, () -> StreamingResponseParser.parse(
+				response("{\"message\":\"Something new\",\"errorcode\":\"AB9999\",\"data\":null}"),
+				StreamingResponseParser.CANDLES));
+		assertEquals(SmartAPIException.class, unknown.getClass());
+		assertEquals("Something new", unknown.message);
+		assertEquals("AB9999", unknown.code);
+	}
+}
@@ -0,0 +1,155 @@
+package com.angelbroking.smartapi.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+public class TokenRefreshInterceptorTest {
+
+	private static final String URL = "https://apiconnect.angelone.in/rest/secure/angelbroking/order/v1/placeOrder";
+	private static final String EXPIRED = "{\"message\":\"Invalid Token\",\"errorcode\":\"AG8001\",\"status\":false,\"data\":null}";
+	private static final String PLACED = "{\"status\":true,\"message\":\"SUCCESS\",\"errorcode\":\"\",\"data\":{\"orderid\":\"1\"}}";
+
+	private volatile String accessToken = "old";
+
+	@Test
+	void testConcurrentExpiriesRenewOnceAndReplay() throws Exception {
+		AtomicInteger renewals = new AtomicInteger();
+		CountDownLatch allFailed = new CountDownLatch(8);
+		TokenRefreshInterceptor interceptor = new TokenRefreshInterceptor(() -> accessToken, () -> {
+			renewals.incrementAndGet();
+			accessToken = "new";
+			return "new";
+		});
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> bodies = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				Callable<String> send = () -> {
+					Request request = new Request.Builder().url(URL).header("Authorization", "Bearer old").build();
+					try (Response response = interceptor.intercept(new FakeChain(request, allFailed))) {
+						return response.body().string();
+					}
+				};
+				bodies.add(executor.submit(send));
+			}
+			for (Future<String> body : bodies) {
+				assertEquals(PLACED, body.get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, renewals.get());
+	}
+
+	@Test
+	void testFailedRenewalReturnsTheOriginalResponseOnce() throws Exception {
+		AtomicInteger renewals = new AtomicInteger();
+		TokenRefreshInterceptor interceptor = new TokenRefreshInterceptor(() -> accessToken, () -> {
+			renewals.incrementAndGet();
+			return null;
+		});
+		Request request = new Request.Builder().url(URL).header("Authorization", "Bearer old").build();
+
+		for (int i = 0; i < 3; i++) {
+			try (Response response = interceptor.intercept(new FakeChain(request, new CountDownLatch(0)))) {
+				assertEquals(EXPIRED, response.body().string());
+			}
+		}
+		assertEquals(1, renewals.get());
+	}
+
+	/** Rejects the old token once every request has been sent with it, accepts the new one. */
+	private static class FakeChain implements Interceptor.Chain {
+		private final Request request;
+		private final CountDownLatch allFailed;
+
+		FakeChain(Request request, CountDownLatch allFailed) {
+			this.request = request;
+			this.allFailed = allFailed;
+		}
+
+		@Override
+		public Request request() {
+			return request;
+		}
+
+		@Override
+		public Response proceed(Request request) throws IOException {
+			boolean expired = "Bearer old".equals(request.header("Authorization"));
+			if (expired) {
+				allFailed.countDown();
+				try {
+					allFailed.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+			return new Response.Builder().request(request).protocol(Protocol.HTTP_1_1).code(expired ? 401 : 200)
+					.message("OK").header("Content-Type", "application/json")
+					.body(ResponseBody.create(expired ? EXPIRED : PLACED, MediaType.parse("application/json")))
+					.build();
+		}
+
+		@Override
+		public Connection connection() {
+			return null;
+		}
+
+		@Override
+		public Call call() {
+			return null;
+		}
+
+		@Override
+		public int connectTimeoutMillis() {
+			return 0;
+		}
+
+		@Override
+		public Interceptor.Chain withConnectTimeout(int timeout, TimeUnit unit) {
+			return this;
+		}
+
+		@Override
+		public int readTimeoutMillis() {
+			return 0;
+		}
+
+		@Override
+		public Interceptor.Chain withReadTimeout(int timeout, TimeUnit unit) {
+			return this;
+		}
+
+		@Override
+		public int writeTimeoutMillis() {
+			return 0;
+		}
+
+		@Override
+		public Interceptor.Chain withWriteTimeout(int timeout, TimeUnit unit) {
+			return this;
+		}
+	}
+}
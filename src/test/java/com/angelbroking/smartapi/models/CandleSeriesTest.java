@@ -0,0 +1,67 @@
+package com.angelbroking.smartapi.models;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class CandleSeriesTest {
+
+    private static CandleSeries series(int n) {
+        CandleSeries.Builder builder = new CandleSeries.Builder(2);
+        for (int i = 0; i < n; i++) {
+            builder.add(60_000L * i, 100 + i, 101 + i, 99 + i, 100.5 + i, 10L * i);
+        }
+        return builder.build();
+    }
+
+    @Test
+    void testSliceSharesColumns() {
+        CandleSeries series = series(100);
+        CandleSeries slice = series.slice(10, 20);
+        assertEquals(10, slice.size());
+        assertEquals(10, slice.getOffset());
+        assertSame(series.getCloseArray(), slice.getCloseArray());
+        assertEquals(110.5, slice.getClose(0), 0);
+        assertEquals(60_000L * 19, slice.getEpochMillis(9));
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.getClose(10));
+
+        CandleSeries nested = slice.slice(5, 10);
+        assertEquals(15, nested.getOffset());
+        assertArrayEquals(new double[] {115.5, 116.5, 117.5, 118.5, 119.5}, nested.closes(), 0);
+    }
+
+    @Test
+    void testSliceByTime() {
+        CandleSeries series = series(100);
+        CandleSeries window = series.sliceByTime(60_000L * 30 - 1, 60_000L * 40);
+        assertEquals(10, window.size());
+        assertEquals(60_000L * 30, window.getEpochMillis(0));
+        assertEquals(0, series.sliceByTime(60_000L * 200, 60_000L * 300).size());
+    }
+
+    @Test
+    void testListRoundTrip() {
+        List<Candle> candles = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            candles.add(new Candle(new Date(1000L * i), i, i + 2, i - 1, i + 1, i * 7L));
+        }
+        CandleSeries series = CandleSeries.of(candles);
+        List<Candle> view = series.asList();
+        assertEquals(5, view.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(candles.get(i).getTimestamp(), view.get(i).getTimestamp());
+            assertEquals(candles.get(i).getHigh(), view.get(i).getHigh(), 0);
+            assertEquals(candles.get(i).getVolume(), view.get(i).getVolume());
+        }
+        // views unwrap without copying
+        assertSame(series, CandleSeries.of(view));
+        assertSame(series.getCloseArray(), CandleSeries.of(view.subList(1, 3)).getCloseArray());
+    }
+}
@@ -0,0 +1,139 @@
+package com.angelbroking.smartapi.orderupdate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.http.exceptions.SmartAPIException;
+
+public class OrderBookStateTest {
+
+	private static JSONObject order(String orderId, String side, String status, int quantity, int filled,
+			double averagePrice) {
+		return new JSONObject().put("orderid", orderId).put("exchange", "NSE").put("symboltoken", "3045")
+				.put("tradingsymbol", "SBIN-EQ").put("producttype", "INTRADAY").put("transactiontype", side)
+				.put("orderstatus", status).put("quantity", String.valueOf(quantity))
+				.put("filledshares", String.valueOf(filled)).put("averageprice", averagePrice);
+	}
+
+	private static OrderUpdateEvent event(JSONObject order) throws Exception {
+		return OrderUpdateEvent.parse(new JSONObject().put("order-status", "AB05").put("orderData", order).toString());
+	}
+
+	private static JSONObject position(int buyQuantity, double buyAmount, int sellQuantity, double sellAmount) {
+		return new JSONObject().put("exchange", "NSE").put("symboltoken", "3045").put("tradingsymbol", "SBIN-EQ")
+				.put("producttype", "INTRADAY").put("buyqty", String.valueOf(buyQuantity))
+				.put("buyamount", String.valueOf(buyAmount)).put("sellqty", String.valueOf(sellQuantity))
+				.put("sellamount", String.valueOf(sellAmount))
+				.put("netqty", String.valueOf(buyQuantity - sellQuantity));
+	}
+
+	private static JSONObject response(JSONObject... rows) {
+		return new JSONObject().put("status", true).put("data", new JSONArray(Arrays.asList(rows)));
+	}
+
+	@Test
+	void testFillsAreAppliedIncrementallyOnTopOfTheSeed() throws Exception, SmartAPIException {
+		OrderBookState state = new OrderBookState(() -> response(order("1", "BUY", "open", 10, 4, 100)),
+				() -> response(position(6, 606, 0, 0)));
+
+		// received before the seed, the position book already contains them
+		state.onOrderUpdate(event(order("1", "BUY", "open", 10, 4, 100)));
+		state.onOrderUpdate(event(order("1", "BUY", "open", 10, 6, 101)));
+		state.seed();
+		assertEquals(6, state.getNetQuantity("NSE", "3045"));
+		assertEquals(101, state.getPosition("NSE", "3045", "INTRADAY").getAveragePrice(), 1e-9);
+
+		state.onOrderUpdate(event(order("1", "BUY", "complete", 10, 10, 101.6)));
+		// arrives late and is ignored
+		state.onOrderUpdate(event(order("1", "BUY", "open", 10, 8, 101.5)));
+		assertEquals(10, state.getNetQuantity("NSE", "3045"));
+		assertEquals("complete", state.getOrder("1").getStatus());
+		assertTrue(state.getOpenOrders().isEmpty());
+
+		state.onOrderUpdate(event(order("2", "SELL", "complete", 15, 15, 110)));
+		OrderBookState.Position position = state.getPosition("NSE", "3045", "INTRADAY");
+		assertEquals(-5, position.getNetQuantity());
+		assertEquals(110, position.getAveragePrice(), 1e-9);
+		assertEquals(10 * (110 - 101.6), state.getRealizedPnl(), 1e-6);
+	}
+
+	@Test
+	void testReconcileCorrectsSettledPositionsThatDrifted() throws Exception, SmartAPIException {
+		AtomicReference<JSONObject> positions = new AtomicReference<>(response());
+		OrderBookState state = new OrderBookState(() -> response(), positions::get);
+		state.seed();
+		state.onOrderUpdate(event(order("1", "BUY", "complete", 10, 10, 100)));
+
+		positions.set(response(position(12, 1200, 0, 0)));
+		// filled a moment ago, the position book may lag
+		assertTrue(state.reconcile().isEmpty());
+
+		state.setSettleTime(0, TimeUnit.SECONDS);
+		List<OrderBookState.Position> drifted = state.reconcile();
+		assertEquals(1, drifted.size());
+		assertEquals(10, drifted.get(0).getNetQuantity());
+		assertEquals(12, state.getNetQuantity("NSE", "3045"));
+		assertTrue(state.reconcile().isEmpty());
+	}
+
+	@Test
+	void testUpdatesWhileSeedingAgainAreReplayedOnTheNewState() throws Exception, SmartAPIException {
+		AtomicReference<OrderBookState> state = new AtomicReference<>();
+		AtomicReference<OrderUpdateEvent> duringSeed = new AtomicReference<>();
+		AtomicReference<JSONObject> orders = new AtomicReference<>(response(order("1", "BUY", "open", 10, 4, 100)));
+		AtomicReference<JSONObject> positions = new AtomicReference<>(response(position(4, 400, 0, 0)));
+		state.set(new OrderBookState(orders::get, () -> {
+			OrderUpdateEvent event = duringSeed.getAndSet(null);
+			if (event != null) {
+				state.get().onOrderUpdate(event);
+			}
+			return positions.get();
+		}));
+		state.get().seed();
+
+		duringSeed.set(event(order("1", "BUY", "open", 10, 6, 101)));
+		positions.set(response(position(6, 606, 0, 0)));
+		state.get().seed();
+		assertEquals(6, state.get().getNetQuantity("NSE", "3045"));
+		assertEquals(6, state.get().getOrder("1").getFilledShares());
+
+		// a failed seed keeps the state and still applies the updates received meanwhile
+		orders.set(null);
+		duringSeed.set(event(order("1", "BUY", "complete", 10, 10, 101.6)));
+		assertThrows(SmartAPIException.class, () -> state.get().seed());
+		assertTrue(state.get().isSeeded());
+		assertEquals(10, state.get().getNetQuantity("NSE", "3045"));
+	}
+
+	@Test
+	void testFillBetweenOrderAndPositionBookIsBookedOnce() throws Exception, SmartAPIException {
+		AtomicReference<OrderBookState> state = new AtomicReference<>();
+		state.set(new OrderBookState(() -> response(order("1", "BUY", "open", 10, 4, 100)), () -> {
+			// filled after the order book was loaded, the position book has it
+			try {
+				state.get().onOrderUpdate(event(order("1", "BUY", "open", 10, 6, 101)));
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			return response(position(6, 606, 0, 0));
+		}));
+		state.get().seed();
+
+		assertEquals(6, state.get().getNetQuantity("NSE", "3045"));
+		assertEquals(6, state.get().getOrder("1").getFilledShares());
+
+		state.get().onOrderUpdate(event(order("1", "BUY", "complete", 10, 10, 101.6)));
+		assertEquals(10, state.get().getNetQuantity("NSE", "3045"));
+		assertEquals(101.6, state.get().getPosition("NSE", "3045", "INTRADAY").getAveragePrice(), 1e-9);
+	}
+}
@@ -0,0 +1,74 @@
+package com.angelbroking.smartapi.orderupdate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class OrderUpdateDispatcherTest {
+
+	private static final String ACK = "{\"user-id\":\"A123\",\"status-code\":\"200\",\"order-status\":\"AB00\","
+			+ "\"error-message\":\"\",\"orderData\":{\"orderid\":\"\"}}";
+
+	private static String update(String orderId, String symbol, String status, String filled) {
+		return "{\"user-id\":\"A123\",\"status-code\":\"200\",\"order-status\":\"AB05\",\"error-message\":\"\","
+				+ "\"orderData\":{\"variety\":\"NORMAL\",\"ordertype\":\"LIMIT\",\"price\":571.5,\"quantity\":\"10\","
+				+ "\"tradingsymbol\":\"" + symbol + "\",\"transactiontype\":\"BUY\",\"exchange\":\"NSE\","
+				+ "\"symboltoken\":\"3045\",\"strikeprice\":-1,\"averageprice\":571.25,\"filledshares\":\"" + filled
+				+ "\",\"unfilledshares\":\"0\",\"orderid\":\"" + orderId + "\",\"text\":\"\",\"status\":\"" + status
+				+ "\",\"orderstatus\":\"" + status + "\",\"updatetime\":\"18-Oct-2026 09:15:02\","
+				+ "\"exchtime\":\"18-Oct-2026 09:15:01\",\"exchorderupdatetime\":\"18-Oct-2026 09:15:02\","
+				+ "\"legs\":[{\"x\":1}],\"uniqueorderid\":\"u-" + orderId + "\"}}";
+	}
+
+	@Test
+	void testParseDecodesOrderFields() throws Exception {
+		OrderUpdateEvent event = OrderUpdateEvent.parse(update("201020000000080", "SBIN-EQ", "complete", "10"));
+
+		assertTrue(event.hasOrder());
+		assertEquals("AB05", event.getOrderStatusCode());
+		assertEquals("201020000000080", event.getOrderId());
+		assertEquals("u-201020000000080", event.getUniqueOrderId());
+		assertEquals("complete", event.getStatus());
+		assertEquals("SBIN-EQ", event.getTradingSymbol());
+		assertEquals(10, event.getQuantity());
+		assertEquals(10, event.getFilledShares());
+		assertEquals(571.5, event.getPrice());
+		assertEquals(571.25, event.getAveragePrice());
+		assertEquals("18-Oct-2026 09:15:01", event.getExchangeTime());
+		assertEquals("18-Oct-2026 09:15:02", event.getExchangeUpdateTime());
+		assertFalse(OrderUpdateEvent.parse(ACK).hasOrder());
+	}
+
+	@Test
+	void testUpdatesAreFilteredPerSubscriber() {
+		OrderUpdateDispatcher dispatcher = new OrderUpdateDispatcher();
+		List<OrderUpdateEvent> all = new ArrayList<>();
+		List<OrderUpdateEvent> order = new ArrayList<>();
+		List<OrderUpdateEvent> symbol = new ArrayList<>();
+		dispatcher.subscribe(all::add);
+		dispatcher.subscribeOrder("1", order::add);
+		OrderUpdateDispatcher.Subscription bySymbol = dispatcher.subscribeSymbol("NSE", "INFY-EQ", symbol::add);
+		dispatcher.subscribe(event -> {
+			throw new IllegalStateException("failing subscriber");
+		});
+
+		dispatcher.onOrderUpdate(ACK);
+		dispatcher.onOrderUpdate(update("1", "SBIN-EQ", "open", "0"));
+		dispatcher.onOrderUpdate(update("2", "INFY-EQ", "open", "0"));
+		dispatcher.onOrderUpdate("not json");
+		bySymbol.cancel();
+		dispatcher.onOrderUpdate(update("3", "INFY-EQ", "open", "0"));
+
+		assertEquals(3, all.size());
+		assertEquals(1, order.size());
+		assertEquals("1", order.get(0).getOrderId());
+		assertEquals(1, symbol.size());
+		assertEquals("2", symbol.get(0).getOrderId());
+		assertEquals(3, dispatcher.getSubscriberCount());
+	}
+}
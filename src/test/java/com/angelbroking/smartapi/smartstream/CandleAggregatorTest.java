@@ -0,0 +1,104 @@
+package com.angelbroking.smartapi.smartstream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.models.Candle;
+import com.angelbroking.smartapi.smartstream.candle.CandleAggregator;
+import com.angelbroking.smartapi.smartstream.candle.CandleInterval;
+import com.angelbroking.smartapi.smartstream.models.ExchangeType;
+import com.angelbroking.smartapi.smartstream.models.TokenID;
+
+public class CandleAggregatorTest {
+
+	private static final TokenID TOKEN = new TokenID(ExchangeType.NSE_CM, "3045");
+
+	private static long at(int hour, int minute, int second) {
+		return LocalDate.of(2024, 5, 2).atTime(hour, minute, second).atZone(CandleAggregator.TZ_IST).toInstant().toEpochMilli();
+	}
+
+	@Test
+	void testCandlesAreAlignedToSessionOpen() {
+		List<Candle> oneMinute = new ArrayList<>();
+		List<Candle> oneHour = new ArrayList<>();
+		CandleAggregator aggregator = new CandleAggregator((token, interval, candle) -> {
+			if (interval == CandleInterval.ONE_MINUTE) {
+				oneMinute.add(candle);
+			} else if (interval == CandleInterval.ONE_HOUR) {
+				oneHour.add(candle);
+			}
+		});
+
+		aggregator.onTick(TOKEN, at(9, 10, 0), 80000, 100);
+		aggregator.onTick(TOKEN, at(9, 15, 1), 81000, 1000);
+		aggregator.onTick(TOKEN, at(9, 15, 30), 81500, 1500);
+		aggregator.onTick(TOKEN, at(9, 15, 40), 80500, 1700);
+		aggregator.onTick(TOKEN, at(9, 16, 5), 81200, 2000);
+		aggregator.onTick(TOKEN, at(10, 15, 0), 82000, 2500);
+
+		assertEquals(1L, aggregator.getOutOfSessionTicks());
+		assertEquals(2, oneMinute.size());
+		Candle first = oneMinute.get(0);
+		assertEquals(at(9, 15, 0), first.getTimestamp().getTime());
+		assertEquals(810.0, first.getOpen());
+		assertEquals(815.0, first.getHigh());
+		assertEquals(805.0, first.getLow());
+		assertEquals(805.0, first.getClose());
+		assertEquals(700L, first.getVolume());
+		assertEquals(1, oneHour.size());
+		assertEquals(at(9, 15, 0), oneHour.get(0).getTimestamp().getTime());
+		assertEquals(1000L, oneHour.get(0).getVolume());
+	}
+
+	@Test
+	void testLatePacketsWithinAllowedLatenessAreKept() {
+		List<Candle> candles = new ArrayList<>();
+		CandleAggregator aggregator = new CandleAggregator((token, interval, candle) -> candles.add(candle),
+				EnumSet.of(CandleInterval.ONE_MINUTE), LocalTime.of(9, 15), LocalTime.of(15, 30), CandleAggregator.TZ_IST, 2000);
+
+		aggregator.onTick(TOKEN, at(9, 20, 10), 50000, -1);
+		aggregator.onTick(TOKEN, at(9, 21, 0), 50100, -1);
+		aggregator.onTick(TOKEN, at(9, 20, 59), 49000, -1);
+		aggregator.onTick(TOKEN, at(9, 21, 3), 50200, -1);
+		aggregator.onTick(TOKEN, at(9, 20, 30), 51000, -1);
+
+		assertEquals(1, candles.size());
+		assertEquals(490.0, candles.get(0).getLow());
+		assertEquals(490.0, candles.get(0).getClose());
+		assertEquals(1L, aggregator.getLateTicks());
+
+		aggregator.flush();
+		assertEquals(2, candles.size());
+		assertEquals(502.0, candles.get(1).getClose());
+	}
+
+	@Test
+	void testVolumeOfDroppedTicksIsKept() {
+		List<Candle> candles = new ArrayList<>();
+		CandleAggregator aggregator = new CandleAggregator((token, interval, candle) -> candles.add(candle),
+				EnumSet.of(CandleInterval.ONE_MINUTE), LocalTime.of(9, 15), LocalTime.of(15, 30), CandleAggregator.TZ_IST, 0);
+
+		aggregator.onTick(TOKEN, at(9, 15, 0), 50000, 1000);
+		aggregator.onTick(TOKEN, at(9, 15, 30), 50100, 1200);
+		aggregator.onTick(TOKEN, at(9, 16, 10), 50200, 1500);
+		aggregator.onTick(TOKEN, at(9, 15, 50), 49000, 1600);
+		aggregator.onTick(TOKEN, at(9, 16, 40), 50300, 1700);
+		aggregator.flush();
+
+		assertEquals(1L, aggregator.getLateTicks());
+		assertEquals(2, candles.size());
+		assertEquals(200L, candles.get(0).getVolume());
+		assertEquals(500L, candles.get(1).getVolume());
+		// the late tick moves no price but its volume is not lost
+		assertEquals(501.0, candles.get(0).getClose());
+		assertEquals(502.0, candles.get(1).getLow());
+		assertEquals(700L, candles.get(0).getVolume() + candles.get(1).getVolume());
+	}
+}
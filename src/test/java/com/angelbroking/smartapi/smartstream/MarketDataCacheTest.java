@@ -0,0 +1,93 @@
+package com.angelbroking.smartapi.smartstream;
+
+import static com.angelbroking.smartapi.utils.Constants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.SmartConnect;
+import com.angelbroking.smartapi.smartstream.cache.MarketDataCache;
+import com.angelbroking.smartapi.smartstream.cache.MarketDataSnapshot;
+import com.angelbroking.smartapi.smartstream.models.*;
+
+public class MarketDataCacheTest {
+
+	private final AtomicInteger restCalls = new AtomicInteger();
+	private MarketDataCache cache;
+
+	@BeforeEach
+	void setUp() {
+		SmartConnect smartConnect = new SmartConnect() {
+			@Override
+			public JSONObject getLTP(String exchange, String tradingSymbol, String symboltoken) {
+				restCalls.incrementAndGet();
+				return new JSONObject().put("ltp", 1.0);
+			}
+		};
+		cache = new MarketDataCache(smartConnect, 60000, null);
+	}
+
+	private static ByteBuffer packet(int size, SmartStreamSubsMode mode, String token) {
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(SUBSCRIPTION_MODE, (byte) mode.getVal());
+		buffer.put(EXCHANGE_TYPE, (byte) ExchangeType.NSE_CM.getVal());
+		byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < bytes.length; i++) {
+			buffer.put(TOKEN_OFFSET + i, bytes[i]);
+		}
+		return buffer;
+	}
+
+	@Test
+	void testSnapshotReflectsLatestPackets() {
+		ByteBuffer ltp = packet(51, SmartStreamSubsMode.LTP, "3045");
+		ltp.putLong(LAST_TRADED_PRICE_OFFSET, 59010L);
+		cache.onLTPViewArrival(new LTPView().wrap(ltp.array()));
+
+		ByteBuffer snapQuote = packet(379, SmartStreamSubsMode.SNAP_QUOTE, "3045");
+		snapQuote.putLong(LAST_TRADED_PRICE_OFFSET, 59025L);
+		snapQuote.putLong(OPEN_PRICE_OFFSET, 58800L);
+		snapQuote.putLong(BUY_START_POSITION + PRICE_OFFSET, 59020L);
+		snapQuote.putLong(BUY_START_POSITION + QUANTITY_OFFSET, 150L);
+		snapQuote.putLong(SELL_START_POSITION + PRICE_OFFSET, 59030L);
+		cache.onSnapQuoteViewArrival(new SnapQuoteView().wrap(snapQuote.array()));
+
+		MarketDataSnapshot snapshot = new MarketDataSnapshot();
+		assertTrue(cache.read(new TokenID(ExchangeType.NSE_CM, "3045"), snapshot));
+		assertEquals(59025L, snapshot.getLastTradedPrice());
+		assertEquals(58800L, snapshot.getOpenPrice());
+		assertEquals(59020L, snapshot.getBestBidPrice());
+		assertEquals(150L, snapshot.getBestBidQty());
+		assertEquals(59030L, snapshot.getBestAskPrice());
+		assertTrue(snapshot.hasQuote());
+		assertTrue(snapshot.hasTopOfBook());
+		assertNull(cache.getSnapshot(new TokenID(ExchangeType.NSE_CM, "99999")));
+	}
+
+	@Test
+	void testGetLTPFallsBackToRestWhenNotStreamed() {
+		ByteBuffer ltp = packet(51, SmartStreamSubsMode.LTP, "1594");
+		ltp.putLong(LAST_TRADED_PRICE_OFFSET, 145025L);
+		cache.onLTPViewArrival(new LTPView().wrap(ltp.array()));
+
+		JSONObject streamed = cache.getLTP("NSE", "INFY-EQ", "1594");
+		assertEquals(1450.25, streamed.getDouble("ltp"));
+		assertFalse(streamed.has("open"));
+		assertEquals(0, restCalls.get());
+
+		cache.getLTP("NSE", "TCS-EQ", "11536");
+		assertEquals(1, restCalls.get());
+		assertEquals(1L, cache.getCacheHits());
+		assertEquals(1L, cache.getRestFallbacks());
+	}
+}
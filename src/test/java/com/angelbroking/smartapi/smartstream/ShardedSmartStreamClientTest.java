@@ -0,0 +1,45 @@
+package com.angelbroking.smartapi.smartstream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.smartstream.models.ExchangeType;
+import com.angelbroking.smartapi.smartstream.models.TokenID;
+import com.angelbroking.smartapi.smartstream.ticker.ShardedSmartStreamClient;
+
+public class ShardedSmartStreamClientTest {
+
+	private static final int TOKENS = 5000;
+
+	@Test
+	void testTokensAreSpreadOverAllShards() {
+		ShardedSmartStreamClient client = new ShardedSmartStreamClient("clientId", "feedToken", new SmartStreamListenerImpl(), 4);
+		int[] counts = new int[4];
+		for (int i = 0; i < TOKENS; i++) {
+			TokenID token = new TokenID(ExchangeType.NSE_FO, String.valueOf(35000 + i));
+			int shard = client.shardOf(token);
+			assertEquals(shard, client.shardOf(new TokenID(ExchangeType.NSE_FO, String.valueOf(35000 + i))));
+			counts[shard]++;
+		}
+		for (int count : counts) {
+			assertTrue(count > TOKENS / 8, "shard is starved: " + count);
+		}
+	}
+
+	@Test
+	void testAddingAShardMovesFewTokens() {
+		ShardedSmartStreamClient four = new ShardedSmartStreamClient("clientId", "feedToken", new SmartStreamListenerImpl(), 4);
+		ShardedSmartStreamClient five = new ShardedSmartStreamClient("clientId", "feedToken", new SmartStreamListenerImpl(), 5);
+		int moved = 0;
+		for (int i = 0; i < TOKENS; i++) {
+			TokenID token = new TokenID(ExchangeType.NSE_FO, String.valueOf(35000 + i));
+			if (four.shardOf(token) != five.shardOf(token)) {
+				moved++;
+			}
+		}
+		// ideally a fifth of the tokens move to the new shard, modulo hashing would move four fifths
+		assertTrue(moved < TOKENS * 3 / 10, "too many tokens moved: " + moved);
+	}
+}
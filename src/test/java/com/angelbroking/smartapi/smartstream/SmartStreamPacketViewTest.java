@@ -0,0 +1,92 @@
+package com.angelbroking.smartapi.smartstream;
+
+import static com.angelbroking.smartapi.utils.Constants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.smartstream.models.DepthView;
+import com.angelbroking.smartapi.smartstream.models.ExchangeType;
+import com.angelbroking.smartapi.smartstream.models.SnapQuote;
+import com.angelbroking.smartapi.smartstream.models.SnapQuoteView;
+
+public class SmartStreamPacketViewTest {
+
+	private static byte[] snapQuotePacket() {
+		ByteBuffer buffer = ByteBuffer.allocate(379).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(SUBSCRIPTION_MODE, (byte) 3);
+		buffer.put(EXCHANGE_TYPE, (byte) ExchangeType.NSE_CM.getVal());
+		byte[] token = "1594".getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < token.length; i++) {
+			buffer.put(TOKEN_OFFSET + i, token[i]);
+		}
+		buffer.putLong(SEQUENCE_NUMBER_OFFSET, 42L);
+		buffer.putLong(EXCHANGE_FEED_TIME_OFFSET, 1700000000000L);
+		buffer.putLong(LAST_TRADED_PRICE_OFFSET, 145025L);
+		buffer.putDouble(TOTAL_BUY_QTY_OFFSET, 1200.0);
+		buffer.putLong(OPEN_PRICE_OFFSET, 144000L);
+		buffer.putLong(OPEN_INTEREST_OFFSET, 77L);
+		for (int i = 0; i < NUM_PACKETS; i++) {
+			int offset = BUY_START_POSITION + (i * PACKET_SIZE);
+			buffer.putShort(offset + BUY_SELL_FLAG_OFFSET, (short) 1);
+			buffer.putLong(offset + QUANTITY_OFFSET, 10L * (i + 1));
+			buffer.putLong(offset + PRICE_OFFSET, 145000L - i);
+			buffer.putShort(offset + NUMBER_OF_ORDERS_OFFSET, (short) (i + 2));
+		}
+		buffer.putLong(YEARLY_LOW_PRICE_OFFSET, 99000L);
+		return buffer.array();
+	}
+
+	@Test
+	void testSnapQuoteViewMatchesDecodedPacket() {
+		byte[] packet = snapQuotePacket();
+		SnapQuote snapQuote = new SnapQuote(ByteBuffer.wrap(packet).order(ByteOrder.LITTLE_ENDIAN));
+		SnapQuoteView view = new SnapQuoteView().wrap(packet);
+
+		assertEquals(snapQuote.getSubscriptionMode(), view.getSubscriptionMode());
+		assertEquals(ExchangeType.NSE_CM, view.getExchangeType());
+		assertEquals("1594", view.getToken());
+		assertEquals(snapQuote.getSequenceNumber(), view.getSequenceNumber());
+		assertEquals(snapQuote.getExchangeFeedTimeEpochMillis(), view.getExchangeFeedTimeEpochMillis());
+		assertEquals(snapQuote.getLastTradedPrice(), view.getLastTradedPrice());
+		assertEquals(snapQuote.getTotalBuyQty(), view.getTotalBuyQty());
+		assertEquals(snapQuote.getOpenPrice(), view.getOpenPrice());
+		assertEquals(snapQuote.getOpenInterest(), view.getOpenInterest());
+		assertEquals(snapQuote.getYearlyLowPrice(), view.getYearlyLowPrice());
+		for (int i = 0; i < view.getBestFiveLevels(); i++) {
+			assertEquals(snapQuote.getBestFiveBuy()[i].getQuantity(), view.getBestFiveBuyQuantity(i));
+			assertEquals(snapQuote.getBestFiveBuy()[i].getPrice(), view.getBestFiveBuyPrice(i));
+			assertEquals(snapQuote.getBestFiveBuy()[i].getNumberOfOrders(), view.getBestFiveBuyNumberOfOrders(i));
+		}
+	}
+
+	@Test
+	void testViewIsReusedAcrossPackets() {
+		SnapQuoteView view = new SnapQuoteView();
+		byte[] first = snapQuotePacket();
+		byte[] second = snapQuotePacket();
+		ByteBuffer.wrap(second).order(ByteOrder.LITTLE_ENDIAN).putLong(LAST_TRADED_PRICE_OFFSET, 1L);
+
+		assertEquals(145025L, view.wrap(first).getLastTradedPrice());
+		assertEquals(1L, view.wrap(second).getLastTradedPrice());
+	}
+
+	@Test
+	void testDepthViewReadsTwentyLevels() {
+		ByteBuffer buffer = ByteBuffer.allocate(443).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(EXCHANGE_TYPE, (byte) ExchangeType.NSE_CM.getVal());
+		int offset = BEST_TWENTY_SELL_DATA_POSITION + (19 * PACKET_SIZE_FOR_DEPTH20);
+		buffer.putInt(offset + QUANTITY_OFFSET_FOR_DEPTH20, 500);
+		buffer.putInt(offset + PRICE_OFFSET_FOR_DEPTH20, 250075);
+		buffer.putShort(offset + NUMBER_OF_ORDERS_OFFSET_FOR_DEPTH20, (short) 3);
+
+		DepthView view = new DepthView().wrap(buffer.array());
+		assertEquals(500L, view.getBestTwentySellQuantity(19));
+		assertEquals(250075L, view.getBestTwentySellPrice(19));
+		assertEquals(3, view.getBestTwentySellNumberOfOrders(19));
+	}
+}
@@ -0,0 +1,153 @@
+package com.angelbroking.smartapi.smartstream;
+
+import static com.angelbroking.smartapi.utils.Constants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.smartstream.models.*;
+import com.angelbroking.smartapi.smartstream.ticker.SmartStreamListener;
+import com.angelbroking.smartapi.smartstream.ticker.SmartStreamRingBuffer;
+import com.angelbroking.smartapi.smartstream.ticker.SmartStreamRingBufferConfig;
+import com.angelbroking.smartapi.smartstream.ticker.WaitStrategy;
+
+public class SmartStreamRingBufferTest {
+
+	private static byte[] ltpPacket(String token, long sequenceNumber) {
+		ByteBuffer buffer = ByteBuffer.allocate(51).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(SUBSCRIPTION_MODE, (byte) SmartStreamSubsMode.LTP.getVal());
+		buffer.put(EXCHANGE_TYPE, (byte) ExchangeType.NSE_CM.getVal());
+		byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < bytes.length; i++) {
+			buffer.put(TOKEN_OFFSET + i, bytes[i]);
+		}
+		buffer.putLong(SEQUENCE_NUMBER_OFFSET, sequenceNumber);
+		return buffer.array();
+	}
+
+	private static void awaitDrained(SmartStreamRingBuffer ringBuffer) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (ringBuffer.getLag() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+	}
+
+	@Test
+	void testFramesOfATokenAreDispatchedInOrder() throws InterruptedException {
+		Map<String, List<Long>> received = new ConcurrentHashMap<>();
+		SmartStreamRingBuffer ringBuffer = new SmartStreamRingBuffer(new RecordingListener() {
+			@Override
+			public void onLTPArrival(LTP ltp) {
+				received.computeIfAbsent(ltp.getToken().getToken(), t -> new CopyOnWriteArrayList<>())
+						.add(ltp.getSequenceNumber());
+			}
+		}, new SmartStreamRingBufferConfig(1024, 2, WaitStrategy.PARK));
+		ringBuffer.start();
+
+		String[] tokens = {"1594", "2885", "11536"};
+		for (long seq = 0; seq < 500; seq++) {
+			for (String token : tokens) {
+				while (!ringBuffer.publish(ltpPacket(token, seq))) {
+					Thread.yield();
+				}
+			}
+		}
+		awaitDrained(ringBuffer);
+		ringBuffer.shutdown();
+
+		assertEquals(0, ringBuffer.getLag());
+		for (String token : tokens) {
+			List<Long> sequenceNumbers = received.get(token);
+			long expected = 0;
+			for (Long seq : sequenceNumbers) {
+				assertEquals(expected++, seq.longValue());
+			}
+			assertEquals(500L, expected);
+		}
+	}
+
+	@Test
+	void testFramesAreDroppedWhenConsumerFallsBehind() throws InterruptedException {
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		SmartStreamRingBuffer ringBuffer = new SmartStreamRingBuffer(new RecordingListener() {
+			@Override
+			public void onLTPArrival(LTP ltp) {
+				entered.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, new SmartStreamRingBufferConfig(4, 1, WaitStrategy.YIELD));
+		ringBuffer.start();
+
+		assertTrue(ringBuffer.publish(ltpPacket("1594", 0)));
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		// the frame being dispatched still holds its slot
+		for (int i = 1; i < 4; i++) {
+			assertTrue(ringBuffer.publish(ltpPacket("1594", i)));
+		}
+		assertFalse(ringBuffer.publish(ltpPacket("1594", 4)));
+		assertEquals(1L, ringBuffer.getDroppedFrames());
+		assertEquals(4L, ringBuffer.getMaxLag());
+
+		release.countDown();
+		awaitDrained(ringBuffer);
+		ringBuffer.shutdown();
+		assertEquals(4L, ringBuffer.getPublishedFrames());
+		assertEquals(0L, ringBuffer.getLag());
+	}
+
+	private static class RecordingListener implements SmartStreamListener {
+		@Override
+		public void onLTPArrival(LTP ltp) {
+		}
+
+		@Override
+		public void onQuoteArrival(Quote quote) {
+		}
+
+		@Override
+		public void onSnapQuoteArrival(SnapQuote snapQuote) {
+		}
+
+		@Override
+		public void onDepthArrival(Depth depth) {
+		}
+
+		@Override
+		public void onConnected() {
+		}
+
+		@Override
+		public void onDisconnected() {
+		}
+
+		@Override
+		public void onError(SmartStreamError error) {
+		}
+
+		@Override
+		public void onPong() {
+		}
+
+		@Override
+		public SmartStreamError onErrorCustom() {
+			return null;
+		}
+	}
+}
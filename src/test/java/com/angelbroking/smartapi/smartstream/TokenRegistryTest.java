@@ -0,0 +1,50 @@
+package com.angelbroking.smartapi.smartstream;
+
+import static com.angelbroking.smartapi.utils.Constants.EXCHANGE_TYPE;
+import static com.angelbroking.smartapi.utils.Constants.TOKEN_OFFSET;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.smartstream.models.ExchangeType;
+import com.angelbroking.smartapi.smartstream.models.TokenID;
+import com.angelbroking.smartapi.smartstream.models.TokenRegistry;
+
+public class TokenRegistryTest {
+
+	private static byte[] packet(ExchangeType exchangeType, String token) {
+		byte[] packet = new byte[51];
+		packet[EXCHANGE_TYPE] = (byte) exchangeType.getVal();
+		byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+		System.arraycopy(bytes, 0, packet, TOKEN_OFFSET, bytes.length);
+		return packet;
+	}
+
+	@Test
+	void testInternReturnsCanonicalInstance() {
+		TokenRegistry registry = new TokenRegistry();
+		TokenID fromPacket = registry.intern(packet(ExchangeType.NSE_CM, "1594"));
+		TokenID fromTokenID = registry.intern(new TokenID(ExchangeType.NSE_CM, "1594"));
+
+		assertSame(fromPacket, fromTokenID);
+		assertEquals("1594", fromPacket.getToken());
+		assertEquals(0, registry.lookup(new TokenID(ExchangeType.NSE_CM, "1594")));
+		assertEquals(-1, registry.lookup(new TokenID(ExchangeType.BSE_CM, "1594")));
+	}
+
+	@Test
+	void testIdsAreDenseAcrossResize() {
+		TokenRegistry registry = new TokenRegistry(4);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, registry.idOf(packet(ExchangeType.NSE_FO, String.valueOf(35000 + i))));
+		}
+		assertEquals(1000, registry.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, registry.lookup(packet(ExchangeType.NSE_FO, String.valueOf(35000 + i))));
+			assertEquals(String.valueOf(35000 + i), registry.get(i).getToken());
+		}
+	}
+}
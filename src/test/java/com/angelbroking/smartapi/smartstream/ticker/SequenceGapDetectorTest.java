@@ -0,0 +1,55 @@
+package com.angelbroking.smartapi.smartstream.ticker;
+
+import static com.angelbroking.smartapi.utils.Constants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.smartstream.models.ExchangeType;
+import com.angelbroking.smartapi.smartstream.models.SmartStreamSubsMode;
+import com.angelbroking.smartapi.smartstream.models.TokenID;
+
+public class SequenceGapDetectorTest {
+
+	private static byte[] packet(SmartStreamSubsMode mode, String token, long sequenceNumber) {
+		ByteBuffer buffer = ByteBuffer.allocate(51).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(SUBSCRIPTION_MODE, (byte) mode.getVal());
+		buffer.put(EXCHANGE_TYPE, (byte) ExchangeType.NSE_CM.getVal());
+		byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < bytes.length; i++) {
+			buffer.put(TOKEN_OFFSET + i, bytes[i]);
+		}
+		buffer.putLong(SEQUENCE_NUMBER_OFFSET, sequenceNumber);
+		return buffer.array();
+	}
+
+	@Test
+	void testOnlyJumpsAcrossAReconnectAreGaps() {
+		List<String> gaps = new ArrayList<>();
+		SequenceGapDetector detector = new SequenceGapDetector(
+				(token, last, sequence) -> gaps.add(token + ":" + last + "-" + sequence));
+
+		detector.onPacket(packet(SmartStreamSubsMode.LTP, "3045", 100));
+		detector.onPacket(packet(SmartStreamSubsMode.LTP, "3045", 140));
+		detector.onPacket(packet(SmartStreamSubsMode.QUOTE, "1594", 141));
+		assertEquals(0, gaps.size());
+
+		detector.onReconnect();
+		detector.onPacket(packet(SmartStreamSubsMode.LTP, "3045", 200));
+		detector.onPacket(packet(SmartStreamSubsMode.LTP, "3045", 230));
+		// nothing was missed
+		detector.onPacket(packet(SmartStreamSubsMode.QUOTE, "1594", 142));
+		// first packet of the token, there is nothing to compare with
+		detector.onPacket(packet(SmartStreamSubsMode.LTP, "2885", 231));
+		detector.onPacket(packet(SmartStreamSubsMode.DEPTH_20, "3045", 1));
+
+		assertEquals(List.of(new TokenID(ExchangeType.NSE_CM, "3045") + ":140-200"), gaps);
+		assertEquals(1, detector.getGapCount());
+	}
+}
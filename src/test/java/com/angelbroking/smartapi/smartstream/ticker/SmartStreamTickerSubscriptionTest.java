@@ -0,0 +1,145 @@
+package com.angelbroking.smartapi.smartstream.ticker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import com.angelbroking.smartapi.smartstream.SmartStreamListenerImpl;
+import com.angelbroking.smartapi.smartstream.models.ExchangeType;
+import com.angelbroking.smartapi.smartstream.models.SmartStreamAction;
+import com.angelbroking.smartapi.smartstream.models.SmartStreamSubsMode;
+import com.angelbroking.smartapi.smartstream.models.TokenID;
+
+public class SmartStreamTickerSubscriptionTest {
+
+	/** A ticker whose socket only records the requests sent on it. */
+	private static class FakeSocketTicker extends SmartStreamTicker {
+		final List<JSONObject> requests = new CopyOnWriteArrayList<>();
+		volatile boolean open;
+
+		FakeSocketTicker() {
+			super("client", "feed", new SmartStreamListenerImpl());
+		}
+
+		@Override
+		public boolean isConnectionOpen() {
+			return open;
+		}
+
+		@Override
+		void openSocket() {
+			open = true;
+		}
+
+		@Override
+		void send(String request) {
+			requests.add(new JSONObject(request));
+		}
+	}
+
+	private static Set<TokenID> tokens(int from, int to) {
+		Set<TokenID> tokens = new HashSet<>();
+		for (int i = from; i < to; i++) {
+			tokens.add(new TokenID(ExchangeType.NSE_CM, String.valueOf(i)));
+		}
+		return tokens;
+	}
+
+	private static List<String> sentTokens(List<JSONObject> requests, SmartStreamAction action) {
+		List<String> sent = new ArrayList<>();
+		for (JSONObject request : requests) {
+			if (request.getInt("action") != action.getVal()) {
+				continue;
+			}
+			JSONArray tokenList = request.getJSONObject("params").getJSONArray("tokenList");
+			for (int i = 0; i < tokenList.length(); i++) {
+				JSONArray tokens = tokenList.getJSONObject(i).getJSONArray("tokens");
+				for (int j = 0; j < tokens.length(); j++) {
+					sent.add(tokens.getString(j));
+				}
+			}
+		}
+		return sent;
+	}
+
+	@Test
+	void testOnlyNewTokensAreSent() throws Exception {
+		FakeSocketTicker ticker = new FakeSocketTicker();
+		ticker.connect();
+
+		ticker.subscribe(SmartStreamSubsMode.LTP, tokens(0, 3));
+		ticker.requests.clear();
+		ticker.subscribe(SmartStreamSubsMode.LTP, tokens(0, 5));
+
+		List<String> sent = sentTokens(ticker.requests, SmartStreamAction.SUBS);
+		assertEquals(2, sent.size());
+		assertTrue(sent.containsAll(List.of("3", "4")));
+		assertEquals(tokens(0, 5), ticker.getSubscribedTokens(SmartStreamSubsMode.LTP));
+
+		ticker.requests.clear();
+		ticker.subscribe(SmartStreamSubsMode.LTP, tokens(0, 5));
+		assertTrue(ticker.requests.isEmpty());
+	}
+
+	@Test
+	void testRequestsAreSplitAtTheTokenLimit() throws Exception {
+		FakeSocketTicker ticker = new FakeSocketTicker();
+		ticker.connect();
+
+		ticker.subscribe(SmartStreamSubsMode.QUOTE, tokens(0, 2500));
+
+		assertEquals(3, ticker.requests.size());
+		for (JSONObject request : ticker.requests) {
+			assertTrue(sentTokens(List.of(request), SmartStreamAction.SUBS).size() <= SmartStreamTicker.MAX_TOKENS_PER_REQUEST);
+		}
+		assertEquals(2500, new HashSet<>(sentTokens(ticker.requests, SmartStreamAction.SUBS)).size());
+	}
+
+	@Test
+	void testUnsubscribeRemovesTokens() throws Exception {
+		FakeSocketTicker ticker = new FakeSocketTicker();
+		ticker.connect();
+		ticker.subscribe(SmartStreamSubsMode.LTP, tokens(0, 5));
+		ticker.requests.clear();
+
+		ticker.unsubscribe(SmartStreamSubsMode.LTP, tokens(3, 8));
+
+		List<String> sent = sentTokens(ticker.requests, SmartStreamAction.UNSUBS);
+		assertEquals(2, sent.size());
+		assertTrue(sent.containsAll(List.of("3", "4")));
+		assertEquals(tokens(0, 3), ticker.getSubscribedTokens(SmartStreamSubsMode.LTP));
+	}
+
+	@Test
+	void testReconnectResubscribesEveryToken() throws Exception {
+		FakeSocketTicker ticker = new FakeSocketTicker();
+		ticker.getReconnectSupervisor().setBackoff(1, 1, TimeUnit.MILLISECONDS);
+		ticker.connect();
+		ticker.subscribe(SmartStreamSubsMode.LTP, tokens(0, 1200));
+		ticker.subscribe(SmartStreamSubsMode.QUOTE, tokens(2000, 2010));
+		ticker.requests.clear();
+
+		ticker.open = false;
+		ticker.getWebsocketAdapter().onDisconnected(null, null, null, true);
+		long deadline = System.currentTimeMillis() + 5000;
+		while (ticker.requests.size() < 3 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		ticker.disconnect();
+
+		assertEquals(3, ticker.requests.size());
+		List<String> sent = sentTokens(ticker.requests, SmartStreamAction.SUBS);
+		assertEquals(1210, new HashSet<>(sent).size());
+		assertTrue(ticker.isConnectionOpen());
+	}
+}
@@ -0,0 +1,75 @@
+package com.angelbroking.smartapi.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class HeartbeatSchedulerTest {
+
+	@Test
+	void testHeartbeatsRunOnVirtualThreadsUntilStopped() throws Exception {
+		HeartbeatScheduler scheduler = new HeartbeatScheduler();
+		HeartbeatScheduler.Connection connection = scheduler.register("test");
+		CountDownLatch sent = new CountDownLatch(3);
+		AtomicBoolean virtual = new AtomicBoolean(true);
+		connection.scheduleHeartbeat(() -> {
+			virtual.compareAndSet(true, Thread.currentThread().isVirtual());
+			sent.countDown();
+		}, 0, 1, TimeUnit.MILLISECONDS);
+
+		assertTrue(sent.await(5, TimeUnit.SECONDS));
+		assertTrue(virtual.get());
+		assertTrue(connection.isActive());
+		connection.stop();
+		assertFalse(connection.isActive());
+		Thread.sleep(20);
+		long heartbeats = connection.getHeartbeats();
+		Thread.sleep(20);
+		assertEquals(heartbeats, connection.getHeartbeats());
+		assertEquals(1, scheduler.getConnections().size());
+
+		connection.close();
+		assertEquals(0, scheduler.getConnections().size());
+	}
+
+	@Test
+	void testStalePongsAreReportedOncePerTimeout() throws Exception {
+		HeartbeatScheduler.Connection connection = new HeartbeatScheduler().register("test");
+		AtomicInteger stale = new AtomicInteger();
+		CountDownLatch disconnected = new CountDownLatch(1);
+		connection.watchPongs(0, 1, 50, TimeUnit.MILLISECONDS, () -> {
+			stale.incrementAndGet();
+			disconnected.countDown();
+		});
+
+		for (int i = 0; i < 5; i++) {
+			connection.onPong();
+			Thread.sleep(5);
+		}
+		assertEquals(0, stale.get());
+		assertTrue(disconnected.await(5, TimeUnit.SECONDS));
+		connection.stop();
+		assertEquals(1, connection.getStalePongs());
+		assertEquals(5, connection.getPongs());
+	}
+
+	@Test
+	void testClosedConnectionsAreNotListedAndScheduleNothing() {
+		HeartbeatScheduler scheduler = new HeartbeatScheduler();
+		HeartbeatScheduler.Connection connection = scheduler.register("test");
+		connection.close();
+		assertTrue(connection.isClosed());
+
+		connection.scheduleHeartbeat(() -> {
+		}, 0, 1, TimeUnit.MILLISECONDS);
+		assertFalse(connection.isActive());
+		assertTrue(scheduler.getConnections().isEmpty());
+	}
+}
@@ -0,0 +1,38 @@
+package com.angelbroking.smartapi.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	void testPercentilesAreWithinBucketPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long micros = 1; micros <= 1000; micros++) {
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+		}
+
+		assertEquals(1000L, histogram.getCount());
+		assertEquals(1000L, histogram.getMax(TimeUnit.MICROSECONDS));
+		long p50 = histogram.getPercentile(50, TimeUnit.MICROSECONDS);
+		long p99 = histogram.getPercentile(99, TimeUnit.MICROSECONDS);
+		assertTrue(p50 >= 500 && p50 <= 500 * 1.07, "p50 " + p50);
+		assertTrue(p99 >= 990 && p99 <= 1000, "p99 " + p99);
+
+		histogram.reset();
+		assertEquals(0L, histogram.getPercentile(99.9, TimeUnit.NANOSECONDS));
+	}
+
+	@Test
+	void testBucketsCoverTheWholeRange() {
+		for (long value : new long[] { 0, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE }) {
+			int bucket = LatencyHistogram.bucketOf(value);
+			assertTrue(LatencyHistogram.upperBoundOf(bucket) >= value);
+			assertTrue(bucket == 0 || LatencyHistogram.upperBoundOf(bucket - 1) < value);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.angelbroking.smartapi.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+public class ReconnectSupervisorTest {
+
+	@Test
+	void testBackoffDoublesUpToTheMaximumWithJitter() {
+		ReconnectSupervisor supervisor = new ReconnectSupervisor("test", () -> {
+		});
+		supervisor.setBackoff(100, 1000, TimeUnit.MILLISECONDS);
+
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(50), supervisor.backoffNanos(0, 0));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(400), supervisor.backoffNanos(2, 0.999999999), 1000);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(500), supervisor.backoffNanos(10, 0));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), supervisor.backoffNanos(40, 0.999999999), 1000);
+	}
+
+	@Test
+	void testFailedAttemptsAreRetriedUntilTheConnectorSucceeds() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch connected = new CountDownLatch(1);
+		ReconnectSupervisor supervisor = new ReconnectSupervisor("test", () -> {
+			if (calls.incrementAndGet() < 3) {
+				throw new IOException("refused");
+			}
+			connected.countDown();
+		});
+		supervisor.setBackoff(1, 4, TimeUnit.MILLISECONDS);
+
+		assertTrue(supervisor.scheduleReconnect());
+		assertFalse(supervisor.scheduleReconnect());
+		assertTrue(connected.await(5, TimeUnit.SECONDS));
+		assertEquals(3, calls.get());
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (supervisor.isReconnecting() && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertFalse(supervisor.isReconnecting());
+		assertEquals(0, supervisor.getAttempts());
+	}
+
+	@Test
+	void testGivesUpAfterMaxAttempts() throws Exception {
+		CountDownLatch gaveUp = new CountDownLatch(1);
+		ReconnectSupervisor supervisor = new ReconnectSupervisor("test", () -> {
+			throw new IOException("refused");
+		});
+		supervisor.setBackoff(1, 2, TimeUnit.MILLISECONDS);
+		supervisor.setMaxAttempts(2);
+		supervisor.setGiveUpListener(e -> gaveUp.countDown());
+
+		supervisor.scheduleReconnect();
+		assertTrue(gaveUp.await(5, TimeUnit.SECONDS));
+		assertFalse(supervisor.isReconnecting());
+	}
+
+	@Test
+	void testDropWhileConnectingReconnectsAgain() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch reconnected = new CountDownLatch(2);
+		AtomicReference<ReconnectSupervisor> supervisor = new AtomicReference<>();
+		supervisor.set(new ReconnectSupervisor("test", () -> {
+			if (calls.incrementAndGet() == 1) {
+				// the new socket drops before the attempt returns
+				supervisor.get().scheduleReconnect();
+			}
+			reconnected.countDown();
+		}));
+		supervisor.get().setBackoff(1, 4, TimeUnit.MILLISECONDS);
+
+		supervisor.get().scheduleReconnect();
+		assertTrue(reconnected.await(5, TimeUnit.SECONDS));
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (supervisor.get().isReconnecting() && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertFalse(supervisor.get().isReconnecting());
+		assertEquals(2, calls.get());
+	}
+}